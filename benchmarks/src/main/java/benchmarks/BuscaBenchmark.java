@@ -0,0 +1,111 @@
+package benchmarks;
+
+import entities.Autor;
+import entities.Livro;
+import entities.Ordenacao;
+import entities.Usuario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede as buscas por ID e por ISBN, com IDs acessados em ordem aleatória, e as buscas textuais (exata e
+ * aproximada) por título e autor, em acervos de diferentes escalas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BuscaBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int quantidade;
+
+    GeradorAcervo.Acervo acervo;
+    String[] consultas;
+    String[] isbns;
+    String[] consultasComErros;
+
+    @Setup(Level.Trial)
+    public void gerar() {
+        acervo = GeradorAcervo.gerar(quantidade, "busca-benchmark.dat", false);
+        // Consultas por título ("livro" aparece em todos os títulos; o número o identifica) e por autor.
+        consultas = new String[1024];
+        for (int i = 0; i < consultas.length; i++) {
+            consultas[i] = i % 2 == 0 ? "Livro " + (i * 7919 % quantidade) : "autor " + (i * 7919 % Math.max(1, quantidade / 10));
+        }
+        // As mesmas consultas com uma letra trocada ou faltando.
+        consultasComErros = new String[consultas.length];
+        for (int i = 0; i < consultas.length; i++) {
+            consultasComErros[i] = i % 2 == 0 ? consultas[i].replace("Livro", "Livri") : consultas[i].replace("autor", "autr");
+        }
+        acervo.gerenciador.buscarLivros("livro", 1); // Monta o índice fora da medição.
+        acervo.gerenciador.buscarLivrosAproximados("livro", 1);
+        // ISBNs lidos por um leitor de código de barras: ISBN-13 sem hífens, em ordem aleatória.
+        isbns = new String[Math.min(acervo.idsLivros.length, 4096)];
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = acervo.gerenciador.buscarLivroPorId(acervo.idsLivros[i]).getIsbn();
+        }
+        acervo.gerenciador.buscarLivroPorIsbn(isbns[0]);
+    }
+
+    /**
+     * Posição corrente de cada thread nos vetores de IDs.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int posicao;
+
+        int proximo(int[] ids) {
+            return ids[proximoIndice(ids.length)];
+        }
+
+        int proximoIndice(int tamanho) {
+            posicao = posicao + 1 >= tamanho ? 0 : posicao + 1;
+            return posicao;
+        }
+    }
+
+    @Benchmark
+    public Livro buscarLivroPorId(Cursor cursor) {
+        return acervo.gerenciador.buscarLivroPorId(cursor.proximo(acervo.idsLivros));
+    }
+
+    @Benchmark
+    public Usuario buscarUsuarioPorId(Cursor cursor) {
+        return acervo.gerenciador.buscarUsuarioPorId(cursor.proximo(acervo.idsUsuarios));
+    }
+
+    @Benchmark
+    public List<Livro> buscarLivros(Cursor cursor) {
+        return acervo.gerenciador.buscarLivros(consultas[cursor.proximoIndice(consultas.length)], 20);
+    }
+
+    @Benchmark
+    public List<Livro> buscarLivrosAproximados(Cursor cursor) {
+        return acervo.gerenciador.buscarLivrosAproximados(consultasComErros[cursor.proximoIndice(consultasComErros.length)], 20);
+    }
+
+    @Benchmark
+    public Livro buscarLivroPorIsbn(Cursor cursor) {
+        return acervo.gerenciador.buscarLivroPorIsbn(isbns[cursor.proximoIndice(isbns.length)]);
+    }
+
+    @Benchmark
+    public List<Livro> listarPaginaDeLivros(Cursor cursor) {
+        return acervo.gerenciador.listarLivros(cursor.proximoIndice(acervo.idsLivros.length / 50) * 50, 50, Ordenacao.POR_ID);
+    }
+
+    @Benchmark
+    public List<Livro> listarTodosLivros() {
+        return acervo.gerenciador.listarTodosLivros();
+    }
+
+    @Benchmark
+    public Autor buscarAutorPorId(Cursor cursor) {
+        return acervo.gerenciador.buscarAutorPorId(cursor.proximo(acervo.idsAutores));
+    }
+}
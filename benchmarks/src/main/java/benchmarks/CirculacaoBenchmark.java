@@ -0,0 +1,137 @@
+package benchmarks;
+
+import entities.Emprestimo;
+import entities.Livro;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede empréstimos, devoluções, a listagem de empréstimos ativos e a remoção de livros.
+ * <p>
+ * Empréstimos, devoluções e remoções alteram o acervo, então são medidos em lotes de {@link #LOTE} operações
+ * por iteração: antes de cada iteração o estado necessário é preparado (empréstimos abertos, livros a remover)
+ * e, depois dela, desfeito, para que todas as iterações partam do mesmo acervo.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CirculacaoBenchmark {
+
+    static final int LOTE = 1_000;
+
+    /**
+     * O acervo compartilhado pelos benchmarks, gerado uma vez por escala.
+     */
+    @State(Scope.Benchmark)
+    public static class Dados {
+        @Param({"1000", "100000", "1000000"})
+        int quantidade;
+
+        GeradorAcervo.Acervo acervo;
+
+        @Setup(Level.Trial)
+        public void gerar() {
+            acervo = GeradorAcervo.gerar(quantidade, "circulacao-benchmark.dat", false);
+        }
+    }
+
+    /**
+     * Empréstimos feitos durante uma iteração, devolvidos ao final dela.
+     */
+    @State(Scope.Thread)
+    public static class Realizados {
+        final List<Emprestimo> emprestimos = new ArrayList<>(LOTE);
+        int posicao;
+
+        @TearDown(Level.Iteration)
+        public void devolver(Dados dados) {
+            for (Emprestimo emprestimo : emprestimos) {
+                dados.acervo.gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo());
+            }
+            emprestimos.clear();
+        }
+    }
+
+    /**
+     * Empréstimos abertos antes de uma iteração, para serem devolvidos durante ela.
+     */
+    @State(Scope.Thread)
+    public static class Abertos {
+        final List<Emprestimo> emprestimos = new ArrayList<>(LOTE);
+        int posicao;
+
+        @Setup(Level.Iteration)
+        public void emprestar(Dados dados) {
+            emprestimos.clear();
+            posicao = 0;
+            int[] livros = dados.acervo.idsLivros;
+            int[] usuarios = dados.acervo.idsUsuarios;
+            for (int i = 0; emprestimos.size() < LOTE; i++) {
+                Emprestimo emprestimo = dados.acervo.gerenciador.realizarEmprestimo(livros[i % livros.length], usuarios[i % usuarios.length]);
+                if (emprestimo != null) {
+                    emprestimos.add(emprestimo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Livros sem empréstimos incluídos antes de uma iteração, para serem removidos durante ela.
+     */
+    @State(Scope.Thread)
+    public static class Removiveis {
+        final int[] ids = new int[LOTE];
+        int posicao;
+
+        @Setup(Level.Iteration)
+        public void incluir(Dados dados) {
+            posicao = 0;
+            for (int i = 0; i < LOTE; i++) {
+                Livro livro = new Livro("Livro removível " + i, null, 2000, "Editora", 1, new ArrayList<>());
+                dados.acervo.gerenciador.adicionarLivro(livro);
+                ids[i] = livro.getIdLivro();
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = LOTE)
+    @Measurement(iterations = 10, batchSize = LOTE)
+    public Emprestimo realizarEmprestimo(Dados dados, Realizados realizados) {
+        int i = realizados.posicao++;
+        int[] livros = dados.acervo.idsLivros;
+        int[] usuarios = dados.acervo.idsUsuarios;
+        Emprestimo emprestimo = dados.acervo.gerenciador.realizarEmprestimo(livros[i % livros.length], usuarios[i % usuarios.length]);
+        if (emprestimo != null) {
+            realizados.emprestimos.add(emprestimo);
+        }
+        return emprestimo;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = LOTE)
+    @Measurement(iterations = 10, batchSize = LOTE)
+    public boolean registrarDevolucao(Dados dados, Abertos abertos) {
+        return dados.acervo.gerenciador.registrarDevolucao(abertos.emprestimos.get(abertos.posicao++).getIdEmprestimo());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = LOTE)
+    @Measurement(iterations = 10, batchSize = LOTE)
+    public boolean removerLivro(Dados dados, Removiveis removiveis) {
+        return dados.acervo.gerenciador.removerLivro(removiveis.ids[removiveis.posicao++]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public List<Emprestimo> listarEmprestimosAtivos(Dados dados) {
+        return dados.acervo.gerenciador.listarEmprestimosAtivos();
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import entities.Autor;
+import entities.GerenciadorBiblioteca;
+import entities.Livro;
+import entities.Usuario;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Gera acervos sintéticos para os benchmarks.
+ * Para uma escala N são criados N livros, N usuários, N/10 autores e N/10 empréstimos ativos.
+ * Os dados são determinísticos: a mesma escala sempre gera o mesmo acervo.
+ */
+public final class GeradorAcervo {
+    private static final String[] NACIONALIDADES = {"Brasileira", "Portuguesa", "Angolana", "Moçambicana"};
+    private static final String[] EDITORAS = {"Companhia das Letras", "Rocco", "Record", "Globo", "Saraiva", "Garnier"};
+
+    /** Exemplares de cada livro gerado. */
+    public static final int EXEMPLARES = 5;
+
+    private GeradorAcervo() {
+    }
+
+    /**
+     * Um acervo gerado e os IDs de suas entidades, em ordem aleatória.
+     */
+    public static final class Acervo {
+        public final GerenciadorBiblioteca gerenciador;
+        public final int[] idsAutores;
+        public final int[] idsLivros;
+        public final int[] idsUsuarios;
+
+        Acervo(GerenciadorBiblioteca gerenciador, int[] idsAutores, int[] idsLivros, int[] idsUsuarios) {
+            this.gerenciador = gerenciador;
+            this.idsAutores = idsAutores;
+            this.idsLivros = idsLivros;
+            this.idsUsuarios = idsUsuarios;
+        }
+    }
+
+    /**
+     * Gera um acervo em memória, sem diário de operações.
+     *
+     * @param quantidade A escala do acervo (número de livros e de usuários).
+     * @param arquivoDados O arquivo usado por salvarDados e carregarDados.
+     * @param mapeado true para usar o armazenamento mapeado.
+     * @return O acervo gerado.
+     */
+    public static Acervo gerar(int quantidade, String arquivoDados, boolean mapeado) {
+        Random aleatorio = new Random(42);
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(arquivoDados, mapeado);
+
+        int[] idsAutores = new int[Math.max(1, quantidade / 10)];
+        Autor[] autores = new Autor[idsAutores.length];
+        for (int i = 0; i < autores.length; i++) {
+            autores[i] = new Autor("Autor " + i, NACIONALIDADES[i % NACIONALIDADES.length]);
+            gerenciador.adicionarAutor(autores[i]);
+            idsAutores[i] = autores[i].getIdAutor();
+        }
+
+        int[] idsLivros = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            ArrayList<Autor> autoresDoLivro = new ArrayList<>();
+            int quantidadeAutores = 1 + aleatorio.nextInt(3);
+            for (int a = 0; a < quantidadeAutores; a++) {
+                autoresDoLivro.add(autores[aleatorio.nextInt(autores.length)]);
+            }
+            Livro livro = new Livro("Livro " + i, String.format("978%010d", i), 1900 + aleatorio.nextInt(125),
+                    EDITORAS[aleatorio.nextInt(EDITORAS.length)], EXEMPLARES, autoresDoLivro);
+            gerenciador.adicionarLivro(livro);
+            idsLivros[i] = livro.getIdLivro();
+        }
+
+        int[] idsUsuarios = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            Usuario usuario = new Usuario("Usuário " + i, String.format("%011d", i), "9" + String.format("%08d", i),
+                    "usuario" + i + "@email.com");
+            gerenciador.adicionarUsuario(usuario);
+            idsUsuarios[i] = usuario.getIdUsuario();
+        }
+
+        for (int i = 0; i < quantidade / 10; i++) {
+            gerenciador.realizarEmprestimo(idsLivros[aleatorio.nextInt(quantidade)], idsUsuarios[aleatorio.nextInt(quantidade)]);
+        }
+
+        embaralhar(idsAutores, aleatorio);
+        embaralhar(idsLivros, aleatorio);
+        embaralhar(idsUsuarios, aleatorio);
+        return new Acervo(gerenciador, idsAutores, idsLivros, idsUsuarios);
+    }
+
+    private static void embaralhar(int[] ids, Random aleatorio) {
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = aleatorio.nextInt(i + 1);
+            int troca = ids[i];
+            ids[i] = ids[j];
+            ids[j] = troca;
+        }
+    }
+}
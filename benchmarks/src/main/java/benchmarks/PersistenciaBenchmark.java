@@ -0,0 +1,70 @@
+package benchmarks;
+
+import entities.GerenciadorBiblioteca;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Mede salvarDados e carregarDados nos dois formatos de instantâneo: o binário em fluxo e o catálogo mapeado.
+ * Cada medição é uma única chamada, pois ambas as operações percorrem o arquivo inteiro (exceto a abertura
+ * do catálogo mapeado, que é justamente o que se quer comparar).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PersistenciaBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int quantidade;
+
+    @Param({"false", "true"})
+    boolean mapeado;
+
+    Path diretorio;
+    String arquivo;
+    GerenciadorBiblioteca carregado;
+
+    /**
+     * Gera o acervo, grava o instantâneo inicial e o carrega em um novo gerenciador, como na inicialização da aplicação.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        diretorio = Files.createTempDirectory("persistencia-benchmark");
+        arquivo = diretorio.resolve("dados.dat").toString();
+        GeradorAcervo.gerar(quantidade, arquivo, mapeado).gerenciador.salvarDados();
+        carregado = new GerenciadorBiblioteca(arquivo, mapeado);
+        carregado.carregarDados();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        carregado.encerrar();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                Files.delete(arquivo);
+            }
+        }
+        Files.delete(diretorio);
+    }
+
+    @Benchmark
+    public void salvarDados() {
+        carregado.salvarDados();
+    }
+
+    @Benchmark
+    public GerenciadorBiblioteca carregarDados() {
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(arquivo, mapeado);
+        gerenciador.carregarDados();
+        gerenciador.encerrar();
+        return gerenciador;
+    }
+}
@@ -0,0 +1,275 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitura e escrita de JSON para o ServidorBiblioteca, sem bibliotecas externas.
+ * <p>
+ * Objetos são lidos como Map (na ordem do texto), vetores como List, números inteiros como Long e os demais
+ * números como Double. Na escrita, qualquer outro valor é escrito como o texto de seu toString, o que cobre
+ * as datas.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Lê um valor JSON.
+     * @param texto O texto JSON.
+     * @return O valor lido.
+     * @throws IllegalArgumentException Se o texto não for JSON válido.
+     */
+    static Object ler(String texto) {
+        Leitor leitor = new Leitor(texto);
+        Object valor = leitor.valor();
+        leitor.pularEspacos();
+        if (leitor.posicao < texto.length()) {
+            throw leitor.erro("conteúdo após o fim do valor");
+        }
+        return valor;
+    }
+
+    /**
+     * Escreve um valor como JSON.
+     * @param valor Um Map, Collection, String, Number, Boolean, null ou outro valor escrito como texto.
+     * @return O texto JSON.
+     */
+    static String escrever(Object valor) {
+        StringBuilder saida = new StringBuilder();
+        escrever(valor, saida);
+        return saida.toString();
+    }
+
+    private static void escrever(Object valor, StringBuilder saida) {
+        if (valor == null) {
+            saida.append("null");
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            saida.append(valor);
+        } else if (valor instanceof Map) {
+            saida.append('{');
+            boolean primeiro = true;
+            for (Map.Entry<?, ?> campo : ((Map<?, ?>) valor).entrySet()) {
+                if (!primeiro) {
+                    saida.append(',');
+                }
+                primeiro = false;
+                escreverTexto(String.valueOf(campo.getKey()), saida);
+                saida.append(':');
+                escrever(campo.getValue(), saida);
+            }
+            saida.append('}');
+        } else if (valor instanceof Collection) {
+            saida.append('[');
+            boolean primeiro = true;
+            for (Object item : (Collection<?>) valor) {
+                if (!primeiro) {
+                    saida.append(',');
+                }
+                primeiro = false;
+                escrever(item, saida);
+            }
+            saida.append(']');
+        } else {
+            escreverTexto(valor.toString(), saida);
+        }
+    }
+
+    private static void escreverTexto(String texto, StringBuilder saida) {
+        saida.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"': saida.append("\\\""); break;
+                case '\\': saida.append("\\\\"); break;
+                case '\n': saida.append("\\n"); break;
+                case '\r': saida.append("\\r"); break;
+                case '\t': saida.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        saida.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        saida.append(c);
+                    }
+            }
+        }
+        saida.append('"');
+    }
+
+    /**
+     * Analisador descendente recursivo, um método por tipo de valor. A profundidade dos objetos e vetores é
+     * limitada a {@value #PROFUNDIDADE_MAXIMA} níveis, para que um corpo como "[[[[..." seja recusado como JSON
+     * inválido em vez de esgotar a pilha da thread.
+     */
+    private static final class Leitor {
+        private static final int PROFUNDIDADE_MAXIMA = 64;
+
+        private final String texto;
+        private int posicao;
+        private int profundidade;
+
+        Leitor(String texto) {
+            this.texto = texto;
+        }
+
+        Object valor() {
+            pularEspacos();
+            if (posicao >= texto.length()) {
+                throw erro("fim inesperado");
+            }
+            char c = texto.charAt(posicao);
+            switch (c) {
+                case '{':
+                case '[':
+                    if (++profundidade > PROFUNDIDADE_MAXIMA) {
+                        throw erro("mais de " + PROFUNDIDADE_MAXIMA + " níveis de objetos e vetores");
+                    }
+                    Object composto = c == '{' ? objeto() : vetor();
+                    profundidade--;
+                    return composto;
+                case '"': return texto();
+                case 't': return literal("true", Boolean.TRUE);
+                case 'f': return literal("false", Boolean.FALSE);
+                case 'n': return literal("null", null);
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return numero();
+                    }
+                    throw erro("caractere inesperado '" + c + "'");
+            }
+        }
+
+        private Map<String, Object> objeto() {
+            Map<String, Object> campos = new LinkedHashMap<>();
+            posicao++; // {
+            pularEspacos();
+            if (consumir('}')) {
+                return campos;
+            }
+            do {
+                pularEspacos();
+                if (posicao >= texto.length() || texto.charAt(posicao) != '"') {
+                    throw erro("nome de campo esperado");
+                }
+                String nome = texto();
+                pularEspacos();
+                if (!consumir(':')) {
+                    throw erro("':' esperado");
+                }
+                campos.put(nome, valor());
+                pularEspacos();
+            } while (consumir(','));
+            if (!consumir('}')) {
+                throw erro("'}' esperado");
+            }
+            return campos;
+        }
+
+        private List<Object> vetor() {
+            List<Object> itens = new ArrayList<>();
+            posicao++; // [
+            pularEspacos();
+            if (consumir(']')) {
+                return itens;
+            }
+            do {
+                itens.add(valor());
+                pularEspacos();
+            } while (consumir(','));
+            if (!consumir(']')) {
+                throw erro("']' esperado");
+            }
+            return itens;
+        }
+
+        private String texto() {
+            posicao++; // "
+            StringBuilder valor = new StringBuilder();
+            while (posicao < texto.length()) {
+                char c = texto.charAt(posicao++);
+                if (c == '"') {
+                    return valor.toString();
+                }
+                if (c != '\\') {
+                    valor.append(c);
+                    continue;
+                }
+                if (posicao >= texto.length()) {
+                    break;
+                }
+                char escape = texto.charAt(posicao++);
+                switch (escape) {
+                    case '"': case '\\': case '/': valor.append(escape); break;
+                    case 'b': valor.append('\b'); break;
+                    case 'f': valor.append('\f'); break;
+                    case 'n': valor.append('\n'); break;
+                    case 'r': valor.append('\r'); break;
+                    case 't': valor.append('\t'); break;
+                    case 'u':
+                        if (posicao + 4 > texto.length()) {
+                            throw erro("escape \\u incompleto");
+                        }
+                        try {
+                            valor.append((char) Integer.parseInt(texto.substring(posicao, posicao + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw erro("escape \\u inválido");
+                        }
+                        posicao += 4;
+                        break;
+                    default: throw erro("escape inválido '\\" + escape + "'");
+                }
+            }
+            throw erro("texto sem '\"' final");
+        }
+
+        private Number numero() {
+            int inicio = posicao;
+            boolean inteiro = true;
+            while (posicao < texto.length()) {
+                char c = texto.charAt(posicao);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    inteiro = false;
+                } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                    break;
+                }
+                posicao++;
+            }
+            String numero = texto.substring(inicio, posicao);
+            try {
+                return inteiro ? (Number) Long.parseLong(numero) : (Number) Double.parseDouble(numero);
+            } catch (NumberFormatException e) {
+                throw erro("número inválido '" + numero + "'");
+            }
+        }
+
+        private Object literal(String palavra, Object valor) {
+            if (!texto.startsWith(palavra, posicao)) {
+                throw erro("valor inválido");
+            }
+            posicao += palavra.length();
+            return valor;
+        }
+
+        private boolean consumir(char esperado) {
+            if (posicao < texto.length() && texto.charAt(posicao) == esperado) {
+                posicao++;
+                return true;
+            }
+            return false;
+        }
+
+        void pularEspacos() {
+            while (posicao < texto.length() && Character.isWhitespace(texto.charAt(posicao))) {
+                posicao++;
+            }
+        }
+
+        IllegalArgumentException erro(String motivo) {
+            return new IllegalArgumentException("JSON inválido na posição " + posicao + ": " + motivo + ".");
+        }
+    }
+}
@@ -3,27 +3,78 @@ package application;
 import entities.*; // Importa todas as classes do pacote entities
 
 import javax.swing.JOptionPane;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors; // Importa Collectors para uso em streams
 
 /**
  * Classe principal que executa o sistema de gerenciamento de biblioteca.
  * Oferece uma interface baseada em JOptionPane para interagir com o usuário,
  * permitindo adicionar livros, autores, usuários, gerenciar empréstimos e devoluções.
- * Os dados são persistidos em um arquivo binário.
+ * Os dados são persistidos em um arquivo binário e em um diário de operações.
  */
 public class Main {
     /**
      * O método principal que inicia a aplicação da biblioteca.
      * Carrega os dados existentes, exibe um menu de opções para o usuário
      * e executa as operações selecionadas até que o usuário decida sair e salvar.
+     * Com o argumento {@code --servidor [porta [threads]]}, não exibe o menu: atende os terminais pela API
+     * HTTP/JSON do ServidorBiblioteca até que o processo seja interrompido.
      *
-     * @param args Argumentos de linha de comando (não utilizados nesta aplicação).
+     * @param args Vazio para o menu, ou {@code --servidor} seguido da porta (padrão: 8080) e do número de threads
+     *             (padrão: 64) para o modo servidor.
      */
-    public static void main(String[] args) {
-        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca();
+    public static void main(String[] args) throws IOException {
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca("dados_biblioteca.dat", true); // Catálogo mapeado em memória, lido sob demanda
         gerenciador.carregarDados(); // Carrega os dados da biblioteca ao iniciar
+        gerenciador.arquivarEmprestimos(365); // Move para o arquivo os empréstimos devolvidos há mais de um ano
+        gerenciador.iniciarInstantaneosPeriodicos(5, TimeUnit.MINUTES); // Compacta o diário de operações em segundo plano
+        gerenciador.adicionarOuvinteAtrasos(new OuvinteAtrasos() { // Registra no console os avisos de atraso e as multas
+            @Override
+            public void emprestimoAtrasado(Emprestimo emprestimo, long diasAtraso) {
+                System.out.println("Empréstimo atrasado há " + diasAtraso + " dia(s): " + emprestimo);
+            }
+
+            @Override
+            public void multaGerada(Emprestimo emprestimo, BigDecimal valor) {
+                System.out.println("Multa de R$ " + valor + " pela devolução atrasada: " + emprestimo);
+            }
+        });
+        gerenciador.adicionarOuvinteReservas(new OuvinteReservas() { // Registra no console os avisos de reservas
+            @Override
+            public void reservaDisponivel(Reserva reserva) {
+                System.out.println("Exemplar separado para a reserva: " + reserva);
+            }
+
+            @Override
+            public void reservaExpirada(Reserva reserva) {
+                System.out.println("Reserva expirada sem retirada: " + reserva);
+            }
+        });
+        gerenciador.iniciarVerificacaoAtrasos(1, TimeUnit.HOURS); // Procura empréstimos atrasados e reservas vencidas em segundo plano
+
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            int porta = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+            // Sem TCP_NODELAY, o cabeçalho e o corpo de cada resposta, enviados separadamente, esperam o ACK atrasado
+            // do cliente (cerca de 40 ms por requisição em uma conexão mantida aberta). O servidor HTTP do JDK lê a
+            // propriedade uma única vez, ao ser carregado; por isso ela é definida antes de o servidor ser criado, e
+            // um valor passado na linha de comando (-Dsun.net.httpserver.nodelay=false) prevalece.
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            ServidorBiblioteca servidor = new ServidorBiblioteca(gerenciador, porta, threads);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> { // Ctrl+C: termina as requisições em andamento e fecha o diário
+                servidor.parar();
+                gerenciador.encerrar();
+            }));
+            servidor.iniciar();
+            System.out.println("Servidor da biblioteca atendendo na porta " + servidor.getPorta() + ".");
+            return; // As threads do servidor mantêm o processo ativo
+        }
 
         String menu = "Sistema de Biblioteca\n\n" +
                 "Gerenciar Acervo\n" +
@@ -51,11 +102,11 @@ public class Main {
                 int opcao = Integer.parseInt(input);
                 switch (opcao) {
                     case 1: adicionarLivro(gerenciador); break; // Adiciona um livro
-                    case 2: listar(gerenciador.listarTodosLivros(), "Livros Cadastrados"); break; // Lista todos os livros
+                    case 2: listarLivros(gerenciador); break; // Lista todos os livros
                     case 3: adicionarAutor(gerenciador); break; // Adiciona um autor
-                    case 4: listar(gerenciador.listarTodosAutores(), "Autores Cadastrados"); break; // Lista todos os autores
+                    case 4: listarAutores(gerenciador); break; // Lista todos os autores
                     case 5: adicionarUsuario(gerenciador); break; // Adiciona um usuário
-                    case 6: listar(gerenciador.listarTodosUsuarios(), "Usuários Cadastrados"); break; // Lista todos os usuários
+                    case 6: listarUsuarios(gerenciador); break; // Lista todos os usuários
                     case 7: realizarEmprestimo(gerenciador); break; // Realiza um empréstimo
                     case 8: registrarDevolucao(gerenciador); break; // Registra a devolução de um empréstimo
                     case 9: listar(gerenciador.listarEmprestimosAtivos(), "Empréstimos Ativos"); break; // Lista empréstimos ativos
@@ -72,7 +123,7 @@ public class Main {
             }
         } while (true);
 
-        gerenciador.salvarDados(); // Salva todos os dados da biblioteca antes de sair
+        gerenciador.encerrar(); // Cada operação já foi gravada no diário; apenas o fecha antes de sair
         JOptionPane.showMessageDialog(null, "Dados salvos com sucesso! Saindo...");
     }
 
@@ -188,8 +239,11 @@ public class Main {
         }
 
         Livro novoLivro = new Livro(titulo, isbn, ano, editora, qtd, autoresDoLivro); // Cria um novo objeto Livro
-        g.adicionarLivro(novoLivro); // Adiciona o livro ao gerenciador
-        JOptionPane.showMessageDialog(null, "Livro adicionado com sucesso!");
+        if (g.adicionarLivro(novoLivro)) { // Adiciona o livro ao gerenciador
+            JOptionPane.showMessageDialog(null, "Livro adicionado com sucesso!");
+        } else {
+            JOptionPane.showMessageDialog(null, "Já existe um livro cadastrado com o ISBN " + isbn + ".");
+        }
     }
 
     /**
@@ -223,8 +277,11 @@ public class Main {
             return;
         }
 
-        g.adicionarUsuario(new Usuario(nome, cpf, tel, email)); // Adiciona o usuário
-        JOptionPane.showMessageDialog(null, "Usuário adicionado com sucesso!");
+        if (g.adicionarUsuario(new Usuario(nome, cpf, tel, email))) { // Adiciona o usuário
+            JOptionPane.showMessageDialog(null, "Usuário adicionado com sucesso!");
+        } else {
+            JOptionPane.showMessageDialog(null, "Já existe um usuário cadastrado com este CPF ou e-mail.");
+        }
     }
 
     /**
@@ -257,8 +314,14 @@ public class Main {
         Emprestimo emprestimo = g.realizarEmprestimo(idLivro, idUsuario); // Realiza o empréstimo
         if (emprestimo != null) {
             JOptionPane.showMessageDialog(null, "Empréstimo realizado com sucesso!");
-        } else {
-            JOptionPane.showMessageDialog(null, "Erro: Não foi possível realizar o empréstimo.\nVerifique os IDs e a disponibilidade do livro.");
+        } else if (JOptionPane.showConfirmDialog(null, "Não foi possível realizar o empréstimo.\nDeseja reservar o livro?",
+                "Empréstimo", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+            Reserva reserva = g.reservarLivro(idLivro, idUsuario); // Entra na fila do livro
+            if (reserva != null) {
+                JOptionPane.showMessageDialog(null, "Reserva registrada! Posição na fila: " + g.listarReservas(idLivro).size());
+            } else {
+                JOptionPane.showMessageDialog(null, "Erro: Não foi possível reservar o livro.\nVerifique os IDs, a disponibilidade do livro e as reservas do usuário.");
+            }
         }
     }
 
@@ -286,6 +349,42 @@ public class Main {
         }
     }
 
+    private static void listarLivros(GerenciadorBiblioteca g) {
+        exibirTabela(new ModeloListagem<Livro>(g.contarLivros(), (inicio, quantidade) -> g.listarLivros(inicio, quantidade, Ordenacao.POR_ID),
+                new String[]{"ID", "Título", "ISBN", "Ano", "Editora", "Disponíveis"},
+                Livro::getIdLivro, Livro::getTitulo, Livro::getIsbn, Livro::getAnoPublicacao, Livro::getEditora,
+                livro -> livro.getQuantidadeDisponivel() + " de " + livro.getQuantidadeTotal()), "Livros Cadastrados");
+    }
+
+    private static void listarAutores(GerenciadorBiblioteca g) {
+        exibirTabela(new ModeloListagem<Autor>(g.contarAutores(), (inicio, quantidade) -> g.listarAutores(inicio, quantidade, Ordenacao.POR_ID),
+                new String[]{"ID", "Nome", "Nacionalidade"},
+                Autor::getIdAutor, Autor::getNome, Autor::getNacionalidade), "Autores Cadastrados");
+    }
+
+    private static void listarUsuarios(GerenciadorBiblioteca g) {
+        exibirTabela(new ModeloListagem<Usuario>(g.contarUsuarios(), (inicio, quantidade) -> g.listarUsuarios(inicio, quantidade, Ordenacao.POR_ID),
+                new String[]{"ID", "Nome", "CPF", "Telefone", "E-mail"},
+                Usuario::getIdUsuario, Usuario::getNome, Usuario::getCpf, Usuario::getTelefone, Usuario::getEmail), "Usuários Cadastrados");
+    }
+
+    /**
+     * Exibe uma listagem em uma tabela com rolagem. A tabela pede ao modelo apenas as linhas visíveis, que ele
+     * busca por páginas no gerenciador.
+     *
+     * @param modelo O modelo com a listagem.
+     * @param titulo O título da caixa de diálogo.
+     */
+    private static void exibirTabela(ModeloListagem<?> modelo, String titulo) {
+        if (modelo.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(null, "Nenhum item encontrado.", titulo, JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        javax.swing.JTable tabela = new javax.swing.JTable(modelo);
+        tabela.setPreferredScrollableViewportSize(new java.awt.Dimension(700, 300));
+        JOptionPane.showMessageDialog(null, new javax.swing.JScrollPane(tabela), titulo, JOptionPane.INFORMATION_MESSAGE);
+    }
+
     /**
      * Exibe uma lista genérica de itens em uma caixa de diálogo JOptionPane.
      * Cada item na lista é convertido para sua representação de string usando o método toString().
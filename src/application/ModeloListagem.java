@@ -0,0 +1,83 @@
+package application;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Modelo de JTable que busca as linhas por páginas, conforme a tabela as exibe.
+ * Apenas as páginas visíveis (e algumas recentes) ficam em memória, de modo que listar um acervo grande não
+ * copia o acervo inteiro nem monta um texto com todos os itens.
+ *
+ * @param <T> O tipo dos itens listados.
+ */
+class ModeloListagem<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final int TAMANHO_PAGINA = 100;
+    private static final int PAGINAS_EM_MEMORIA = 8;
+
+    /**
+     * Busca uma página de itens.
+     * @param <T> O tipo dos itens.
+     */
+    interface Paginacao<T> {
+        List<T> pagina(int inicio, int quantidade);
+    }
+
+    private final int quantidade;
+    // O modelo só existe enquanto a tabela está aberta e nunca é serializado.
+    private final transient Paginacao<T> paginacao;
+    private final String[] colunas;
+    private final transient List<Function<T, Object>> valores;
+    private final transient Map<Integer, List<T>> paginas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> maisAntiga) {
+            return size() > PAGINAS_EM_MEMORIA;
+        }
+    };
+
+    /**
+     * @param quantidade O número de itens, contado uma vez ao abrir a listagem.
+     * @param paginacao Busca as páginas de itens.
+     * @param colunas Os títulos das colunas.
+     * @param valores O valor de cada coluna para um item, na mesma ordem dos títulos.
+     */
+    @SafeVarargs
+    ModeloListagem(int quantidade, Paginacao<T> paginacao, String[] colunas, Function<T, Object>... valores) {
+        this.quantidade = quantidade;
+        this.paginacao = paginacao;
+        this.colunas = colunas;
+        List<Function<T, Object>> copia = new ArrayList<>(valores.length);
+        for (Function<T, Object> valor : valores) {
+            copia.add(valor);
+        }
+        this.valores = copia;
+    }
+
+    @Override
+    public int getRowCount() {
+        return quantidade;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return colunas.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return colunas[coluna];
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        int numero = linha / TAMANHO_PAGINA;
+        List<T> pagina = paginas.computeIfAbsent(numero, n -> paginacao.pagina(n * TAMANHO_PAGINA, TAMANHO_PAGINA));
+        int posicao = linha % TAMANHO_PAGINA;
+        // Itens removidos depois da contagem deixam o final da listagem vazio.
+        return posicao < pagina.size() ? valores.get(coluna).apply(pagina.get(posicao)) : null;
+    }
+}
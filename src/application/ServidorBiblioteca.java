@@ -0,0 +1,557 @@
+package application;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entities.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Servidor HTTP/JSON que expõe as operações de um GerenciadorBiblioteca, para que vários terminais (balcões e
+ * totens de autoatendimento) usem a biblioteca ao mesmo tempo.
+ * <p>
+ * Usa o servidor HTTP do JDK: uma única thread aceita as conexões e lê as requisições de todas elas, e cada
+ * requisição é atendida por uma thread de um conjunto fixo. Conexões abertas e ociosas não ocupam threads, de
+ * modo que milhares de terminais conectados são atendidos por algumas dezenas de threads; como as operações do
+ * gerenciador são curtas e não esperam por E/S de rede, o número de threads só precisa acompanhar os núcleos e as
+ * gravações do diário. Requisições além da capacidade aguardam na fila do conjunto. Quem inicia o servidor deve
+ * definir a propriedade {@code sun.net.httpserver.nodelay=true} antes de criá-lo, como faz o Main: sem ela, cada
+ * resposta espera o ACK atrasado do cliente.
+ * <p>
+ * Rotas (corpos e respostas em JSON; listas paginadas por {@code inicio}, {@code quantidade} e
+ * {@code ordem=id|nome}):
+ * <pre>
+ * GET    /livros                      GET  /livros/busca?q=...&amp;limite=...
+ * POST   /livros                      GET|PUT|DELETE /livros/{id}
+ * GET    /livros/{id}/reservas        GET  /livros/{id}/historico?pagina=...
+ * GET    /autores                     POST /autores          GET|PUT|DELETE /autores/{id}
+ * GET    /usuarios                    POST /usuarios         GET|PUT|DELETE /usuarios/{id}
+ * GET    /usuarios/{id}/historico?pagina=...
+ * GET    /emprestimos                 POST /emprestimos      POST /emprestimos/{id}/devolucao
+ * POST   /reservas                    DELETE /reservas/{idLivro}/{idUsuario}
+ * </pre>
+ * Os erros respondem {@code {"erro": "..."}} com o código HTTP correspondente: 400 para requisições mal formadas,
+ * 404 para registros inexistentes, 409 quando a operação não é possível no estado atual (sem exemplares, ISBN ou
+ * CPF repetidos) e 413 para corpos maiores que {@value #TAMANHO_MAXIMO_CORPO} bytes.
+ */
+public class ServidorBiblioteca {
+    public static final int TAMANHO_MAXIMO_CORPO = 1 << 20;
+    private static final int TAMANHO_MAXIMO_PAGINA = 1_000;
+    private static final int FILA_CONEXOES = 4_096; // Conexões aguardando aceite, para rajadas de muitos terminais.
+
+    private final GerenciadorBiblioteca gerenciador;
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+
+    /**
+     * Cria o servidor, sem iniciá-lo.
+     *
+     * @param gerenciador O gerenciador, já carregado.
+     * @param porta A porta TCP, ou 0 para uma porta livre qualquer (ver {@link #getPorta()}).
+     * @param threads O número de threads que atendem as requisições.
+     * @throws IOException Se não for possível abrir a porta.
+     */
+    public ServidorBiblioteca(GerenciadorBiblioteca gerenciador, int porta, int threads) throws IOException {
+        this.gerenciador = gerenciador;
+        this.servidor = HttpServer.create(new InetSocketAddress(porta), FILA_CONEXOES);
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, tarefa -> new Thread(tarefa, "http-" + contador.incrementAndGet()));
+        servidor.setExecutor(executor);
+        servidor.createContext("/", this::atender);
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Para de aceitar requisições, espera as que estão em andamento e libera as threads.
+     * O gerenciador não é encerrado.
+     */
+    public void parar() {
+        servidor.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Resposta de uma rota: o código HTTP e o valor escrito como JSON.
+     */
+    private static final class Resposta {
+        final int codigo;
+        final Object corpo;
+
+        Resposta(int codigo, Object corpo) {
+            this.codigo = codigo;
+            this.corpo = corpo;
+        }
+    }
+
+    /**
+     * Erro que interrompe o atendimento de uma requisição com um código HTTP.
+     */
+    private static final class ErroHttp extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int codigo;
+
+        ErroHttp(int codigo, String mensagem) {
+            super(mensagem);
+            this.codigo = codigo;
+        }
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        Resposta resposta;
+        try {
+            resposta = rotear(troca);
+        } catch (ErroHttp e) {
+            resposta = erro(e.codigo, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // Validações das entidades e do gerenciador, como ISBN repetido ou lote grande demais.
+            resposta = erro(409, e.getMessage());
+        } catch (RuntimeException e) {
+            // Os detalhes ficam no console do servidor; o terminal recebe apenas a indicação do erro.
+            System.err.println("Erro ao atender " + troca.getRequestMethod() + " " + troca.getRequestURI() + ": " + e);
+            e.printStackTrace();
+            resposta = erro(500, "Erro interno do servidor.");
+        }
+        byte[] corpo = Json.escrever(resposta.corpo).getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(resposta.codigo, corpo.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(corpo);
+        }
+    }
+
+    private Resposta rotear(HttpExchange troca) throws IOException {
+        String metodo = troca.getRequestMethod();
+        String[] partes = troca.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+        Map<String, String> parametros = parametros(troca.getRequestURI().getRawQuery());
+        String recurso = partes[0];
+        int tamanho = partes.length;
+
+        switch (recurso) {
+            case "livros":
+                if (tamanho == 1) {
+                    if (metodo.equals("GET")) {
+                        int total = gerenciador.contarLivros();
+                        return ok(pagina(total, gerenciador.listarLivros(inicio(parametros), quantidade(parametros), ordem(parametros)), ServidorBiblioteca::livro));
+                    }
+                    exigirMetodo(metodo, "POST");
+                    return criarLivro(corpo(troca));
+                }
+                if (tamanho == 2 && partes[1].equals("busca")) {
+                    exigirMetodo(metodo, "GET");
+                    String consulta = parametros.getOrDefault("q", "");
+                    return ok(lista(gerenciador.buscarLivros(consulta, limite(parametros)), ServidorBiblioteca::livro));
+                }
+                int idLivro = id(partes[1]);
+                if (tamanho == 2) {
+                    switch (metodo) {
+                        case "GET": return ok(livro(encontrado(gerenciador.buscarLivroPorId(idLivro), "Livro")));
+                        case "PUT": return alterarLivro(encontrado(gerenciador.buscarLivroPorId(idLivro), "Livro"), corpo(troca));
+                        case "DELETE": return removido(gerenciador.removerLivro(idLivro), "Livro não encontrado ou com empréstimos ativos.");
+                        default: throw metodoNaoPermitido(metodo);
+                    }
+                }
+                if (tamanho == 3 && partes[2].equals("reservas")) {
+                    exigirMetodo(metodo, "GET");
+                    encontrado(gerenciador.buscarLivroPorId(idLivro), "Livro");
+                    return ok(lista(gerenciador.listarReservas(idLivro), ServidorBiblioteca::reserva));
+                }
+                if (tamanho == 3 && partes[2].equals("historico")) {
+                    exigirMetodo(metodo, "GET");
+                    return ok(lista(gerenciador.historicoPorLivro(idLivro, parametro(parametros, "pagina", 0)), ServidorBiblioteca::emprestimo));
+                }
+                break;
+            case "autores":
+                if (tamanho == 1) {
+                    if (metodo.equals("GET")) {
+                        int total = gerenciador.contarAutores();
+                        return ok(pagina(total, gerenciador.listarAutores(inicio(parametros), quantidade(parametros), ordem(parametros)), ServidorBiblioteca::autor));
+                    }
+                    exigirMetodo(metodo, "POST");
+                    Map<String, Object> dados = corpo(troca);
+                    Autor autor = new Autor(textoObrigatorio(dados, "nome"), texto(dados, "nacionalidade"));
+                    gerenciador.adicionarAutor(autor);
+                    return new Resposta(201, autor(autor));
+                }
+                if (tamanho == 2) {
+                    int idAutor = id(partes[1]);
+                    switch (metodo) {
+                        case "GET": return ok(autor(encontrado(gerenciador.buscarAutorPorId(idAutor), "Autor")));
+                        case "PUT":
+                            Autor autor = encontrado(gerenciador.buscarAutorPorId(idAutor), "Autor");
+                            Map<String, Object> dados = corpo(troca);
+                            if (dados.containsKey("nome")) {
+                                autor.setNome(textoObrigatorio(dados, "nome"));
+                            }
+                            if (dados.containsKey("nacionalidade")) {
+                                autor.setNacionalidade(texto(dados, "nacionalidade"));
+                            }
+                            return ok(autor(autor));
+                        case "DELETE": return removido(gerenciador.removerAutor(idAutor), "Autor não encontrado ou com livros cadastrados.");
+                        default: throw metodoNaoPermitido(metodo);
+                    }
+                }
+                break;
+            case "usuarios":
+                if (tamanho == 1) {
+                    if (metodo.equals("GET")) {
+                        int total = gerenciador.contarUsuarios();
+                        return ok(pagina(total, gerenciador.listarUsuarios(inicio(parametros), quantidade(parametros), ordem(parametros)), ServidorBiblioteca::usuario));
+                    }
+                    exigirMetodo(metodo, "POST");
+                    Map<String, Object> dados = corpo(troca);
+                    Usuario usuario = new Usuario(textoObrigatorio(dados, "nome"), textoObrigatorio(dados, "cpf"),
+                            texto(dados, "telefone"), textoObrigatorio(dados, "email"));
+                    if (!gerenciador.adicionarUsuario(usuario)) {
+                        throw new ErroHttp(409, "Já existe um usuário cadastrado com este CPF ou e-mail.");
+                    }
+                    return new Resposta(201, usuario(usuario));
+                }
+                int idUsuario = id(partes[1]);
+                if (tamanho == 2) {
+                    switch (metodo) {
+                        case "GET": return ok(usuario(encontrado(gerenciador.buscarUsuarioPorId(idUsuario), "Usuário")));
+                        case "PUT": return alterarUsuario(encontrado(gerenciador.buscarUsuarioPorId(idUsuario), "Usuário"), corpo(troca));
+                        case "DELETE": return removido(gerenciador.removerUsuario(idUsuario), "Usuário não encontrado ou com empréstimos ativos.");
+                        default: throw metodoNaoPermitido(metodo);
+                    }
+                }
+                if (tamanho == 3 && partes[2].equals("historico")) {
+                    exigirMetodo(metodo, "GET");
+                    return ok(lista(gerenciador.historicoPorUsuario(idUsuario, parametro(parametros, "pagina", 0)), ServidorBiblioteca::emprestimo));
+                }
+                break;
+            case "emprestimos":
+                if (tamanho == 1) {
+                    if (metodo.equals("GET")) {
+                        int total = gerenciador.contarEmprestimosAtivos();
+                        return ok(pagina(total, gerenciador.listarEmprestimosAtivos(inicio(parametros), quantidade(parametros)), ServidorBiblioteca::emprestimo));
+                    }
+                    exigirMetodo(metodo, "POST");
+                    Map<String, Object> dados = corpo(troca);
+                    Emprestimo emprestimo = gerenciador.realizarEmprestimo(inteiroObrigatorio(dados, "livro"), inteiroObrigatorio(dados, "usuario"));
+                    if (emprestimo == null) {
+                        throw new ErroHttp(409, "Não foi possível realizar o empréstimo. Verifique os IDs e a disponibilidade do livro.");
+                    }
+                    return new Resposta(201, emprestimo(emprestimo));
+                }
+                if (tamanho == 3 && partes[2].equals("devolucao")) {
+                    exigirMetodo(metodo, "POST");
+                    if (!gerenciador.registrarDevolucao(id(partes[1]))) {
+                        throw new ErroHttp(404, "Empréstimo não encontrado ou já devolvido.");
+                    }
+                    return ok(mapa("devolvido", true));
+                }
+                break;
+            case "reservas":
+                if (tamanho == 1) {
+                    exigirMetodo(metodo, "POST");
+                    Map<String, Object> dados = corpo(troca);
+                    Reserva reserva = gerenciador.reservarLivro(inteiroObrigatorio(dados, "livro"), inteiroObrigatorio(dados, "usuario"));
+                    if (reserva == null) {
+                        throw new ErroHttp(409, "Não foi possível reservar o livro. Verifique os IDs, a disponibilidade do livro e as reservas do usuário.");
+                    }
+                    return new Resposta(201, reserva(reserva));
+                }
+                if (tamanho == 3) {
+                    exigirMetodo(metodo, "DELETE");
+                    return removido(gerenciador.cancelarReserva(id(partes[1]), id(partes[2])), "Reserva não encontrada.");
+                }
+                break;
+            default:
+                break;
+        }
+        throw new ErroHttp(404, "Rota não encontrada: " + metodo + " " + troca.getRequestURI().getPath());
+    }
+
+    private Resposta criarLivro(Map<String, Object> dados) {
+        ArrayList<Autor> autores = new ArrayList<>();
+        Object ids = dados.get("autores");
+        if (!(ids instanceof List) || ((List<?>) ids).isEmpty()) {
+            throw new ErroHttp(400, "O campo 'autores' deve ser uma lista com os IDs de pelo menos um autor.");
+        }
+        for (Object id : (List<?>) ids) {
+            if (!(id instanceof Long)) {
+                throw new ErroHttp(400, "O campo 'autores' deve conter apenas IDs numéricos.");
+            }
+            Autor autor = gerenciador.buscarAutorPorId(((Long) id).intValue());
+            if (autor == null) {
+                throw new ErroHttp(404, "Autor com ID " + id + " não encontrado.");
+            }
+            autores.add(autor);
+        }
+        int quantidade = inteiroObrigatorio(dados, "quantidadeTotal");
+        if (quantidade <= 0) {
+            throw new ErroHttp(400, "A quantidade de exemplares deve ser um número positivo.");
+        }
+        Livro livro = new Livro(textoObrigatorio(dados, "titulo"), texto(dados, "isbn"), inteiro(dados, "anoPublicacao", 0),
+                texto(dados, "editora"), quantidade, autores);
+        if (!gerenciador.adicionarLivro(livro)) {
+            throw new ErroHttp(409, "Já existe um livro cadastrado com o ISBN " + livro.getIsbn() + ".");
+        }
+        return new Resposta(201, livro(livro));
+    }
+
+    private Resposta alterarLivro(Livro livro, Map<String, Object> dados) {
+        // Os setters avisam o gerenciador, que atualiza os índices e grava a alteração no diário.
+        if (dados.containsKey("titulo")) {
+            livro.setTitulo(textoObrigatorio(dados, "titulo"));
+        }
+        if (dados.containsKey("isbn")) {
+            livro.setIsbn(texto(dados, "isbn"));
+        }
+        if (dados.containsKey("anoPublicacao")) {
+            livro.setAnoPublicacao(inteiroObrigatorio(dados, "anoPublicacao"));
+        }
+        if (dados.containsKey("editora")) {
+            livro.setEditora(texto(dados, "editora"));
+        }
+        return ok(livro(livro));
+    }
+
+    private Resposta alterarUsuario(Usuario usuario, Map<String, Object> dados) {
+        if (dados.containsKey("nome")) {
+            usuario.setNome(textoObrigatorio(dados, "nome"));
+        }
+        if (dados.containsKey("cpf")) {
+            usuario.setCpf(textoObrigatorio(dados, "cpf"));
+        }
+        if (dados.containsKey("telefone")) {
+            usuario.setTelefone(texto(dados, "telefone"));
+        }
+        if (dados.containsKey("email")) {
+            usuario.setEmail(textoObrigatorio(dados, "email"));
+        }
+        return ok(usuario(usuario));
+    }
+
+    // Conversão das entidades para JSON.
+
+    private static Map<String, Object> livro(Livro livro) {
+        List<Object> autores = new ArrayList<>();
+        for (Autor autor : livro.getAutores()) {
+            autores.add(mapa("id", autor.getIdAutor(), "nome", autor.getNome()));
+        }
+        return mapa("id", livro.getIdLivro(), "titulo", livro.getTitulo(), "isbn", livro.getIsbn(),
+                "anoPublicacao", livro.getAnoPublicacao(), "editora", livro.getEditora(),
+                "quantidadeTotal", livro.getQuantidadeTotal(), "quantidadeDisponivel", livro.getQuantidadeDisponivel(),
+                "autores", autores);
+    }
+
+    private static Map<String, Object> autor(Autor autor) {
+        return mapa("id", autor.getIdAutor(), "nome", autor.getNome(), "nacionalidade", autor.getNacionalidade());
+    }
+
+    private static Map<String, Object> usuario(Usuario usuario) {
+        return mapa("id", usuario.getIdUsuario(), "nome", usuario.getNome(), "cpf", usuario.getCpf(),
+                "telefone", usuario.getTelefone(), "email", usuario.getEmail());
+    }
+
+    private static Map<String, Object> emprestimo(Emprestimo emprestimo) {
+        return mapa("id", emprestimo.getIdEmprestimo(), "livro", emprestimo.getLivro().getIdLivro(),
+                "titulo", emprestimo.getLivro().getTitulo(), "usuario", emprestimo.getUsuario().getIdUsuario(),
+                "dataEmprestimo", emprestimo.getDataEmprestimo(), "dataDevolucaoPrevista", emprestimo.getDataDevolucaoPrevista(),
+                "dataDevolucaoEfetiva", emprestimo.getDataDevolucaoEfetiva());
+    }
+
+    private static Map<String, Object> reserva(Reserva reserva) {
+        return mapa("livro", reserva.getLivro().getIdLivro(), "usuario", reserva.getUsuario().getIdUsuario(),
+                "dataReserva", reserva.getDataReserva(), "prazoRetirada", reserva.getPrazoRetirada(),
+                "situacao", reserva.getSituacao());
+    }
+
+    private static Map<String, Object> mapa(Object... chavesEValores) {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < chavesEValores.length; i += 2) {
+            mapa.put((String) chavesEValores[i], chavesEValores[i + 1]);
+        }
+        return mapa;
+    }
+
+    private static <T> List<Object> lista(Collection<T> itens, Function<T, Object> conversao) {
+        List<Object> convertidos = new ArrayList<>(itens.size());
+        for (T item : itens) {
+            convertidos.add(conversao.apply(item));
+        }
+        return convertidos;
+    }
+
+    private static <T> Map<String, Object> pagina(int total, List<T> itens, Function<T, Object> conversao) {
+        return mapa("total", total, "itens", lista(itens, conversao));
+    }
+
+    // Leitura e validação das requisições.
+
+    private static Map<String, Object> corpo(HttpExchange troca) throws IOException {
+        byte[] bytes;
+        try (InputStream entrada = troca.getRequestBody()) {
+            bytes = entrada.readNBytes(TAMANHO_MAXIMO_CORPO + 1);
+        }
+        if (bytes.length > TAMANHO_MAXIMO_CORPO) {
+            throw new ErroHttp(413, "O corpo da requisição excede " + TAMANHO_MAXIMO_CORPO + " bytes.");
+        }
+        Object valor;
+        try {
+            valor = Json.ler(new String(bytes, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ErroHttp(400, e.getMessage());
+        }
+        if (!(valor instanceof Map)) {
+            throw new ErroHttp(400, "O corpo da requisição deve ser um objeto JSON.");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> objeto = (Map<String, Object>) valor;
+        return objeto;
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nome = igual >= 0 ? par.substring(0, igual) : par;
+            String valor = igual >= 0 ? par.substring(igual + 1) : "";
+            try {
+                parametros.put(URLDecoder.decode(nome, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new ErroHttp(400, "Parâmetro mal codificado: " + par);
+            }
+        }
+        return parametros;
+    }
+
+    private static String texto(Map<String, Object> dados, String campo) {
+        Object valor = dados.get(campo);
+        if (valor != null && !(valor instanceof String)) {
+            throw new ErroHttp(400, "O campo '" + campo + "' deve ser um texto.");
+        }
+        return (String) valor;
+    }
+
+    private static String textoObrigatorio(Map<String, Object> dados, String campo) {
+        String valor = texto(dados, campo);
+        if (valor == null || valor.trim().isEmpty()) {
+            throw new ErroHttp(400, "O campo '" + campo + "' não pode ser vazio.");
+        }
+        return valor;
+    }
+
+    private static int inteiro(Map<String, Object> dados, String campo, int padrao) {
+        return dados.get(campo) == null ? padrao : inteiroObrigatorio(dados, campo);
+    }
+
+    private static int inteiroObrigatorio(Map<String, Object> dados, String campo) {
+        Object valor = dados.get(campo);
+        if (!(valor instanceof Long) || (Long) valor != ((Long) valor).intValue()) {
+            throw new ErroHttp(400, "O campo '" + campo + "' deve ser um número inteiro.");
+        }
+        return ((Long) valor).intValue();
+    }
+
+    private static int parametro(Map<String, String> parametros, String nome, int padrao) {
+        String valor = parametros.get(nome);
+        if (valor == null || valor.isEmpty()) {
+            return padrao;
+        }
+        try {
+            int numero = Integer.parseInt(valor);
+            if (numero < 0) {
+                throw new ErroHttp(400, "O parâmetro '" + nome + "' não pode ser negativo.");
+            }
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new ErroHttp(400, "O parâmetro '" + nome + "' deve ser um número inteiro.");
+        }
+    }
+
+    private static int inicio(Map<String, String> parametros) {
+        return parametro(parametros, "inicio", 0);
+    }
+
+    private static int quantidade(Map<String, String> parametros) {
+        return Math.min(parametro(parametros, "quantidade", 50), TAMANHO_MAXIMO_PAGINA);
+    }
+
+    private static int limite(Map<String, String> parametros) {
+        return Math.min(parametro(parametros, "limite", 20), TAMANHO_MAXIMO_PAGINA);
+    }
+
+    private static Ordenacao ordem(Map<String, String> parametros) {
+        String ordem = parametros.getOrDefault("ordem", "id");
+        switch (ordem) {
+            case "id": return Ordenacao.POR_ID;
+            case "nome": return Ordenacao.POR_NOME;
+            default: throw new ErroHttp(400, "O parâmetro 'ordem' deve ser 'id' ou 'nome'.");
+        }
+    }
+
+    private static int id(String texto) {
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            throw new ErroHttp(404, "ID inválido: " + texto);
+        }
+    }
+
+    private static <T> T encontrado(T registro, String tipo) {
+        if (registro == null) {
+            throw new ErroHttp(404, tipo + " não encontrado.");
+        }
+        return registro;
+    }
+
+    private static void exigirMetodo(String metodo, String esperado) {
+        if (!metodo.equals(esperado)) {
+            throw metodoNaoPermitido(metodo);
+        }
+    }
+
+    private static ErroHttp metodoNaoPermitido(String metodo) {
+        return new ErroHttp(405, "Método não permitido: " + metodo);
+    }
+
+    private static Resposta ok(Object corpo) {
+        return new Resposta(200, corpo);
+    }
+
+    private static Resposta removido(boolean removido, String mensagemFalha) {
+        if (!removido) {
+            throw new ErroHttp(404, mensagemFalha);
+        }
+        return ok(mapa("removido", true));
+    }
+
+    private static Resposta erro(int codigo, String mensagem) {
+        return new Resposta(codigo, mapa("erro", mensagem));
+    }
+}
@@ -0,0 +1,171 @@
+package entities;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Arquivo frio dos empréstimos devolvidos, fora do instantâneo: segmentos compactados com GZIP em um diretório
+ * ao lado do arquivo de dados, separados pelo mês da devolução.
+ * <p>
+ * Cada arquivamento grava, para cada mês envolvido, um novo segmento AAAA-MM.NNNNNNNN.seg. O segmento é gravado
+ * em um arquivo temporário e só então renomeado, de modo que uma falha no meio da gravação não deixa segmentos
+ * incompletos. Os registros trazem, além dos IDs e das datas, o título e o ISBN do livro e o nome e o CPF do
+ * usuário, para que o histórico continue legível depois que o livro ou o usuário forem removidos.
+ * <p>
+ * Formato de um segmento (dentro do GZIP): quantidade de registros (int) e, para cada registro, ID do empréstimo,
+ * ID do livro e ID do usuário (int), datas de empréstimo, prevista e de devolução em dias desde a época (int) e
+ * título, ISBN, nome e CPF (UTF).
+ * <p>
+ * Não é sincronizado: o GerenciadorBiblioteca arquiva sob a trava de escrita e lê sob a de leitura.
+ */
+final class ArquivoEmprestimos {
+    private static final String EXTENSAO = ".seg";
+
+    private final Path diretorio;
+
+    /**
+     * Um empréstimo lido do arquivo.
+     */
+    static final class Registro {
+        int idEmprestimo;
+        int idLivro;
+        int idUsuario;
+        int dataEmprestimo;
+        int dataDevolucaoPrevista;
+        int dataDevolucaoEfetiva;
+        String titulo;
+        String isbn;
+        String nome;
+        String cpf;
+    }
+
+    /**
+     * @param diretorio O diretório dos segmentos, criado no primeiro arquivamento.
+     */
+    ArquivoEmprestimos(Path diretorio) {
+        this.diretorio = diretorio;
+    }
+
+    /**
+     * Grava empréstimos devolvidos em novos segmentos, um por mês de devolução, e aguarda sua gravação em disco.
+     * @param emprestimos Os empréstimos a arquivar, todos já devolvidos.
+     * @throws IOException Se algum segmento não puder ser gravado; os segmentos já gravados são mantidos.
+     */
+    void arquivar(Collection<Emprestimo> emprestimos) throws IOException {
+        Map<YearMonth, List<Emprestimo>> porMes = new TreeMap<>();
+        for (Emprestimo emprestimo : emprestimos) {
+            porMes.computeIfAbsent(YearMonth.from(emprestimo.getDataDevolucaoEfetiva()), mes -> new ArrayList<>()).add(emprestimo);
+        }
+        Files.createDirectories(diretorio);
+        long sequencia = ultimaSequencia() + 1;
+        for (Map.Entry<YearMonth, List<Emprestimo>> entrada : porMes.entrySet()) {
+            Path segmento = diretorio.resolve(String.format("%s.%08d%s", entrada.getKey(), sequencia, EXTENSAO));
+            Path temporario = diretorio.resolve(segmento.getFileName() + ".tmp");
+            try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile())) {
+                GZIPOutputStream gzip = new GZIPOutputStream(arquivo, 1 << 16);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, 1 << 16));
+                out.writeInt(entrada.getValue().size());
+                for (Emprestimo emprestimo : entrada.getValue()) {
+                    gravar(out, emprestimo);
+                }
+                out.flush();
+                gzip.finish();
+                arquivo.getFD().sync();
+            }
+            Files.move(temporario, segmento, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Lê os empréstimos arquivados, segmento a segmento, em ordem de mês de devolução.
+     * @param destino Recebe cada registro; ao retornar false, a leitura é interrompida.
+     * @throws IOException Se algum segmento não puder ser lido.
+     */
+    void percorrer(Predicate<Registro> destino) throws IOException {
+        for (Path segmento : segmentos()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(Files.newInputStream(segmento), 1 << 16), 1 << 16))) {
+                int quantidade = in.readInt();
+                for (int i = 0; i < quantidade; i++) {
+                    if (!destino.test(ler(in))) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void gravar(DataOutputStream out, Emprestimo emprestimo) throws IOException {
+        Livro livro = emprestimo.getLivro();
+        Usuario usuario = emprestimo.getUsuario();
+        out.writeInt(emprestimo.getIdEmprestimo());
+        out.writeInt(livro.getIdLivro());
+        out.writeInt(usuario.getIdUsuario());
+        out.writeInt((int) emprestimo.getDataEmprestimo().toEpochDay());
+        out.writeInt((int) emprestimo.getDataDevolucaoPrevista().toEpochDay());
+        out.writeInt((int) emprestimo.getDataDevolucaoEfetiva().toEpochDay());
+        out.writeUTF(texto(livro.getTitulo()));
+        out.writeUTF(texto(livro.getIsbn()));
+        out.writeUTF(texto(usuario.getNome()));
+        out.writeUTF(texto(usuario.getCpf()));
+    }
+
+    private static Registro ler(DataInputStream in) throws IOException {
+        Registro registro = new Registro();
+        registro.idEmprestimo = in.readInt();
+        registro.idLivro = in.readInt();
+        registro.idUsuario = in.readInt();
+        registro.dataEmprestimo = in.readInt();
+        registro.dataDevolucaoPrevista = in.readInt();
+        registro.dataDevolucaoEfetiva = in.readInt();
+        registro.titulo = in.readUTF();
+        registro.isbn = in.readUTF();
+        registro.nome = in.readUTF();
+        registro.cpf = in.readUTF();
+        return registro;
+    }
+
+    private static String texto(String valor) {
+        return valor == null ? "" : valor;
+    }
+
+    private List<Path> segmentos() throws IOException {
+        // Os nomes começam pelo mês e têm a sequência com largura fixa, de modo que a ordem alfabética é a cronológica.
+        List<Path> segmentos = new ArrayList<>();
+        if (!Files.isDirectory(diretorio)) {
+            return segmentos;
+        }
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                segmentos.add(arquivo);
+            }
+        }
+        segmentos.sort(null);
+        return segmentos;
+    }
+
+    private long ultimaSequencia() throws IOException {
+        long ultima = 0;
+        for (Path segmento : segmentos()) {
+            String nome = segmento.getFileName().toString();
+            try {
+                ultima = Math.max(ultima, Long.parseLong(nome.substring(nome.indexOf('.') + 1, nome.length() - EXTENSAO.length())));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                // Ignora arquivos que não seguem o padrão de nomes dos segmentos.
+            }
+        }
+        return ultima;
+    }
+}
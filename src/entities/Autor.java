@@ -8,11 +8,12 @@ import java.io.Serializable;
  */
 public class Autor implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static int proximoId = 1; // Armazena o próximo ID disponível para um objeto Autor.
+    static final SequenciaId SEQUENCIA = new SequenciaId(); // Gera os IDs dos objetos Autor, inclusive em paralelo.
 
     private int idAutor;
     private String nome;
     private String nacionalidade;
+    private transient ObservadorEntidades observador; // O gerenciador em que o autor está cadastrado, se houver.
 
     /**
      * Constrói um novo Autor com o nome e nacionalidade especificados.
@@ -22,7 +23,21 @@ public class Autor implements Serializable {
      * @param nacionalidade A nacionalidade do autor.
      */
     public Autor(String nome, String nacionalidade) {
-        this.idAutor = proximoId++;
+        this.idAutor = SEQUENCIA.proximo();
+        this.nome = nome;
+        this.nacionalidade = nacionalidade;
+    }
+
+    /**
+     * Reconstrói um Autor com um ID já atribuído, ao restaurar os dados gravados.
+     *
+     * @param idAutor O ID do autor.
+     * @param nome O nome do autor.
+     * @param nacionalidade A nacionalidade do autor.
+     */
+    Autor(int idAutor, String nome, String nacionalidade) {
+        SEQUENCIA.avancarAlem(idAutor);
+        this.idAutor = idAutor;
         this.nome = nome;
         this.nacionalidade = nacionalidade;
     }
@@ -49,13 +64,45 @@ public class Autor implements Serializable {
      * Define o nome do autor.
      * @param nome O novo nome do autor.
      */
-    public void setNome(String nome) { this.nome = nome; }
+    public void setNome(String nome) {
+        String anterior = this.nome;
+        this.nome = nome;
+        avisarAlteracao(() -> this.nome = anterior);
+    }
 
     /**
      * Define a nacionalidade do autor.
      * @param nacionalidade A nova nacionalidade do autor.
      */
-    public void setNacionalidade(String nacionalidade) { this.nacionalidade = nacionalidade; }
+    public void setNacionalidade(String nacionalidade) {
+        String anterior = this.nacionalidade;
+        this.nacionalidade = nacionalidade;
+        avisarAlteracao(() -> this.nacionalidade = anterior);
+    }
+
+    /**
+     * Define quem deve ser avisado das alterações feitas pelos setters, ou null para ninguém.
+     * @param observador O observador, normalmente o GerenciadorBiblioteca em que o autor está cadastrado.
+     */
+    void setObservador(ObservadorEntidades observador) { this.observador = observador; }
+
+    /**
+     * Grava no ID a filial da rede em que o autor é cadastrado, antes de ir para o diário (ver SequenciaId).
+     * @param filial O índice da filial; 0 fora de uma rede.
+     */
+    void definirFilial(int filial) { idAutor = SequenciaId.naFilial(idAutor, filial); }
+
+    private void avisarAlteracao(Runnable desfazer) {
+        ObservadorEntidades atual = observador;
+        if (atual != null) {
+            try {
+                atual.autorAlterado(this);
+            } catch (RuntimeException e) {
+                desfazer.run(); // O diário não pôde ser gravado: o autor volta ao valor anterior.
+                throw e;
+            }
+        }
+    }
 
     /**
      * Retorna uma representação de string do objeto Autor.
@@ -71,6 +118,14 @@ public class Autor implements Serializable {
      * @param proximoId O próximo ID a ser usado.
      */
     public static void setProximoId(int proximoId) {
-        Autor.proximoId = proximoId;
+        SEQUENCIA.definir(proximoId);
+    }
+
+    /**
+     * Retorna o próximo ID que será atribuído a um objeto Autor. Isso é usado para persistência de dados.
+     * @return O próximo ID a ser usado.
+     */
+    public static int getProximoId() {
+        return SEQUENCIA.atual();
     }
 }
\ No newline at end of file
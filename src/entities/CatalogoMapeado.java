@@ -0,0 +1,588 @@
+package entities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Instantâneo do GerenciadorBiblioteca em um arquivo mapeado em memória, lido sob demanda.
+ * <p>
+ * Após um cabeçalho de tamanho fixo vêm regiões de registros de tamanho fixo (autores, livros, usuários e
+ * empréstimos), cada uma ordenada por ID, de modo que um registro é localizado por busca binária sem que nada
+ * precise ser carregado antes. Em seguida vêm os índices dos empréstimos ativos, os IDs dos autores de cada livro,
+ * as reservas em aberto e, por último, um heap de textos: os registros guardam apenas a posição de cada texto no heap, e textos
+ * repetidos são gravados uma única vez.
+ * <p>
+ * Livros e usuários já removidos do acervo, mas ainda referenciados pelo histórico de empréstimos, permanecem
+ * em suas regiões marcados como removidos.
+ * <p>
+ * Diferentemente de {@link CodecBiblioteca}, o arquivo não tem CRC: verificá-lo exigiria ler o arquivo inteiro
+ * na abertura. Apenas o cabeçalho e o tamanho do arquivo são conferidos.
+ */
+final class CatalogoMapeado {
+    static final int MAGICO = 0x4249424D; // "BIBM"
+    static final int VERSAO = 1;
+
+    private static final int TAMANHO_CABECALHO = 64;
+    private static final int TAMANHO_AUTOR = 12;
+    private static final int TAMANHO_LIVRO = 36;
+    private static final int TAMANHO_USUARIO = 24;
+    private static final int TAMANHO_EMPRESTIMO = 24;
+    private static final int TAMANHO_RESERVA = 16;
+
+    private static final int SEM_TEXTO = -1;
+    private static final int SEM_DATA = Integer.MIN_VALUE;
+    private static final short REMOVIDO = 1;
+
+    // Leituras usam apenas os métodos absolutos do buffer, que não alteram sua posição e podem ser feitos
+    // por várias threads ao mesmo tempo.
+    private final MappedByteBuffer dados;
+    private final long geracao;
+    private final int proximoIdAutor;
+    private final int proximoIdLivro;
+    private final int proximoIdUsuario;
+    private final int proximoIdEmprestimo;
+
+    private final int quantidadeAutores;
+    private final int quantidadeLivros;
+    private final int quantidadeUsuarios;
+    private final int quantidadeEmprestimos;
+    private final int quantidadeAtivos;
+    private final int quantidadeReservas;
+
+    private final int inicioAutores;
+    private final int inicioLivros;
+    private final int inicioUsuarios;
+    private final int inicioEmprestimos;
+    private final int inicioAtivos;
+    private final int inicioAutoresDeLivros;
+    private final int inicioReservas;
+    private final int inicioTextos;
+
+    private CatalogoMapeado(MappedByteBuffer dados, long tamanhoArquivo) throws IOException {
+        this.dados = dados;
+        if (tamanhoArquivo < TAMANHO_CABECALHO || dados.getInt(0) != MAGICO) {
+            throw new IOException("Arquivo não é um catálogo mapeado.");
+        }
+        if (dados.getInt(4) != VERSAO) {
+            throw new IOException("Versão de catálogo mapeado não suportada: " + dados.getInt(4));
+        }
+        geracao = dados.getLong(8);
+        proximoIdAutor = dados.getInt(16);
+        proximoIdLivro = dados.getInt(20);
+        proximoIdUsuario = dados.getInt(24);
+        proximoIdEmprestimo = dados.getInt(28);
+        quantidadeAutores = dados.getInt(32);
+        quantidadeLivros = dados.getInt(36);
+        quantidadeUsuarios = dados.getInt(40);
+        quantidadeEmprestimos = dados.getInt(44);
+        quantidadeAtivos = dados.getInt(48);
+        int quantidadeAutoresDeLivros = dados.getInt(52);
+        int tamanhoTextos = dados.getInt(56);
+        quantidadeReservas = dados.getInt(60); // 0 nos catálogos gravados antes das reservas.
+
+        long posicao = TAMANHO_CABECALHO;
+        inicioAutores = (int) posicao;
+        posicao += (long) quantidadeAutores * TAMANHO_AUTOR;
+        inicioLivros = (int) posicao;
+        posicao += (long) quantidadeLivros * TAMANHO_LIVRO;
+        inicioUsuarios = (int) posicao;
+        posicao += (long) quantidadeUsuarios * TAMANHO_USUARIO;
+        inicioEmprestimos = (int) posicao;
+        posicao += (long) quantidadeEmprestimos * TAMANHO_EMPRESTIMO;
+        inicioAtivos = (int) posicao;
+        posicao += (long) quantidadeAtivos * 4;
+        inicioAutoresDeLivros = (int) posicao;
+        posicao += (long) quantidadeAutoresDeLivros * 4;
+        inicioReservas = (int) posicao;
+        posicao += (long) quantidadeReservas * TAMANHO_RESERVA;
+        inicioTextos = (int) posicao;
+        posicao += tamanhoTextos;
+        if (posicao != tamanhoArquivo) {
+            throw new IOException("Catálogo mapeado incompleto ou corrompido.");
+        }
+    }
+
+    /**
+     * Verifica se o arquivo está neste formato, lendo apenas o número mágico.
+     * @param arquivo O arquivo a verificar.
+     * @return true se o arquivo começa pelo número mágico deste formato.
+     * @throws IOException Se o arquivo não puder ser lido.
+     */
+    static boolean reconhece(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer magico = ByteBuffer.allocate(4);
+            return canal.read(magico, 0) == 4 && magico.getInt(0) == MAGICO;
+        }
+    }
+
+    /**
+     * Mapeia o arquivo em memória. Apenas o cabeçalho é lido; os registros são lidos pelo sistema operacional
+     * à medida que são acessados.
+     *
+     * @param arquivo O arquivo do catálogo.
+     * @return O catálogo aberto.
+     * @throws IOException Se o arquivo não puder ser mapeado ou não for um catálogo válido.
+     */
+    static CatalogoMapeado abrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Catálogo mapeado maior que 2 GB.");
+            }
+            // O mapeamento continua válido depois que o canal é fechado.
+            return new CatalogoMapeado(canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho), tamanho);
+        }
+    }
+
+    long getGeracao() { return geracao; }
+
+    int getProximoIdAutor() { return proximoIdAutor; }
+
+    int getProximoIdLivro() { return proximoIdLivro; }
+
+    int getProximoIdUsuario() { return proximoIdUsuario; }
+
+    int getProximoIdEmprestimo() { return proximoIdEmprestimo; }
+
+    int quantidadeAutores() { return quantidadeAutores; }
+
+    int quantidadeLivros() { return quantidadeLivros; }
+
+    int quantidadeUsuarios() { return quantidadeUsuarios; }
+
+    int quantidadeEmprestimos() { return quantidadeEmprestimos; }
+
+    int quantidadeEmprestimosAtivos() { return quantidadeAtivos; }
+
+    int quantidadeReservas() { return quantidadeReservas; }
+
+    int idAutor(int indice) { return dados.getInt(inicioAutores + indice * TAMANHO_AUTOR); }
+
+    int idLivro(int indice) { return dados.getInt(inicioLivros + indice * TAMANHO_LIVRO); }
+
+    int idUsuario(int indice) { return dados.getInt(inicioUsuarios + indice * TAMANHO_USUARIO); }
+
+    int idEmprestimo(int indice) { return dados.getInt(inicioEmprestimos + indice * TAMANHO_EMPRESTIMO); }
+
+    int livroEmprestimo(int indice) { return dados.getInt(inicioEmprestimos + indice * TAMANHO_EMPRESTIMO + 4); }
+
+    int usuarioEmprestimo(int indice) { return dados.getInt(inicioEmprestimos + indice * TAMANHO_EMPRESTIMO + 8); }
+
+    /**
+     * Localiza um autor pelo ID.
+     * @param idAutor O ID procurado.
+     * @return A posição do registro, ou -1 se não houver autor com esse ID.
+     */
+    int indiceAutor(int idAutor) { return buscar(inicioAutores, TAMANHO_AUTOR, quantidadeAutores, idAutor); }
+
+    /**
+     * Localiza um livro pelo ID, inclusive entre os removidos.
+     * @param idLivro O ID procurado.
+     * @return A posição do registro, ou -1 se não houver livro com esse ID.
+     */
+    int indiceLivro(int idLivro) { return buscar(inicioLivros, TAMANHO_LIVRO, quantidadeLivros, idLivro); }
+
+    /**
+     * Localiza um usuário pelo ID, inclusive entre os removidos.
+     * @param idUsuario O ID procurado.
+     * @return A posição do registro, ou -1 se não houver usuário com esse ID.
+     */
+    int indiceUsuario(int idUsuario) { return buscar(inicioUsuarios, TAMANHO_USUARIO, quantidadeUsuarios, idUsuario); }
+
+    /**
+     * Localiza um empréstimo pelo ID.
+     * @param idEmprestimo O ID procurado.
+     * @return A posição do registro, ou -1 se não houver empréstimo com esse ID.
+     */
+    int indiceEmprestimo(int idEmprestimo) {
+        return buscar(inicioEmprestimos, TAMANHO_EMPRESTIMO, quantidadeEmprestimos, idEmprestimo);
+    }
+
+    /**
+     * Retorna a posição, na região de empréstimos, do i-ésimo empréstimo ativo.
+     * @param i Um número entre 0 e quantidadeEmprestimosAtivos() - 1.
+     * @return A posição do registro do empréstimo.
+     */
+    int indiceEmprestimoAtivo(int i) { return dados.getInt(inicioAtivos + i * 4); }
+
+    boolean livroRemovido(int indice) {
+        return dados.getShort(inicioLivros + indice * TAMANHO_LIVRO + 34) == REMOVIDO;
+    }
+
+    boolean usuarioRemovido(int indice) {
+        return dados.getShort(inicioUsuarios + indice * TAMANHO_USUARIO + 20) == REMOVIDO;
+    }
+
+    boolean emprestimoDevolvido(int indice) {
+        return dados.getInt(inicioEmprestimos + indice * TAMANHO_EMPRESTIMO + 20) != SEM_DATA;
+    }
+
+    String nomeAutor(int indice) {
+        return texto(dados.getInt(inicioAutores + indice * TAMANHO_AUTOR + 4));
+    }
+
+    String tituloLivro(int indice) {
+        return texto(dados.getInt(inicioLivros + indice * TAMANHO_LIVRO + 4));
+    }
+
+    String isbnLivro(int indice) {
+        return texto(dados.getInt(inicioLivros + indice * TAMANHO_LIVRO + 8));
+    }
+
+    String nomeUsuario(int indice) {
+        return texto(dados.getInt(inicioUsuarios + indice * TAMANHO_USUARIO + 4));
+    }
+
+    String cpfUsuario(int indice) {
+        return texto(dados.getInt(inicioUsuarios + indice * TAMANHO_USUARIO + 8));
+    }
+
+    String emailUsuario(int indice) {
+        return texto(dados.getInt(inicioUsuarios + indice * TAMANHO_USUARIO + 16));
+    }
+
+    int[] idsAutoresLivro(int indice) {
+        int p = inicioLivros + indice * TAMANHO_LIVRO;
+        int inicio = dados.getInt(p + 28);
+        int[] ids = new int[dados.getShort(p + 32) & 0xFFFF];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dados.getInt(inicioAutoresDeLivros + (inicio + i) * 4);
+        }
+        return ids;
+    }
+
+    Autor lerAutor(int indice) {
+        int p = inicioAutores + indice * TAMANHO_AUTOR;
+        return new Autor(dados.getInt(p), texto(dados.getInt(p + 4)), texto(dados.getInt(p + 8)));
+    }
+
+    /**
+     * Cria o Livro correspondente a um registro.
+     *
+     * @param indice A posição do registro.
+     * @param autores Resolve os IDs dos autores; autores não encontrados são omitidos.
+     * @return Um novo objeto Livro.
+     */
+    Livro lerLivro(int indice, IntFunction<Autor> autores) {
+        int p = inicioLivros + indice * TAMANHO_LIVRO;
+        int inicio = dados.getInt(p + 28);
+        int quantidade = dados.getShort(p + 32) & 0xFFFF;
+        ArrayList<Autor> autoresDoLivro = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Autor autor = autores.apply(dados.getInt(inicioAutoresDeLivros + (inicio + i) * 4));
+            if (autor != null) {
+                autoresDoLivro.add(autor);
+            }
+        }
+        return new Livro(dados.getInt(p), texto(dados.getInt(p + 4)), texto(dados.getInt(p + 8)), dados.getInt(p + 12),
+                texto(dados.getInt(p + 16)), dados.getInt(p + 20), dados.getInt(p + 24), autoresDoLivro);
+    }
+
+    Usuario lerUsuario(int indice) {
+        int p = inicioUsuarios + indice * TAMANHO_USUARIO;
+        return new Usuario(dados.getInt(p), texto(dados.getInt(p + 4)), texto(dados.getInt(p + 8)),
+                texto(dados.getInt(p + 12)), texto(dados.getInt(p + 16)));
+    }
+
+    /**
+     * Cria o Emprestimo correspondente a um registro.
+     *
+     * @param indice A posição do registro.
+     * @param livros Resolve o ID do livro emprestado.
+     * @param usuarios Resolve o ID do usuário.
+     * @return Um novo objeto Emprestimo.
+     */
+    Emprestimo lerEmprestimo(int indice, IntFunction<Livro> livros, IntFunction<Usuario> usuarios) {
+        int p = inicioEmprestimos + indice * TAMANHO_EMPRESTIMO;
+        int efetiva = dados.getInt(p + 20);
+        return new Emprestimo(dados.getInt(p), livros.apply(dados.getInt(p + 4)), usuarios.apply(dados.getInt(p + 8)),
+                LocalDate.ofEpochDay(dados.getInt(p + 12)), LocalDate.ofEpochDay(dados.getInt(p + 16)),
+                efetiva == SEM_DATA ? null : LocalDate.ofEpochDay(efetiva));
+    }
+
+    /**
+     * Lê uma reserva em aberto. As reservas de cada livro estão na ordem da fila.
+     * @param indice Um número entre 0 e quantidadeReservas() - 1.
+     * @param livros Fornece o livro de um ID.
+     * @param usuarios Fornece o usuário de um ID.
+     * @return Um novo objeto Reserva.
+     */
+    Reserva lerReserva(int indice, IntFunction<Livro> livros, IntFunction<Usuario> usuarios) {
+        int p = inicioReservas + indice * TAMANHO_RESERVA;
+        int prazo = dados.getInt(p + 12);
+        return new Reserva(livros.apply(dados.getInt(p)), usuarios.apply(dados.getInt(p + 4)),
+                LocalDate.ofEpochDay(dados.getInt(p + 8)), prazo == SEM_DATA ? null : LocalDate.ofEpochDay(prazo));
+    }
+
+    /**
+     * Lê o catálogo inteiro para a memória, como um instantâneo comum.
+     * @return O conteúdo do catálogo.
+     */
+    CodecBiblioteca.Instantaneo lerTudo() {
+        CodecBiblioteca.Instantaneo instantaneo = new CodecBiblioteca.Instantaneo();
+        MapaInt<Autor> autores = new MapaInt<>(quantidadeAutores);
+        for (int i = 0; i < quantidadeAutores; i++) {
+            Autor autor = lerAutor(i);
+            autores.put(autor.getIdAutor(), autor);
+            instantaneo.autores.add(autor);
+        }
+        MapaInt<Livro> livros = new MapaInt<>(quantidadeLivros);
+        for (int i = 0; i < quantidadeLivros; i++) {
+            Livro livro = lerLivro(i, autores::get);
+            livros.put(livro.getIdLivro(), livro);
+            if (!livroRemovido(i)) {
+                instantaneo.livros.add(livro);
+            }
+        }
+        MapaInt<Usuario> usuarios = new MapaInt<>(quantidadeUsuarios);
+        for (int i = 0; i < quantidadeUsuarios; i++) {
+            Usuario usuario = lerUsuario(i);
+            usuarios.put(usuario.getIdUsuario(), usuario);
+            if (!usuarioRemovido(i)) {
+                instantaneo.usuarios.add(usuario);
+            }
+        }
+        for (int i = 0; i < quantidadeEmprestimos; i++) {
+            instantaneo.emprestimos.add(lerEmprestimo(i, livros::get, usuarios::get));
+        }
+        for (int i = 0; i < quantidadeReservas; i++) {
+            instantaneo.reservas.add(lerReserva(i, livros::get, usuarios::get));
+        }
+        instantaneo.proximoIdAutor = proximoIdAutor;
+        instantaneo.proximoIdLivro = proximoIdLivro;
+        instantaneo.proximoIdUsuario = proximoIdUsuario;
+        instantaneo.proximoIdEmprestimo = proximoIdEmprestimo;
+        instantaneo.geracao = geracao;
+        return instantaneo;
+    }
+
+    private int buscar(int inicio, int tamanhoRegistro, int quantidade, int id) {
+        int baixo = 0;
+        int alto = quantidade - 1;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            int atual = dados.getInt(inicio + meio * tamanhoRegistro);
+            if (atual < id) {
+                baixo = meio + 1;
+            } else if (atual > id) {
+                alto = meio - 1;
+            } else {
+                return meio;
+            }
+        }
+        return -1;
+    }
+
+    private String texto(int posicao) {
+        if (posicao == SEM_TEXTO) {
+            return null;
+        }
+        byte[] bytes = new byte[dados.getInt(inicioTextos + posicao)];
+        dados.get(inicioTextos + posicao + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Grava um catálogo completo no arquivo informado, substituindo seu conteúdo, e força a gravação em disco.
+     * Livros e usuários referenciados pelos empréstimos, mas ausentes das listas, são gravados como removidos.
+     *
+     * @param arquivo O arquivo de destino.
+     * @param autores Os autores cadastrados.
+     * @param livros Os livros do acervo.
+     * @param usuarios Os usuários cadastrados.
+     * @param emprestimos O histórico de empréstimos.
+     * @param reservas As reservas em aberto, com as de cada livro na ordem da fila.
+     * @param geracao A geração do instantâneo.
+     * @throws IOException Se a gravação falhar ou o catálogo ultrapassar 2 GB.
+     */
+    static void gravar(Path arquivo, List<Autor> autores, List<Livro> livros, List<Usuario> usuarios,
+                       Collection<Emprestimo> emprestimos, List<Reserva> reservas, long geracao) throws IOException {
+        List<Autor> autoresOrdenados = new ArrayList<>(autores);
+        autoresOrdenados.sort(Comparator.comparingInt(Autor::getIdAutor));
+        List<Emprestimo> emprestimosOrdenados = new ArrayList<>(emprestimos);
+        emprestimosOrdenados.sort(Comparator.comparingInt(Emprestimo::getIdEmprestimo));
+
+        // Os removidos são identificados pelo ID, não pela identidade do objeto: o chamador pode ter criado
+        // mais de um objeto para o mesmo registro.
+        BitSet idsLivros = new BitSet();
+        BitSet idsUsuarios = new BitSet();
+        List<Livro> livrosOrdenados = new ArrayList<>(livros);
+        List<Usuario> usuariosOrdenados = new ArrayList<>(usuarios);
+        for (Livro livro : livros) {
+            idsLivros.set(livro.getIdLivro());
+        }
+        for (Usuario usuario : usuarios) {
+            idsUsuarios.set(usuario.getIdUsuario());
+        }
+        BitSet livrosRemovidos = new BitSet();
+        BitSet usuariosRemovidos = new BitSet();
+        for (Emprestimo emprestimo : emprestimosOrdenados) {
+            int idLivro = emprestimo.getLivro().getIdLivro();
+            if (!idsLivros.get(idLivro)) {
+                idsLivros.set(idLivro);
+                livrosRemovidos.set(idLivro);
+                livrosOrdenados.add(emprestimo.getLivro());
+            }
+            int idUsuario = emprestimo.getUsuario().getIdUsuario();
+            if (!idsUsuarios.get(idUsuario)) {
+                idsUsuarios.set(idUsuario);
+                usuariosRemovidos.set(idUsuario);
+                usuariosOrdenados.add(emprestimo.getUsuario());
+            }
+        }
+        livrosOrdenados.sort(Comparator.comparingInt(Livro::getIdLivro));
+        usuariosOrdenados.sort(Comparator.comparingInt(Usuario::getIdUsuario));
+
+        HeapTextos textos = new HeapTextos();
+        ByteBuffer regiaoAutores = novaRegiao(autoresOrdenados.size(), TAMANHO_AUTOR);
+        for (Autor autor : autoresOrdenados) {
+            regiaoAutores.putInt(autor.getIdAutor()).putInt(textos.posicao(autor.getNome()))
+                    .putInt(textos.posicao(autor.getNacionalidade()));
+        }
+
+        int quantidadeAutoresDeLivros = 0;
+        for (Livro livro : livrosOrdenados) {
+            quantidadeAutoresDeLivros += livro.getAutores().size();
+        }
+        ByteBuffer regiaoLivros = novaRegiao(livrosOrdenados.size(), TAMANHO_LIVRO);
+        ByteBuffer regiaoAutoresDeLivros = novaRegiao(quantidadeAutoresDeLivros, 4);
+        for (Livro livro : livrosOrdenados) {
+            List<Autor> autoresDoLivro = livro.getAutores();
+            if (autoresDoLivro.size() > 0xFFFF) {
+                throw new IOException("Livro com autores demais para o catálogo mapeado: " + livro.getIdLivro());
+            }
+            regiaoLivros.putInt(livro.getIdLivro()).putInt(textos.posicao(livro.getTitulo()))
+                    .putInt(textos.posicao(livro.getIsbn())).putInt(livro.getAnoPublicacao())
+                    .putInt(textos.posicao(livro.getEditora())).putInt(livro.getQuantidadeTotal())
+                    .putInt(livro.getQuantidadeDisponivel()).putInt(regiaoAutoresDeLivros.position() / 4)
+                    .putShort((short) autoresDoLivro.size())
+                    .putShort(livrosRemovidos.get(livro.getIdLivro()) ? REMOVIDO : 0);
+            for (Autor autor : autoresDoLivro) {
+                regiaoAutoresDeLivros.putInt(autor.getIdAutor());
+            }
+        }
+
+        ByteBuffer regiaoUsuarios = novaRegiao(usuariosOrdenados.size(), TAMANHO_USUARIO);
+        for (Usuario usuario : usuariosOrdenados) {
+            regiaoUsuarios.putInt(usuario.getIdUsuario()).putInt(textos.posicao(usuario.getNome()))
+                    .putInt(textos.posicao(usuario.getCpf())).putInt(textos.posicao(usuario.getTelefone()))
+                    .putInt(textos.posicao(usuario.getEmail()))
+                    .putShort(usuariosRemovidos.get(usuario.getIdUsuario()) ? REMOVIDO : 0).putShort((short) 0);
+        }
+
+        ByteBuffer regiaoEmprestimos = novaRegiao(emprestimosOrdenados.size(), TAMANHO_EMPRESTIMO);
+        int quantidadeAtivos = 0;
+        for (Emprestimo emprestimo : emprestimosOrdenados) {
+            if (!emprestimo.isDevolvido()) {
+                quantidadeAtivos++;
+            }
+        }
+        ByteBuffer regiaoAtivos = novaRegiao(quantidadeAtivos, 4);
+        for (Emprestimo emprestimo : emprestimosOrdenados) {
+            if (!emprestimo.isDevolvido()) {
+                regiaoAtivos.putInt(regiaoEmprestimos.position() / TAMANHO_EMPRESTIMO);
+            }
+            regiaoEmprestimos.putInt(emprestimo.getIdEmprestimo()).putInt(emprestimo.getLivro().getIdLivro())
+                    .putInt(emprestimo.getUsuario().getIdUsuario())
+                    .putInt(Math.toIntExact(emprestimo.getDataEmprestimo().toEpochDay()))
+                    .putInt(Math.toIntExact(emprestimo.getDataDevolucaoPrevista().toEpochDay()))
+                    .putInt(emprestimo.isDevolvido() ? Math.toIntExact(emprestimo.getDataDevolucaoEfetiva().toEpochDay()) : SEM_DATA);
+        }
+
+        ByteBuffer regiaoReservas = novaRegiao(reservas.size(), TAMANHO_RESERVA);
+        for (Reserva reserva : reservas) {
+            LocalDate prazo = reserva.getPrazoRetirada();
+            regiaoReservas.putInt(reserva.getLivro().getIdLivro()).putInt(reserva.getUsuario().getIdUsuario())
+                    .putInt(Math.toIntExact(reserva.getDataReserva().toEpochDay()))
+                    .putInt(prazo != null ? Math.toIntExact(prazo.toEpochDay()) : SEM_DATA);
+        }
+
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+        cabecalho.putInt(MAGICO).putInt(VERSAO).putLong(geracao)
+                .putInt(Autor.getProximoId()).putInt(Livro.getProximoId())
+                .putInt(Usuario.getProximoId()).putInt(Emprestimo.getProximoId())
+                .putInt(autoresOrdenados.size()).putInt(livrosOrdenados.size()).putInt(usuariosOrdenados.size())
+                .putInt(emprestimosOrdenados.size()).putInt(quantidadeAtivos).putInt(quantidadeAutoresDeLivros)
+                .putInt(textos.tamanho()).putInt(reservas.size());
+
+        ByteBuffer[] partes = {cabecalho, regiaoAutores, regiaoLivros, regiaoUsuarios, regiaoEmprestimos,
+                regiaoAtivos, regiaoAutoresDeLivros, regiaoReservas, textos.conteudo()};
+        long total = 0;
+        for (ByteBuffer parte : partes) {
+            parte.flip();
+            total += parte.remaining();
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Catálogo mapeado maior que 2 GB.");
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer parte : partes) {
+                while (parte.hasRemaining()) {
+                    canal.write(parte);
+                }
+            }
+            canal.force(true);
+        }
+    }
+
+    private static ByteBuffer novaRegiao(int quantidade, int tamanhoRegistro) throws IOException {
+        long tamanho = (long) quantidade * tamanhoRegistro;
+        if (tamanho > Integer.MAX_VALUE) {
+            throw new IOException("Catálogo mapeado maior que 2 GB.");
+        }
+        return ByteBuffer.allocate((int) tamanho);
+    }
+
+    /**
+     * Heap de textos em construção: cada texto distinto é gravado uma vez, como tamanho (int) e bytes UTF-8.
+     */
+    private static final class HeapTextos {
+        private final Map<String, Integer> posicoes = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        int posicao(String texto) throws IOException {
+            if (texto == null) {
+                return SEM_TEXTO;
+            }
+            Integer existente = posicoes.get(texto);
+            if (existente != null) {
+                return existente;
+            }
+            int posicao = bytes.size();
+            if (posicao < 0) {
+                throw new IOException("Catálogo mapeado maior que 2 GB.");
+            }
+            byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+            bytes.write(ByteBuffer.allocate(4).putInt(utf8.length).array());
+            bytes.write(utf8);
+            posicoes.put(texto, posicao);
+            return posicao;
+        }
+
+        int tamanho() {
+            return bytes.size();
+        }
+
+        ByteBuffer conteudo() {
+            ByteBuffer conteudo = ByteBuffer.wrap(bytes.toByteArray());
+            conteudo.position(conteudo.limit());
+            return conteudo;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package entities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binário compacto e versionado dos instantâneos do GerenciadorBiblioteca.
+ * <p>
+ * O arquivo começa por um número mágico e pela versão do formato, seguidos de seções. Cada seção tem um
+ * byte de identificação e o tamanho do seu conteúdo, de modo que leitores antigos podem pular seções que
+ * não conhecem. O arquivo termina com uma seção de fim e o CRC32 de todo o conteúdo anterior.
+ * <p>
+ * Os textos são gravados uma única vez, em uma tabela inicial, e referenciados por índice. Inteiros usam
+ * codificação de tamanho variável, e os empréstimos guardam apenas os IDs do livro e do usuário, com as datas
+ * relativas à data do empréstimo. Livros e usuários já removidos do acervo, mas ainda referenciados pelo
+ * histórico de empréstimos, são gravados em seções próprias para que o histórico continue completo.
+ * <p>
+ * A leitura e a escrita são feitas em fluxo, diretamente sobre um {@link FileChannel}.
+ */
+final class CodecBiblioteca {
+    static final int MAGICO = 0x42494253; // "BIBS"
+    static final int VERSAO = 1;
+
+    private static final byte SECAO_TEXTOS = 1;
+    private static final byte SECAO_AUTORES = 2;
+    private static final byte SECAO_LIVROS = 3;
+    private static final byte SECAO_USUARIOS = 4;
+    private static final byte SECAO_LIVROS_REMOVIDOS = 5;
+    private static final byte SECAO_USUARIOS_REMOVIDOS = 6;
+    private static final byte SECAO_EMPRESTIMOS = 7;
+    private static final byte SECAO_SEQUENCIAS = 8;
+    private static final byte SECAO_RESERVAS = 9;
+    private static final byte SECAO_FIM = 0;
+
+    private CodecBiblioteca() {
+    }
+
+    /**
+     * Conteúdo de um instantâneo lido do disco.
+     */
+    static final class Instantaneo {
+        final List<Autor> autores = new ArrayList<>();
+        final List<Livro> livros = new ArrayList<>();
+        final List<Usuario> usuarios = new ArrayList<>();
+        final List<Emprestimo> emprestimos = new ArrayList<>();
+        final List<Reserva> reservas = new ArrayList<>(); // As de cada livro, na ordem da fila.
+        int proximoIdAutor = 1;
+        int proximoIdLivro = 1;
+        int proximoIdUsuario = 1;
+        int proximoIdEmprestimo = 1;
+        long geracao;
+    }
+
+    /**
+     * Verifica se o arquivo está neste formato, lendo apenas o número mágico.
+     * @param arquivo O arquivo a verificar.
+     * @return true se o arquivo começa pelo número mágico deste formato.
+     * @throws IOException Se o arquivo não puder ser lido.
+     */
+    static boolean reconhece(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer magico = ByteBuffer.allocate(4);
+            return canal.read(magico, 0) == 4 && magico.getInt(0) == MAGICO;
+        }
+    }
+
+    /**
+     * Grava um instantâneo completo no arquivo informado, substituindo seu conteúdo, e força a gravação em disco.
+     *
+     * @param arquivo O arquivo de destino.
+     * @param autores Os autores cadastrados.
+     * @param livros Os livros do acervo.
+     * @param usuarios Os usuários cadastrados.
+     * @param emprestimos O histórico de empréstimos.
+     * @param reservas As reservas em aberto, com as de cada livro na ordem da fila.
+     * @param geracao A geração do instantâneo.
+     * @throws IOException Se a gravação falhar.
+     */
+    static void gravar(Path arquivo, List<Autor> autores, List<Livro> livros, List<Usuario> usuarios,
+                       Collection<Emprestimo> emprestimos, List<Reserva> reservas, long geracao) throws IOException {
+        // Livros e usuários que só existem no histórico (já removidos) também precisam ser gravados.
+        Map<Integer, Livro> livrosAtuais = new HashMap<>();
+        for (Livro livro : livros) {
+            livrosAtuais.put(livro.getIdLivro(), livro);
+        }
+        Map<Integer, Usuario> usuariosAtuais = new HashMap<>();
+        for (Usuario usuario : usuarios) {
+            usuariosAtuais.put(usuario.getIdUsuario(), usuario);
+        }
+        Set<Livro> livrosRemovidos = new LinkedHashSet<>();
+        Set<Usuario> usuariosRemovidos = new LinkedHashSet<>();
+        for (Emprestimo emprestimo : emprestimos) {
+            if (livrosAtuais.get(emprestimo.getLivro().getIdLivro()) != emprestimo.getLivro()) {
+                livrosRemovidos.add(emprestimo.getLivro());
+            }
+            if (usuariosAtuais.get(emprestimo.getUsuario().getIdUsuario()) != emprestimo.getUsuario()) {
+                usuariosRemovidos.add(emprestimo.getUsuario());
+            }
+        }
+
+        TabelaTextos textos = new TabelaTextos();
+        for (Autor autor : autores) {
+            textos.registrar(autor.getNome(), autor.getNacionalidade());
+        }
+        for (Livro livro : livros) {
+            textos.registrar(livro.getTitulo(), livro.getIsbn(), livro.getEditora());
+        }
+        for (Livro livro : livrosRemovidos) {
+            textos.registrar(livro.getTitulo(), livro.getIsbn(), livro.getEditora());
+            for (Autor autor : livro.getAutores()) {
+                textos.registrar(autor.getNome(), autor.getNacionalidade());
+            }
+        }
+        for (Usuario usuario : usuarios) {
+            textos.registrar(usuario.getNome(), usuario.getCpf(), usuario.getTelefone(), usuario.getEmail());
+        }
+        for (Usuario usuario : usuariosRemovidos) {
+            textos.registrar(usuario.getNome(), usuario.getCpf(), usuario.getTelefone(), usuario.getEmail());
+        }
+
+        try (Saida out = new Saida(FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))) {
+            out.escreverInt32(MAGICO);
+            out.escreverVarInt(VERSAO);
+
+            out.iniciarSecao(SECAO_TEXTOS);
+            out.escreverVarInt(textos.lista.size());
+            for (String texto : textos.lista) {
+                byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+                out.escreverVarInt(bytes.length);
+                out.escreverBytes(bytes);
+            }
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_AUTORES);
+            out.escreverVarInt(autores.size());
+            for (Autor autor : autores) {
+                escreverAutor(out, textos, autor);
+            }
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_LIVROS);
+            escreverLivros(out, textos, livros);
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_USUARIOS);
+            escreverUsuarios(out, textos, usuarios);
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_LIVROS_REMOVIDOS);
+            escreverLivros(out, textos, livrosRemovidos);
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_USUARIOS_REMOVIDOS);
+            escreverUsuarios(out, textos, usuariosRemovidos);
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_EMPRESTIMOS);
+            out.escreverVarInt(emprestimos.size());
+            for (Emprestimo emprestimo : emprestimos) {
+                long dataEmprestimo = emprestimo.getDataEmprestimo().toEpochDay();
+                out.escreverVarInt(emprestimo.getIdEmprestimo());
+                out.escreverVarInt(emprestimo.getLivro().getIdLivro());
+                out.escreverVarInt(emprestimo.getUsuario().getIdUsuario());
+                out.escreverVarLong(dataEmprestimo);
+                out.escreverVarLong(emprestimo.getDataDevolucaoPrevista().toEpochDay() - dataEmprestimo);
+                // 0 indica empréstimo ativo; caso contrário, dias após o empréstimo + 1.
+                LocalDate devolucao = emprestimo.getDataDevolucaoEfetiva();
+                out.escreverVarLong(devolucao == null ? 0 : devolucao.toEpochDay() - dataEmprestimo + 1);
+            }
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_RESERVAS);
+            out.escreverVarInt(reservas.size());
+            for (Reserva reserva : reservas) {
+                long dataReserva = reserva.getDataReserva().toEpochDay();
+                out.escreverVarInt(reserva.getLivro().getIdLivro());
+                out.escreverVarInt(reserva.getUsuario().getIdUsuario());
+                out.escreverVarLong(dataReserva);
+                // 0 indica reserva aguardando na fila; caso contrário, dias do prazo de retirada após a reserva + 1.
+                LocalDate prazo = reserva.getPrazoRetirada();
+                out.escreverVarLong(prazo == null ? 0 : prazo.toEpochDay() - dataReserva + 1);
+            }
+            out.terminarSecao();
+
+            out.iniciarSecao(SECAO_SEQUENCIAS);
+            out.escreverVarInt(Autor.getProximoId());
+            out.escreverVarInt(Livro.getProximoId());
+            out.escreverVarInt(Usuario.getProximoId());
+            out.escreverVarInt(Emprestimo.getProximoId());
+            out.escreverVarLong(geracao);
+            out.terminarSecao();
+
+            out.escreverByte(SECAO_FIM);
+            out.escreverCrc();
+            out.sincronizar();
+        }
+    }
+
+    /**
+     * Lê um instantâneo gravado por {@link #gravar}.
+     * Os objetos Emprestimo referenciam os mesmos objetos Livro e Usuario devolvidos nas listas do acervo.
+     *
+     * @param arquivo O arquivo a ler.
+     * @return O conteúdo do instantâneo.
+     * @throws IOException Se o arquivo não puder ser lido, estiver corrompido ou usar uma versão mais nova do formato.
+     */
+    static Instantaneo ler(Path arquivo) throws IOException {
+        Instantaneo instantaneo = new Instantaneo();
+        try (Entrada in = new Entrada(FileChannel.open(arquivo, StandardOpenOption.READ))) {
+            if (in.lerInt32() != MAGICO) {
+                throw new IOException("Arquivo de dados em formato desconhecido: " + arquivo);
+            }
+            int versao = in.lerVarInt();
+            if (versao > VERSAO) {
+                throw new IOException("Versão do arquivo de dados não suportada: " + versao);
+            }
+
+            String[] textos = new String[1];
+            Map<Integer, Autor> autores = new HashMap<>();
+            Map<Integer, Livro> livros = new HashMap<>();
+            Map<Integer, Usuario> usuarios = new HashMap<>();
+
+            byte secao;
+            while ((secao = in.lerByte()) != SECAO_FIM) {
+                long tamanho = in.lerTamanhoSecao();
+                switch (secao) {
+                    case SECAO_TEXTOS:
+                        textos = new String[in.lerVarInt() + 1]; // O índice 0 representa null.
+                        for (int i = 1; i < textos.length; i++) {
+                            textos[i] = new String(in.lerBytes(in.lerVarInt()), StandardCharsets.UTF_8);
+                        }
+                        break;
+                    case SECAO_AUTORES:
+                        for (int i = in.lerVarInt(); i > 0; i--) {
+                            Autor autor = lerAutor(in, textos);
+                            autores.put(autor.getIdAutor(), autor);
+                            instantaneo.autores.add(autor);
+                        }
+                        break;
+                    case SECAO_LIVROS:
+                        lerLivros(in, textos, autores, livros, instantaneo.livros);
+                        break;
+                    case SECAO_USUARIOS:
+                        lerUsuarios(in, textos, usuarios, instantaneo.usuarios);
+                        break;
+                    case SECAO_LIVROS_REMOVIDOS:
+                        lerLivros(in, textos, autores, livros, null);
+                        break;
+                    case SECAO_USUARIOS_REMOVIDOS:
+                        lerUsuarios(in, textos, usuarios, null);
+                        break;
+                    case SECAO_EMPRESTIMOS:
+                        for (int i = in.lerVarInt(); i > 0; i--) {
+                            int id = in.lerVarInt();
+                            Livro livro = livros.get(in.lerVarInt());
+                            Usuario usuario = usuarios.get(in.lerVarInt());
+                            long dataEmprestimo = in.lerVarLong();
+                            long prevista = dataEmprestimo + in.lerVarLong();
+                            long devolucao = in.lerVarLong();
+                            if (livro == null || usuario == null) {
+                                throw new IOException("Empréstimo " + id + " referencia um livro ou usuário inexistente.");
+                            }
+                            instantaneo.emprestimos.add(new Emprestimo(id, livro, usuario, LocalDate.ofEpochDay(dataEmprestimo),
+                                    LocalDate.ofEpochDay(prevista), devolucao == 0 ? null : LocalDate.ofEpochDay(dataEmprestimo + devolucao - 1)));
+                        }
+                        break;
+                    case SECAO_RESERVAS:
+                        for (int i = in.lerVarInt(); i > 0; i--) {
+                            Livro livro = livros.get(in.lerVarInt());
+                            Usuario usuario = usuarios.get(in.lerVarInt());
+                            long dataReserva = in.lerVarLong();
+                            long prazo = in.lerVarLong();
+                            if (livro == null || usuario == null) {
+                                throw new IOException("Reserva referencia um livro ou usuário inexistente.");
+                            }
+                            instantaneo.reservas.add(new Reserva(livro, usuario, LocalDate.ofEpochDay(dataReserva),
+                                    prazo == 0 ? null : LocalDate.ofEpochDay(dataReserva + prazo - 1)));
+                        }
+                        break;
+                    case SECAO_SEQUENCIAS:
+                        instantaneo.proximoIdAutor = in.lerVarInt();
+                        instantaneo.proximoIdLivro = in.lerVarInt();
+                        instantaneo.proximoIdUsuario = in.lerVarInt();
+                        instantaneo.proximoIdEmprestimo = in.lerVarInt();
+                        instantaneo.geracao = in.lerVarLong();
+                        break;
+                    default:
+                        in.pular(tamanho); // Seção de uma versão mais nova que este leitor não conhece.
+                }
+            }
+            in.verificarCrc();
+        }
+        return instantaneo;
+    }
+
+    private static void escreverAutor(Saida out, TabelaTextos textos, Autor autor) throws IOException {
+        out.escreverVarInt(autor.getIdAutor());
+        out.escreverVarInt(textos.indice(autor.getNome()));
+        out.escreverVarInt(textos.indice(autor.getNacionalidade()));
+    }
+
+    private static Autor lerAutor(Entrada in, String[] textos) throws IOException {
+        return new Autor(in.lerVarInt(), textos[in.lerVarInt()], textos[in.lerVarInt()]);
+    }
+
+    private static void escreverLivros(Saida out, TabelaTextos textos, Collection<Livro> livros) throws IOException {
+        out.escreverVarInt(livros.size());
+        for (Livro livro : livros) {
+            out.escreverVarInt(livro.getIdLivro());
+            out.escreverVarInt(textos.indice(livro.getTitulo()));
+            out.escreverVarInt(textos.indice(livro.getIsbn()));
+            out.escreverVarInt(livro.getAnoPublicacao());
+            out.escreverVarInt(textos.indice(livro.getEditora()));
+            out.escreverVarInt(livro.getQuantidadeTotal());
+            out.escreverVarInt(livro.getQuantidadeDisponivel());
+            out.escreverVarInt(livro.getAutores().size());
+            for (Autor autor : livro.getAutores()) {
+                // Autores são gravados por completo: um livro removido pode referenciar um autor que também não existe mais.
+                escreverAutor(out, textos, autor);
+            }
+        }
+    }
+
+    private static void lerLivros(Entrada in, String[] textos, Map<Integer, Autor> autores, Map<Integer, Livro> livros,
+                                  List<Livro> acervo) throws IOException {
+        for (int i = in.lerVarInt(); i > 0; i--) {
+            int id = in.lerVarInt();
+            String titulo = textos[in.lerVarInt()];
+            String isbn = textos[in.lerVarInt()];
+            int ano = in.lerVarInt();
+            String editora = textos[in.lerVarInt()];
+            int total = in.lerVarInt();
+            int disponivel = in.lerVarInt();
+            int quantidadeAutores = in.lerVarInt();
+            ArrayList<Autor> autoresDoLivro = new ArrayList<>(quantidadeAutores);
+            for (int j = 0; j < quantidadeAutores; j++) {
+                Autor lido = lerAutor(in, textos);
+                Autor cadastrado = autores.putIfAbsent(lido.getIdAutor(), lido);
+                autoresDoLivro.add(cadastrado != null ? cadastrado : lido);
+            }
+            Livro livro = new Livro(id, titulo, isbn, ano, editora, total, disponivel, autoresDoLivro);
+            livros.put(id, livro);
+            if (acervo != null) {
+                acervo.add(livro);
+            }
+        }
+    }
+
+    private static void escreverUsuarios(Saida out, TabelaTextos textos, Collection<Usuario> usuarios) throws IOException {
+        out.escreverVarInt(usuarios.size());
+        for (Usuario usuario : usuarios) {
+            out.escreverVarInt(usuario.getIdUsuario());
+            out.escreverVarInt(textos.indice(usuario.getNome()));
+            out.escreverVarInt(textos.indice(usuario.getCpf()));
+            out.escreverVarInt(textos.indice(usuario.getTelefone()));
+            out.escreverVarInt(textos.indice(usuario.getEmail()));
+        }
+    }
+
+    private static void lerUsuarios(Entrada in, String[] textos, Map<Integer, Usuario> usuarios, List<Usuario> cadastro) throws IOException {
+        for (int i = in.lerVarInt(); i > 0; i--) {
+            Usuario usuario = new Usuario(in.lerVarInt(), textos[in.lerVarInt()], textos[in.lerVarInt()],
+                    textos[in.lerVarInt()], textos[in.lerVarInt()]);
+            usuarios.put(usuario.getIdUsuario(), usuario);
+            if (cadastro != null) {
+                cadastro.add(usuario);
+            }
+        }
+    }
+
+    /**
+     * Tabela de textos distintos. O índice 0 é reservado para null.
+     */
+    private static final class TabelaTextos {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> lista = new ArrayList<>();
+
+        void registrar(String... textos) {
+            for (String texto : textos) {
+                if (texto != null && !indices.containsKey(texto)) {
+                    lista.add(texto);
+                    indices.put(texto, lista.size());
+                }
+            }
+        }
+
+        int indice(String texto) {
+            return texto == null ? 0 : indices.get(texto);
+        }
+    }
+
+    /**
+     * Escrita bufferizada sobre um FileChannel, com CRC32 e tamanho das seções preenchido ao final de cada uma.
+     */
+    private static final class Saida implements Closeable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        private final CRC32 crc = new CRC32();
+        private long posicaoCanal;
+        private long inicioSecao = -1;
+
+        Saida(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        void escreverByte(int valor) throws IOException {
+            garantir(1);
+            buffer.put((byte) valor);
+        }
+
+        void escreverInt32(int valor) throws IOException {
+            garantir(4);
+            buffer.putInt(valor);
+        }
+
+        void escreverVarInt(int valor) throws IOException {
+            escreverVarLong(valor);
+        }
+
+        void escreverVarLong(long valor) throws IOException {
+            garantir(10);
+            long zigzag = (valor << 1) ^ (valor >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            buffer.put((byte) zigzag);
+        }
+
+        void escreverBytes(byte[] bytes) throws IOException {
+            int escritos = 0;
+            while (escritos < bytes.length) {
+                garantir(1);
+                int parte = Math.min(buffer.remaining(), bytes.length - escritos);
+                buffer.put(bytes, escritos, parte);
+                escritos += parte;
+            }
+        }
+
+        void iniciarSecao(byte secao) throws IOException {
+            escreverByte(secao);
+            descarregar();
+            // O tamanho é preenchido em terminarSecao e, por isso, fica fora do CRC.
+            ByteBuffer tamanho = ByteBuffer.allocate(8);
+            while (tamanho.hasRemaining()) {
+                posicaoCanal += canal.write(tamanho, posicaoCanal);
+            }
+            inicioSecao = posicaoCanal;
+        }
+
+        void terminarSecao() throws IOException {
+            long fim = posicaoCanal + buffer.position();
+            ByteBuffer tamanho = ByteBuffer.allocate(8).putLong(0, fim - inicioSecao);
+            canal.write(tamanho, inicioSecao - 8);
+            inicioSecao = -1;
+        }
+
+        void escreverCrc() throws IOException {
+            descarregar();
+            ByteBuffer valor = ByteBuffer.allocate(4).putInt(0, (int) crc.getValue());
+            while (valor.hasRemaining()) {
+                posicaoCanal += canal.write(valor, posicaoCanal);
+            }
+        }
+
+        void sincronizar() throws IOException {
+            descarregar();
+            canal.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                descarregar();
+            }
+        }
+
+        private void descarregar() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                posicaoCanal += canal.write(buffer, posicaoCanal);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Leitura bufferizada sobre um FileChannel, acumulando o CRC32 dos bytes lidos.
+     */
+    private static final class Entrada implements Closeable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        private final CRC32 crc = new CRC32();
+        private long posicaoCanal;
+        private int inicioCrc; // Início da parte do buffer ainda não somada ao CRC.
+
+        Entrada(FileChannel canal) {
+            this.canal = canal;
+            buffer.limit(0);
+        }
+
+        byte lerByte() throws IOException {
+            garantir(1);
+            return buffer.get();
+        }
+
+        int lerInt32() throws IOException {
+            garantir(4);
+            return buffer.getInt();
+        }
+
+        long lerTamanhoSecao() throws IOException {
+            acumularCrc();
+            garantir(8);
+            long tamanho = buffer.getLong();
+            inicioCrc = buffer.position(); // O tamanho das seções não entra no CRC.
+            return tamanho;
+        }
+
+        int lerVarInt() throws IOException {
+            return (int) lerVarLong();
+        }
+
+        long lerVarLong() throws IOException {
+            long zigzag = 0;
+            for (int deslocamento = 0; deslocamento < 70; deslocamento += 7) {
+                byte b = lerByte();
+                zigzag |= (long) (b & 0x7F) << deslocamento;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IOException("Inteiro de tamanho variável inválido no arquivo de dados.");
+        }
+
+        byte[] lerBytes(int tamanho) throws IOException {
+            byte[] bytes = new byte[tamanho];
+            int lidos = 0;
+            while (lidos < tamanho) {
+                garantir(1);
+                int parte = Math.min(buffer.remaining(), tamanho - lidos);
+                buffer.get(bytes, lidos, parte);
+                lidos += parte;
+            }
+            return bytes;
+        }
+
+        void pular(long bytes) throws IOException {
+            while (bytes > 0) {
+                garantir(1);
+                int parte = (int) Math.min(buffer.remaining(), bytes);
+                buffer.position(buffer.position() + parte);
+                bytes -= parte;
+            }
+        }
+
+        void verificarCrc() throws IOException {
+            acumularCrc();
+            int esperado = (int) crc.getValue();
+            if (lerInt32() != esperado) {
+                throw new IOException("Arquivo de dados corrompido (CRC inválido).");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            acumularCrc();
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                int lidos = canal.read(buffer, posicaoCanal);
+                if (lidos < 0) {
+                    throw new IOException("Fim inesperado do arquivo de dados.");
+                }
+                posicaoCanal += lidos;
+            }
+            buffer.flip();
+            inicioCrc = 0;
+        }
+
+        private void acumularCrc() {
+            ByteBuffer consumidos = buffer.duplicate();
+            consumidos.limit(buffer.position()).position(inicioCrc);
+            crc.update(consumidos);
+            inicioCrc = buffer.position();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto ordenado de IDs inteiros, guardado em um vetor de int sem boxing.
+ * Como os IDs são atribuídos em ordem crescente, a inclusão costuma ser um simples acréscimo ao final.
+ * Não é seguro para uso concorrente sem sincronização externa.
+ */
+final class ConjuntoIds {
+    private int[] ids = new int[4];
+    private int tamanho;
+
+    /**
+     * Inclui um ID no conjunto.
+     * @param id O ID a incluir.
+     * @return true se o ID ainda não estava no conjunto.
+     */
+    boolean adicionar(int id) {
+        int posicao;
+        if (tamanho == 0 || ids[tamanho - 1] < id) {
+            posicao = tamanho;
+        } else {
+            posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao >= 0) {
+                return false;
+            }
+            posicao = -posicao - 1;
+        }
+        if (tamanho == ids.length) {
+            ids = Arrays.copyOf(ids, tamanho * 2);
+        }
+        System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+        ids[posicao] = id;
+        tamanho++;
+        return true;
+    }
+
+    /**
+     * Retira um ID do conjunto.
+     * @param id O ID a retirar.
+     * @return true se o ID estava no conjunto.
+     */
+    boolean remover(int id) {
+        int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+        if (posicao < 0) {
+            return false;
+        }
+        System.arraycopy(ids, posicao + 1, ids, posicao, tamanho - posicao - 1);
+        tamanho--;
+        return true;
+    }
+
+    boolean contem(int id) {
+        return Arrays.binarySearch(ids, 0, tamanho, id) >= 0;
+    }
+
+    /**
+     * Retorna o i-ésimo menor ID do conjunto.
+     * @param i Um número entre 0 e tamanho() - 1.
+     * @return O ID nessa posição.
+     */
+    int get(int i) {
+        return ids[i];
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    boolean isVazio() {
+        return tamanho == 0;
+    }
+
+    /**
+     * Copia os IDs do conjunto, em ordem crescente, para o vetor informado.
+     * @param destino O vetor de destino.
+     * @param inicio A posição do destino onde a cópia começa.
+     */
+    void copiarPara(int[] destino, int inicio) {
+        System.arraycopy(ids, 0, destino, inicio, tamanho);
+    }
+}
@@ -0,0 +1,34 @@
+package entities;
+
+/**
+ * Item de um ranking dos painéis de circulação do GerenciadorBiblioteca: um livro ou usuário e o número de
+ * empréstimos que ele teve em todo o histórico.
+ *
+ * @param <T> Livro ou Usuario.
+ */
+public final class ContagemEmprestimos<T> {
+    private final T entidade;
+    private final int emprestimos;
+
+    ContagemEmprestimos(T entidade, int emprestimos) {
+        this.entidade = entidade;
+        this.emprestimos = emprestimos;
+    }
+
+    /**
+     * Retorna o livro ou usuário.
+     * @return A entidade.
+     */
+    public T getEntidade() { return entidade; }
+
+    /**
+     * Retorna o número de empréstimos da entidade, inclusive os já devolvidos e arquivados.
+     * @return O número de empréstimos.
+     */
+    public int getEmprestimos() { return emprestimos; }
+
+    @Override
+    public String toString() {
+        return emprestimos + " empréstimo(s) | " + entidade;
+    }
+}
@@ -0,0 +1,592 @@
+package entities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Diário de operações (write-ahead log) do GerenciadorBiblioteca.
+ * Cada alteração de estado é acrescentada ao final do arquivo como um registro binário compacto:
+ * tamanho (int), CRC32 (int) e o conteúdo, que começa por um byte de tipo.
+ * <p>
+ * A gravação em disco (fsync) é feita em grupo: a thread que chega primeiro em {@link #sincronizar(long)}
+ * força tudo o que já foi escrito até aquele momento, e as demais threads cujos registros foram cobertos
+ * retornam sem chamar o sistema operacional novamente.
+ * <p>
+ * Um registro incompleto ou corrompido no final do arquivo (por exemplo, após uma queda de energia)
+ * encerra a reprodução e é descartado ao reabrir o diário.
+ */
+final class DiarioOperacoes implements Closeable {
+    private static final int MAGICO = 0x42494244; // "BIBD"
+    private static final int TAMANHO_CABECALHO = 4;
+    private static final int TAMANHO_MAXIMO_REGISTRO = 1 << 20;
+
+    static final byte AUTOR = 1;
+    static final byte LIVRO = 2;
+    static final byte USUARIO = 3;
+    static final byte LIVRO_REMOVIDO = 4;
+    static final byte USUARIO_REMOVIDO = 5;
+    static final byte EMPRESTIMO = 6;
+    static final byte DEVOLUCAO = 7;
+    static final byte AUTOR_REMOVIDO = 8;
+    static final byte EMPRESTIMOS_EM_LOTE = 9;
+    static final byte DEVOLUCOES_EM_LOTE = 10;
+    static final byte RESERVA = 11;
+    static final byte RESERVA_CANCELADA = 12;
+    static final byte RESERVAS_EXPIRADAS = 13;
+    // Alterações feitas pelos setters, com o mesmo conteúdo da inclusão. Diários anteriores a estes tipos
+    // registravam as alterações como inclusões.
+    static final byte AUTOR_ALTERADO = 14;
+    static final byte LIVRO_ALTERADO = 15;
+    static final byte USUARIO_ALTERADO = 16;
+    static final byte EMPRESTIMO_ALTERADO = 17;
+
+    /**
+     * Número máximo de itens de um registro em lote, que mantém o registro abaixo do tamanho máximo.
+     */
+    static final int MAXIMO_ITENS_LOTE = 10_000;
+
+    private final Path arquivo;
+    private final FileChannel canal;
+    private final Object travaEscrita = new Object();
+    private final Object travaSincronia = new Object();
+    private long posicaoEscrita;
+    private volatile long posicaoSincronizada;
+    // A primeira falha do fsync. Depois dela não se sabe o que chegou ao disco, e o diário recusa novos registros.
+    private volatile IOException falha;
+
+    private DiarioOperacoes(Path arquivo, FileChannel canal, long posicao) {
+        this.arquivo = arquivo;
+        this.canal = canal;
+        this.posicaoEscrita = posicao;
+        this.posicaoSincronizada = posicao;
+    }
+
+    /**
+     * Abre o diário para acréscimo, criando-o se não existir.
+     * Registros após a posição informada (uma cauda incompleta detectada na reprodução) são descartados.
+     *
+     * @param arquivo O arquivo do diário.
+     * @param posicaoValida A posição do fim do último registro válido, ou -1 para manter o arquivo inteiro.
+     * @return O diário aberto.
+     * @throws IOException Se o arquivo não puder ser aberto.
+     */
+    static DiarioOperacoes abrir(Path arquivo, long posicaoValida) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (canal.size() < TAMANHO_CABECALHO) {
+            canal.truncate(0);
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).putInt(MAGICO);
+            cabecalho.flip();
+            canal.write(cabecalho, 0);
+            canal.force(true);
+        } else if (posicaoValida >= TAMANHO_CABECALHO && posicaoValida < canal.size()) {
+            canal.truncate(posicaoValida);
+            canal.force(true);
+        }
+        return new DiarioOperacoes(arquivo, canal, canal.size());
+    }
+
+    /**
+     * Retorna o arquivo deste diário.
+     * @return O caminho do arquivo.
+     */
+    Path getArquivo() { return arquivo; }
+
+    /**
+     * Verifica se nenhum registro foi acrescentado ao diário.
+     * @return true se o diário contém apenas o cabeçalho.
+     */
+    boolean isVazio() {
+        synchronized (travaEscrita) {
+            return posicaoEscrita <= TAMANHO_CABECALHO;
+        }
+    }
+
+    long registrarAutor(byte tipo, Autor autor) throws IOException {
+        Registro out = new Registro(tipo);
+        out.writeInt(autor.getIdAutor());
+        escreverTexto(out, autor.getNome());
+        escreverTexto(out, autor.getNacionalidade());
+        return acrescentar(out);
+    }
+
+    long registrarLivro(byte tipo, Livro livro) throws IOException {
+        Registro out = new Registro(tipo);
+        out.writeInt(livro.getIdLivro());
+        escreverTexto(out, livro.getTitulo());
+        escreverTexto(out, livro.getIsbn());
+        out.writeInt(livro.getAnoPublicacao());
+        escreverTexto(out, livro.getEditora());
+        out.writeInt(livro.getQuantidadeTotal());
+        out.writeInt(livro.getQuantidadeDisponivel());
+        out.writeInt(livro.getAutores().size());
+        for (Autor autor : livro.getAutores()) {
+            out.writeInt(autor.getIdAutor());
+        }
+        return acrescentar(out);
+    }
+
+    long registrarUsuario(byte tipo, Usuario usuario) throws IOException {
+        Registro out = new Registro(tipo);
+        out.writeInt(usuario.getIdUsuario());
+        escreverTexto(out, usuario.getNome());
+        escreverTexto(out, usuario.getCpf());
+        escreverTexto(out, usuario.getTelefone());
+        escreverTexto(out, usuario.getEmail());
+        return acrescentar(out);
+    }
+
+    long registrarRemocao(byte tipo, int id) throws IOException {
+        Registro out = new Registro(tipo);
+        out.writeInt(id);
+        return acrescentar(out);
+    }
+
+    long registrarEmprestimo(Emprestimo emprestimo) throws IOException {
+        Registro out = new Registro(EMPRESTIMO);
+        escreverEmprestimo(out, emprestimo);
+        return acrescentar(out);
+    }
+
+    long registrarDevolucao(int idEmprestimo, LocalDate data) throws IOException {
+        Registro out = new Registro(DEVOLUCAO);
+        escreverDevolucao(out, idEmprestimo, data);
+        return acrescentar(out);
+    }
+
+    long registrarRemocaoDeUsuario(int idUsuario, LocalDate data) throws IOException {
+        Registro out = new Registro(USUARIO_REMOVIDO);
+        out.writeInt(idUsuario);
+        out.writeLong(data.toEpochDay());
+        return acrescentar(out);
+    }
+
+    /**
+     * Registra a nova data prevista de devolução de um empréstimo em aberto.
+     */
+    long registrarPrazo(Emprestimo emprestimo) throws IOException {
+        Registro out = new Registro(EMPRESTIMO_ALTERADO);
+        out.writeInt(emprestimo.getIdEmprestimo());
+        out.writeLong(emprestimo.getDataDevolucaoPrevista().toEpochDay());
+        return acrescentar(out);
+    }
+
+    /**
+     * Registra vários empréstimos em um único registro, de modo que a reprodução aplica todos ou nenhum.
+     * @param emprestimos Os empréstimos, no máximo {@link #MAXIMO_ITENS_LOTE}.
+     */
+    long registrarEmprestimos(List<Emprestimo> emprestimos) throws IOException {
+        Registro out = new Registro(EMPRESTIMOS_EM_LOTE);
+        out.writeInt(emprestimos.size());
+        for (Emprestimo emprestimo : emprestimos) {
+            escreverEmprestimo(out, emprestimo);
+        }
+        return acrescentar(out);
+    }
+
+    /**
+     * Registra várias devoluções em um único registro, de modo que a reprodução aplica todas ou nenhuma.
+     * @param idsEmprestimos Os IDs dos empréstimos devolvidos, no máximo {@link #MAXIMO_ITENS_LOTE}.
+     * @param data A data das devoluções.
+     */
+    long registrarDevolucoes(List<Integer> idsEmprestimos, LocalDate data) throws IOException {
+        Registro out = new Registro(DEVOLUCOES_EM_LOTE);
+        out.writeInt(idsEmprestimos.size());
+        for (int idEmprestimo : idsEmprestimos) {
+            escreverDevolucao(out, idEmprestimo, data);
+        }
+        return acrescentar(out);
+    }
+
+    long registrarReserva(byte tipo, int idLivro, int idUsuario, LocalDate data) throws IOException {
+        Registro out = new Registro(tipo);
+        out.writeInt(idLivro);
+        out.writeInt(idUsuario);
+        out.writeLong(data.toEpochDay());
+        return acrescentar(out);
+    }
+
+    /**
+     * Registra uma verificação de prazos de retirada que expirou reservas. A reprodução repete a verificação na
+     * mesma data, o que expira as mesmas reservas e passa os exemplares para as mesmas reservas seguintes.
+     */
+    long registrarExpiracaoDeReservas(LocalDate data) throws IOException {
+        Registro out = new Registro(RESERVAS_EXPIRADAS);
+        out.writeLong(data.toEpochDay());
+        return acrescentar(out);
+    }
+
+    /**
+     * Garante que todos os registros escritos até a posição informada estejam gravados em disco.
+     * Chamadas concorrentes são agrupadas em um único fsync.
+     *
+     * @param posicao A posição final do registro que precisa ser durável.
+     * @throws IOException Se a gravação falhar. A partir daí o diário recusa novos registros, pois não se sabe
+     * quais dos registros já escritos chegaram ao disco.
+     */
+    void sincronizar(long posicao) throws IOException {
+        if (posicaoSincronizada >= posicao) {
+            return;
+        }
+        synchronized (travaSincronia) {
+            if (posicaoSincronizada >= posicao) {
+                return; // Outra thread já gravou este registro junto com os dela.
+            }
+            exigirSemFalha();
+            long alvo;
+            synchronized (travaEscrita) {
+                alvo = posicaoEscrita;
+            }
+            try {
+                canal.force(false);
+            } catch (IOException e) {
+                // Repetir o fsync não garante os registros: o sistema pode ter descartado as páginas que falharam.
+                falha = e;
+                throw e;
+            }
+            posicaoSincronizada = alvo;
+        }
+    }
+
+    /**
+     * Grava em disco tudo o que foi escrito e fecha o arquivo.
+     * @throws IOException Se a gravação falhar.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (travaSincronia) {
+            synchronized (travaEscrita) {
+                if (canal.isOpen()) {
+                    // Depois de uma falha do fsync, o diário é fechado sem gravar: quem o fecha para gravar um
+                    // instantâneo já tem o estado em memória nele.
+                    if (falha == null) {
+                        canal.force(false);
+                        posicaoSincronizada = posicaoEscrita;
+                    }
+                    canal.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reproduz os registros de um diário sobre o gerenciador informado.
+     * A leitura para no primeiro registro incompleto ou com CRC inválido.
+     *
+     * @param arquivo O arquivo do diário.
+     * @param destino Aplica as operações ao gerenciador que as recebe.
+     * @return A posição do fim do último registro válido.
+     * @throws IOException Se o arquivo não puder ser lido ou não for um diário.
+     */
+    static long reproduzir(Path arquivo, ReproducaoDiario destino) throws IOException {
+        return percorrer(arquivo, (posicao, in) -> aplicar(in, destino));
+    }
+
+    /**
+     * Lê os registros de um diário como eventos de domínio, na ordem em que foram gravados. Um registro em lote
+     * gera um evento por item, todos com a posição do registro.
+     *
+     * @param arquivo O arquivo do diário.
+     * @param geracao A geração do diário, informada nos eventos.
+     * @param destino Recebe os eventos.
+     * @throws IOException Se o arquivo não puder ser lido ou não for um diário.
+     */
+    static void lerEventos(Path arquivo, long geracao, Consumer<EventoBiblioteca> destino) throws IOException {
+        percorrer(arquivo, (posicao, in) -> decodificar(in, geracao, posicao, destino));
+    }
+
+    /**
+     * Recebe o conteúdo de cada registro válido de um diário.
+     */
+    private interface LeitorRegistro {
+        void ler(long posicao, DataInputStream in) throws IOException;
+    }
+
+    private static long percorrer(Path arquivo, LeitorRegistro leitor) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            if (canal.read(cabecalho, 0) < TAMANHO_CABECALHO) {
+                return -1;
+            }
+            if (cabecalho.getInt(0) != MAGICO) {
+                throw new IOException("Arquivo de diário inválido: " + arquivo);
+            }
+
+            long posicao = TAMANHO_CABECALHO;
+            ByteBuffer moldura = ByteBuffer.allocate(8);
+            CRC32 crc = new CRC32();
+            while (true) {
+                moldura.clear();
+                if (canal.read(moldura, posicao) < 8) {
+                    break;
+                }
+                int tamanho = moldura.getInt(0);
+                int soma = moldura.getInt(4);
+                if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_REGISTRO) {
+                    break;
+                }
+                ByteBuffer conteudo = ByteBuffer.allocate(tamanho);
+                if (canal.read(conteudo, posicao + 8) < tamanho) {
+                    break;
+                }
+                crc.reset();
+                crc.update(conteudo.array());
+                if ((int) crc.getValue() != soma) {
+                    break;
+                }
+                leitor.ler(posicao, new DataInputStream(new ByteArrayInputStream(conteudo.array())));
+                posicao += 8 + tamanho;
+            }
+            return posicao;
+        }
+    }
+
+    private static void aplicar(DataInputStream in, ReproducaoDiario destino) throws IOException {
+        byte tipo = in.readByte();
+        switch (tipo) {
+            case AUTOR:
+            case AUTOR_ALTERADO:
+                destino.restaurarAutor(new Autor(in.readInt(), lerTexto(in), lerTexto(in)));
+                break;
+            case LIVRO:
+            case LIVRO_ALTERADO: {
+                int id = in.readInt();
+                String titulo = lerTexto(in);
+                String isbn = lerTexto(in);
+                int ano = in.readInt();
+                String editora = lerTexto(in);
+                int total = in.readInt();
+                int disponivel = in.readInt();
+                int quantidadeAutores = in.readInt();
+                ArrayList<Autor> autores = new ArrayList<>(quantidadeAutores);
+                for (int i = 0; i < quantidadeAutores; i++) {
+                    Autor autor = destino.buscarAutor(in.readInt());
+                    if (autor != null) {
+                        autores.add(autor);
+                    }
+                }
+                destino.restaurarLivro(new Livro(id, titulo, isbn, ano, editora, total, disponivel, autores));
+                break;
+            }
+            case USUARIO:
+            case USUARIO_ALTERADO:
+                destino.restaurarUsuario(new Usuario(in.readInt(), lerTexto(in), lerTexto(in), lerTexto(in), lerTexto(in)));
+                break;
+            case LIVRO_REMOVIDO:
+                destino.restaurarRemocaoDeLivro(in.readInt());
+                break;
+            case USUARIO_REMOVIDO:
+                destino.restaurarRemocaoDeUsuario(in.readInt(), LocalDate.ofEpochDay(in.readLong()));
+                break;
+            case AUTOR_REMOVIDO:
+                destino.restaurarRemocaoDeAutor(in.readInt());
+                break;
+            case EMPRESTIMO:
+                aplicarEmprestimo(in, destino);
+                break;
+            case DEVOLUCAO:
+                aplicarDevolucao(in, destino);
+                break;
+            case EMPRESTIMO_ALTERADO:
+                destino.restaurarPrazo(in.readInt(), LocalDate.ofEpochDay(in.readLong()));
+                break;
+            case EMPRESTIMOS_EM_LOTE:
+                for (int i = in.readInt(); i > 0; i--) {
+                    aplicarEmprestimo(in, destino);
+                }
+                break;
+            case DEVOLUCOES_EM_LOTE:
+                for (int i = in.readInt(); i > 0; i--) {
+                    aplicarDevolucao(in, destino);
+                }
+                break;
+            case RESERVA:
+                destino.restaurarReserva(in.readInt(), in.readInt(), LocalDate.ofEpochDay(in.readLong()));
+                break;
+            case RESERVA_CANCELADA:
+                destino.restaurarCancelamentoDeReserva(in.readInt(), in.readInt(), LocalDate.ofEpochDay(in.readLong()));
+                break;
+            case RESERVAS_EXPIRADAS:
+                destino.restaurarExpiracaoDeReservas(LocalDate.ofEpochDay(in.readLong()));
+                break;
+            default:
+                throw new IOException("Tipo de registro desconhecido no diário: " + tipo);
+        }
+    }
+
+    private static void decodificar(DataInputStream in, long geracao, long posicao, Consumer<EventoBiblioteca> destino) throws IOException {
+        byte tipo = in.readByte();
+        switch (tipo) {
+            case AUTOR:
+            case AUTOR_ALTERADO:
+                destino.accept(new EventoBiblioteca.AutorSalvo(tipo == AUTOR ? EventoBiblioteca.Tipo.AUTOR_ADICIONADO : EventoBiblioteca.Tipo.AUTOR_ALTERADO,
+                        geracao, posicao, in.readInt(), lerTexto(in), lerTexto(in)));
+                break;
+            case LIVRO:
+            case LIVRO_ALTERADO: {
+                int id = in.readInt();
+                String titulo = lerTexto(in);
+                String isbn = lerTexto(in);
+                int ano = in.readInt();
+                String editora = lerTexto(in);
+                int total = in.readInt();
+                int disponivel = in.readInt();
+                int[] idsAutores = new int[in.readInt()];
+                for (int i = 0; i < idsAutores.length; i++) {
+                    idsAutores[i] = in.readInt();
+                }
+                destino.accept(new EventoBiblioteca.LivroSalvo(tipo == LIVRO ? EventoBiblioteca.Tipo.LIVRO_ADICIONADO : EventoBiblioteca.Tipo.LIVRO_ALTERADO,
+                        geracao, posicao, id, titulo, isbn, ano, editora, total, disponivel, idsAutores));
+                break;
+            }
+            case USUARIO:
+            case USUARIO_ALTERADO:
+                destino.accept(new EventoBiblioteca.UsuarioSalvo(tipo == USUARIO ? EventoBiblioteca.Tipo.USUARIO_ADICIONADO : EventoBiblioteca.Tipo.USUARIO_ALTERADO,
+                        geracao, posicao, in.readInt(), lerTexto(in), lerTexto(in), lerTexto(in), lerTexto(in)));
+                break;
+            case AUTOR_REMOVIDO:
+                destino.accept(new EventoBiblioteca.Remocao(EventoBiblioteca.Tipo.AUTOR_REMOVIDO, geracao, posicao, in.readInt()));
+                break;
+            case LIVRO_REMOVIDO:
+                destino.accept(new EventoBiblioteca.Remocao(EventoBiblioteca.Tipo.LIVRO_REMOVIDO, geracao, posicao, in.readInt()));
+                break;
+            case USUARIO_REMOVIDO:
+                destino.accept(new EventoBiblioteca.Remocao(EventoBiblioteca.Tipo.USUARIO_REMOVIDO, geracao, posicao, in.readInt()));
+                break;
+            case EMPRESTIMO:
+                destino.accept(lerEmprestimoAberto(in, geracao, posicao));
+                break;
+            case DEVOLUCAO:
+                destino.accept(lerEmprestimoEncerrado(in, geracao, posicao));
+                break;
+            case EMPRESTIMO_ALTERADO:
+                destino.accept(new EventoBiblioteca.PrazoAlterado(geracao, posicao, in.readInt(), LocalDate.ofEpochDay(in.readLong())));
+                break;
+            case EMPRESTIMOS_EM_LOTE:
+                for (int i = in.readInt(); i > 0; i--) {
+                    destino.accept(lerEmprestimoAberto(in, geracao, posicao));
+                }
+                break;
+            case DEVOLUCOES_EM_LOTE:
+                for (int i = in.readInt(); i > 0; i--) {
+                    destino.accept(lerEmprestimoEncerrado(in, geracao, posicao));
+                }
+                break;
+            case RESERVA:
+            case RESERVA_CANCELADA:
+                destino.accept(new EventoBiblioteca.MovimentoReserva(tipo == RESERVA ? EventoBiblioteca.Tipo.RESERVA_FEITA : EventoBiblioteca.Tipo.RESERVA_CANCELADA,
+                        geracao, posicao, in.readInt(), in.readInt(), LocalDate.ofEpochDay(in.readLong())));
+                break;
+            case RESERVAS_EXPIRADAS:
+                destino.accept(new EventoBiblioteca.ExpiracaoReservas(geracao, posicao, LocalDate.ofEpochDay(in.readLong())));
+                break;
+            default:
+                throw new IOException("Tipo de registro desconhecido no diário: " + tipo);
+        }
+    }
+
+    private static EventoBiblioteca.EmprestimoAberto lerEmprestimoAberto(DataInputStream in, long geracao, long posicao) throws IOException {
+        return new EventoBiblioteca.EmprestimoAberto(geracao, posicao, in.readInt(), in.readInt(), in.readInt(),
+                LocalDate.ofEpochDay(in.readLong()), LocalDate.ofEpochDay(in.readLong()));
+    }
+
+    private static EventoBiblioteca.EmprestimoEncerrado lerEmprestimoEncerrado(DataInputStream in, long geracao, long posicao) throws IOException {
+        return new EventoBiblioteca.EmprestimoEncerrado(geracao, posicao, in.readInt(), LocalDate.ofEpochDay(in.readLong()));
+    }
+
+    private static void aplicarEmprestimo(DataInputStream in, ReproducaoDiario destino) throws IOException {
+        destino.restaurarEmprestimo(in.readInt(), in.readInt(), in.readInt(),
+                LocalDate.ofEpochDay(in.readLong()), LocalDate.ofEpochDay(in.readLong()));
+    }
+
+    private static void aplicarDevolucao(DataInputStream in, ReproducaoDiario destino) throws IOException {
+        destino.restaurarDevolucao(in.readInt(), LocalDate.ofEpochDay(in.readLong()));
+    }
+
+    private long acrescentar(Registro out) throws IOException {
+        byte[] conteudo = out.conteudo();
+        CRC32 crc = new CRC32();
+        crc.update(conteudo);
+        ByteBuffer registro = ByteBuffer.allocate(8 + conteudo.length);
+        registro.putInt(conteudo.length).putInt((int) crc.getValue()).put(conteudo);
+        registro.flip();
+        synchronized (travaEscrita) {
+            exigirSemFalha();
+            long inicio = posicaoEscrita;
+            try {
+                while (registro.hasRemaining()) {
+                    posicaoEscrita += canal.write(registro, posicaoEscrita);
+                }
+            } catch (IOException e) {
+                // Descarta a parte já escrita, para que os próximos registros não fiquem depois de um registro
+                // incompleto, onde a reprodução não os leria.
+                posicaoEscrita = inicio;
+                try {
+                    canal.truncate(inicio);
+                } catch (IOException eTruncar) {
+                    e.addSuppressed(eTruncar);
+                    falha = e;
+                }
+                throw e;
+            }
+            return posicaoEscrita;
+        }
+    }
+
+    private void exigirSemFalha() throws IOException {
+        IOException anterior = falha;
+        if (anterior != null) {
+            throw new IOException("O diário não aceita registros desde uma falha de gravação: " + anterior.getMessage(), anterior);
+        }
+    }
+
+    private static void escreverEmprestimo(DataOutputStream out, Emprestimo emprestimo) throws IOException {
+        out.writeInt(emprestimo.getIdEmprestimo());
+        out.writeInt(emprestimo.getLivro().getIdLivro());
+        out.writeInt(emprestimo.getUsuario().getIdUsuario());
+        out.writeLong(emprestimo.getDataEmprestimo().toEpochDay());
+        out.writeLong(emprestimo.getDataDevolucaoPrevista().toEpochDay());
+    }
+
+    private static void escreverDevolucao(DataOutputStream out, int idEmprestimo, LocalDate data) throws IOException {
+        out.writeInt(idEmprestimo);
+        out.writeLong(data.toEpochDay());
+    }
+
+    private static void escreverTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    private static String lerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Buffer de um único registro, iniciado pelo byte de tipo.
+     */
+    private static final class Registro extends DataOutputStream {
+        Registro(byte tipo) throws IOException {
+            super(new ByteArrayOutputStream(64));
+            writeByte(tipo);
+        }
+
+        byte[] conteudo() {
+            return ((ByteArrayOutputStream) out).toByteArray();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package entities;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Representa um empréstimo de um livro para um usuário no sistema da biblioteca.
@@ -9,7 +11,8 @@ import java.time.LocalDate;
  */
 public class Emprestimo implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static int proximoId = 1; // Armazena o próximo ID disponível para um objeto Emprestimo.
+    static final SequenciaId SEQUENCIA = new SequenciaId(); // Gera os IDs dos objetos Emprestimo, inclusive em paralelo.
+    public static final BigDecimal MULTA_DIARIA = new BigDecimal("1.00"); // Valor cobrado por dia de atraso.
 
     private int idEmprestimo;
     private Livro livro;
@@ -17,6 +20,7 @@ public class Emprestimo implements Serializable {
     private LocalDate dataEmprestimo;
     private LocalDate dataDevolucaoPrevista;
     private LocalDate dataDevolucaoEfetiva;
+    private transient ObservadorEntidades observador; // O gerenciador, enquanto o empréstimo está em aberto.
 
     /**
      * Constrói um novo Emprestimo com o livro, usuário e data de empréstimo especificados.
@@ -28,7 +32,7 @@ public class Emprestimo implements Serializable {
      * @param dataEmprestimo A data em que o livro foi emprestado.
      */
     public Emprestimo(Livro livro, Usuario usuario, LocalDate dataEmprestimo) {
-        this.idEmprestimo = proximoId++;
+        this.idEmprestimo = SEQUENCIA.proximo();
         this.livro = livro;
         this.usuario = usuario;
         this.dataEmprestimo = dataEmprestimo;
@@ -36,6 +40,26 @@ public class Emprestimo implements Serializable {
         this.dataDevolucaoEfetiva = null;
     }
 
+    /**
+     * Reconstrói um Emprestimo com um ID e datas já conhecidos, ao restaurar os dados gravados.
+     *
+     * @param idEmprestimo O ID do empréstimo.
+     * @param livro O objeto Livro emprestado.
+     * @param usuario O objeto Usuario que emprestou o livro.
+     * @param dataEmprestimo A data em que o livro foi emprestado.
+     * @param dataDevolucaoPrevista A data prevista de devolução.
+     * @param dataDevolucaoEfetiva A data real de devolução, ou null se o empréstimo ainda está ativo.
+     */
+    Emprestimo(int idEmprestimo, Livro livro, Usuario usuario, LocalDate dataEmprestimo, LocalDate dataDevolucaoPrevista, LocalDate dataDevolucaoEfetiva) {
+        SEQUENCIA.avancarAlem(idEmprestimo);
+        this.idEmprestimo = idEmprestimo;
+        this.livro = livro;
+        this.usuario = usuario;
+        this.dataEmprestimo = dataEmprestimo;
+        this.dataDevolucaoPrevista = dataDevolucaoPrevista;
+        this.dataDevolucaoEfetiva = dataDevolucaoEfetiva;
+    }
+
     /**
      * Retorna o ID único do empréstimo.
      * @return O ID do empréstimo.
@@ -76,7 +100,19 @@ public class Emprestimo implements Serializable {
      * Define a data prevista de devolução para o empréstimo.
      * @param dataDevolucaoPrevista A nova data de retorno prevista.
      */
-    public void setDataDevolucaoPrevista(LocalDate dataDevolucaoPrevista) { this.dataDevolucaoPrevista = dataDevolucaoPrevista; }
+    public void setDataDevolucaoPrevista(LocalDate dataDevolucaoPrevista) {
+        LocalDate anterior = this.dataDevolucaoPrevista;
+        this.dataDevolucaoPrevista = dataDevolucaoPrevista;
+        ObservadorEntidades atual = observador;
+        if (atual != null) {
+            try {
+                atual.emprestimoAlterado(this, anterior);
+            } catch (RuntimeException e) {
+                this.dataDevolucaoPrevista = anterior; // O diário não pôde ser gravado.
+                throw e;
+            }
+        }
+    }
 
     /**
      * Define a data real de devolução para o empréstimo. Isso marca o empréstimo como devolvido.
@@ -84,6 +120,18 @@ public class Emprestimo implements Serializable {
      */
     public void setDataDevolucaoEfetiva(LocalDate dataDevolucaoEfetiva) { this.dataDevolucaoEfetiva = dataDevolucaoEfetiva; }
 
+    /**
+     * Define quem deve ser avisado das alterações da data prevista, ou null para ninguém.
+     * @param observador O observador, normalmente o GerenciadorBiblioteca em que o empréstimo está em aberto.
+     */
+    void setObservador(ObservadorEntidades observador) { this.observador = observador; }
+
+    /**
+     * Grava no ID a filial da rede em que o empréstimo é registrado, antes de ir para o diário (ver SequenciaId).
+     * @param filial O índice da filial; 0 fora de uma rede.
+     */
+    void definirFilial(int filial) { idEmprestimo = SequenciaId.naFilial(idEmprestimo, filial); }
+
     /**
      * Verifica se o livro associado a este empréstimo foi devolvido.
      * @return true se o livro foi devolvido (dataDevolucaoEfetiva não é nula), false caso contrário.
@@ -92,6 +140,24 @@ public class Emprestimo implements Serializable {
         return dataDevolucaoEfetiva != null;
     }
 
+    /**
+     * Calcula os dias de atraso em uma data, contados a partir da data prevista de devolução.
+     * @param data A data considerada, normalmente a de hoje ou a da devolução.
+     * @return O número de dias de atraso, ou 0 se a data não passar da prevista.
+     */
+    public long diasAtraso(LocalDate data) {
+        return Math.max(0, ChronoUnit.DAYS.between(dataDevolucaoPrevista, data));
+    }
+
+    /**
+     * Calcula a multa pelo atraso de uma devolução, à razão de {@link #MULTA_DIARIA} por dia.
+     * @param dataDevolucao A data da devolução.
+     * @return O valor da multa, zero se a devolução não estiver atrasada.
+     */
+    public BigDecimal calcularMulta(LocalDate dataDevolucao) {
+        return MULTA_DIARIA.multiply(BigDecimal.valueOf(diasAtraso(dataDevolucao)));
+    }
+
     /**
      * Retorna uma representação de string do objeto Emprestimo.
      * Inclui o ID do empréstimo, título do livro, nome do usuário e status do empréstimo (ativo ou devolvido com data).
@@ -108,6 +174,14 @@ public class Emprestimo implements Serializable {
      * @param proximoId O próximo ID a ser usado.
      */
     public static void setProximoId(int proximoId) {
-        Emprestimo.proximoId = proximoId;
+        SEQUENCIA.definir(proximoId);
+    }
+
+    /**
+     * Retorna o próximo ID que será atribuído a um objeto Emprestimo. Isso é usado para persistência de dados.
+     * @return O próximo ID a ser usado.
+     */
+    public static int getProximoId() {
+        return SEQUENCIA.atual();
     }
 }
\ No newline at end of file
@@ -0,0 +1,334 @@
+package entities;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Evento de domínio imutável: uma alteração de estado da biblioteca, lida do diário de operações por um
+ * {@link RegistroEventos}.
+ * <p>
+ * Cada evento pertence a um agregado, a unidade cuja ordem de eventos importa: um autor, um livro (com sua fila de
+ * reservas), um usuário ou um empréstimo. Eventos de agregados diferentes podem ser aplicados em paralelo; a
+ * verificação de prazos de reservas não pertence a nenhum agregado e é entregue a todos.
+ * <p>
+ * As subclasses agrupam os tipos pelo conteúdo: {@link AutorSalvo}, {@link LivroSalvo} e {@link UsuarioSalvo}
+ * trazem o registro completo após a inclusão ou alteração; {@link Remocao} traz apenas o ID; a alteração de um
+ * empréstimo, {@link PrazoAlterado}, traz apenas a nova data prevista.
+ */
+public abstract class EventoBiblioteca {
+
+    /**
+     * Agregado a que um evento pertence.
+     */
+    public enum Agregado { AUTOR, LIVRO, USUARIO, EMPRESTIMO, NENHUM }
+
+    /**
+     * Tipo de um evento, com o agregado a que pertence.
+     */
+    public enum Tipo {
+        AUTOR_ADICIONADO(Agregado.AUTOR),
+        AUTOR_ALTERADO(Agregado.AUTOR),
+        AUTOR_REMOVIDO(Agregado.AUTOR),
+        LIVRO_ADICIONADO(Agregado.LIVRO),
+        LIVRO_ALTERADO(Agregado.LIVRO),
+        LIVRO_REMOVIDO(Agregado.LIVRO),
+        USUARIO_ADICIONADO(Agregado.USUARIO),
+        USUARIO_ALTERADO(Agregado.USUARIO),
+        USUARIO_REMOVIDO(Agregado.USUARIO),
+        EMPRESTIMO_ABERTO(Agregado.EMPRESTIMO),
+        EMPRESTIMO_ENCERRADO(Agregado.EMPRESTIMO),
+        EMPRESTIMO_ALTERADO(Agregado.EMPRESTIMO),
+        RESERVA_FEITA(Agregado.LIVRO),
+        RESERVA_CANCELADA(Agregado.LIVRO),
+        RESERVAS_EXPIRADAS(Agregado.NENHUM);
+
+        private final Agregado agregado;
+
+        Tipo(Agregado agregado) {
+            this.agregado = agregado;
+        }
+
+        public Agregado getAgregado() { return agregado; }
+    }
+
+    private final Tipo tipo;
+    private final long geracao;
+    private final long posicao;
+
+    EventoBiblioteca(Tipo tipo, long geracao, long posicao) {
+        this.tipo = tipo;
+        this.geracao = geracao;
+        this.posicao = posicao;
+    }
+
+    public Tipo getTipo() { return tipo; }
+
+    /**
+     * Retorna a geração do diário em que o evento foi gravado. Geração e posição ordenam os eventos.
+     * @return A geração.
+     */
+    public long getGeracao() { return geracao; }
+
+    /**
+     * Retorna a posição do registro do evento no diário. Os eventos de um registro em lote compartilham a posição.
+     * @return A posição, em bytes desde o início do arquivo.
+     */
+    public long getPosicao() { return posicao; }
+
+    /**
+     * Retorna o ID do agregado do evento: o ID do autor, do livro, do usuário ou do empréstimo.
+     * @return O ID, ou 0 para eventos sem agregado.
+     */
+    public abstract int getIdAgregado();
+
+    @Override
+    public String toString() {
+        return tipo + " #" + getIdAgregado() + " (" + geracao + ":" + posicao + ")";
+    }
+
+    /**
+     * Um autor foi adicionado ou alterado.
+     */
+    public static final class AutorSalvo extends EventoBiblioteca {
+        private final int idAutor;
+        private final String nome;
+        private final String nacionalidade;
+
+        AutorSalvo(Tipo tipo, long geracao, long posicao, int idAutor, String nome, String nacionalidade) {
+            super(tipo, geracao, posicao);
+            this.idAutor = idAutor;
+            this.nome = nome;
+            this.nacionalidade = nacionalidade;
+        }
+
+        @Override
+        public int getIdAgregado() { return idAutor; }
+
+        public int getIdAutor() { return idAutor; }
+
+        public String getNome() { return nome; }
+
+        public String getNacionalidade() { return nacionalidade; }
+    }
+
+    /**
+     * Um livro foi adicionado ou alterado.
+     */
+    public static final class LivroSalvo extends EventoBiblioteca {
+        private final int idLivro;
+        private final String titulo;
+        private final String isbn;
+        private final int anoPublicacao;
+        private final String editora;
+        private final int quantidadeTotal;
+        private final int quantidadeDisponivel;
+        private final int[] idsAutores;
+
+        LivroSalvo(Tipo tipo, long geracao, long posicao, int idLivro, String titulo, String isbn, int anoPublicacao,
+                   String editora, int quantidadeTotal, int quantidadeDisponivel, int[] idsAutores) {
+            super(tipo, geracao, posicao);
+            this.idLivro = idLivro;
+            this.titulo = titulo;
+            this.isbn = isbn;
+            this.anoPublicacao = anoPublicacao;
+            this.editora = editora;
+            this.quantidadeTotal = quantidadeTotal;
+            this.quantidadeDisponivel = quantidadeDisponivel;
+            this.idsAutores = idsAutores;
+        }
+
+        @Override
+        public int getIdAgregado() { return idLivro; }
+
+        public int getIdLivro() { return idLivro; }
+
+        public String getTitulo() { return titulo; }
+
+        public String getIsbn() { return isbn; }
+
+        public int getAnoPublicacao() { return anoPublicacao; }
+
+        public String getEditora() { return editora; }
+
+        public int getQuantidadeTotal() { return quantidadeTotal; }
+
+        /**
+         * Retorna os exemplares disponíveis no momento do evento. Os empréstimos e devoluções posteriores chegam
+         * como eventos próprios.
+         * @return O número de exemplares disponíveis.
+         */
+        public int getQuantidadeDisponivel() { return quantidadeDisponivel; }
+
+        /**
+         * @return Uma cópia dos IDs dos autores do livro.
+         */
+        public int[] getIdsAutores() { return Arrays.copyOf(idsAutores, idsAutores.length); }
+    }
+
+    /**
+     * Um usuário foi adicionado ou alterado.
+     */
+    public static final class UsuarioSalvo extends EventoBiblioteca {
+        private final int idUsuario;
+        private final String nome;
+        private final String cpf;
+        private final String telefone;
+        private final String email;
+
+        UsuarioSalvo(Tipo tipo, long geracao, long posicao, int idUsuario, String nome, String cpf, String telefone, String email) {
+            super(tipo, geracao, posicao);
+            this.idUsuario = idUsuario;
+            this.nome = nome;
+            this.cpf = cpf;
+            this.telefone = telefone;
+            this.email = email;
+        }
+
+        @Override
+        public int getIdAgregado() { return idUsuario; }
+
+        public int getIdUsuario() { return idUsuario; }
+
+        public String getNome() { return nome; }
+
+        public String getCpf() { return cpf; }
+
+        public String getTelefone() { return telefone; }
+
+        public String getEmail() { return email; }
+    }
+
+    /**
+     * Um autor, livro ou usuário foi removido.
+     */
+    public static final class Remocao extends EventoBiblioteca {
+        private final int id;
+
+        Remocao(Tipo tipo, long geracao, long posicao, int id) {
+            super(tipo, geracao, posicao);
+            this.id = id;
+        }
+
+        @Override
+        public int getIdAgregado() { return id; }
+    }
+
+    /**
+     * Um exemplar foi emprestado.
+     */
+    public static final class EmprestimoAberto extends EventoBiblioteca {
+        private final int idEmprestimo;
+        private final int idLivro;
+        private final int idUsuario;
+        private final LocalDate dataEmprestimo;
+        private final LocalDate dataDevolucaoPrevista;
+
+        EmprestimoAberto(long geracao, long posicao, int idEmprestimo, int idLivro, int idUsuario,
+                         LocalDate dataEmprestimo, LocalDate dataDevolucaoPrevista) {
+            super(Tipo.EMPRESTIMO_ABERTO, geracao, posicao);
+            this.idEmprestimo = idEmprestimo;
+            this.idLivro = idLivro;
+            this.idUsuario = idUsuario;
+            this.dataEmprestimo = dataEmprestimo;
+            this.dataDevolucaoPrevista = dataDevolucaoPrevista;
+        }
+
+        @Override
+        public int getIdAgregado() { return idEmprestimo; }
+
+        public int getIdEmprestimo() { return idEmprestimo; }
+
+        public int getIdLivro() { return idLivro; }
+
+        public int getIdUsuario() { return idUsuario; }
+
+        public LocalDate getDataEmprestimo() { return dataEmprestimo; }
+
+        public LocalDate getDataDevolucaoPrevista() { return dataDevolucaoPrevista; }
+    }
+
+    /**
+     * Um empréstimo foi devolvido. O livro e o usuário estão no {@link EmprestimoAberto} do mesmo empréstimo.
+     */
+    public static final class EmprestimoEncerrado extends EventoBiblioteca {
+        private final int idEmprestimo;
+        private final LocalDate dataDevolucao;
+
+        EmprestimoEncerrado(long geracao, long posicao, int idEmprestimo, LocalDate dataDevolucao) {
+            super(Tipo.EMPRESTIMO_ENCERRADO, geracao, posicao);
+            this.idEmprestimo = idEmprestimo;
+            this.dataDevolucao = dataDevolucao;
+        }
+
+        @Override
+        public int getIdAgregado() { return idEmprestimo; }
+
+        public int getIdEmprestimo() { return idEmprestimo; }
+
+        public LocalDate getDataDevolucao() { return dataDevolucao; }
+    }
+
+    /**
+     * A data prevista de devolução de um empréstimo em aberto foi alterada.
+     */
+    public static final class PrazoAlterado extends EventoBiblioteca {
+        private final int idEmprestimo;
+        private final LocalDate dataDevolucaoPrevista;
+
+        PrazoAlterado(long geracao, long posicao, int idEmprestimo, LocalDate dataDevolucaoPrevista) {
+            super(Tipo.EMPRESTIMO_ALTERADO, geracao, posicao);
+            this.idEmprestimo = idEmprestimo;
+            this.dataDevolucaoPrevista = dataDevolucaoPrevista;
+        }
+
+        @Override
+        public int getIdAgregado() { return idEmprestimo; }
+
+        public int getIdEmprestimo() { return idEmprestimo; }
+
+        public LocalDate getDataDevolucaoPrevista() { return dataDevolucaoPrevista; }
+    }
+
+    /**
+     * Uma reserva foi feita ou cancelada.
+     */
+    public static final class MovimentoReserva extends EventoBiblioteca {
+        private final int idLivro;
+        private final int idUsuario;
+        private final LocalDate data;
+
+        MovimentoReserva(Tipo tipo, long geracao, long posicao, int idLivro, int idUsuario, LocalDate data) {
+            super(tipo, geracao, posicao);
+            this.idLivro = idLivro;
+            this.idUsuario = idUsuario;
+            this.data = data;
+        }
+
+        @Override
+        public int getIdAgregado() { return idLivro; }
+
+        public int getIdLivro() { return idLivro; }
+
+        public int getIdUsuario() { return idUsuario; }
+
+        public LocalDate getData() { return data; }
+    }
+
+    /**
+     * Uma verificação de prazos de retirada expirou reservas. Quais reservas expiraram decorre do estado das filas
+     * na data: o evento é entregue a todas as partições, na sua posição relativa aos eventos de cada uma.
+     */
+    public static final class ExpiracaoReservas extends EventoBiblioteca {
+        private final LocalDate data;
+
+        ExpiracaoReservas(long geracao, long posicao, LocalDate data) {
+            super(Tipo.RESERVAS_EXPIRADAS, geracao, posicao);
+            this.data = data;
+        }
+
+        @Override
+        public int getIdAgregado() { return 0; }
+
+        public LocalDate getData() { return data; }
+    }
+}
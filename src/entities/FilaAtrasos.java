@@ -0,0 +1,89 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * Fila de prioridade dos empréstimos por data prevista de devolução: um heap mínimo em um vetor de long, sem
+ * boxing. Cada entrada guarda o dia (em dias desde a época) nos 32 bits altos e o ID do empréstimo nos baixos,
+ * de modo que a ordem dos valores é a ordem das datas.
+ * <p>
+ * Devoluções não retiram a entrada: ela sai quando a data vence e quem consome a fila descarta os empréstimos
+ * que não estiverem mais em aberto. Uma mudança de data prevista também não a retira, mas acrescenta uma entrada
+ * para a nova data, e quem consome a fila descarta as entradas que não forem da data atual do empréstimo.
+ * Assim, cada verificação custa apenas o número de entradas vencidas.
+ * <p>
+ * É sincronizada, pois empréstimos e devoluções rodam em paralelo sob a trava de leitura do gerenciador.
+ */
+final class FilaAtrasos {
+    private long[] entradas;
+    private int tamanho;
+
+    FilaAtrasos(int capacidade) {
+        entradas = new long[Math.max(capacidade, 16)];
+    }
+
+    /**
+     * Inclui um empréstimo na fila.
+     * @param dia A data prevista de devolução, em dias desde a época.
+     * @param idEmprestimo O ID do empréstimo.
+     */
+    synchronized void adicionar(long dia, int idEmprestimo) {
+        if (tamanho == entradas.length) {
+            entradas = Arrays.copyOf(entradas, tamanho * 2);
+        }
+        long entrada = (dia << 32) | (idEmprestimo & 0xFFFFFFFFL);
+        int i = tamanho++;
+        while (i > 0) {
+            int pai = (i - 1) >>> 1;
+            if (entradas[pai] <= entrada) {
+                break;
+            }
+            entradas[i] = entradas[pai];
+            i = pai;
+        }
+        entradas[i] = entrada;
+    }
+
+    /**
+     * Retira da fila todos os empréstimos com data prevista anterior a um dia.
+     * @param dia O primeiro dia que ainda não está vencido, em dias desde a época.
+     * @return As entradas retiradas, em ordem de data prevista, com o dia nos 32 bits altos e o ID nos baixos.
+     */
+    synchronized long[] retirarVencidos(long dia) {
+        long limite = dia << 32;
+        long[] vencidas = new long[4];
+        int quantidade = 0;
+        while (tamanho > 0 && entradas[0] < limite) {
+            if (quantidade == vencidas.length) {
+                vencidas = Arrays.copyOf(vencidas, quantidade * 2);
+            }
+            vencidas[quantidade++] = entradas[0];
+            retirarPrimeira();
+        }
+        return Arrays.copyOf(vencidas, quantidade);
+    }
+
+    synchronized int tamanho() {
+        return tamanho;
+    }
+
+    private void retirarPrimeira() {
+        long ultima = entradas[--tamanho];
+        int i = 0;
+        while (true) {
+            int filho = 2 * i + 1;
+            if (filho >= tamanho) {
+                break;
+            }
+            if (filho + 1 < tamanho && entradas[filho + 1] < entradas[filho]) {
+                filho++;
+            }
+            if (ultima <= entradas[filho]) {
+                break;
+            }
+            entradas[i] = entradas[filho];
+            i = filho;
+        }
+        entradas[i] = ultima;
+    }
+}
@@ -0,0 +1,347 @@
+package entities;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reservas de livros sem exemplares disponíveis: uma fila por livro, atendida por ordem de chegada.
+ * <p>
+ * A política de justiça é a seguinte:
+ * <ul>
+ *   <li>só é possível reservar um livro sem exemplares disponíveis;</li>
+ *   <li>cada usuário tem no máximo uma reserva por livro e {@link Reserva#MAXIMO_POR_USUARIO} no total;</li>
+ *   <li>enquanto houver reservas na fila, os exemplares devolvidos vão para a primeira delas em vez de voltarem a
+ *   ficar disponíveis, de modo que ninguém passa à frente da fila;</li>
+ *   <li>o exemplar separado fica à espera do usuário até o prazo de retirada e depois passa para a próxima reserva.</li>
+ * </ul>
+ * Os prazos de retirada ficam em uma {@link RodaTemporizacao}, de modo que verificá-los não percorre as reservas.
+ * As reservas em aberto ficam também por livro, com a fila e as disponíveis em conjuntos ordenados, de modo que
+ * atender, cancelar ou expirar uma reserva e listar as de um livro não percorrem as reservas dos demais livros.
+ * <p>
+ * Empréstimos e devoluções rodam em paralelo sob a trava de leitura do gerenciador e tomam apenas a
+ * {@link #trava(Livro) trava do livro}, uma entre {@link #TRAVAS}. Os livros sem reservas em aberto, que são quase
+ * todos, são reconhecidos sem trava no mapa concorrente das reservas por livro, e o exemplar é retirado ou devolvido
+ * direto no livro. Os demais, e todas as outras operações, usam o monitor desta fila. Reservar, cancelar e expirar
+ * reservas rodam sob a trava de escrita do gerenciador, de modo que as reservas de um livro só mudam por
+ * empréstimos e devoluções que detêm a trava do livro ou sem nenhum empréstimo em andamento.
+ */
+final class FilaReservas {
+    private static final int TRAVAS = 64; // Potência de dois.
+
+    private final Object[] travas = new Object[TRAVAS];
+    private final Map<Integer, DoLivro> porLivro = new ConcurrentHashMap<>(); // Apenas livros com reservas em aberto.
+    private final Map<Long, Reserva> abertas = new HashMap<>(); // Aguardando ou disponíveis, por livro e usuário.
+    private final MapaInt<List<Reserva>> porUsuario = new MapaInt<>(); // No máximo MAXIMO_POR_USUARIO por usuário.
+    private final RodaTemporizacao prazos = new RodaTemporizacao();
+
+    FilaReservas() {
+        for (int i = 0; i < TRAVAS; i++) {
+            travas[i] = new Object();
+        }
+    }
+
+    /**
+     * Inclui uma reserva ao final da fila do livro.
+     * @param livro O livro.
+     * @param usuario O usuário.
+     * @param hoje A data da reserva.
+     * @return A reserva, ou null se o livro tiver exemplares disponíveis ou a política de justiça não a permitir.
+     */
+    synchronized Reserva reservar(Livro livro, Usuario usuario, LocalDate hoje) {
+        int idUsuario = usuario.getIdUsuario();
+        List<Reserva> doUsuario = porUsuario.get(idUsuario);
+        if (livro.getQuantidadeDisponivel() > 0 || abertas.containsKey(chave(livro.getIdLivro(), idUsuario))
+                || (doUsuario != null && doUsuario.size() >= Reserva.MAXIMO_POR_USUARIO)) {
+            return null;
+        }
+        Reserva reserva = new Reserva(livro, usuario, hoje, null);
+        restaurar(reserva);
+        return reserva;
+    }
+
+    /**
+     * Inclui uma reserva lida de um instantâneo, sem verificar a política de justiça. As reservas aguardando de
+     * um livro devem ser incluídas na ordem da fila.
+     * @param reserva A reserva, aguardando ou disponível.
+     */
+    synchronized void restaurar(Reserva reserva) {
+        int idLivro = reserva.getLivro().getIdLivro();
+        int idUsuario = reserva.getUsuario().getIdUsuario();
+        abertas.put(chave(idLivro, idUsuario), reserva);
+        porUsuario.computeIfAbsent(idUsuario, id -> new ArrayList<>()).add(reserva);
+        DoLivro doLivro = porLivro.computeIfAbsent(idLivro, id -> new DoLivro());
+        if (reserva.getSituacao() == Reserva.Situacao.AGUARDANDO) {
+            doLivro.fila.add(reserva);
+        } else {
+            doLivro.disponiveis.add(reserva);
+            prazos.agendar(reserva.getPrazoRetirada().toEpochDay(), chave(idLivro, idUsuario));
+        }
+    }
+
+    /**
+     * Retorna a trava que {@link #emprestar(Livro, int)} e {@link #devolver(Livro, LocalDate)} tomam para um livro.
+     * Quem a detém pode gravar a operação no diário antes que outro empréstimo ou devolução do livro altere seus
+     * exemplares, de modo que o diário traz as operações do livro na ordem em que foram aplicadas.
+     * @param livro O livro.
+     * @return A trava, compartilhada com outros livros.
+     */
+    Object trava(Livro livro) {
+        return travas[livro.getIdLivro() & (TRAVAS - 1)];
+    }
+
+    /**
+     * Retira um exemplar para um empréstimo: o exemplar separado para a reserva do usuário, se houver, ou um dos
+     * exemplares disponíveis.
+     * @param livro O livro.
+     * @param idUsuario O ID do usuário.
+     * @return true se havia um exemplar para o usuário.
+     */
+    boolean emprestar(Livro livro, int idUsuario) {
+        synchronized (trava(livro)) {
+            if (!porLivro.containsKey(livro.getIdLivro())) {
+                return livro.decrementarDisponiveis();
+            }
+            synchronized (this) {
+                Reserva reserva = abertas.get(chave(livro.getIdLivro(), idUsuario));
+                if (reserva != null && reserva.getSituacao() == Reserva.Situacao.DISPONIVEL) {
+                    encerrar(reserva, Reserva.Situacao.ATENDIDA);
+                    return true;
+                }
+            }
+            return livro.decrementarDisponiveis();
+        }
+    }
+
+    /**
+     * Desfaz uma retirada de {@link #emprestar(Livro, int)} cujo empréstimo não chegou a ser feito: o exemplar volta
+     * a ficar separado para a reserva atendida ou volta ao livro. As retiradas são desfeitas na ordem inversa.
+     * @param livro O livro.
+     * @param atendida A reserva atendida pela retirada, ou null se o exemplar era um dos disponíveis.
+     */
+    synchronized void desfazerRetirada(Livro livro, Reserva atendida) {
+        if (atendida == null) {
+            livro.incrementarDisponiveis();
+            return;
+        }
+        atendida.disponibilizar(atendida.getPrazoRetirada());
+        restaurar(atendida);
+    }
+
+    /**
+     * Retorna a reserva do usuário com um exemplar separado, que {@link #emprestar(Livro, int)} retiraria.
+     * @param idLivro O ID do livro.
+     * @param idUsuario O ID do usuário.
+     * @return A reserva do usuário para o livro, se estiver disponível, ou null.
+     */
+    Reserva disponivelPara(int idLivro, int idUsuario) {
+        if (!porLivro.containsKey(idLivro)) {
+            return null; // Como em emprestar, sem o monitor da fila para os livros sem reservas.
+        }
+        synchronized (this) {
+            Reserva reserva = abertas.get(chave(idLivro, idUsuario));
+            return reserva != null && reserva.getSituacao() == Reserva.Situacao.DISPONIVEL ? reserva : null;
+        }
+    }
+
+    /**
+     * Recebe um exemplar devolvido: ele é separado para a primeira reserva da fila do livro ou volta a ficar
+     * disponível se a fila estiver vazia. Como o cancelamento e a expiração, custa tempo constante.
+     * @param livro O livro.
+     * @param hoje A data da devolução, que inicia o prazo de retirada.
+     * @return A reserva que recebeu o exemplar, ou null se ele voltou a ficar disponível.
+     */
+    Reserva devolver(Livro livro, LocalDate hoje) {
+        synchronized (trava(livro)) {
+            if (!porLivro.containsKey(livro.getIdLivro())) {
+                livro.incrementarDisponiveis();
+                return null;
+            }
+            synchronized (this) {
+                return separar(livro, hoje);
+            }
+        }
+    }
+
+    /**
+     * Retorna a reserva em aberto de um usuário para um livro.
+     * @param idLivro O ID do livro.
+     * @param idUsuario O ID do usuário.
+     * @return A reserva, aguardando ou disponível, ou null se não houver.
+     */
+    synchronized Reserva aberta(int idLivro, int idUsuario) {
+        return abertas.get(chave(idLivro, idUsuario));
+    }
+
+    /**
+     * Cancela a reserva de um usuário. Um exemplar já separado para ela passa para a próxima reserva da fila.
+     * @param idLivro O ID do livro.
+     * @param idUsuario O ID do usuário.
+     * @param hoje A data do cancelamento.
+     * @param atendidas Recebe a reserva que recebeu o exemplar, se houver.
+     * @return true se havia uma reserva em aberto.
+     */
+    synchronized boolean cancelar(int idLivro, int idUsuario, LocalDate hoje, List<Reserva> atendidas) {
+        Reserva reserva = abertas.get(chave(idLivro, idUsuario));
+        if (reserva == null) {
+            return false;
+        }
+        liberar(reserva, Reserva.Situacao.CANCELADA, hoje, atendidas);
+        return true;
+    }
+
+    /**
+     * Cancela as reservas de um usuário removido.
+     * @param idUsuario O ID do usuário.
+     * @param hoje A data da remoção.
+     * @param atendidas Recebe as reservas que receberam os exemplares separados para o usuário.
+     */
+    synchronized void cancelarDoUsuario(int idUsuario, LocalDate hoje, List<Reserva> atendidas) {
+        List<Reserva> doUsuario = porUsuario.get(idUsuario);
+        if (doUsuario != null) {
+            for (Reserva reserva : new ArrayList<>(doUsuario)) {
+                liberar(reserva, Reserva.Situacao.CANCELADA, hoje, atendidas);
+            }
+        }
+    }
+
+    /**
+     * Cancela as reservas de um livro removido. Os exemplares separados saem do acervo junto com o livro.
+     * @param idLivro O ID do livro.
+     */
+    synchronized void cancelarDoLivro(int idLivro) {
+        for (Reserva reserva : doLivro(idLivro)) {
+            encerrar(reserva, Reserva.Situacao.CANCELADA);
+        }
+    }
+
+    /**
+     * Indica se há prazos de retirada vencidos antes de um dia, sem expirar as reservas. Alguns podem não valer mais,
+     * caso em que {@link #expirar(LocalDate, List)} não expira nada.
+     * @param hoje O primeiro dia que ainda está no prazo.
+     * @return true se {@link #expirar(LocalDate, List)} tem prazos a verificar.
+     */
+    synchronized boolean temPrazosVencidos(LocalDate hoje) {
+        return prazos.temVencidas(hoje.toEpochDay());
+    }
+
+    /**
+     * Expira as reservas cujo prazo de retirada terminou antes de um dia. O exemplar de cada uma passa para a
+     * próxima reserva da fila, com prazo contado a partir desse dia.
+     * @param hoje O primeiro dia que ainda está no prazo.
+     * @param atendidas Recebe as reservas que receberam os exemplares.
+     * @return As reservas expiradas.
+     */
+    synchronized List<Reserva> expirar(LocalDate hoje, List<Reserva> atendidas) {
+        List<Reserva> expiradas = new ArrayList<>();
+        for (long chave : prazos.avancar(hoje.toEpochDay())) {
+            Reserva reserva = abertas.get(chave);
+            // A chave pode ser de um prazo que não vale mais: a reserva foi retirada ou cancelada, e talvez refeita.
+            if (reserva != null && reserva.getSituacao() == Reserva.Situacao.DISPONIVEL && reserva.getPrazoRetirada().isBefore(hoje)) {
+                liberar(reserva, Reserva.Situacao.EXPIRADA, hoje, atendidas);
+                expiradas.add(reserva);
+            }
+        }
+        return expiradas;
+    }
+
+    /**
+     * Retorna as reservas em aberto de um livro: as disponíveis e, em seguida, as da fila, na ordem de atendimento.
+     * @param idLivro O ID do livro.
+     * @return As reservas.
+     */
+    synchronized List<Reserva> doLivro(int idLivro) {
+        DoLivro doLivro = porLivro.get(idLivro);
+        if (doLivro == null) {
+            return new ArrayList<>();
+        }
+        List<Reserva> reservas = new ArrayList<>(doLivro.disponiveis.size() + doLivro.fila.size());
+        reservas.addAll(doLivro.disponiveis);
+        reservas.addAll(doLivro.fila);
+        return reservas;
+    }
+
+    /**
+     * Retorna todas as reservas em aberto, com as de cada fila na ordem de atendimento, para gravar um instantâneo.
+     * @return As reservas.
+     */
+    synchronized List<Reserva> todas() {
+        List<Reserva> reservas = new ArrayList<>(abertas.size());
+        for (DoLivro doLivro : porLivro.values()) {
+            reservas.addAll(doLivro.disponiveis);
+            reservas.addAll(doLivro.fila);
+        }
+        return reservas;
+    }
+
+    /**
+     * Separa o exemplar devolvido para a primeira reserva da fila, ou o devolve ao livro se a fila estiver vazia.
+     */
+    private Reserva separar(Livro livro, LocalDate hoje) {
+        int idLivro = livro.getIdLivro();
+        DoLivro doLivro = porLivro.get(idLivro);
+        Iterator<Reserva> fila = doLivro != null ? doLivro.fila.iterator() : null;
+        if (fila == null || !fila.hasNext()) {
+            livro.incrementarDisponiveis();
+            return null;
+        }
+        Reserva proxima = fila.next();
+        fila.remove();
+        LocalDate prazo = hoje.plusDays(Reserva.PRAZO_RETIRADA_DIAS);
+        proxima.disponibilizar(prazo);
+        doLivro.disponiveis.add(proxima);
+        prazos.agendar(prazo.toEpochDay(), chave(idLivro, proxima.getUsuario().getIdUsuario()));
+        return proxima;
+    }
+
+    private void liberar(Reserva reserva, Reserva.Situacao situacaoFinal, LocalDate hoje, List<Reserva> atendidas) {
+        boolean tinhaExemplar = reserva.getSituacao() == Reserva.Situacao.DISPONIVEL;
+        encerrar(reserva, situacaoFinal);
+        if (tinhaExemplar) {
+            // Sob a trava de escrita do gerenciador, sem empréstimos em andamento: dispensa a trava do livro.
+            Reserva proxima = separar(reserva.getLivro(), hoje);
+            if (proxima != null) {
+                atendidas.add(proxima);
+            }
+        }
+    }
+
+    private void encerrar(Reserva reserva, Reserva.Situacao situacaoFinal) {
+        int idLivro = reserva.getLivro().getIdLivro();
+        int idUsuario = reserva.getUsuario().getIdUsuario();
+        DoLivro doLivro = porLivro.get(idLivro);
+        if (reserva.getSituacao() == Reserva.Situacao.AGUARDANDO) {
+            doLivro.fila.remove(reserva);
+        } else {
+            doLivro.disponiveis.remove(reserva);
+        }
+        if (doLivro.fila.isEmpty() && doLivro.disponiveis.isEmpty()) {
+            porLivro.remove(idLivro);
+        }
+        reserva.encerrar(situacaoFinal);
+        abertas.remove(chave(idLivro, idUsuario));
+        List<Reserva> doUsuario = porUsuario.get(idUsuario);
+        doUsuario.remove(reserva);
+        if (doUsuario.isEmpty()) {
+            porUsuario.remove(idUsuario);
+        }
+    }
+
+    private static long chave(int idLivro, int idUsuario) {
+        return ((long) idLivro << 32) | (idUsuario & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reservas em aberto de um livro. Os conjuntos mantêm a ordem de inclusão e retiram qualquer reserva em tempo
+     * constante; as reservas usam a identidade como igualdade.
+     */
+    private static final class DoLivro {
+        final LinkedHashSet<Reserva> fila = new LinkedHashSet<>(); // Aguardando, na ordem de atendimento.
+        final LinkedHashSet<Reserva> disponiveis = new LinkedHashSet<>(); // Com um exemplar separado.
+    }
+}
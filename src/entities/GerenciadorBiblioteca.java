@@ -1,125 +1,2561 @@
 package entities;
 
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
 
 public class GerenciadorBiblioteca {
+    private static final String ARQUIVO_PADRAO = "dados_biblioteca.dat";
+    public static final int TAMANHO_PAGINA_HISTORICO = 20; // Empréstimos por página em historicoPorUsuario e historicoPorLivro.
+    public static final int MAXIMO_ITENS_LOTE = DiarioOperacoes.MAXIMO_ITENS_LOTE; // Itens por chamada das operações em lote.
+
     private List<Livro> livros;
     private List<Usuario> usuarios;
-    private List<Emprestimo> emprestimos;
+    private Queue<Emprestimo> emprestimos;
     private List<Autor> autores;
 
+    // Alterações no acervo e no cadastro usam a trava de escrita. Buscas, empréstimos e devoluções usam a de
+    // leitura e podem rodar em paralelo: a disputa por exemplares é resolvida pelo próprio Livro e as estruturas
+    // de empréstimo abaixo são concorrentes.
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    final Lock leitura = trava.readLock();
+    final Lock escrita = trava.writeLock();
+
+    // Índices id -> entidade, mantidos em sincronia com as listas acima.
+    private MapaInt<Livro> livrosPorId;
+    private MapaInt<Usuario> usuariosPorId;
+    private MapaInt<Autor> autoresPorId;
+
+    // Quantidade de empréstimos ativos por id de livro e por id de usuário.
+    private Map<Integer, Integer> emprestimosAtivosPorLivro;
+    private Map<Integer, Integer> emprestimosAtivosPorUsuario;
+    // Empréstimos em aberto por id de empréstimo, e quantos são. O mapa não tem ordem: as listagens ordenam o que
+    // devolvem, de modo que empréstimos e devoluções continuam em tempo constante.
+    Map<Integer, Emprestimo> emprestimosAtivos;
+    private AtomicInteger quantidadeEmprestimosAtivos;
+    // Empréstimos em aberto por data prevista de devolução, consumida por verificarAtrasos. As datas de
+    // empréstimo e devolução vêm do relógio, que os testes podem substituir.
+    FilaAtrasos filaAtrasos;
+    private final Clock relogio;
+    private final List<OuvinteAtrasos> ouvintesAtrasos = new CopyOnWriteArrayList<>();
+    // Filas de reserva dos livros sem exemplares disponíveis. Reservar, cancelar e expirar reservas usam a trava
+    // de escrita, de modo que o diário as registra na mesma ordem relativa aos empréstimos e devoluções em que foram
+    // aplicadas; a entrega dos exemplares devolvidos às reservas é refeita pela reprodução das próprias devoluções.
+    FilaReservas reservas = new FilaReservas();
+    private final List<OuvinteReservas> ouvintesReservas = new CopyOnWriteArrayList<>();
+    // Avisados de cada alteração de usuário aceita, depois de gravada e fora das travas (ver RedeBibliotecas).
+    final List<Consumer<Usuario>> ouvintesUsuarios = new CopyOnWriteArrayList<>();
+    // Empréstimos de cada usuário e de cada livro: montado na primeira consulta ao histórico e depois mantido a
+    // cada empréstimo.
+    private HistoricoEmprestimos historico;
+    // Modelos de leitura dos painéis de circulação: montados na primeira consulta a um painel e depois mantidos a
+    // cada empréstimo, alteração de exemplares disponíveis e remoção.
+    PainelCirculacao painel;
+    // Empréstimos devolvidos há muito tempo, retirados da memória e do instantâneo (arquivoDados.arquivo).
+    // No armazenamento mapeado, emprestimosArquivados marca os que ainda estão no catálogo aberto.
+    private final ArquivoEmprestimos arquivo;
+    private BitSet emprestimosArquivados;
+
+    // Persistência: o último instantâneo completo fica em arquivoDados e cada alteração posterior é acrescentada
+    // ao diário da geração corrente (arquivoDados.<geracao>.diario). Um instantâneo de geração N contém tudo o
+    // que foi gravado nos diários de geração menor que N.
+    private final Path arquivoDados;
+    // A filial de uma RedeBibliotecas a que o gerenciador pertence, gravada nos IDs dos registros que ele inclui
+    // (ver SequenciaId); 0 fora de uma rede.
+    private final int filial;
+    private DiarioOperacoes diario;
+    private long geracaoDiario;
+    // Se true, os diários incorporados a um instantâneo são mantidos como arquivoDados.<geracao>.eventos, para o
+    // RegistroEventos, em vez de apagados.
+    private volatile boolean manterEventos;
+
+    // Instantâneos (salvarDados, compactar) e carregarDados são serializados por esta trava, adquirida antes da
+    // trava de escrita. geracao é a geração do último instantâneo gravado ou lido.
+    private final ReentrantLock travaInstantaneo = new ReentrantLock();
+    private long geracao;
+    // Uma única thread em segundo plano executa as tarefas periódicas: instantâneos e verificação de atrasos e
+    // de reservas.
+    private ScheduledExecutorService agendador;
+    private ScheduledFuture<?> instantaneosPeriodicos;
+    private ScheduledFuture<?> verificacaoPeriodica;
+
+    // Armazenamento mapeado (ver CatalogoMapeado): com um catálogo aberto, as listas e os índices acima guardam
+    // apenas o que foi incluído depois da abertura. Os demais registros são lidos do arquivo na primeira busca e
+    // mantidos nos mapas *Mapeados, de modo que cada ID corresponda sempre ao mesmo objeto. Os conjuntos
+    // *Removidos marcam registros do arquivo removidos depois da abertura.
+    private final boolean mapeado;
+    private CatalogoMapeado catalogo;
+    private Map<Integer, Livro> livrosMapeados;
+    private Map<Integer, Usuario> usuariosMapeados;
+    private Map<Integer, Autor> autoresMapeados;
+    private BitSet livrosRemovidos;
+    private BitSet usuariosRemovidos;
+    private BitSet autoresRemovidos;
+
+    // Autores de cada livro e livros de cada autor: montado no primeiro uso e depois mantido a cada alteração.
+    private IndiceAutoria indiceAutoria;
+    // Busca por título e autor: montada na primeira chamada de buscarLivros e depois mantida a cada alteração.
+    // Os setters de título, autores e nome de autor chegam por meio do observador.
+    IndiceTextual indiceTextual;
+    // O observador (ObservadorGerenciador) e a reprodução do diário (ReproducaoDiario) ficam em classes à parte
+    // do mesmo pacote: os campos e métodos que eles usam não são privados, mas não devem ser usados por outras classes.
+    private final ObservadorEntidades observador = new ObservadorGerenciador(this);
+
+    // ISBN normalizado -> id do livro: montado na primeira busca por ISBN ou inclusão de livro e depois mantido
+    // a cada alteração. Com ISBNs repetidos em dados antigos, fica o primeiro livro encontrado.
+    IndiceUnico indiceIsbn;
+    // CPF e e-mail normalizados -> id do usuário: montados juntos na primeira busca ou inclusão de usuário, da
+    // mesma forma.
+    IndiceUnico indiceCpf;
+    private Map<String, Integer> indiceEmail;
+
+    // Listagens paginadas: os IDs de cada tipo de entidade em cada Ordenacao, montados na primeira listagem e
+    // descartados a cada inclusão ou remoção e, na ordem por nome, a cada mudança de título ou nome.
+    final OrdemListagem[] ordemLivros = new OrdemListagem[Ordenacao.values().length];
+    final OrdemListagem[] ordemUsuarios = new OrdemListagem[Ordenacao.values().length];
+    final OrdemListagem[] ordemAutores = new OrdemListagem[Ordenacao.values().length];
+
     public GerenciadorBiblioteca() {
+        this(ARQUIVO_PADRAO);
+    }
+
+    public GerenciadorBiblioteca(String arquivoDados) {
+        this(arquivoDados, false);
+    }
+
+    /**
+     * Cria um gerenciador que pode manter o instantâneo em um arquivo mapeado em memória.
+     * Nesse modo, carregarDados apenas mapeia o arquivo e materializa os empréstimos ativos; livros, usuários,
+     * autores e o histórico de empréstimos são lidos do arquivo quando acessados pela primeira vez.
+     *
+     * @param arquivoDados O arquivo do instantâneo; os diários de operações ficam ao lado dele.
+     * @param mapeado true para gravar os instantâneos como um catálogo mapeado e abri-lo sob demanda.
+     */
+    public GerenciadorBiblioteca(String arquivoDados, boolean mapeado) {
+        this(arquivoDados, mapeado, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Cria um gerenciador que obtém a data corrente de um relógio próprio, usado nas datas de empréstimo e
+     * devolução e na verificação de atrasos.
+     *
+     * @param arquivoDados O arquivo do instantâneo; os diários de operações ficam ao lado dele.
+     * @param mapeado true para gravar os instantâneos como um catálogo mapeado e abri-lo sob demanda.
+     * @param relogio O relógio do qual a data corrente é lida.
+     */
+    public GerenciadorBiblioteca(String arquivoDados, boolean mapeado, Clock relogio) {
+        this(arquivoDados, mapeado, relogio, 0);
+    }
+
+    /**
+     * Cria o gerenciador de uma filial de uma RedeBibliotecas.
+     *
+     * @param arquivoDados O arquivo do instantâneo; os diários de operações ficam ao lado dele.
+     * @param mapeado true para gravar os instantâneos como um catálogo mapeado e abri-lo sob demanda.
+     * @param relogio O relógio do qual a data corrente é lida.
+     * @param filial O índice da filial, gravado nos IDs dos livros, usuários, autores e empréstimos incluídos.
+     */
+    GerenciadorBiblioteca(String arquivoDados, boolean mapeado, Clock relogio, int filial) {
+        if (filial < 0 || filial >= SequenciaId.FILIAIS_MAXIMAS) {
+            throw new IllegalArgumentException("Filial fora do intervalo de 0 a " + (SequenciaId.FILIAIS_MAXIMAS - 1) + ": " + filial);
+        }
+        this.filial = filial;
+        this.arquivoDados = Paths.get(arquivoDados);
+        this.mapeado = mapeado;
+        this.relogio = relogio;
+        this.arquivo = new ArquivoEmprestimos(Paths.get(arquivoDados + ".arquivo"));
         this.livros = new ArrayList<>();
         this.usuarios = new ArrayList<>();
-        this.emprestimos = new ArrayList<>();
+        this.emprestimos = new ConcurrentLinkedQueue<>();
         this.autores = new ArrayList<>();
+        reconstruirIndices();
     }
 
-    public void adicionarLivro(Livro livro) { livros.add(livro); }
+    /**
+     * Adiciona um livro ao acervo, desde que nenhum outro livro cadastrado tenha o mesmo ISBN.
+     * ISBN-10 e ISBN-13 equivalentes, com ou sem hífens, são considerados o mesmo ISBN.
+     *
+     * @param livro O livro a adicionar.
+     * @return true se o livro foi adicionado, false se o ISBN já estiver cadastrado.
+     */
+    public boolean adicionarLivro(Livro livro) {
+        escrita.lock();
+        try {
+            if (indiceIsbn == null) {
+                construirIndiceIsbn();
+            }
+            long chave = IndiceUnico.normalizarIsbn(livro.getIsbn());
+            if (chave != IndiceUnico.INVALIDO && indiceIsbn.get(chave) != 0) {
+                return false;
+            }
+            livro.definirFilial(filial);
+            incluirLivro(livro);
+            return true;
+        } finally {
+            escrita.unlock();
+        }
+    }
     public Livro buscarLivroPorId(int idLivro) {
-        return livros.stream().filter(l -> l.getIdLivro() == idLivro).findFirst().orElse(null);
+        leitura.lock();
+        try {
+            return livro(idLivro);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Busca um livro pelo ISBN, informado como ISBN-10 ou ISBN-13, com ou sem hífens.
+     * A busca é feita em um índice montado na primeira chamada, sem percorrer o acervo.
+     *
+     * @param isbn O ISBN procurado.
+     * @return O livro com o ISBN, ou null se não houver ou se o texto não for um ISBN.
+     */
+    public Livro buscarLivroPorIsbn(String isbn) {
+        long chave = IndiceUnico.normalizarIsbn(isbn);
+        if (chave == IndiceUnico.INVALIDO) {
+            return null;
+        }
+        leitura.lock();
+        try {
+            if (indiceIsbn != null) {
+                return livroComIsbn(chave);
+            }
+        } finally {
+            leitura.unlock();
+        }
+        escrita.lock();
+        try {
+            if (indiceIsbn == null) {
+                construirIndiceIsbn();
+            }
+            return livroComIsbn(chave);
+        } finally {
+            escrita.unlock();
+        }
     }
     public boolean removerLivro(int idLivro) {
-        boolean emprestimoAtivo = emprestimos.stream().anyMatch(e -> !e.isDevolvido() && e.getLivro().getIdLivro() == idLivro);
-        if (emprestimoAtivo) {
-            return false;
+        escrita.lock();
+        try {
+            if (emprestimosAtivosPorLivro.containsKey(idLivro)) {
+                return false;
+            }
+            Livro livro = livro(idLivro);
+            if (livro == null) {
+                return false;
+            }
+            long posicao = gravarNoDiario(d -> d.registrarRemocao(DiarioOperacoes.LIVRO_REMOVIDO, idLivro));
+            if (livrosPorId.remove(idLivro) != null) {
+                livros.remove(livro);
+            }
+            if (catalogo != null) {
+                livrosMapeados.remove(idLivro);
+                livrosRemovidos.set(idLivro);
+            }
+            livro.setObservador(null);
+            removerDasOrdens(ordemLivros, idLivro);
+            if (indiceAutoria != null) {
+                indiceAutoria.removerLivro(idLivro);
+            }
+            if (indiceTextual != null) {
+                indiceTextual.removerLivro(idLivro);
+            }
+            if (indiceIsbn != null) {
+                indiceIsbn.remover(IndiceUnico.normalizarIsbn(livro.getIsbn()), idLivro);
+            }
+            if (painel != null) {
+                painel.livroRemovido(idLivro);
+            }
+            reservas.cancelarDoLivro(idLivro);
+            sincronizarDiario(posicao);
+            return true;
+        } finally {
+            escrita.unlock();
+        }
+    }
+    public List<Livro> listarTodosLivros() { //
+        leitura.lock();
+        try {
+            return todosOsLivros(true);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Lista uma página do acervo. Apenas os livros da página são lidos: o acervo não é copiado.
+     *
+     * @param inicio A posição do primeiro livro da página, a partir de 0.
+     * @param quantidade O número máximo de livros da página.
+     * @param ordenacao A ordem da listagem.
+     * @return Os livros da página; vazia depois do último livro.
+     */
+    public List<Livro> listarLivros(int inicio, int quantidade, Ordenacao ordenacao) {
+        return consultarListagem(ordemLivros, ordenacao, this::ordemDosLivros, ordem -> pagina(ordem, inicio, quantidade, this::livro));
+    }
+
+    /**
+     * Retorna o número de livros do acervo, sem listá-los.
+     * @return O número de livros cadastrados.
+     */
+    public int contarLivros() {
+        return consultarListagem(ordemLivros, Ordenacao.POR_ID, this::ordemDosLivros, OrdemListagem::tamanho);
+    }
+
+    /**
+     * Busca livros pelo título e pelos nomes dos autores, sem diferenciar maiúsculas, minúsculas e acentos.
+     * Todos os termos da consulta precisam ser encontrados, cada um como palavra inteira ou como início de uma palavra.
+     * Os resultados vêm ordenados por relevância: termos do título valem mais que os do autor, e palavras inteiras
+     * valem mais que prefixos. O índice de busca é montado na primeira chamada.
+     *
+     * @param consulta Os termos da busca, separados por espaços.
+     * @param limite O número máximo de livros retornados.
+     * @return Os livros encontrados, do mais ao menos relevante.
+     */
+    public List<Livro> buscarLivros(String consulta, int limite) {
+        return livrosDosIds(pesquisarTexto(indice -> indice.pesquisar(consulta, limite)));
+    }
+
+    /**
+     * Busca livros pelo título e pelos nomes dos autores tolerando erros de digitação, como "Machdo de Asis".
+     * Cada termo da consulta pode diferir de uma palavra do título ou do nome de um autor em até uma letra
+     * (termos de 3 a 5 letras) ou duas (6 letras ou mais); termos menores e números precisam ser exatos.
+     * Os resultados vêm dos mais aos menos próximos, com as palavras do título antes das do autor.
+     *
+     * @param consulta Os termos da busca, separados por espaços.
+     * @param limite O número máximo de livros retornados.
+     * @return Os livros encontrados, do mais ao menos próximo.
+     */
+    public List<Livro> buscarLivrosAproximados(String consulta, int limite) {
+        return livrosDosIds(pesquisarTexto(indice -> indice.pesquisarLivrosAproximados(consulta, limite)));
+    }
+
+    /**
+     * Busca autores cadastrados pelo nome tolerando erros de digitação, com as mesmas regras de
+     * {@link #buscarLivrosAproximados(String, int)}.
+     *
+     * @param consulta Os termos da busca, separados por espaços.
+     * @param limite O número máximo de autores retornados.
+     * @return Os autores encontrados, do mais ao menos próximo.
+     */
+    public List<Autor> buscarAutoresAproximados(String consulta, int limite) {
+        int[] ids = pesquisarTexto(indice -> indice.pesquisarAutoresAproximados(consulta, Integer.MAX_VALUE));
+        leitura.lock();
+        try {
+            // Autores de livros que nunca foram cadastrados no gerenciador também estão no índice.
+            List<Autor> encontrados = new ArrayList<>(Math.min(ids.length, limite));
+            for (int i = 0; i < ids.length && encontrados.size() < limite; i++) {
+                Autor autor = autor(ids[i]);
+                if (autor != null) {
+                    encontrados.add(autor);
+                }
+            }
+            return encontrados;
+        } finally {
+            leitura.unlock();
         }
-        return livros.removeIf(l -> l.getIdLivro() == idLivro);
     }
-    public List<Livro> listarTodosLivros() { return new ArrayList<>(livros); } //
 
-    public void adicionarUsuario(Usuario usuario) { usuarios.add(usuario); }
+    /**
+     * Adiciona um usuário, desde que nenhum outro usuário cadastrado tenha o mesmo CPF ou o mesmo e-mail.
+     * CPFs com e sem pontuação e e-mails com maiúsculas diferentes são considerados iguais.
+     *
+     * @param usuario O usuário a adicionar.
+     * @return true se o usuário foi adicionado, false se o CPF ou o e-mail já estiverem cadastrados.
+     */
+    public boolean adicionarUsuario(Usuario usuario) {
+        escrita.lock();
+        try {
+            if (indiceCpf == null) {
+                construirIndicesUsuarios();
+            }
+            if (donoCpf(usuario.getCpf()) != 0 || donoEmail(usuario.getEmail()) != 0) {
+                return false;
+            }
+            usuario.definirFilial(filial);
+            incluirUsuario(usuario);
+            return true;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Cadastra a cópia de um usuário de outra filial da rede, com o ID do cadastro de origem, para que ele tome
+     * emprestados os livros desta filial. Se a cópia já existir, ela é mantida.
+     *
+     * @param origem O cadastro do usuário na sua filial.
+     * @return A cópia, ou null se o CPF ou o e-mail já forem de outro usuário desta filial.
+     */
+    Usuario copiarUsuario(Usuario origem) {
+        escrita.lock();
+        try {
+            Usuario copia = usuario(origem.getIdUsuario());
+            if (copia != null) {
+                return copia;
+            }
+            if (indiceCpf == null) {
+                construirIndicesUsuarios();
+            }
+            if (donoCpf(origem.getCpf()) != 0 || donoEmail(origem.getEmail()) != 0) {
+                return null;
+            }
+            copia = new Usuario(origem.getIdUsuario(), origem.getNome(), origem.getCpf(), origem.getTelefone(), origem.getEmail());
+            incluirUsuario(copia);
+            return copia;
+        } finally {
+            escrita.unlock();
+        }
+    }
     public Usuario buscarUsuarioPorId(int idUsuario) {
-        return usuarios.stream().filter(u -> u.getIdUsuario() == idUsuario).findFirst().orElse(null);
+        leitura.lock();
+        try {
+            return usuario(idUsuario);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Busca um usuário pelo CPF, com ou sem pontuação, sem percorrer o cadastro.
+     * @param cpf O CPF procurado.
+     * @return O usuário com o CPF, ou null se não houver.
+     */
+    public Usuario buscarUsuarioPorCpf(String cpf) {
+        return usuarioPorChave(() -> donoCpf(cpf));
+    }
+
+    /**
+     * Busca um usuário pelo e-mail, sem diferenciar maiúsculas e minúsculas e sem percorrer o cadastro.
+     * @param email O e-mail procurado.
+     * @return O usuário com o e-mail, ou null se não houver.
+     */
+    public Usuario buscarUsuarioPorEmail(String email) {
+        return usuarioPorChave(() -> donoEmail(email));
     }
     public boolean removerUsuario(int idUsuario) {
+        List<Reserva> atendidas = new ArrayList<>();
+        escrita.lock();
+        try {
+            LocalDate hoje = LocalDate.now(relogio);
+            if (emprestimosAtivosPorUsuario.containsKey(idUsuario) || usuario(idUsuario) == null) {
+                return false;
+            }
+            // A data vai para o diário, de modo que a reprodução cancela as reservas na mesma data.
+            long posicao = gravarNoDiario(d -> d.registrarRemocaoDeUsuario(idUsuario, hoje));
+            excluirUsuario(idUsuario, hoje, atendidas);
+            sincronizarDiario(posicao);
+        } finally {
+            escrita.unlock();
+        }
+        notificarReservasDisponiveis(atendidas);
+        return true;
+    }
+
+    /**
+     * Indica se um usuário tem empréstimos em aberto nesta filial.
+     * @param idUsuario O ID do usuário.
+     * @return true se houver ao menos um empréstimo ativo do usuário.
+     */
+    boolean temEmprestimosAtivos(int idUsuario) {
+        leitura.lock();
+        try {
+            return emprestimosAtivosPorUsuario.containsKey(idUsuario);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    boolean excluirUsuario(int idUsuario, LocalDate hoje, List<Reserva> atendidas) {
         // Regra: não remover se houver empréstimo ativo para o usuário
-        boolean emprestimoAtivo = emprestimos.stream().anyMatch(e -> !e.isDevolvido() && e.getUsuario().getIdUsuario() == idUsuario);
-        if (emprestimoAtivo) {
+        if (emprestimosAtivosPorUsuario.containsKey(idUsuario)) {
+            return false;
+        }
+        Usuario usuario = usuario(idUsuario);
+        if (usuario == null) {
             return false;
         }
-        return usuarios.removeIf(u -> u.getIdUsuario() == idUsuario);
+        if (usuariosPorId.remove(idUsuario) != null) {
+            usuarios.remove(usuario);
+        }
+        if (catalogo != null) {
+            usuariosMapeados.remove(idUsuario);
+            usuariosRemovidos.set(idUsuario);
+        }
+        usuario.setObservador(null);
+        removerDasOrdens(ordemUsuarios, idUsuario);
+        if (indiceCpf != null) {
+            desindexarUsuario(idUsuario, usuario.getCpf(), usuario.getEmail());
+        }
+        if (painel != null) {
+            painel.usuarioRemovido(idUsuario);
+        }
+        // Os exemplares separados para as reservas do usuário passam para as próximas reservas das filas.
+        reservas.cancelarDoUsuario(idUsuario, hoje, atendidas);
+        return true;
+    }
+    public List<Usuario> listarTodosUsuarios() { //
+        leitura.lock();
+        try {
+            return todosOsUsuarios(true);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Lista uma página dos usuários cadastrados. Apenas os usuários da página são lidos.
+     *
+     * @param inicio A posição do primeiro usuário da página, a partir de 0.
+     * @param quantidade O número máximo de usuários da página.
+     * @param ordenacao A ordem da listagem.
+     * @return Os usuários da página; vazia depois do último usuário.
+     */
+    public List<Usuario> listarUsuarios(int inicio, int quantidade, Ordenacao ordenacao) {
+        return consultarListagem(ordemUsuarios, ordenacao, this::ordemDosUsuarios, ordem -> pagina(ordem, inicio, quantidade, this::usuario));
+    }
+
+    public int contarUsuarios() {
+        return consultarListagem(ordemUsuarios, Ordenacao.POR_ID, this::ordemDosUsuarios, OrdemListagem::tamanho);
+    }
+
+    /**
+     * Retorna o número de usuários desta filial, sem as cópias de usuários de outras filiais da rede. Na ordem
+     * por ID, os usuários da filial são um trecho contínuo, achado por busca binária.
+     * @return O número de usuários cujo ID tem a filial deste gerenciador.
+     */
+    int contarUsuariosDaFilial() {
+        return consultarListagem(ordemUsuarios, Ordenacao.POR_ID, this::ordemDosUsuarios, ordem -> {
+            int inicio = ordem.anteriores(SequenciaId.naFilial(0, filial));
+            int fim = filial + 1 < SequenciaId.FILIAIS_MAXIMAS
+                    ? ordem.anteriores(SequenciaId.naFilial(0, filial + 1)) : ordem.tamanho();
+            return fim - inicio;
+        });
+    }
+
+    int getIndiceFilial() {
+        return filial;
+    }
+
+    public void adicionarAutor(Autor autor) {
+        escrita.lock();
+        try {
+            autor.definirFilial(filial);
+            long posicao = gravarNoDiario(d -> d.registrarAutor(DiarioOperacoes.AUTOR, autor));
+            incluirNasOrdens(ordemAutores, autor.getIdAutor(), autor.getNome());
+            autores.add(autor);
+            autoresPorId.put(autor.getIdAutor(), autor);
+            autor.setObservador(observador);
+            if (indiceTextual != null) {
+                indiceTextual.indexarAutor(autor.getIdAutor(), autor.getNome());
+            }
+            sincronizarDiario(posicao);
+        } finally {
+            escrita.unlock();
+        }
+    }
+    /**
+     * Remove um autor, desde que nenhum livro cadastrado o tenha entre seus autores.
+     * A verificação usa o índice de autoria e não percorre o acervo.
+     *
+     * @param idAutor O ID do autor.
+     * @return true se o autor foi removido, false se não existir ou ainda tiver livros.
+     */
+    public boolean removerAutor(int idAutor) {
+        escrita.lock();
+        try {
+            Autor autor = autor(idAutor);
+            if (autor == null) {
+                return false;
+            }
+            if (indiceAutoria == null) {
+                construirIndiceAutoria();
+            }
+            if (indiceAutoria.livros(idAutor) != null) {
+                return false;
+            }
+            long posicao = gravarNoDiario(d -> d.registrarRemocao(DiarioOperacoes.AUTOR_REMOVIDO, idAutor));
+            if (autoresPorId.remove(idAutor) != null) {
+                autores.remove(autor);
+            }
+            if (catalogo != null) {
+                autoresMapeados.remove(idAutor);
+                autoresRemovidos.set(idAutor);
+            }
+            autor.setObservador(null);
+            removerDasOrdens(ordemAutores, idAutor);
+            if (indiceTextual != null) {
+                indiceTextual.removerAutor(idAutor);
+            }
+            sincronizarDiario(posicao);
+            return true;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Lista as obras de um autor em ordem de ID, a partir do índice de autoria, sem percorrer o acervo.
+     * @param idAutor O ID do autor.
+     * @return Os livros cadastrados que têm o autor entre seus autores; vazia se não houver.
+     */
+    public List<Livro> buscarLivrosPorAutor(int idAutor) {
+        leitura.lock();
+        try {
+            if (indiceAutoria != null) {
+                return livrosDoAutor(idAutor);
+            }
+        } finally {
+            leitura.unlock();
+        }
+        escrita.lock();
+        try {
+            if (indiceAutoria == null) {
+                construirIndiceAutoria();
+            }
+            return livrosDoAutor(idAutor);
+        } finally {
+            escrita.unlock();
+        }
     }
-    public List<Usuario> listarTodosUsuarios() { return new ArrayList<>(usuarios); } //
 
-    public void adicionarAutor(Autor autor) { autores.add(autor); }
     public Autor buscarAutorPorId(int idAutor) {
-        return autores.stream().filter(a -> a.getIdAutor() == idAutor).findFirst().orElse(null);
+        leitura.lock();
+        try {
+            return autor(idAutor);
+        } finally {
+            leitura.unlock();
+        }
+    }
+    public List<Autor> listarTodosAutores() {
+        leitura.lock();
+        try {
+            return todosOsAutores(true);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Lista uma página dos autores cadastrados. Apenas os autores da página são lidos.
+     *
+     * @param inicio A posição do primeiro autor da página, a partir de 0.
+     * @param quantidade O número máximo de autores da página.
+     * @param ordenacao A ordem da listagem.
+     * @return Os autores da página; vazia depois do último autor.
+     */
+    public List<Autor> listarAutores(int inicio, int quantidade, Ordenacao ordenacao) {
+        return consultarListagem(ordemAutores, ordenacao, this::ordemDosAutores, ordem -> pagina(ordem, inicio, quantidade, this::autor));
+    }
+
+    public int contarAutores() {
+        return consultarListagem(ordemAutores, Ordenacao.POR_ID, this::ordemDosAutores, OrdemListagem::tamanho);
     }
-    public List<Autor> listarTodosAutores() { return new ArrayList<>(autores); }
 
     public Emprestimo realizarEmprestimo(int idLivro, int idUsuario) {
-        Livro livro = buscarLivroPorId(idLivro);
-        Usuario usuario = buscarUsuarioPorId(idUsuario);
+        leitura.lock();
+        try {
+            Livro livro = livro(idLivro);
+            Usuario usuario = usuario(idUsuario);
+            if (livro == null || usuario == null) {
+                return null;
+            }
 
-        if (livro != null && usuario != null) {
-            if (livro.getQuantidadeDisponivel() > 0) { //
-                livro.decrementarDisponiveis(); //
-                Emprestimo emprestimo = new Emprestimo(livro, usuario, LocalDate.now());
-                emprestimos.add(emprestimo);
-                return emprestimo;
+            // A retirada verifica e decrementa de forma atômica, evitando emprestar o mesmo exemplar duas vezes. Um
+            // exemplar separado para uma reserva só pode ser retirado pelo usuário da reserva. O empréstimo vai
+            // para o diário sob a mesma trava, de modo que uma devolução concorrente do livro não é gravada antes
+            // dele; se a gravação falhar, o exemplar volta antes que a trava seja solta. O fsync é feito depois,
+            // fora da trava.
+            Emprestimo emprestimo;
+            long posicao;
+            synchronized (reservas.trava(livro)) {
+                Reserva atendida = reservas.disponivelPara(idLivro, idUsuario);
+                if (!reservas.emprestar(livro, idUsuario)) {
+                    return null;
+                }
+                Emprestimo realizado = new Emprestimo(livro, usuario, LocalDate.now(relogio));
+                realizado.definirFilial(filial);
+                try {
+                    posicao = gravarNoDiario(d -> d.registrarEmprestimo(realizado));
+                } catch (UncheckedIOException e) {
+                    reservas.desfazerRetirada(livro, atendida);
+                    throw e;
+                }
+                emprestimo = realizado;
             }
+            incluirEmprestimo(emprestimo);
+            sincronizarDiario(posicao);
+            return emprestimo;
+        } finally {
+            leitura.unlock();
         }
-        return null;
     }
 
+    /**
+     * Registra a devolução de um empréstimo ativo na data corrente. Se a devolução estiver atrasada, a multa é
+     * informada aos ouvintes de atrasos. Se o livro tiver reservas, o exemplar é separado para a primeira da fila,
+     * o que é informado aos ouvintes de reservas.
+     *
+     * @param idEmprestimo O ID do empréstimo.
+     * @return true se o empréstimo estava ativo e foi encerrado.
+     */
     public boolean registrarDevolucao(int idEmprestimo) { //
-        Emprestimo emprestimo = emprestimos.stream().filter(e -> e.getIdEmprestimo() == idEmprestimo && !e.isDevolvido()).findFirst().orElse(null);
-        if (emprestimo != null) {
-            emprestimo.setDataDevolucaoEfetiva(LocalDate.now());
-            emprestimo.getLivro().incrementarDisponiveis(); //
-            return true;
+        Emprestimo emprestimo;
+        List<Reserva> atendidas = new ArrayList<>(1);
+        leitura.lock();
+        try {
+            Emprestimo ativo = emprestimosAtivos.get(idEmprestimo);
+            if (ativo == null) {
+                return false;
+            }
+            // Como no empréstimo, a devolução vai para o diário sob a trava em que o exemplar volta, antes que ele
+            // volte.
+            long posicao;
+            synchronized (reservas.trava(ativo.getLivro())) {
+                if (emprestimosAtivos.get(idEmprestimo) != ativo) {
+                    return false; // Outra devolução concorrente encerrou o empréstimo.
+                }
+                LocalDate hoje = LocalDate.now(relogio);
+                posicao = gravarNoDiario(d -> d.registrarDevolucao(idEmprestimo, hoje));
+                emprestimo = fecharEmprestimo(idEmprestimo, hoje, atendidas);
+            }
+            sincronizarDiario(posicao);
+        } finally {
+            leitura.unlock();
+        }
+        notificarMulta(emprestimo);
+        notificarReservasDisponiveis(atendidas);
+        return true;
+    }
+
+    /**
+     * Realiza vários empréstimos de uma vez, por exemplo os livros retirados por uma turma.
+     * <p>
+     * Todos os itens são validados antes de qualquer um ser aplicado, contando os exemplares já tomados pelos itens
+     * anteriores do mesmo lote. Um item cujo usuário tem um exemplar separado para sua reserva retira esse exemplar.
+     * Os itens válidos são aplicados juntos sob a trava de escrita, de modo que nenhuma consulta enxerga o lote pela
+     * metade, e gravados no diário em um único registro, com um único fsync. Os itens inválidos são recusados
+     * individualmente, sem impedir os demais.
+     *
+     * @param idsLivros Os IDs dos livros de cada item.
+     * @param idsUsuarios Os IDs dos usuários de cada item, na mesma ordem dos livros.
+     * @return O resultado de cada item, na ordem recebida.
+     * @throws IllegalArgumentException Se os vetores tiverem tamanhos diferentes ou mais de
+     * {@link #MAXIMO_ITENS_LOTE} itens.
+     * @throws IllegalStateException Se um exemplar contado na validação não puder ser retirado; nesse caso nenhum
+     * item do lote é aplicado.
+     */
+    public List<ResultadoLote> realizarEmprestimosEmLote(int[] idsLivros, int[] idsUsuarios) {
+        if (idsLivros.length != idsUsuarios.length) {
+            throw new IllegalArgumentException("Os vetores de livros e usuários devem ter o mesmo tamanho.");
+        }
+        validarTamanhoDoLote(idsLivros.length);
+        ResultadoLote[] resultados = new ResultadoLote[idsLivros.length];
+        escrita.lock();
+        try {
+            // Validação: cada livro e usuário é buscado uma vez por lote.
+            MapaInt<Livro> livrosDoLote = new MapaInt<>();
+            MapaInt<Usuario> usuariosDoLote = new MapaInt<>();
+            MapaInt<int[]> restantes = new MapaInt<>(); // Exemplares disponíveis ainda não reservados pelo lote.
+            Set<Long> retiradas = new HashSet<>(); // Reservas disponíveis já retiradas por um item do lote.
+            Livro[] livros = new Livro[idsLivros.length];
+            Usuario[] usuarios = new Usuario[idsLivros.length];
+            for (int i = 0; i < idsLivros.length; i++) {
+                Livro livro = livrosDoLote.get(idsLivros[i]);
+                if (livro == null && (livro = livro(idsLivros[i])) != null) {
+                    livrosDoLote.put(livro.getIdLivro(), livro);
+                }
+                Usuario usuario = usuariosDoLote.get(idsUsuarios[i]);
+                if (usuario == null && (usuario = usuario(idsUsuarios[i])) != null) {
+                    usuariosDoLote.put(usuario.getIdUsuario(), usuario);
+                }
+                if (livro == null) {
+                    resultados[i] = new ResultadoLote(ResultadoLote.Situacao.LIVRO_NAO_ENCONTRADO, null);
+                } else if (usuario == null) {
+                    resultados[i] = new ResultadoLote(ResultadoLote.Situacao.USUARIO_NAO_ENCONTRADO, null);
+                } else {
+                    Livro disponivel = livro;
+                    int[] restante = restantes.computeIfAbsent(livro.getIdLivro(), id -> new int[] {disponivel.getQuantidadeDisponivel()});
+                    if (reservas.disponivelPara(idsLivros[i], idsUsuarios[i]) != null
+                            && retiradas.add(((long) idsLivros[i] << 32) | (idsUsuarios[i] & 0xFFFFFFFFL))) {
+                        livros[i] = livro; // O exemplar separado para a reserva do usuário.
+                        usuarios[i] = usuario;
+                    } else if (restante[0] == 0) {
+                        resultados[i] = new ResultadoLote(ResultadoLote.Situacao.SEM_EXEMPLARES, null);
+                    } else {
+                        restante[0]--;
+                        livros[i] = livro;
+                        usuarios[i] = usuario;
+                    }
+                }
+            }
+
+            // Retirada: a trava de escrita exclui empréstimos e devoluções avulsos, de modo que a contagem acima vale.
+            // Se ainda assim faltar um exemplar, as retiradas anteriores são desfeitas e o lote falha sem ter criado
+            // nem gravado nenhum empréstimo.
+            Reserva[] atendidas = new Reserva[livros.length];
+            for (int i = 0; i < livros.length; i++) {
+                if (livros[i] != null) {
+                    atendidas[i] = reservas.disponivelPara(livros[i].getIdLivro(), usuarios[i].getIdUsuario());
+                    if (!reservas.emprestar(livros[i], usuarios[i].getIdUsuario())) {
+                        for (int j = i - 1; j >= 0; j--) {
+                            if (livros[j] != null) {
+                                reservas.desfazerRetirada(livros[j], atendidas[j]);
+                            }
+                        }
+                        throw new IllegalStateException("Sem exemplar do livro " + livros[i].getIdLivro()
+                                + " para o item " + i + " do lote; nenhum empréstimo do lote foi realizado.");
+                    }
+                }
+            }
+
+            // Aplicação, depois de o lote ir para o diário; se a gravação falhar, as retiradas também são desfeitas.
+            LocalDate hoje = LocalDate.now(relogio);
+            List<Emprestimo> realizados = new ArrayList<>();
+            for (int i = 0; i < livros.length; i++) {
+                if (livros[i] != null) {
+                    Emprestimo realizado = new Emprestimo(livros[i], usuarios[i], hoje);
+                    realizado.definirFilial(filial);
+                    realizados.add(realizado);
+                }
+            }
+            long posicao;
+            try {
+                posicao = realizados.isEmpty() ? 0 : gravarNoDiario(d -> d.registrarEmprestimos(realizados));
+            } catch (UncheckedIOException e) {
+                for (int j = livros.length - 1; j >= 0; j--) {
+                    if (livros[j] != null) {
+                        reservas.desfazerRetirada(livros[j], atendidas[j]);
+                    }
+                }
+                throw e;
+            }
+            int proximo = 0;
+            for (int i = 0; i < livros.length; i++) {
+                if (livros[i] != null) {
+                    Emprestimo emprestimo = realizados.get(proximo++);
+                    incluirEmprestimo(emprestimo);
+                    resultados[i] = new ResultadoLote(ResultadoLote.Situacao.SUCESSO, emprestimo);
+                }
+            }
+            sincronizarDiario(posicao);
+        } finally {
+            escrita.unlock();
+        }
+        return Arrays.asList(resultados);
+    }
+
+    /**
+     * Registra várias devoluções de uma vez, na data corrente.
+     * <p>
+     * Como em {@link #realizarEmprestimosEmLote(int[], int[])}, os itens são validados antes de aplicados, os
+     * válidos são aplicados juntos sob a trava de escrita e gravados no diário em um único registro. Um empréstimo
+     * repetido no lote é devolvido apenas no primeiro item. As multas das devoluções atrasadas e os exemplares
+     * separados para reservas são informados aos ouvintes depois que o lote é aplicado.
+     *
+     * @param idsEmprestimos Os IDs dos empréstimos a devolver.
+     * @return O resultado de cada item, na ordem recebida.
+     * @throws IllegalArgumentException Se houver mais de {@link #MAXIMO_ITENS_LOTE} itens.
+     */
+    public List<ResultadoLote> registrarDevolucoesEmLote(int[] idsEmprestimos) {
+        validarTamanhoDoLote(idsEmprestimos.length);
+        ResultadoLote[] resultados = new ResultadoLote[idsEmprestimos.length];
+        List<Emprestimo> devolvidos = new ArrayList<>();
+        List<Reserva> atendidas = new ArrayList<>();
+        escrita.lock();
+        try {
+            BitSet validos = new BitSet(idsEmprestimos.length);
+            // Os IDs das filiais de uma rede têm os bits altos ocupados: um BitSet indexado por eles seria enorme.
+            MapaInt<Boolean> vistos = new MapaInt<>(idsEmprestimos.length);
+            for (int i = 0; i < idsEmprestimos.length; i++) {
+                int id = idsEmprestimos[i];
+                if (id < 0 || vistos.containsKey(id) || !emprestimosAtivos.containsKey(id)) {
+                    resultados[i] = new ResultadoLote(ResultadoLote.Situacao.EMPRESTIMO_NAO_ENCONTRADO, null);
+                } else {
+                    vistos.put(id, Boolean.TRUE);
+                    validos.set(i);
+                }
+            }
+
+            LocalDate hoje = LocalDate.now(relogio);
+            List<Integer> ids = new ArrayList<>(validos.cardinality());
+            for (int i = validos.nextSetBit(0); i >= 0; i = validos.nextSetBit(i + 1)) {
+                ids.add(idsEmprestimos[i]);
+            }
+            long posicao = ids.isEmpty() ? 0 : gravarNoDiario(d -> d.registrarDevolucoes(ids, hoje));
+            for (int i = validos.nextSetBit(0); i >= 0; i = validos.nextSetBit(i + 1)) {
+                Emprestimo emprestimo = fecharEmprestimo(idsEmprestimos[i], hoje, atendidas);
+                devolvidos.add(emprestimo);
+                resultados[i] = new ResultadoLote(ResultadoLote.Situacao.SUCESSO, emprestimo);
+            }
+            sincronizarDiario(posicao);
+        } finally {
+            escrita.unlock();
+        }
+        for (Emprestimo emprestimo : devolvidos) {
+            notificarMulta(emprestimo);
+        }
+        notificarReservasDisponiveis(atendidas);
+        return Arrays.asList(resultados);
+    }
+
+    private void notificarMulta(Emprestimo emprestimo) {
+        BigDecimal multa = emprestimo.calcularMulta(emprestimo.getDataDevolucaoEfetiva());
+        if (multa.signum() > 0) {
+            for (OuvinteAtrasos ouvinte : ouvintesAtrasos) {
+                ouvinte.multaGerada(emprestimo, multa);
+            }
+        }
+    }
+
+    private void notificarReservasDisponiveis(List<Reserva> atendidas) {
+        for (Reserva reserva : atendidas) {
+            for (OuvinteReservas ouvinte : ouvintesReservas) {
+                ouvinte.reservaDisponivel(reserva);
+            }
+        }
+    }
+
+    private static void validarTamanhoDoLote(int tamanho) {
+        if (tamanho > MAXIMO_ITENS_LOTE) {
+            throw new IllegalArgumentException("Um lote aceita no máximo " + MAXIMO_ITENS_LOTE + " itens.");
+        }
+    }
+
+    /**
+     * Registra um ouvinte para os avisos de atraso e as multas.
+     * @param ouvinte O ouvinte a registrar.
+     */
+    public void adicionarOuvinteAtrasos(OuvinteAtrasos ouvinte) {
+        ouvintesAtrasos.add(ouvinte);
+    }
+
+    /**
+     * Procura os empréstimos ativos que passaram da data prevista de devolução desde a verificação anterior e
+     * os informa aos ouvintes de atrasos. Os empréstimos ficam em uma fila por data prevista, de modo que o custo
+     * é proporcional aos empréstimos que venceram desde então, e não ao total de empréstimos.
+     *
+     * @return Os empréstimos que passaram a estar atrasados, em ordem de data prevista.
+     */
+    public List<Emprestimo> verificarAtrasos() {
+        LocalDate hoje = LocalDate.now(relogio);
+        List<Emprestimo> atrasados = new ArrayList<>();
+        leitura.lock();
+        try {
+            long anterior = -1;
+            for (long entrada : filaAtrasos.retirarVencidos(hoje.toEpochDay())) {
+                // Descarta os empréstimos já devolvidos e as entradas de datas previstas que foram alteradas, pois
+                // cada alteração acrescenta uma entrada para a nova data. Entradas iguais (a data voltou a um valor
+                // anterior) saem em sequência.
+                Emprestimo emprestimo = emprestimosAtivos.get((int) entrada);
+                if (emprestimo != null && entrada != anterior
+                        && emprestimo.getDataDevolucaoPrevista().toEpochDay() == entrada >> 32) {
+                    atrasados.add(emprestimo);
+                }
+                anterior = entrada;
+            }
+        } finally {
+            leitura.unlock();
+        }
+        for (Emprestimo emprestimo : atrasados) {
+            for (OuvinteAtrasos ouvinte : ouvintesAtrasos) {
+                ouvinte.emprestimoAtrasado(emprestimo, emprestimo.diasAtraso(hoje));
+            }
+        }
+        return atrasados;
+    }
+
+    /**
+     * Reserva um livro sem exemplares disponíveis, ao final da sua fila. Quando uma devolução separar um exemplar
+     * para a reserva, os ouvintes de reservas são avisados e o usuário pode retirá-lo com realizarEmprestimo até o
+     * prazo de retirada.
+     *
+     * @param idLivro O ID do livro.
+     * @param idUsuario O ID do usuário.
+     * @return A reserva, ou null se o livro ou o usuário não existirem, se o livro tiver exemplares disponíveis ou
+     * se o usuário já tiver uma reserva do livro ou {@link Reserva#MAXIMO_POR_USUARIO} reservas em aberto.
+     */
+    public Reserva reservarLivro(int idLivro, int idUsuario) {
+        escrita.lock();
+        try {
+            Livro livro = livro(idLivro);
+            Usuario usuario = usuario(idUsuario);
+            if (livro == null || usuario == null) {
+                return null;
+            }
+            LocalDate hoje = LocalDate.now(relogio);
+            Reserva reserva = reservas.reservar(livro, usuario, hoje);
+            if (reserva != null) {
+                long posicao;
+                try {
+                    posicao = gravarNoDiario(d -> d.registrarReserva(DiarioOperacoes.RESERVA, idLivro, idUsuario, hoje));
+                } catch (UncheckedIOException e) {
+                    // A reserva acabou de entrar no fim da fila, sem exemplar: retirá-la não afeta as demais.
+                    reservas.cancelar(idLivro, idUsuario, hoje, new ArrayList<>());
+                    throw e;
+                }
+                sincronizarDiario(posicao);
+            }
+            return reserva;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Cancela a reserva de um usuário. Se um exemplar já estava separado para ela, ele passa para a próxima
+     * reserva da fila.
+     *
+     * @param idLivro O ID do livro.
+     * @param idUsuario O ID do usuário.
+     * @return true se o usuário tinha uma reserva em aberto do livro.
+     */
+    public boolean cancelarReserva(int idLivro, int idUsuario) {
+        List<Reserva> atendidas = new ArrayList<>(1);
+        escrita.lock();
+        try {
+            LocalDate hoje = LocalDate.now(relogio);
+            if (reservas.aberta(idLivro, idUsuario) == null) {
+                return false;
+            }
+            long posicao = gravarNoDiario(d -> d.registrarReserva(DiarioOperacoes.RESERVA_CANCELADA, idLivro, idUsuario, hoje));
+            reservas.cancelar(idLivro, idUsuario, hoje, atendidas);
+            sincronizarDiario(posicao);
+        } finally {
+            escrita.unlock();
+        }
+        notificarReservasDisponiveis(atendidas);
+        return true;
+    }
+
+    /**
+     * Lista as reservas em aberto de um livro: as que já têm um exemplar separado e, em seguida, as da fila, na
+     * ordem em que serão atendidas.
+     *
+     * @param idLivro O ID do livro.
+     * @return As reservas.
+     */
+    public List<Reserva> listarReservas(int idLivro) {
+        return reservas.doLivro(idLivro);
+    }
+
+    /**
+     * Registra um ouvinte para os avisos de reservas.
+     * @param ouvinte O ouvinte a registrar.
+     */
+    public void adicionarOuvinteReservas(OuvinteReservas ouvinte) {
+        ouvintesReservas.add(ouvinte);
+    }
+
+    /**
+     * Registra quem deve ser avisado das alterações de usuários feitas pelos setters, depois de gravadas.
+     * @param ouvinte Recebe o usuário alterado; não deve lançar exceções, pois a alteração já foi aceita.
+     */
+    void adicionarOuvinteUsuarios(Consumer<Usuario> ouvinte) {
+        ouvintesUsuarios.add(ouvinte);
+    }
+
+    /**
+     * Expira as reservas cujo prazo de retirada terminou e passa seus exemplares para as próximas reservas das
+     * filas, informando os ouvintes de reservas. Os prazos ficam em uma roda de temporização por dia, de modo que
+     * o custo é proporcional aos dias decorridos e às reservas vencidas desde a verificação anterior, e não ao
+     * total de reservas.
+     *
+     * @return As reservas expiradas.
+     */
+    public List<Reserva> verificarReservas() {
+        LocalDate hoje = LocalDate.now(relogio);
+        List<Reserva> expiradas;
+        List<Reserva> atendidas = new ArrayList<>();
+        escrita.lock();
+        try {
+            // A verificação vai para o diário antes de expirar as reservas. Um registro sem nenhuma reserva
+            // expirada, quando todos os prazos vencidos já não valiam, não altera nada na reprodução.
+            long posicao = reservas.temPrazosVencidos(hoje) ? gravarNoDiario(d -> d.registrarExpiracaoDeReservas(hoje)) : 0;
+            expiradas = reservas.expirar(hoje, atendidas);
+            sincronizarDiario(posicao);
+        } finally {
+            escrita.unlock();
+        }
+        for (Reserva reserva : expiradas) {
+            for (OuvinteReservas ouvinte : ouvintesReservas) {
+                ouvinte.reservaExpirada(reserva);
+            }
+        }
+        notificarReservasDisponiveis(atendidas);
+        return expiradas;
+    }
+
+    /**
+     * Retorna uma página do histórico de empréstimos de um usuário, dos mais recentes aos mais antigos, incluindo
+     * os já devolvidos. Apenas os empréstimos da página são lidos.
+     *
+     * @param idUsuario O ID do usuário.
+     * @param pagina O número da página, a partir de 0, com até {@link #TAMANHO_PAGINA_HISTORICO} empréstimos.
+     * @return Os empréstimos da página; vazia se não houver mais empréstimos.
+     */
+    public List<Emprestimo> historicoPorUsuario(int idUsuario, int pagina) {
+        return paginaDoHistorico(pagina, (h, pular) -> h.doUsuario(idUsuario, pular, TAMANHO_PAGINA_HISTORICO));
+    }
+
+    /**
+     * Retorna uma página do histórico de empréstimos de um livro, dos mais recentes aos mais antigos, incluindo
+     * os já devolvidos. Apenas os empréstimos da página são lidos.
+     *
+     * @param idLivro O ID do livro.
+     * @param pagina O número da página, a partir de 0, com até {@link #TAMANHO_PAGINA_HISTORICO} empréstimos.
+     * @return Os empréstimos da página; vazia se não houver mais empréstimos.
+     */
+    public List<Emprestimo> historicoPorLivro(int idLivro, int pagina) {
+        return paginaDoHistorico(pagina, (h, pular) -> h.doLivro(idLivro, pular, TAMANHO_PAGINA_HISTORICO));
+    }
+
+    /**
+     * Retorna os livros mais emprestados, contando todo o histórico, inclusive os empréstimos arquivados.
+     * <p>
+     * Os painéis de circulação são montados a partir do histórico na primeira consulta e depois mantidos a cada
+     * empréstimo, de modo que cada consulta custa apenas o número de itens retornados.
+     *
+     * @param k O número máximo de livros.
+     * @return Os livros com seus números de empréstimos, do mais para o menos emprestado; no empate, vem primeiro
+     * o que chegou antes ao número.
+     */
+    public List<ContagemEmprestimos<Livro>> livrosMaisEmprestados(int k) {
+        return consultarPainel(p -> contagens(p.livrosMaisEmprestados(k), this::livro));
+    }
+
+    /**
+     * Retorna os usuários que mais pegaram livros emprestados, contando todo o histórico, com o mesmo custo de
+     * {@link #livrosMaisEmprestados(int)}.
+     *
+     * @param k O número máximo de usuários.
+     * @return Os usuários com seus números de empréstimos, do maior para o menor.
+     */
+    public List<ContagemEmprestimos<Usuario>> usuariosMaisAtivos(int k) {
+        return consultarPainel(p -> contagens(p.usuariosMaisAtivos(k), this::usuario));
+    }
+
+    /**
+     * Retorna os livros esgotados, isto é, sem exemplares disponíveis, sem percorrer o acervo. Os exemplares
+     * disponíveis de um livro qualquer estão em {@link Livro#getQuantidadeDisponivel()}.
+     *
+     * @param limite O número máximo de livros.
+     * @return Os livros esgotados, em ordem de ID.
+     */
+    public List<Livro> listarLivrosEsgotados(int limite) {
+        return consultarPainel(p -> livrosDosIds(p.esgotados(limite)));
+    }
+
+    public int contarLivrosEsgotados() {
+        return consultarPainel(PainelCirculacao::quantidadeEsgotados);
+    }
+
+    /**
+     * Move para o arquivo de empréstimos os empréstimos devolvidos antes de um número de dias atrás e grava um
+     * novo instantâneo sem eles. Os empréstimos arquivados deixam de ocupar memória e de pesar nos instantâneos,
+     * mas continuam nas consultas ao histórico.
+     *
+     * @param dias A idade mínima da devolução, em dias, para que o empréstimo seja arquivado.
+     * @return O número de empréstimos arquivados.
+     */
+    public int arquivarEmprestimos(int dias) {
+        travaInstantaneo.lock();
+        escrita.lock();
+        try {
+            LocalDate limite = LocalDate.now(relogio).minusDays(dias);
+            List<Emprestimo> antigos = new ArrayList<>();
+            for (Emprestimo emprestimo : catalogo == null ? emprestimos : todoOHistorico()) {
+                if (emprestimo.isDevolvido() && emprestimo.getDataDevolucaoEfetiva().isBefore(limite)) {
+                    antigos.add(emprestimo);
+                }
+            }
+            if (antigos.isEmpty()) {
+                return 0;
+            }
+            arquivo.arquivar(antigos);
+
+            BitSet arquivados = new BitSet();
+            for (Emprestimo emprestimo : antigos) {
+                arquivados.set(emprestimo.getIdEmprestimo());
+                if (historico != null) {
+                    historico.descartar(emprestimo.getIdEmprestimo());
+                }
+            }
+            emprestimos.removeIf(emprestimo -> arquivados.get(emprestimo.getIdEmprestimo()));
+            if (catalogo != null) {
+                emprestimosArquivados.or(arquivados);
+            }
+            // O novo instantâneo substitui os diários, que ainda contêm os empréstimos arquivados.
+            salvarDados();
+            return antigos.size();
+        } catch (IOException e) {
+            System.err.println("Erro ao arquivar empréstimos: " + e.getMessage());
+            return 0;
+        } finally {
+            escrita.unlock();
+            travaInstantaneo.unlock();
         }
-        return false;
     }
 
     public List<Emprestimo> listarEmprestimosAtivos() { //
-        return emprestimos.stream().filter(e -> !e.isDevolvido()).collect(Collectors.toList());
+        List<Emprestimo> ativos = new ArrayList<>(emprestimosAtivos.values());
+        ativos.sort(Comparator.comparingInt(Emprestimo::getIdEmprestimo));
+        return ativos;
     }
 
-    public void salvarDados() { //
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream("dados_biblioteca.dat"))) {
-            oos.writeObject(autores);
-            oos.writeObject(livros);
-            oos.writeObject(usuarios);
-            oos.writeObject(emprestimos);
+    /**
+     * Lista uma página dos empréstimos ativos, na ordem dos IDs. Os empréstimos não são copiados nem ordenados
+     * por inteiro: um heap guarda apenas os inicio + quantidade menores IDs encontrados.
+     *
+     * @param inicio A posição do primeiro empréstimo da página, a partir de 0.
+     * @param quantidade O número máximo de empréstimos da página.
+     * @return Os empréstimos da página; vazia depois do último empréstimo ativo.
+     */
+    public List<Emprestimo> listarEmprestimosAtivos(int inicio, int quantidade) {
+        int primeiro = Math.max(inicio, 0);
+        int limite = (int) Math.min((long) primeiro + Math.max(quantidade, 0), Integer.MAX_VALUE);
+        if (limite <= primeiro) {
+            return new ArrayList<>();
+        }
+        Comparator<Emprestimo> porId = Comparator.comparingInt(Emprestimo::getIdEmprestimo);
+        PriorityQueue<Emprestimo> menores = new PriorityQueue<>(Math.min(limite, 1_024), porId.reversed());
+        for (Emprestimo emprestimo : emprestimosAtivos.values()) {
+            if (menores.size() < limite) {
+                menores.add(emprestimo);
+            } else if (emprestimo.getIdEmprestimo() < menores.peek().getIdEmprestimo()) {
+                menores.poll();
+                menores.add(emprestimo);
+            }
+        }
+        Emprestimo[] ordenados = menores.toArray(new Emprestimo[0]);
+        Arrays.sort(ordenados, porId);
+        List<Emprestimo> pagina = new ArrayList<>(Math.max(ordenados.length - primeiro, 0));
+        for (int i = primeiro; i < ordenados.length; i++) {
+            pagina.add(ordenados[i]);
+        }
+        return pagina;
+    }
+
+    /**
+     * Retorna o número de exemplares emprestados no momento, em tempo constante.
+     * @return O número de empréstimos ativos.
+     */
+    public int contarEmprestimosAtivos() {
+        return quantidadeEmprestimosAtivos.get();
+    }
 
-            oos.writeInt(autores.stream().mapToInt(Autor::getIdAutor).max().orElse(0) + 1);
-            oos.writeInt(livros.stream().mapToInt(Livro::getIdLivro).max().orElse(0) + 1);
-            oos.writeInt(usuarios.stream().mapToInt(Usuario::getIdUsuario).max().orElse(0) + 1);
-            oos.writeInt(emprestimos.stream().mapToInt(Emprestimo::getIdEmprestimo).max().orElse(0) + 1);
+    public void salvarDados() { //
+        travaInstantaneo.lock();
+        escrita.lock();
+        try {
+            TreeMap<Long, Path> diarios = listarDiarios();
+            long novaGeracao = Math.max(geracao, diarios.isEmpty() ? 0 : diarios.lastKey()) + 1;
+            gravarInstantaneo(novaGeracao);
+            geracao = novaGeracao;
+            if (catalogo != null) {
+                catalogo = CatalogoMapeado.abrir(arquivoDados);
+            }
 
+            // Os diários anteriores já estão contidos no instantâneo.
+            boolean diarioAberto = diario != null;
+            fecharDiario();
+            for (Path antigo : diarios.values()) {
+                descartarDiario(antigo);
+            }
+            if (diarioAberto) {
+                abrirDiario(novaGeracao, -1);
+            }
         } catch (IOException e) {
             System.err.println("Erro ao salvar dados: " + e.getMessage());
+        } finally {
+            escrita.unlock();
+            travaInstantaneo.unlock();
         }
     }
 
-    @SuppressWarnings("unchecked")
     public void carregarDados() { //
-        File f = new File("dados_biblioteca.dat");
-        if (!f.exists()) return;
+        travaInstantaneo.lock();
+        escrita.lock();
+        try {
+            fecharDiario();
+            if (Files.exists(arquivoDados)) {
+                try {
+                    lerInstantaneo();
+                } catch (IOException | ClassNotFoundException e) {
+                    System.err.println("Erro ao carregar dados: " + e.getMessage());
+                    catalogo = null;
+                    autores = new ArrayList<>();
+                    livros = new ArrayList<>();
+                    usuarios = new ArrayList<>();
+                    emprestimos = new ConcurrentLinkedQueue<>();
+                    reservas = new FilaReservas();
+                }
+            }
+            reconstruirIndices();
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f))) {
-            autores = (List<Autor>) ois.readObject();
-            livros = (List<Livro>) ois.readObject();
-            usuarios = (List<Usuario>) ois.readObject();
-            emprestimos = (List<Emprestimo>) ois.readObject();
+            // Reproduz os diários gravados depois do instantâneo e continua acrescentando ao mais recente.
+            long ultimaGeracao = geracao;
+            long posicaoValida = -1;
+            for (Map.Entry<Long, Path> entrada : listarDiarios().entrySet()) {
+                if (entrada.getKey() < geracao) {
+                    descartarDiario(entrada.getValue());
+                } else {
+                    ultimaGeracao = entrada.getKey();
+                    posicaoValida = DiarioOperacoes.reproduzir(entrada.getValue(), new ReproducaoDiario(this));
+                }
+            }
+            abrirDiario(ultimaGeracao, posicaoValida);
+        } catch (IOException e) {
+            // Sem o diário, as operações seguintes não seriam gravadas: a carga falha em vez de continuar.
+            throw new UncheckedIOException("Erro ao carregar diário: " + e.getMessage(), e);
+        } finally {
+            escrita.unlock();
+            travaInstantaneo.unlock();
+        }
+    }
+
+    /**
+     * Define se os diários de operações incorporados a um instantâneo são mantidos, como histórico de eventos lido
+     * pelo {@link RegistroEventos}, ou apagados (o padrão). Mantê-los preserva cada alteração desde que a opção foi
+     * ligada, ao custo de espaço em disco; a recuperação continua lendo apenas o instantâneo e os diários seguintes.
+     *
+     * @param manter true para manter os diários.
+     */
+    public void manterHistoricoDeEventos(boolean manter) {
+        manterEventos = manter;
+    }
 
-            Autor.setProximoId(ois.readInt());
-            Livro.setProximoId(ois.readInt());
-            Usuario.setProximoId(ois.readInt());
-            Emprestimo.setProximoId(ois.readInt());
+    /**
+     * Grava um novo instantâneo a partir do instantâneo anterior e dos diários, sem interromper os empréstimos.
+     * A trava de escrita é usada apenas para iniciar um novo diário; o instantâneo é então montado em uma cópia
+     * separada, lida do disco, que representa exatamente o estado no momento da troca de diário.
+     * Em seguida os diários já incorporados são apagados, mantendo limitados o tempo de recuperação e o espaço em disco.
+     * Não faz nada se o diário não estiver aberto ou não houver operações novas.
+     */
+    public void compactar() {
+        travaInstantaneo.lock();
+        try {
+            long novaGeracao;
+            escrita.lock();
+            try {
+                if (diario == null || diario.isVazio()) {
+                    return;
+                }
+                novaGeracao = geracaoDiario + 1;
+                fecharDiario();
+                abrirDiario(novaGeracao, -1);
+            } finally {
+                escrita.unlock();
+            }
 
+            GerenciadorBiblioteca copia = new GerenciadorBiblioteca(arquivoDados.toString(), mapeado);
+            if (Files.exists(arquivoDados)) {
+                copia.lerInstantaneo();
+            }
+            copia.reconstruirIndices();
+            for (Map.Entry<Long, Path> entrada : listarDiarios().headMap(novaGeracao).entrySet()) {
+                if (entrada.getKey() >= copia.geracao) {
+                    DiarioOperacoes.reproduzir(entrada.getValue(), new ReproducaoDiario(copia));
+                }
+            }
+            copia.gravarInstantaneo(novaGeracao);
+            geracao = novaGeracao;
+            if (catalogo != null) {
+                // Registros lidos do catálogo anterior continuam nos caches; os demais não mudaram desde então
+                // e podem passar a ser lidos do novo arquivo.
+                CatalogoMapeado novoCatalogo = CatalogoMapeado.abrir(arquivoDados);
+                escrita.lock();
+                try {
+                    catalogo = novoCatalogo;
+                } finally {
+                    escrita.unlock();
+                }
+            }
+            for (Path antigo : listarDiarios().headMap(novaGeracao).values()) {
+                descartarDiario(antigo);
+            }
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Erro ao carregar dados: " + e.getMessage());
-            autores = new ArrayList<>();
-            livros = new ArrayList<>();
-            usuarios = new ArrayList<>();
-            emprestimos = new ArrayList<>();
+            System.err.println("Erro ao compactar dados: " + e.getMessage());
+        } finally {
+            travaInstantaneo.unlock();
+        }
+    }
+
+    /**
+     * Passa a chamar {@link #compactar()} periodicamente, em uma thread em segundo plano.
+     * Exige que carregarDados já tenha aberto o diário de operações.
+     *
+     * @param intervalo O intervalo entre duas compactações.
+     * @param unidade A unidade de tempo do intervalo.
+     */
+    public void iniciarInstantaneosPeriodicos(long intervalo, TimeUnit unidade) {
+        travaInstantaneo.lock();
+        try {
+            if (instantaneosPeriodicos == null) {
+                instantaneosPeriodicos = agendador().scheduleWithFixedDelay(this::compactar, intervalo, intervalo, unidade);
+            }
+        } finally {
+            travaInstantaneo.unlock();
+        }
+    }
+
+    /**
+     * Passa a chamar {@link #verificarAtrasos()} e {@link #verificarReservas()} periodicamente, em uma thread em
+     * segundo plano, a começar agora.
+     *
+     * @param intervalo O intervalo entre duas verificações.
+     * @param unidade A unidade de tempo do intervalo.
+     */
+    public void iniciarVerificacaoAtrasos(long intervalo, TimeUnit unidade) {
+        travaInstantaneo.lock();
+        try {
+            if (verificacaoPeriodica == null) {
+                verificacaoPeriodica = agendador().scheduleWithFixedDelay(() -> {
+                    // Uma exceção de um ouvinte cancelaria as execuções seguintes.
+                    try {
+                        verificarAtrasos();
+                        verificarReservas();
+                    } catch (RuntimeException e) {
+                        System.err.println("Erro ao verificar atrasos: " + e.getMessage());
+                    }
+                }, 0, intervalo, unidade);
+            }
+        } finally {
+            travaInstantaneo.unlock();
+        }
+    }
+
+    private ScheduledExecutorService agendador() {
+        if (agendador == null) {
+            agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "agendador-biblioteca");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return agendador;
+    }
+
+    /**
+     * Interrompe as tarefas periódicas e fecha o diário de operações, gravando em disco tudo o que estiver pendente.
+     * Alterações feitas depois disso só são persistidas por um novo salvarDados.
+     */
+    public void encerrar() {
+        ScheduledExecutorService agendadorAtivo;
+        travaInstantaneo.lock();
+        try {
+            agendadorAtivo = agendador;
+            agendador = null;
+            instantaneosPeriodicos = null;
+            verificacaoPeriodica = null;
+        } finally {
+            travaInstantaneo.unlock();
+        }
+        if (agendadorAtivo != null) {
+            agendadorAtivo.shutdown();
+            try {
+                agendadorAtivo.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        escrita.lock();
+        try {
+            fecharDiario();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar diário: " + e.getMessage());
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Buscas por ID que, no armazenamento mapeado, recorrem ao catálogo. Devem ser chamadas com uma das travas.
+
+    Livro livro(int idLivro) {
+        Livro livro = livrosPorId.get(idLivro);
+        if (livro != null || catalogo == null || idLivro < 0 || livrosRemovidos.get(idLivro)) {
+            return livro;
+        }
+        // Buscas concorrentes pelo mesmo ID recebem o mesmo objeto.
+        return livrosMapeados.computeIfAbsent(idLivro, id -> {
+            int indice = catalogo.indiceLivro(id);
+            if (indice < 0 || catalogo.livroRemovido(indice)) {
+                return null;
+            }
+            Livro lido = catalogo.lerLivro(indice, this::autor);
+            lido.setObservador(observador);
+            return lido;
+        });
+    }
+
+    Usuario usuario(int idUsuario) {
+        Usuario usuario = usuariosPorId.get(idUsuario);
+        if (usuario != null || catalogo == null || idUsuario < 0 || usuariosRemovidos.get(idUsuario)) {
+            return usuario;
+        }
+        return usuariosMapeados.computeIfAbsent(idUsuario, id -> {
+            int indice = catalogo.indiceUsuario(id);
+            if (indice < 0 || catalogo.usuarioRemovido(indice)) {
+                return null;
+            }
+            Usuario lido = catalogo.lerUsuario(indice);
+            lido.setObservador(observador);
+            return lido;
+        });
+    }
+
+    Autor autor(int idAutor) {
+        Autor autor = autoresPorId.get(idAutor);
+        if (autor != null || catalogo == null || idAutor < 0 || autoresRemovidos.get(idAutor)) {
+            return autor;
+        }
+        return autoresMapeados.computeIfAbsent(idAutor, id -> {
+            int indice = catalogo.indiceAutor(id);
+            if (indice < 0) {
+                return null;
+            }
+            Autor lido = catalogo.lerAutor(indice);
+            lido.setObservador(observador);
+            return lido;
+        });
+    }
+
+    // Versões das buscas acima que não guardam nos caches o que for lido do catálogo e que também encontram
+    // registros removidos, usadas ao gravar um instantâneo.
+
+    private Livro livroSemCache(int idLivro) {
+        Livro livro = livrosPorId.get(idLivro);
+        if (livro == null) {
+            livro = livrosMapeados.get(idLivro);
+        }
+        if (livro == null) {
+            int indice = catalogo.indiceLivro(idLivro);
+            livro = indice < 0 ? null : catalogo.lerLivro(indice, this::autorSemCache);
+        }
+        return livro;
+    }
+
+    private Usuario usuarioSemCache(int idUsuario) {
+        Usuario usuario = usuariosPorId.get(idUsuario);
+        if (usuario == null) {
+            usuario = usuariosMapeados.get(idUsuario);
+        }
+        if (usuario == null) {
+            int indice = catalogo.indiceUsuario(idUsuario);
+            usuario = indice < 0 ? null : catalogo.lerUsuario(indice);
+        }
+        return usuario;
+    }
+
+    private Autor autorSemCache(int idAutor) {
+        Autor autor = autoresPorId.get(idAutor);
+        if (autor == null) {
+            autor = autoresMapeados.get(idAutor);
+        }
+        if (autor == null) {
+            int indice = catalogo.indiceAutor(idAutor);
+            autor = indice < 0 ? null : catalogo.lerAutor(indice);
+        }
+        return autor;
+    }
+
+    // Os métodos todos* juntam os registros do catálogo às inclusões posteriores, na ordem de ID do catálogo.
+
+    private <R> R consultarListagem(OrdemListagem[] ordens, Ordenacao ordenacao, Function<Ordenacao, OrdemListagem> montar,
+                                    Function<OrdemListagem, R> consulta) {
+        leitura.lock();
+        try {
+            OrdemListagem ordem = ordens[ordenacao.ordinal()];
+            if (ordem != null) {
+                return consulta.apply(ordem);
+            }
+        } finally {
+            leitura.unlock();
+        }
+        escrita.lock();
+        try {
+            if (ordens[ordenacao.ordinal()] == null) {
+                ordens[ordenacao.ordinal()] = montar.apply(ordenacao);
+            }
+            return consulta.apply(ordens[ordenacao.ordinal()]);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private static <T> List<T> pagina(OrdemListagem ordem, int inicio, int quantidade, IntFunction<T> entidade) {
+        int primeiro = Math.max(inicio, 0);
+        int fim = (int) Math.min((long) primeiro + Math.max(quantidade, 0), ordem.tamanho());
+        List<T> pagina = new ArrayList<>(Math.max(fim - primeiro, 0));
+        for (int i = primeiro; i < fim; i++) {
+            T item = entidade.apply(ordem.get(i));
+            if (item != null) {
+                pagina.add(item);
+            }
+        }
+        return pagina;
+    }
+
+    // Os IDs das listagens são reunidos sem criar objetos: no armazenamento mapeado, os registros ainda não
+    // acessados têm o título ou o nome lidos direto do catálogo.
+
+    private OrdemListagem ordemDosLivros(Ordenacao ordenacao) {
+        int[] ids;
+        if (catalogo == null) {
+            ids = new int[livros.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = livros.get(i).getIdLivro();
+            }
+        } else {
+            ids = new int[catalogo.quantidadeLivros() + livros.size()];
+            int quantidade = 0;
+            for (int i = 0; i < catalogo.quantidadeLivros(); i++) {
+                int id = catalogo.idLivro(i);
+                if (!catalogo.livroRemovido(i) && !livrosRemovidos.get(id)) {
+                    ids[quantidade++] = id;
+                }
+            }
+            for (Livro livro : livros) {
+                if (catalogo.indiceLivro(livro.getIdLivro()) < 0) {
+                    ids[quantidade++] = livro.getIdLivro();
+                }
+            }
+            ids = Arrays.copyOf(ids, quantidade);
+        }
+        return OrdemListagem.montar(ids, ordenacao, id -> {
+            Livro livro = livrosPorId.get(id);
+            if (livro == null && catalogo != null) {
+                livro = livrosMapeados.get(id);
+            }
+            return livro != null ? livro.getTitulo() : catalogo.tituloLivro(catalogo.indiceLivro(id));
+        });
+    }
+
+    private OrdemListagem ordemDosUsuarios(Ordenacao ordenacao) {
+        int[] ids;
+        if (catalogo == null) {
+            ids = new int[usuarios.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = usuarios.get(i).getIdUsuario();
+            }
+        } else {
+            ids = new int[catalogo.quantidadeUsuarios() + usuarios.size()];
+            int quantidade = 0;
+            for (int i = 0; i < catalogo.quantidadeUsuarios(); i++) {
+                int id = catalogo.idUsuario(i);
+                if (!catalogo.usuarioRemovido(i) && !usuariosRemovidos.get(id)) {
+                    ids[quantidade++] = id;
+                }
+            }
+            for (Usuario usuario : usuarios) {
+                if (catalogo.indiceUsuario(usuario.getIdUsuario()) < 0) {
+                    ids[quantidade++] = usuario.getIdUsuario();
+                }
+            }
+            ids = Arrays.copyOf(ids, quantidade);
+        }
+        return OrdemListagem.montar(ids, ordenacao, id -> {
+            Usuario usuario = usuariosPorId.get(id);
+            if (usuario == null && catalogo != null) {
+                usuario = usuariosMapeados.get(id);
+            }
+            return usuario != null ? usuario.getNome() : catalogo.nomeUsuario(catalogo.indiceUsuario(id));
+        });
+    }
+
+    private OrdemListagem ordemDosAutores(Ordenacao ordenacao) {
+        int[] ids;
+        if (catalogo == null) {
+            ids = new int[autores.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = autores.get(i).getIdAutor();
+            }
+        } else {
+            ids = new int[catalogo.quantidadeAutores() + autores.size()];
+            int quantidade = 0;
+            for (int i = 0; i < catalogo.quantidadeAutores(); i++) {
+                int id = catalogo.idAutor(i);
+                if (!autoresRemovidos.get(id)) {
+                    ids[quantidade++] = id;
+                }
+            }
+            for (Autor autor : autores) {
+                if (catalogo.indiceAutor(autor.getIdAutor()) < 0) {
+                    ids[quantidade++] = autor.getIdAutor();
+                }
+            }
+            ids = Arrays.copyOf(ids, quantidade);
+        }
+        return OrdemListagem.montar(ids, ordenacao, id -> {
+            Autor autor = autoresPorId.get(id);
+            if (autor == null && catalogo != null) {
+                autor = autoresMapeados.get(id);
+            }
+            return autor != null ? autor.getNome() : catalogo.nomeAutor(catalogo.indiceAutor(id));
+        });
+    }
+
+    // As ordens já montadas acompanham as inclusões, remoções e trocas de nome, sob a trava de escrita.
+
+    private static void incluirNasOrdens(OrdemListagem[] ordens, int id, String nome) {
+        for (OrdemListagem ordem : ordens) {
+            if (ordem != null) {
+                ordem.incluir(id, nome);
+            }
+        }
+    }
+
+    private static void removerDasOrdens(OrdemListagem[] ordens, int id) {
+        for (OrdemListagem ordem : ordens) {
+            if (ordem != null) {
+                ordem.remover(id);
+            }
+        }
+    }
+
+    static void renomearNasOrdens(OrdemListagem[] ordens, int id, String nome) {
+        OrdemListagem porNome = ordens[Ordenacao.POR_NOME.ordinal()];
+        if (porNome != null) {
+            porNome.renomear(id, nome);
+        }
+    }
+
+    private List<Livro> todosOsLivros(boolean manterEmCache) {
+        if (catalogo == null) {
+            return new ArrayList<>(livros);
+        }
+        List<Livro> todos = new ArrayList<>(catalogo.quantidadeLivros() + livros.size());
+        for (int i = 0; i < catalogo.quantidadeLivros(); i++) {
+            int id = catalogo.idLivro(i);
+            if (!catalogo.livroRemovido(i) && !livrosRemovidos.get(id)) {
+                todos.add(manterEmCache ? livro(id) : livroSemCache(id));
+            }
+        }
+        for (Livro livro : livros) {
+            if (catalogo.indiceLivro(livro.getIdLivro()) < 0) {
+                todos.add(livro);
+            }
+        }
+        return todos;
+    }
+
+    private List<Usuario> todosOsUsuarios(boolean manterEmCache) {
+        if (catalogo == null) {
+            return new ArrayList<>(usuarios);
+        }
+        List<Usuario> todos = new ArrayList<>(catalogo.quantidadeUsuarios() + usuarios.size());
+        for (int i = 0; i < catalogo.quantidadeUsuarios(); i++) {
+            int id = catalogo.idUsuario(i);
+            if (!catalogo.usuarioRemovido(i) && !usuariosRemovidos.get(id)) {
+                todos.add(manterEmCache ? usuario(id) : usuarioSemCache(id));
+            }
+        }
+        for (Usuario usuario : usuarios) {
+            if (catalogo.indiceUsuario(usuario.getIdUsuario()) < 0) {
+                todos.add(usuario);
+            }
+        }
+        return todos;
+    }
+
+    private List<Autor> todosOsAutores(boolean manterEmCache) {
+        if (catalogo == null) {
+            return new ArrayList<>(autores);
+        }
+        List<Autor> todos = new ArrayList<>(catalogo.quantidadeAutores() + autores.size());
+        for (int i = 0; i < catalogo.quantidadeAutores(); i++) {
+            int id = catalogo.idAutor(i);
+            if (!autoresRemovidos.get(id)) {
+                todos.add(manterEmCache ? autor(id) : autorSemCache(id));
+            }
+        }
+        for (Autor autor : autores) {
+            if (catalogo.indiceAutor(autor.getIdAutor()) < 0) {
+                todos.add(autor);
+            }
+        }
+        return todos;
+    }
+
+    private List<Emprestimo> todoOHistorico() {
+        // Os empréstimos ativos na abertura do catálogo e os realizados depois estão em memória; os demais
+        // já estavam devolvidos e não mudam mais.
+        List<Emprestimo> todos = new ArrayList<>(emprestimos);
+        BitSet emMemoria = new BitSet();
+        for (Emprestimo emprestimo : emprestimos) {
+            emMemoria.set(emprestimo.getIdEmprestimo());
+        }
+        for (int i = 0; i < catalogo.quantidadeEmprestimos(); i++) {
+            int id = catalogo.idEmprestimo(i);
+            if (!emMemoria.get(id) && !emprestimosArquivados.get(id)) {
+                todos.add(catalogo.lerEmprestimo(i, this::livroSemCache, this::usuarioSemCache));
+            }
+        }
+        return todos;
+    }
+
+    private void abrirCatalogo(CatalogoMapeado novoCatalogo) {
+        catalogo = novoCatalogo;
+        autores = new ArrayList<>();
+        livros = new ArrayList<>();
+        usuarios = new ArrayList<>();
+        emprestimos = new ConcurrentLinkedQueue<>();
+        livrosMapeados = new ConcurrentHashMap<>();
+        usuariosMapeados = new ConcurrentHashMap<>();
+        autoresMapeados = new ConcurrentHashMap<>();
+        livrosRemovidos = new BitSet();
+        usuariosRemovidos = new BitSet();
+        autoresRemovidos = new BitSet();
+        emprestimosArquivados = new BitSet();
+        reconstruirIndices();
+
+        // Apenas os empréstimos ativos são materializados, junto com seus livros e usuários.
+        for (int i = 0; i < catalogo.quantidadeEmprestimosAtivos(); i++) {
+            emprestimos.add(catalogo.lerEmprestimo(catalogo.indiceEmprestimoAtivo(i), this::livro, this::usuario));
+        }
+        // As reservas em aberto também, pois são poucas e cada devolução consulta a fila do livro.
+        reservas = new FilaReservas();
+        for (int i = 0; i < catalogo.quantidadeReservas(); i++) {
+            reservas.restaurar(catalogo.lerReserva(i, this::livro, this::usuario));
+        }
+
+        Autor.SEQUENCIA.avancarPara(catalogo.getProximoIdAutor());
+        Livro.SEQUENCIA.avancarPara(catalogo.getProximoIdLivro());
+        Usuario.SEQUENCIA.avancarPara(catalogo.getProximoIdUsuario());
+        Emprestimo.SEQUENCIA.avancarPara(catalogo.getProximoIdEmprestimo());
+        geracao = catalogo.getGeracao();
+    }
+
+    private void reconstruirIndices() {
+        livrosPorId = new MapaInt<>(livros.size());
+        for (Livro livro : livros) {
+            livrosPorId.put(livro.getIdLivro(), livro);
+            livro.setObservador(observador);
+        }
+        usuariosPorId = new MapaInt<>(usuarios.size());
+        for (Usuario usuario : usuarios) {
+            usuariosPorId.put(usuario.getIdUsuario(), usuario);
+            usuario.setObservador(observador);
+        }
+        autoresPorId = new MapaInt<>(autores.size());
+        for (Autor autor : autores) {
+            autoresPorId.put(autor.getIdAutor(), autor);
+            autor.setObservador(observador);
+        }
+        indiceAutoria = null;
+        indiceTextual = null;
+        indiceIsbn = null;
+        indiceCpf = null;
+        indiceEmail = null;
+        historico = null;
+        painel = null;
+        Arrays.fill(ordemLivros, null);
+        Arrays.fill(ordemUsuarios, null);
+        Arrays.fill(ordemAutores, null);
+        emprestimosAtivosPorLivro = new ConcurrentHashMap<>();
+        emprestimosAtivosPorUsuario = new ConcurrentHashMap<>();
+        emprestimosAtivos = new ConcurrentHashMap<>();
+        quantidadeEmprestimosAtivos = new AtomicInteger();
+        filaAtrasos = new FilaAtrasos(emprestimos.size());
+        for (Emprestimo emprestimo : emprestimos) {
+            if (!emprestimo.isDevolvido()) {
+                abrirEmprestimo(emprestimo);
+            }
+        }
+    }
+
+    void incluirLivro(Livro livro) {
+        long posicao = gravarNoDiario(d -> d.registrarLivro(DiarioOperacoes.LIVRO, livro));
+        incluirNasOrdens(ordemLivros, livro.getIdLivro(), livro.getTitulo());
+        livros.add(livro);
+        livrosPorId.put(livro.getIdLivro(), livro);
+        livro.setObservador(observador);
+        indexarLivro(livro);
+        if (indiceIsbn != null) {
+            indexarIsbn(livro.getIdLivro(), livro.getIsbn());
+        }
+        if (painel != null) {
+            painel.disponibilidadeAlterada(livro);
+        }
+        sincronizarDiario(posicao);
+    }
+
+    void incluirUsuario(Usuario usuario) {
+        long posicao = gravarNoDiario(d -> d.registrarUsuario(DiarioOperacoes.USUARIO, usuario));
+        incluirNasOrdens(ordemUsuarios, usuario.getIdUsuario(), usuario.getNome());
+        usuarios.add(usuario);
+        usuariosPorId.put(usuario.getIdUsuario(), usuario);
+        usuario.setObservador(observador);
+        if (indiceCpf != null) {
+            indexarUsuario(usuario.getIdUsuario(), usuario.getCpf(), usuario.getEmail());
+        }
+        sincronizarDiario(posicao);
+    }
+
+    // No armazenamento mapeado, os índices abaixo recebem os registros ainda não acessados direto do catálogo,
+    // sem criar objetos para eles.
+
+    private void construirIndiceAutoria() {
+        IndiceAutoria indice = new IndiceAutoria(livros.size() + (catalogo == null ? 0 : catalogo.quantidadeLivros()));
+        if (catalogo != null) {
+            for (int i = 0; i < catalogo.quantidadeLivros(); i++) {
+                int id = catalogo.idLivro(i);
+                if (!catalogo.livroRemovido(i) && !livrosRemovidos.get(id) && !livrosPorId.containsKey(id)) {
+                    Livro livro = livrosMapeados.get(id);
+                    indice.indexarLivro(id, livro != null ? idsAutores(livro) : catalogo.idsAutoresLivro(i));
+                }
+            }
+        }
+        for (Livro livro : livros) {
+            indice.indexarLivro(livro.getIdLivro(), idsAutores(livro));
+        }
+        indiceAutoria = indice;
+    }
+
+    private void construirIndiceTextual() {
+        if (indiceAutoria == null) {
+            construirIndiceAutoria();
+        }
+        IndiceTextual indice = new IndiceTextual(livros.size() + (catalogo == null ? 0 : catalogo.quantidadeLivros()), indiceAutoria);
+        if (catalogo != null) {
+            for (int i = 0; i < catalogo.quantidadeAutores(); i++) {
+                int id = catalogo.idAutor(i);
+                if (!autoresRemovidos.get(id)) {
+                    Autor autor = autoresMapeados.get(id);
+                    indice.indexarAutor(id, autor != null ? autor.getNome() : catalogo.nomeAutor(i));
+                }
+            }
+            for (int i = 0; i < catalogo.quantidadeLivros(); i++) {
+                int id = catalogo.idLivro(i);
+                if (!catalogo.livroRemovido(i) && !livrosRemovidos.get(id) && !livrosPorId.containsKey(id)) {
+                    Livro livro = livrosMapeados.get(id);
+                    indice.indexarLivro(id, livro != null ? livro.getTitulo() : catalogo.tituloLivro(i));
+                }
+            }
+        }
+        for (Autor autor : autores) {
+            indice.indexarAutor(autor.getIdAutor(), autor.getNome());
+        }
+        indiceTextual = indice;
+        for (Livro livro : livros) {
+            indexarTexto(livro);
+        }
+    }
+
+    /**
+     * Atualiza os índices de autoria e de busca, os que já tiverem sido montados, com os dados atuais do livro.
+     */
+    void indexarLivro(Livro livro) {
+        if (indiceAutoria != null) {
+            indiceAutoria.indexarLivro(livro.getIdLivro(), idsAutores(livro));
+        }
+        indexarTexto(livro);
+    }
+
+    private void indexarTexto(Livro livro) {
+        if (indiceTextual == null) {
+            return;
+        }
+        // Autores que não foram cadastrados no gerenciador também precisam ser encontrados pelo nome.
+        for (Autor autor : livro.getAutores()) {
+            if (!indiceTextual.contemAutor(autor.getIdAutor())) {
+                indiceTextual.indexarAutor(autor.getIdAutor(), autor.getNome());
+            }
+        }
+        indiceTextual.indexarLivro(livro.getIdLivro(), livro.getTitulo());
+    }
+
+    void construirIndiceIsbn() {
+        indiceIsbn = new IndiceUnico(livros.size() + (catalogo == null ? 0 : catalogo.quantidadeLivros()));
+        if (catalogo != null) {
+            for (int i = 0; i < catalogo.quantidadeLivros(); i++) {
+                int id = catalogo.idLivro(i);
+                if (!catalogo.livroRemovido(i) && !livrosRemovidos.get(id) && !livrosPorId.containsKey(id)) {
+                    Livro livro = livrosMapeados.get(id);
+                    indexarIsbn(id, livro != null ? livro.getIsbn() : catalogo.isbnLivro(i));
+                }
+            }
+        }
+        for (Livro livro : livros) {
+            indexarIsbn(livro.getIdLivro(), livro.getIsbn());
+        }
+    }
+
+    void indexarIsbn(int idLivro, String isbn) {
+        long chave = IndiceUnico.normalizarIsbn(isbn);
+        if (chave != IndiceUnico.INVALIDO) {
+            indiceIsbn.adicionarSeAusente(chave, idLivro);
+        }
+    }
+
+    private Livro livroComIsbn(long chave) {
+        int idLivro = indiceIsbn.get(chave);
+        return idLivro == 0 ? null : livro(idLivro);
+    }
+
+    void construirIndicesUsuarios() {
+        int esperados = usuarios.size() + (catalogo == null ? 0 : catalogo.quantidadeUsuarios());
+        indiceCpf = new IndiceUnico(esperados);
+        indiceEmail = new HashMap<>(esperados * 2);
+        if (catalogo != null) {
+            for (int i = 0; i < catalogo.quantidadeUsuarios(); i++) {
+                int id = catalogo.idUsuario(i);
+                if (!catalogo.usuarioRemovido(i) && !usuariosRemovidos.get(id) && !usuariosPorId.containsKey(id)) {
+                    Usuario usuario = usuariosMapeados.get(id);
+                    if (usuario != null) {
+                        indexarUsuario(id, usuario.getCpf(), usuario.getEmail());
+                    } else {
+                        indexarUsuario(id, catalogo.cpfUsuario(i), catalogo.emailUsuario(i));
+                    }
+                }
+            }
+        }
+        for (Usuario usuario : usuarios) {
+            indexarUsuario(usuario.getIdUsuario(), usuario.getCpf(), usuario.getEmail());
+        }
+    }
+
+    void indexarUsuario(int idUsuario, String cpf, String email) {
+        long chaveCpf = IndiceUnico.normalizarCpf(cpf);
+        if (chaveCpf != IndiceUnico.INVALIDO) {
+            indiceCpf.adicionarSeAusente(chaveCpf, idUsuario);
+        }
+        String chaveEmail = IndiceUnico.normalizarEmail(email);
+        if (chaveEmail != null) {
+            indiceEmail.putIfAbsent(chaveEmail, idUsuario);
+        }
+    }
+
+    void desindexarUsuario(int idUsuario, String cpf, String email) {
+        indiceCpf.remover(IndiceUnico.normalizarCpf(cpf), idUsuario);
+        String chaveEmail = IndiceUnico.normalizarEmail(email);
+        if (chaveEmail != null) {
+            indiceEmail.remove(chaveEmail, idUsuario);
+        }
+    }
+
+    // Donos de um CPF e de um e-mail nos índices de usuários, ou 0 se não houver.
+
+    int donoCpf(String cpf) {
+        long chave = IndiceUnico.normalizarCpf(cpf);
+        return chave == IndiceUnico.INVALIDO ? 0 : indiceCpf.get(chave);
+    }
+
+    int donoEmail(String email) {
+        String chave = IndiceUnico.normalizarEmail(email);
+        Integer id = chave == null ? null : indiceEmail.get(chave);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Consulta os índices de usuários sob a trava de leitura, montando-os antes sob a de escrita se ainda não existirem.
+     */
+    private Usuario usuarioPorChave(IntSupplier dono) {
+        leitura.lock();
+        try {
+            if (indiceCpf != null) {
+                int idUsuario = dono.getAsInt();
+                return idUsuario == 0 ? null : usuario(idUsuario);
+            }
+        } finally {
+            leitura.unlock();
+        }
+        escrita.lock();
+        try {
+            if (indiceCpf == null) {
+                construirIndicesUsuarios();
+            }
+            int idUsuario = dono.getAsInt();
+            return idUsuario == 0 ? null : usuario(idUsuario);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private static int[] idsAutores(Livro livro) {
+        List<Autor> autoresDoLivro = livro.getAutores();
+        int[] ids = new int[autoresDoLivro.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = autoresDoLivro.get(i).getIdAutor();
+        }
+        return ids;
+    }
+
+    /**
+     * Consulta o índice de busca sob a trava de leitura, montando-o antes sob a de escrita se ainda não existir.
+     */
+    private int[] pesquisarTexto(Function<IndiceTextual, int[]> consulta) {
+        leitura.lock();
+        try {
+            if (indiceTextual != null) {
+                return consulta.apply(indiceTextual);
+            }
+        } finally {
+            leitura.unlock();
+        }
+        escrita.lock();
+        try {
+            if (indiceTextual == null) {
+                construirIndiceTextual();
+            }
+            return consulta.apply(indiceTextual);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private List<Emprestimo> paginaDoHistorico(int pagina, BiFunction<HistoricoEmprestimos, Integer, int[]> consulta) {
+        if (pagina < 0) {
+            return new ArrayList<>();
+        }
+        int pular = (int) Math.min((long) pagina * TAMANHO_PAGINA_HISTORICO, Integer.MAX_VALUE);
+        leitura.lock();
+        try {
+            if (historico != null) {
+                return emprestimosDosIds(consulta.apply(historico, pular));
+            }
+        } finally {
+            leitura.unlock();
+        }
+        escrita.lock();
+        try {
+            if (historico == null) {
+                construirHistorico();
+            }
+            return emprestimosDosIds(consulta.apply(historico, pular));
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private void construirHistorico() {
+        HistoricoEmprestimos novo = new HistoricoEmprestimos();
+        // Os empréstimos em memória entram pelo objeto, para que a página retorne o mesmo empréstimo; os do
+        // catálogo e do arquivo, pelos campos gravados, sem criar objetos. Um empréstimo pode aparecer em mais
+        // de uma fonte (os ativos na abertura do catálogo, ou um arquivamento interrompido antes do instantâneo)
+        // e entra apenas uma vez.
+        BitSet vistos = new BitSet();
+        for (Emprestimo emprestimo : emprestimos) {
+            vistos.set(emprestimo.getIdEmprestimo());
+            novo.registrar(emprestimo);
+        }
+        if (catalogo != null) {
+            for (int i = 0; i < catalogo.quantidadeEmprestimos(); i++) {
+                int id = catalogo.idEmprestimo(i);
+                if (!vistos.get(id)) {
+                    vistos.set(id);
+                    novo.registrar(id, catalogo.livroEmprestimo(i), catalogo.usuarioEmprestimo(i));
+                }
+            }
+        }
+        try {
+            arquivo.percorrer(registro -> {
+                if (!vistos.get(registro.idEmprestimo)) {
+                    vistos.set(registro.idEmprestimo);
+                    novo.registrar(registro.idEmprestimo, registro.idLivro, registro.idUsuario);
+                }
+                return true;
+            });
+        } catch (IOException e) {
+            System.err.println("Erro ao ler arquivo de empréstimos: " + e.getMessage());
+        }
+        novo.ordenar();
+        historico = novo;
+    }
+
+    private <R> R consultarPainel(Function<PainelCirculacao, R> consulta) {
+        leitura.lock();
+        try {
+            if (painel != null) {
+                return consulta.apply(painel);
+            }
+        } finally {
+            leitura.unlock();
+        }
+        escrita.lock();
+        try {
+            if (painel == null) {
+                construirPainel();
+            }
+            return consulta.apply(painel);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private void construirPainel() {
+        // As contagens vêm das listas do histórico, que já juntam a memória, o catálogo e o arquivo.
+        if (historico == null) {
+            construirHistorico();
+        }
+        PainelCirculacao novo = new PainelCirculacao(historico.rankingLivros(this::livroCadastrado),
+                historico.rankingUsuarios(this::usuarioCadastrado));
+        for (Livro livro : todosOsLivros(false)) {
+            if (livro.getQuantidadeDisponivel() == 0) {
+                novo.disponibilidadeAlterada(livro);
+            }
+        }
+        painel = novo;
+    }
+
+    private boolean livroCadastrado(int idLivro) {
+        if (livrosPorId.containsKey(idLivro)) {
+            return true;
+        }
+        if (catalogo == null || idLivro < 0 || livrosRemovidos.get(idLivro)) {
+            return false;
+        }
+        int indice = catalogo.indiceLivro(idLivro);
+        return indice >= 0 && !catalogo.livroRemovido(indice);
+    }
+
+    private boolean usuarioCadastrado(int idUsuario) {
+        if (usuariosPorId.containsKey(idUsuario)) {
+            return true;
+        }
+        if (catalogo == null || idUsuario < 0 || usuariosRemovidos.get(idUsuario)) {
+            return false;
+        }
+        int indice = catalogo.indiceUsuario(idUsuario);
+        return indice >= 0 && !catalogo.usuarioRemovido(indice);
+    }
+
+    private static <T> List<ContagemEmprestimos<T>> contagens(long[] entradas, IntFunction<T> entidade) {
+        List<ContagemEmprestimos<T>> encontradas = new ArrayList<>(entradas.length);
+        for (long entrada : entradas) {
+            T encontrada = entidade.apply((int) entrada);
+            if (encontrada != null) {
+                encontradas.add(new ContagemEmprestimos<>(encontrada, (int) (entrada >>> 32)));
+            }
+        }
+        return encontradas;
+    }
+
+    private List<Emprestimo> emprestimosDosIds(int[] ids) {
+        // Empréstimos fora da memória já foram devolvidos e não mudam mais: são lidos do catálogo ou do arquivo
+        // sem passar pelos caches.
+        Emprestimo[] encontrados = new Emprestimo[ids.length];
+        int noArquivo = 0;
+        for (int i = 0; i < ids.length; i++) {
+            encontrados[i] = historico.emMemoria(ids[i]);
+            if (encontrados[i] == null && catalogo != null) {
+                int indice = catalogo.indiceEmprestimo(ids[i]);
+                if (indice >= 0) {
+                    encontrados[i] = catalogo.lerEmprestimo(indice, this::livroSemCache, this::usuarioSemCache);
+                }
+            }
+            if (encontrados[i] == null) {
+                noArquivo++;
+            }
+        }
+        if (noArquivo > 0) {
+            lerDoArquivo(ids, encontrados, noArquivo);
+        }
+        List<Emprestimo> lista = new ArrayList<>(ids.length);
+        for (Emprestimo emprestimo : encontrados) {
+            if (emprestimo != null) {
+                lista.add(emprestimo);
+            }
+        }
+        return lista;
+    }
+
+    private void lerDoArquivo(int[] ids, Emprestimo[] encontrados, int faltando) {
+        // A página tem poucos IDs: cada registro lido é comparado com todos, e a leitura para quando a página se completa.
+        int[] restantes = {faltando};
+        try {
+            arquivo.percorrer(registro -> {
+                for (int i = 0; i < ids.length; i++) {
+                    if (ids[i] == registro.idEmprestimo && encontrados[i] == null) {
+                        encontrados[i] = emprestimoArquivado(registro);
+                        restantes[0]--;
+                    }
+                }
+                return restantes[0] > 0;
+            });
+        } catch (IOException e) {
+            System.err.println("Erro ao ler arquivo de empréstimos: " + e.getMessage());
+        }
+    }
+
+    private Emprestimo emprestimoArquivado(ArquivoEmprestimos.Registro registro) {
+        // Livros e usuários removidos depois do arquivamento são recriados com os dados guardados no registro.
+        Livro livro = catalogo != null ? livroSemCache(registro.idLivro) : livrosPorId.get(registro.idLivro);
+        if (livro == null) {
+            livro = new Livro(registro.idLivro, registro.titulo, registro.isbn, 0, null, 0, 0, new ArrayList<>());
+        }
+        Usuario usuario = catalogo != null ? usuarioSemCache(registro.idUsuario) : usuariosPorId.get(registro.idUsuario);
+        if (usuario == null) {
+            usuario = new Usuario(registro.idUsuario, registro.nome, registro.cpf, null, null);
+        }
+        return new Emprestimo(registro.idEmprestimo, livro, usuario, LocalDate.ofEpochDay(registro.dataEmprestimo),
+                LocalDate.ofEpochDay(registro.dataDevolucaoPrevista), LocalDate.ofEpochDay(registro.dataDevolucaoEfetiva));
+    }
+
+    private List<Livro> livrosDoAutor(int idAutor) {
+        ConjuntoIds ids = indiceAutoria.livros(idAutor);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<Livro> encontrados = new ArrayList<>(ids.tamanho());
+        for (int i = 0; i < ids.tamanho(); i++) {
+            encontrados.add(livro(ids.get(i)));
+        }
+        return encontrados;
+    }
+
+    private List<Livro> livrosDosIds(int[] ids) {
+        leitura.lock();
+        try {
+            List<Livro> encontrados = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                Livro livro = livro(id);
+                if (livro != null) {
+                    encontrados.add(livro);
+                }
+            }
+            return encontrados;
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    Emprestimo fecharEmprestimo(int idEmprestimo, LocalDate dataDevolucao, List<Reserva> atendidas) {
+        // Apenas uma devolução concorrente consegue remover o empréstimo do mapa.
+        Emprestimo emprestimo = emprestimosAtivos.remove(idEmprestimo);
+        if (emprestimo != null) {
+            emprestimo.setObservador(null);
+            emprestimo.setDataDevolucaoEfetiva(dataDevolucao);
+            Reserva atendida = reservas.devolver(emprestimo.getLivro(), dataDevolucao); //
+            if (atendida != null) {
+                atendidas.add(atendida);
+            }
+            contarEmprestimoAtivo(emprestimo, -1);
+        }
+        return emprestimo;
+    }
+
+    void incluirEmprestimo(Emprestimo emprestimo) {
+        emprestimos.add(emprestimo);
+        abrirEmprestimo(emprestimo);
+        if (historico != null) {
+            historico.registrar(emprestimo);
+        }
+        if (painel != null) {
+            painel.emprestimoRealizado(emprestimo.getLivro().getIdLivro(), emprestimo.getUsuario().getIdUsuario());
+        }
+    }
+
+    private void abrirEmprestimo(Emprestimo emprestimo) {
+        emprestimo.setObservador(observador);
+        emprestimosAtivos.put(emprestimo.getIdEmprestimo(), emprestimo);
+        contarEmprestimoAtivo(emprestimo, 1);
+        filaAtrasos.adicionar(emprestimo.getDataDevolucaoPrevista().toEpochDay(), emprestimo.getIdEmprestimo());
+    }
+
+    private void contarEmprestimoAtivo(Emprestimo emprestimo, int delta) {
+        // Remove a entrada quando a contagem chega a zero, de modo que containsKey indica empréstimo ativo.
+        // O merge do ConcurrentHashMap é atômico por chave.
+        emprestimosAtivosPorLivro.merge(emprestimo.getLivro().getIdLivro(), delta, (a, b) -> a + b == 0 ? null : a + b);
+        emprestimosAtivosPorUsuario.merge(emprestimo.getUsuario().getIdUsuario(), delta, (a, b) -> a + b == 0 ? null : a + b);
+        quantidadeEmprestimosAtivos.addAndGet(delta);
+    }
+
+    /**
+     * Acrescenta uma operação ao diário sem aguardar a gravação em disco. As operações chamam este método depois
+     * de validadas e antes de alterar o estado em memória, de modo que uma falha recusa a operação inteira, e
+     * chamam {@link #sincronizarDiario(long)} depois de aplicá-la, fora das travas sempre que possível.
+     * @return A posição final do registro, ou 0 se não houver diário aberto (durante a reprodução).
+     * @throws UncheckedIOException Se o registro não puder ser escrito; nada foi gravado.
+     */
+    long gravarNoDiario(OperacaoDiario operacao) {
+        if (diario == null) {
+            return 0;
+        }
+        try {
+            return operacao.gravar(diario);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar diário: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Aguarda a gravação em disco de um registro. Chamadas concorrentes (empréstimos e devoluções sob a trava de
+     * leitura) compartilham o mesmo fsync.
+     * @throws UncheckedIOException Se o fsync falhar. A operação já foi aplicada em memória, mas pode não ter
+     * chegado ao disco; o diário passa a recusar novos registros, e portanto novas operações, até o próximo
+     * instantâneo, que grava o estado em memória.
+     */
+    void sincronizarDiario(long posicao) {
+        if (diario == null || posicao == 0) {
+            return;
+        }
+        try {
+            diario.sincronizar(posicao);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar diário: " + e.getMessage(), e);
+        }
+    }
+
+    interface OperacaoDiario {
+        long gravar(DiarioOperacoes diario) throws IOException;
+    }
+
+    private void abrirDiario(long geracaoNova, long posicaoValida) throws IOException {
+        diario = DiarioOperacoes.abrir(arquivoDiario(geracaoNova), posicaoValida);
+        geracaoDiario = geracaoNova;
+    }
+
+    private void fecharDiario() throws IOException {
+        if (diario != null) {
+            diario.close();
+            diario = null;
+        }
+    }
+
+    private void descartarDiario(Path antigo) throws IOException {
+        if (manterEventos) {
+            String nome = antigo.getFileName().toString();
+            Path mantido = antigo.resolveSibling(nome.substring(0, nome.length() - ".diario".length()) + ".eventos");
+            Files.move(antigo, mantido, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.deleteIfExists(antigo);
+        }
+    }
+
+    private Path arquivoDiario(long geracaoDiario) {
+        return Paths.get(arquivoDados + "." + geracaoDiario + ".diario");
+    }
+
+    private TreeMap<Long, Path> listarDiarios() throws IOException {
+        // Diários existentes, ordenados pela geração indicada no nome do arquivo.
+        TreeMap<Long, Path> diarios = new TreeMap<>();
+        Path diretorio = arquivoDados.toAbsolutePath().getParent();
+        String prefixo = arquivoDados.getFileName() + ".";
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, prefixo + "*.diario")) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                String numero = nome.substring(prefixo.length(), nome.length() - ".diario".length());
+                try {
+                    diarios.put(Long.parseLong(numero), arquivo);
+                } catch (NumberFormatException e) {
+                    // Ignora arquivos que não seguem o padrão de nomes do diário.
+                }
+            }
+        }
+        return diarios;
+    }
+
+    private void lerInstantaneo() throws IOException, ClassNotFoundException {
+        CodecBiblioteca.Instantaneo instantaneo;
+        if (CatalogoMapeado.reconhece(arquivoDados)) {
+            CatalogoMapeado lido = CatalogoMapeado.abrir(arquivoDados);
+            if (mapeado) {
+                abrirCatalogo(lido);
+                return;
+            }
+            instantaneo = lido.lerTudo();
+        } else if (CodecBiblioteca.reconhece(arquivoDados)) {
+            instantaneo = CodecBiblioteca.ler(arquivoDados);
+        } else {
+            lerInstantaneoSerializado();
+            return;
+        }
+        catalogo = null;
+        autores = instantaneo.autores;
+        livros = instantaneo.livros;
+        usuarios = instantaneo.usuarios;
+        emprestimos = new ConcurrentLinkedQueue<>(instantaneo.emprestimos);
+        reservas = new FilaReservas();
+        for (Reserva reserva : instantaneo.reservas) {
+            reservas.restaurar(reserva);
+        }
+
+        // As sequências só avançam: uma cópia lida durante a compactação não pode fazer IDs já usados se repetirem.
+        Autor.SEQUENCIA.avancarPara(instantaneo.proximoIdAutor);
+        Livro.SEQUENCIA.avancarPara(instantaneo.proximoIdLivro);
+        Usuario.SEQUENCIA.avancarPara(instantaneo.proximoIdUsuario);
+        Emprestimo.SEQUENCIA.avancarPara(instantaneo.proximoIdEmprestimo);
+        geracao = instantaneo.geracao;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void lerInstantaneoSerializado() throws IOException, ClassNotFoundException {
+        // Formato anterior, com serialização Java; é convertido para o formato atual no próximo instantâneo.
+        catalogo = null;
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(arquivoDados.toFile())))) {
+            autores = (List<Autor>) ois.readObject();
+            livros = (List<Livro>) ois.readObject();
+            usuarios = (List<Usuario>) ois.readObject();
+            emprestimos = new ConcurrentLinkedQueue<>((List<Emprestimo>) ois.readObject());
+            reservas = new FilaReservas(); // O formato anterior não tinha reservas.
+
+            Autor.SEQUENCIA.avancarPara(ois.readInt());
+            Livro.SEQUENCIA.avancarPara(ois.readInt());
+            Usuario.SEQUENCIA.avancarPara(ois.readInt());
+            Emprestimo.SEQUENCIA.avancarPara(ois.readInt());
+            geracao = lerGeracao(ois);
+        }
+    }
+
+    private void gravarInstantaneo(long novaGeracao) throws IOException {
+        // O instantâneo é gravado em um arquivo temporário e só então substitui o anterior, de modo que uma
+        // falha no meio da gravação não corrompe os dados já salvos.
+        Path temporario = Paths.get(arquivoDados + ".tmp");
+        if (!mapeado) {
+            CodecBiblioteca.gravar(temporario, autores, livros, usuarios, emprestimos, reservas.todas(), novaGeracao);
+        } else if (catalogo == null) {
+            CatalogoMapeado.gravar(temporario, autores, livros, usuarios, emprestimos, reservas.todas(), novaGeracao);
+        } else {
+            // Registros que nunca foram acessados são lidos do catálogo atual sem entrar nos caches.
+            CatalogoMapeado.gravar(temporario, todosOsAutores(false), todosOsLivros(false), todosOsUsuarios(false),
+                    todoOHistorico(), reservas.todas(), novaGeracao);
+        }
+        Files.move(temporario, arquivoDados, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long lerGeracao(ObjectInputStream ois) throws IOException {
+        // Arquivos gravados antes do diário terminam nos IDs e correspondem à geração 0.
+        try {
+            return ois.readLong();
+        } catch (EOFException e) {
+            return 0;
         }
     }
 }
\ No newline at end of file
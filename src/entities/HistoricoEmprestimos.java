@@ -0,0 +1,164 @@
+package entities;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Índice do histórico de empréstimos: para cada usuário e cada livro, a lista dos IDs de seus empréstimos, na
+ * ordem em que foram registrados. As listas só crescem, de modo que uma página é copiada direto do final da
+ * lista, sem percorrer os empréstimos de outros usuários ou livros.
+ * <p>
+ * Os empréstimos mantidos em memória também são guardados por ID; os demais ficam no catálogo mapeado ou no
+ * arquivo de empréstimos e o GerenciadorBiblioteca os lê de lá.
+ * <p>
+ * Aceita registros em paralelo, pois empréstimos rodam sob a trava de leitura do gerenciador.
+ */
+final class HistoricoEmprestimos {
+    private static final int[] NENHUM = new int[0];
+
+    private final Map<Integer, ListaIds> porUsuario = new ConcurrentHashMap<>();
+    private final Map<Integer, ListaIds> porLivro = new ConcurrentHashMap<>();
+    private final Map<Integer, Emprestimo> emMemoria = new ConcurrentHashMap<>();
+
+    /**
+     * Registra um empréstimo mantido em memória.
+     * @param emprestimo O empréstimo.
+     */
+    void registrar(Emprestimo emprestimo) {
+        guardar(emprestimo);
+        registrar(emprestimo.getIdEmprestimo(), emprestimo.getLivro().getIdLivro(), emprestimo.getUsuario().getIdUsuario());
+    }
+
+    /**
+     * Registra um empréstimo que fica apenas no catálogo mapeado.
+     * @param idEmprestimo O ID do empréstimo.
+     * @param idLivro O ID do livro emprestado.
+     * @param idUsuario O ID do usuário que fez o empréstimo.
+     */
+    void registrar(int idEmprestimo, int idLivro, int idUsuario) {
+        porUsuario.computeIfAbsent(idUsuario, id -> new ListaIds()).adicionar(idEmprestimo);
+        porLivro.computeIfAbsent(idLivro, id -> new ListaIds()).adicionar(idEmprestimo);
+    }
+
+    private void guardar(Emprestimo emprestimo) {
+        emMemoria.put(emprestimo.getIdEmprestimo(), emprestimo);
+    }
+
+    /**
+     * Deixa de guardar um empréstimo em memória, mantendo seu ID nas listas, quando ele é arquivado.
+     * @param idEmprestimo O ID do empréstimo.
+     */
+    void descartar(int idEmprestimo) {
+        emMemoria.remove(idEmprestimo);
+    }
+
+    /**
+     * Ordena as listas por ID, isto é, pela ordem de realização dos empréstimos. Usado depois de montar o
+     * índice a partir de fontes diferentes (memória, catálogo e arquivo).
+     */
+    void ordenar() {
+        for (ListaIds lista : porUsuario.values()) {
+            lista.ordenar();
+        }
+        for (ListaIds lista : porLivro.values()) {
+            lista.ordenar();
+        }
+    }
+
+    Emprestimo emMemoria(int idEmprestimo) {
+        return emMemoria.get(idEmprestimo);
+    }
+
+    /**
+     * Retorna uma página dos empréstimos de um usuário, dos mais recentes aos mais antigos.
+     * @param idUsuario O ID do usuário.
+     * @param pular Quantos dos empréstimos mais recentes pular.
+     * @param quantidade O número máximo de IDs retornados.
+     * @return Os IDs dos empréstimos da página.
+     */
+    int[] doUsuario(int idUsuario, int pular, int quantidade) {
+        ListaIds lista = porUsuario.get(idUsuario);
+        return lista != null ? lista.recentes(pular, quantidade) : NENHUM;
+    }
+
+    /**
+     * Retorna uma página dos empréstimos de um livro, dos mais recentes aos mais antigos.
+     * @param idLivro O ID do livro.
+     * @param pular Quantos dos empréstimos mais recentes pular.
+     * @param quantidade O número máximo de IDs retornados.
+     * @return Os IDs dos empréstimos da página.
+     */
+    int[] doLivro(int idLivro, int pular, int quantidade) {
+        ListaIds lista = porLivro.get(idLivro);
+        return lista != null ? lista.recentes(pular, quantidade) : NENHUM;
+    }
+
+    /**
+     * Monta o ranking dos livros pelo número de empréstimos no histórico.
+     * @param incluir Indica os livros que ainda estão cadastrados.
+     * @return O ranking.
+     */
+    RankingContagens rankingLivros(IntPredicate incluir) {
+        return ranking(porLivro, incluir);
+    }
+
+    /**
+     * Monta o ranking dos usuários pelo número de empréstimos no histórico.
+     * @param incluir Indica os usuários que ainda estão cadastrados.
+     * @return O ranking.
+     */
+    RankingContagens rankingUsuarios(IntPredicate incluir) {
+        return ranking(porUsuario, incluir);
+    }
+
+    private static RankingContagens ranking(Map<Integer, ListaIds> listas, IntPredicate incluir) {
+        int[] ids = new int[listas.size()];
+        int[] contagens = new int[ids.length];
+        int n = 0;
+        for (Map.Entry<Integer, ListaIds> entrada : listas.entrySet()) {
+            if (incluir.test(entrada.getKey())) {
+                ids[n] = entrada.getKey();
+                contagens[n++] = entrada.getValue().tamanho();
+            }
+        }
+        return new RankingContagens(Arrays.copyOf(ids, n), Arrays.copyOf(contagens, n));
+    }
+
+    /**
+     * Lista de IDs que só aceita acréscimos ao final, guardada em um vetor de int sem boxing.
+     */
+    private static final class ListaIds {
+        private int[] ids = new int[4];
+        private int tamanho;
+
+        synchronized void adicionar(int id) {
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, tamanho * 2);
+            }
+            ids[tamanho++] = id;
+        }
+
+        synchronized int tamanho() {
+            return tamanho;
+        }
+
+        synchronized void ordenar() {
+            Arrays.sort(ids, 0, tamanho);
+        }
+
+        synchronized int[] recentes(int pular, int quantidade) {
+            int fim = tamanho - Math.max(pular, 0);
+            int inicio = Math.max(fim - Math.max(quantidade, 0), 0);
+            if (fim <= inicio) {
+                return NENHUM;
+            }
+            int[] pagina = new int[fim - inicio];
+            for (int i = 0; i < pagina.length; i++) {
+                pagina[i] = ids[fim - 1 - i];
+            }
+            return pagina;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package entities;
+
+/**
+ * Índice de autoria nos dois sentidos: os autores de cada livro e os livros de cada autor.
+ * <p>
+ * Com ele, listar as obras de um autor ou verificar se um autor ainda tem livros custa o tamanho da bibliografia
+ * do autor, e não o do acervo. Os livros de cada autor ficam em ordem de ID. O IndiceTextual também o usa para
+ * encontrar livros pelo nome dos autores.
+ * <p>
+ * Não é sincronizado: o GerenciadorBiblioteca o altera sob a trava de escrita e o consulta sob a de leitura.
+ */
+final class IndiceAutoria {
+    private static final int[] NENHUM = new int[0];
+
+    private final MapaInt<int[]> autoresDoLivro;
+    private final MapaInt<ConjuntoIds> livrosDoAutor = new MapaInt<>(16);
+
+    /**
+     * Cria um índice vazio.
+     * @param livrosEsperados O número de livros previsto, para dimensionar as tabelas internas.
+     */
+    IndiceAutoria(int livrosEsperados) {
+        autoresDoLivro = new MapaInt<>(livrosEsperados);
+    }
+
+    /**
+     * Registra os autores de um livro, substituindo os que estiverem registrados para o mesmo ID.
+     * @param idLivro O ID do livro.
+     * @param idsAutores Os IDs dos autores do livro.
+     */
+    void indexarLivro(int idLivro, int[] idsAutores) {
+        removerLivro(idLivro);
+        autoresDoLivro.put(idLivro, idsAutores);
+        for (int idAutor : idsAutores) {
+            livrosDoAutor.computeIfAbsent(idAutor, id -> new ConjuntoIds()).adicionar(idLivro);
+        }
+    }
+
+    void removerLivro(int idLivro) {
+        int[] idsAutores = autoresDoLivro.remove(idLivro);
+        if (idsAutores == null) {
+            return;
+        }
+        for (int idAutor : idsAutores) {
+            ConjuntoIds livros = livrosDoAutor.get(idAutor);
+            if (livros != null && livros.remover(idLivro) && livros.isVazio()) {
+                livrosDoAutor.remove(idAutor);
+            }
+        }
+    }
+
+    /**
+     * Retorna os autores registrados para um livro.
+     * @param idLivro O ID do livro.
+     * @return Os IDs dos autores, vazio se o livro não estiver registrado.
+     */
+    int[] autores(int idLivro) {
+        int[] idsAutores = autoresDoLivro.get(idLivro);
+        return idsAutores != null ? idsAutores : NENHUM;
+    }
+
+    /**
+     * Retorna os livros de um autor. O conjunto retornado é o do próprio índice e não deve ser alterado.
+     * @param idAutor O ID do autor.
+     * @return Os IDs dos livros em ordem crescente, ou null se o autor não tiver livros.
+     */
+    ConjuntoIds livros(int idAutor) {
+        return livrosDoAutor.get(idAutor);
+    }
+}
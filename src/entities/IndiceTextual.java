@@ -0,0 +1,543 @@
+package entities;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido dos títulos dos livros e dos nomes dos autores.
+ * <p>
+ * Os textos são divididos em termos (sequências de letras e dígitos), sem acentos e em minúsculas. Cada termo
+ * aponta para o conjunto de livros (ou de autores) em que aparece; os dicionários de termos são ordenados,
+ * de modo que todos os termos que começam por um prefixo formam um intervalo contíguo.
+ * <p>
+ * Uma consulta exige que todos os seus termos sejam encontrados, cada um como início de uma palavra do título
+ * ou do nome de um dos autores. Os candidatos vêm apenas do termo mais seletivo; os demais são conferidos nos
+ * termos guardados de cada candidato, o que mantém o custo proporcional ao menor conjunto envolvido e não
+ * ao tamanho do acervo.
+ * <p>
+ * A busca aproximada tolera erros de digitação: cada termo da consulta é trocado pelos termos dos dicionários a
+ * poucas edições dele. Eles são encontrados percorrendo os dicionários em ordem, como uma árvore de prefixos,
+ * com uma linha da matriz de distância de edição por caractere; um prefixo que já está longe demais da consulta
+ * tem todos os seus termos saltados de uma vez.
+ * <p>
+ * Não é seguro para uso concorrente: o GerenciadorBiblioteca o altera sob a trava de escrita e o consulta sob
+ * a de leitura.
+ */
+final class IndiceTextual {
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Pontos de cada termo da consulta, conforme onde e como foi encontrado.
+    private static final int TITULO_EXATO = 4;
+    private static final int TITULO_PREFIXO = 3;
+    private static final int AUTOR_EXATO = 2;
+    private static final int AUTOR_PREFIXO = 1;
+
+    // Distância de edição máxima aceita na busca aproximada, conforme o tamanho do termo da consulta.
+    private static final int TAMANHO_UMA_EDICAO = 3;
+    private static final int TAMANHO_DUAS_EDICOES = 6;
+    private static final int DISTANCIA_MAXIMA = 2;
+
+    private static final int[] NENHUM = new int[0];
+    private static final String[] SEM_TERMOS = new String[0];
+
+    private final TreeMap<String, ConjuntoIds> livrosPorTermo = new TreeMap<>();
+    private final TreeMap<String, ConjuntoIds> autoresPorTermo = new TreeMap<>();
+    private final MapaInt<String[]> termosDoLivro;
+    private final MapaInt<String[]> termosDoAutor = new MapaInt<>(16);
+    private final IndiceAutoria autoria;
+
+    /**
+     * Cria um índice vazio.
+     * @param livrosEsperados O número de livros previsto, para dimensionar as tabelas internas.
+     * @param autoria Os autores de cada livro, mantidos por quem usa o índice.
+     */
+    IndiceTextual(int livrosEsperados, IndiceAutoria autoria) {
+        termosDoLivro = new MapaInt<>(livrosEsperados);
+        this.autoria = autoria;
+    }
+
+    boolean contemAutor(int idAutor) {
+        return termosDoAutor.containsKey(idAutor);
+    }
+
+    /**
+     * Indexa o título de um livro, substituindo o que já estiver indexado para o mesmo ID. Os autores do livro
+     * vêm do índice de autoria, que deve estar atualizado.
+     *
+     * @param idLivro O ID do livro.
+     * @param titulo O título do livro.
+     */
+    void indexarLivro(int idLivro, String titulo) {
+        removerLivro(idLivro);
+        termosDoLivro.put(idLivro, registrarTermos(livrosPorTermo, idLivro, titulo));
+    }
+
+    void removerLivro(int idLivro) {
+        String[] termos = termosDoLivro.remove(idLivro);
+        if (termos != null) {
+            retirarTermos(livrosPorTermo, idLivro, termos);
+        }
+    }
+
+    /**
+     * Indexa o nome de um autor, substituindo o nome indexado anteriormente. Os livros do autor passam a ser
+     * encontrados pelo novo nome sem precisarem ser reindexados.
+     *
+     * @param idAutor O ID do autor.
+     * @param nome O nome do autor.
+     */
+    void indexarAutor(int idAutor, String nome) {
+        removerAutor(idAutor);
+        termosDoAutor.put(idAutor, registrarTermos(autoresPorTermo, idAutor, nome));
+    }
+
+    void removerAutor(int idAutor) {
+        String[] termos = termosDoAutor.remove(idAutor);
+        if (termos != null) {
+            retirarTermos(autoresPorTermo, idAutor, termos);
+        }
+    }
+
+    /**
+     * Busca os livros que contêm todos os termos da consulta, como palavras inteiras ou prefixos de palavras do
+     * título ou do nome de um dos autores.
+     * <p>
+     * Cada termo encontrado no título vale mais que no nome de um autor, e uma palavra inteira vale mais que um
+     * prefixo. Entre livros com a mesma pontuação, os de título mais curto vêm primeiro e, depois, os de menor ID.
+     *
+     * @param consulta O texto da consulta.
+     * @param limite O número máximo de livros retornados.
+     * @return Os IDs dos livros encontrados, do mais ao menos relevante.
+     */
+    int[] pesquisar(String consulta, int limite) {
+        String[] termos = termos(consulta);
+        if (termos.length == 0 || limite <= 0) {
+            return NENHUM;
+        }
+
+        // Os candidatos saem do termo que corresponde ao menor número de livros.
+        String maisSeletivo = null;
+        long menorCusto = Long.MAX_VALUE;
+        for (String termo : termos) {
+            long custo = custo(comPrefixo(livrosPorTermo, termo).values(), comPrefixo(autoresPorTermo, termo).values(), menorCusto);
+            if (custo == 0) {
+                return NENHUM;
+            }
+            if (custo < menorCusto) {
+                menorCusto = custo;
+                maisSeletivo = termo;
+            }
+        }
+
+        int[] candidatos = candidatos(comPrefixo(livrosPorTermo, maisSeletivo).values(),
+                comPrefixo(autoresPorTermo, maisSeletivo).values(), menorCusto);
+        long[] resultados = new long[candidatos.length];
+        int encontrados = 0;
+        for (int idLivro : candidatos) {
+            int pontuacao = 0;
+            for (String termo : termos) {
+                int pontos = pontuar(idLivro, termo);
+                if (pontos == 0) {
+                    pontuacao = 0;
+                    break;
+                }
+                pontuacao += pontos;
+            }
+            if (pontuacao > 0) {
+                resultados[encontrados++] = codificar(pontuacao, termosDoLivro.get(idLivro).length, idLivro);
+            }
+        }
+        return melhores(resultados, encontrados, limite);
+    }
+
+    /**
+     * Busca livros tolerando erros de digitação: cada termo da consulta pode ser encontrado, como palavra inteira,
+     * no título ou no nome de um dos autores com até uma edição (termos de 3 a 5 letras) ou duas (6 letras ou
+     * mais). Termos menores e termos com algarismos precisam ser exatos.
+     * <p>
+     * Menos edições valem mais e, com o mesmo número de edições, o título vale mais que o autor. Os desempates
+     * são os mesmos de {@link #pesquisar(String, int)}.
+     *
+     * @param consulta O texto da consulta.
+     * @param limite O número máximo de livros retornados.
+     * @return Os IDs dos livros encontrados, do mais ao menos próximo.
+     */
+    int[] pesquisarLivrosAproximados(String consulta, int limite) {
+        String[] termos = termos(consulta);
+        if (termos.length == 0 || limite <= 0) {
+            return NENHUM;
+        }
+        List<HashMap<String, Integer>> noTitulo = new ArrayList<>(termos.length);
+        List<HashMap<String, Integer>> noAutor = new ArrayList<>(termos.length);
+        int maisSeletivo = -1;
+        long menorCusto = Long.MAX_VALUE;
+        for (int i = 0; i < termos.length; i++) {
+            noTitulo.add(variantes(livrosPorTermo, termos[i]));
+            noAutor.add(variantes(autoresPorTermo, termos[i]));
+            long custo = custo(conjuntos(livrosPorTermo, noTitulo.get(i)), conjuntos(autoresPorTermo, noAutor.get(i)), menorCusto);
+            if (custo == 0) {
+                return NENHUM;
+            }
+            if (custo < menorCusto) {
+                menorCusto = custo;
+                maisSeletivo = i;
+            }
+        }
+
+        int[] candidatos = candidatos(conjuntos(livrosPorTermo, noTitulo.get(maisSeletivo)),
+                conjuntos(autoresPorTermo, noAutor.get(maisSeletivo)), menorCusto);
+        long[] resultados = new long[candidatos.length];
+        int encontrados = 0;
+        for (int idLivro : candidatos) {
+            String[] termosTitulo = termosDoLivro.get(idLivro);
+            int pontuacao = 0;
+            for (int i = 0; i < termos.length; i++) {
+                // Pontos por termo: 7, 5 e 3 no título com 0, 1 e 2 edições; 6, 4 e 2 no nome de um autor.
+                int pontos = pontuarAproximado(termosTitulo, noTitulo.get(i), 1);
+                for (int idAutor : autoria.autores(idLivro)) {
+                    String[] termosAutor = termosDoAutor.get(idAutor);
+                    if (termosAutor != null) {
+                        pontos = Math.max(pontos, pontuarAproximado(termosAutor, noAutor.get(i), 0));
+                    }
+                }
+                if (pontos == 0) {
+                    pontuacao = 0;
+                    break;
+                }
+                pontuacao += pontos;
+            }
+            if (pontuacao > 0) {
+                resultados[encontrados++] = codificar(pontuacao, termosTitulo.length, idLivro);
+            }
+        }
+        return melhores(resultados, encontrados, limite);
+    }
+
+    /**
+     * Busca autores pelo nome tolerando erros de digitação, com as mesmas regras de
+     * {@link #pesquisarLivrosAproximados(String, int)}.
+     *
+     * @param consulta O texto da consulta.
+     * @param limite O número máximo de autores retornados.
+     * @return Os IDs dos autores encontrados, do mais ao menos próximo.
+     */
+    int[] pesquisarAutoresAproximados(String consulta, int limite) {
+        String[] termos = termos(consulta);
+        if (termos.length == 0 || limite <= 0) {
+            return NENHUM;
+        }
+        List<HashMap<String, Integer>> noNome = new ArrayList<>(termos.length);
+        int maisSeletivo = -1;
+        long menorCusto = Long.MAX_VALUE;
+        for (int i = 0; i < termos.length; i++) {
+            noNome.add(variantes(autoresPorTermo, termos[i]));
+            long custo = 0;
+            for (ConjuntoIds autores : conjuntos(autoresPorTermo, noNome.get(i))) {
+                custo += autores.tamanho();
+            }
+            if (custo == 0) {
+                return NENHUM;
+            }
+            if (custo < menorCusto) {
+                menorCusto = custo;
+                maisSeletivo = i;
+            }
+        }
+
+        int[] candidatos = distintos(conjuntos(autoresPorTermo, noNome.get(maisSeletivo)), List.of(), menorCusto);
+        long[] resultados = new long[candidatos.length];
+        int encontrados = 0;
+        for (int idAutor : candidatos) {
+            String[] termosNome = termosDoAutor.get(idAutor);
+            int pontuacao = 0;
+            for (HashMap<String, Integer> variantes : noNome) {
+                int pontos = pontuarAproximado(termosNome, variantes, 0);
+                if (pontos == 0) {
+                    pontuacao = 0;
+                    break;
+                }
+                pontuacao += pontos;
+            }
+            if (pontuacao > 0) {
+                resultados[encontrados++] = codificar(pontuacao, termosNome.length, idAutor);
+            }
+        }
+        return melhores(resultados, encontrados, limite);
+    }
+
+    /**
+     * Remove os acentos e converte para minúsculas, para que "Conceição" e "CONCEICAO" sejam o mesmo termo.
+     * @param texto O texto original.
+     * @return O texto normalizado.
+     */
+    static String normalizar(String texto) {
+        String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return MARCAS.matcher(decomposto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Divide um texto em termos normalizados e distintos, na ordem em que aparecem.
+     * @param texto O texto original, possivelmente nulo.
+     * @return Os termos do texto.
+     */
+    static String[] termos(String texto) {
+        if (texto == null) {
+            return SEM_TERMOS;
+        }
+        Set<String> termos = new LinkedHashSet<>();
+        for (String termo : SEPARADORES.split(normalizar(texto))) {
+            if (!termo.isEmpty()) {
+                termos.add(termo);
+            }
+        }
+        return termos.toArray(SEM_TERMOS);
+    }
+
+    private static String[] registrarTermos(TreeMap<String, ConjuntoIds> dicionario, int id, String texto) {
+        String[] termos = termos(texto);
+        for (int i = 0; i < termos.length; i++) {
+            Map.Entry<String, ConjuntoIds> entrada = dicionario.ceilingEntry(termos[i]);
+            if (entrada != null && entrada.getKey().equals(termos[i])) {
+                termos[i] = entrada.getKey(); // Compartilha a mesma String entre todos os livros com o termo.
+                entrada.getValue().adicionar(id);
+            } else {
+                ConjuntoIds ids = new ConjuntoIds();
+                ids.adicionar(id);
+                dicionario.put(termos[i], ids);
+            }
+        }
+        return termos;
+    }
+
+    private static void retirarTermos(TreeMap<String, ConjuntoIds> dicionario, int id, String[] termos) {
+        for (String termo : termos) {
+            ConjuntoIds ids = dicionario.get(termo);
+            if (ids != null && ids.remover(id) && ids.isVazio()) {
+                dicionario.remove(termo);
+            }
+        }
+    }
+
+    private static NavigableMap<String, ConjuntoIds> comPrefixo(TreeMap<String, ConjuntoIds> dicionario, String prefixo) {
+        return dicionario.subMap(prefixo, true, prefixo + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Estima quantos livros correspondem a um termo, somando os conjuntos envolvidos (com repetições).
+     * A soma é interrompida ao passar do teto, já que o termo não será o mais seletivo.
+     *
+     * @param livros Os conjuntos de livros dos termos de título correspondentes.
+     * @param autores Os conjuntos de autores dos termos de nome correspondentes.
+     * @param teto O menor custo já encontrado entre os outros termos.
+     */
+    private long custo(Iterable<ConjuntoIds> livros, Iterable<ConjuntoIds> autores, long teto) {
+        long custo = 0;
+        for (ConjuntoIds ids : livros) {
+            custo += ids.tamanho();
+        }
+        for (ConjuntoIds ids : autores) {
+            for (int i = 0; i < ids.tamanho() && custo <= teto; i++) {
+                ConjuntoIds doAutor = autoria.livros(ids.get(i));
+                if (doAutor != null) {
+                    custo += doAutor.tamanho();
+                }
+            }
+        }
+        return custo;
+    }
+
+    /**
+     * Reúne, sem repetições, os livros que correspondem a um termo: os dos termos de título e os dos autores.
+     */
+    private int[] candidatos(Iterable<ConjuntoIds> livros, Iterable<ConjuntoIds> autores, long custo) {
+        List<ConjuntoIds> dosAutores = new ArrayList<>();
+        for (ConjuntoIds ids : autores) {
+            for (int i = 0; i < ids.tamanho(); i++) {
+                ConjuntoIds doAutor = autoria.livros(ids.get(i));
+                if (doAutor != null) {
+                    dosAutores.add(doAutor);
+                }
+            }
+        }
+        return distintos(livros, dosAutores, custo);
+    }
+
+    private static int[] distintos(Iterable<ConjuntoIds> primeiros, Iterable<ConjuntoIds> segundos, long quantidadeTotal) {
+        int[] ids = new int[(int) Math.min(quantidadeTotal, Integer.MAX_VALUE)];
+        int quantidade = 0;
+        for (Iterable<ConjuntoIds> conjuntos : List.of(primeiros, segundos)) {
+            for (ConjuntoIds conjunto : conjuntos) {
+                conjunto.copiarPara(ids, quantidade);
+                quantidade += conjunto.tamanho();
+            }
+        }
+        Arrays.sort(ids, 0, quantidade);
+        int distintos = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (distintos == 0 || ids[distintos - 1] != ids[i]) {
+                ids[distintos++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distintos);
+    }
+
+    /**
+     * Codifica um resultado em um long que ordena do melhor para o pior: pontuação, menos termos, ID menor.
+     */
+    private static long codificar(int pontuacao, int quantidadeTermos, int id) {
+        long tamanho = Math.min(quantidadeTermos, 0xFF);
+        return ((long) pontuacao << 40) | ((0xFF - tamanho) << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    private static int[] melhores(long[] resultados, int encontrados, int limite) {
+        Arrays.sort(resultados, 0, encontrados);
+        int quantidade = Math.min(limite, encontrados);
+        int[] ids = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            ids[i] = Integer.MAX_VALUE - (int) (resultados[encontrados - 1 - i] & 0xFFFFFFFFL);
+        }
+        return ids;
+    }
+
+    /**
+     * Reúne os termos do dicionário a uma distância de edição aceitável do termo da consulta, cada um com sua
+     * distância (de Levenshtein: inserções, remoções e substituições de caracteres).
+     * <p>
+     * Os termos são visitados em ordem, e as linhas da matriz de distância do prefixo comum com o termo anterior
+     * são reaproveitadas. Se nenhuma posição da linha de um prefixo estiver dentro do limite, nenhum termo que
+     * começa por ele pode estar, e todos são saltados. O dicionário é percorrido com um iterador, e só é feita
+     * uma nova busca nele quando o prefixo saltado ainda tem termos pela frente.
+     */
+    private static HashMap<String, Integer> variantes(TreeMap<String, ConjuntoIds> dicionario, String termo) {
+        // Números (anos, volumes, edições) não têm erros de digitação: um número diferente é outro livro.
+        int limite = termo.chars().anyMatch(Character::isDigit) ? 0
+                : termo.length() >= TAMANHO_DUAS_EDICOES ? 2 : termo.length() >= TAMANHO_UMA_EDICAO ? 1 : 0;
+        HashMap<String, Integer> variantes = new HashMap<>();
+        if (limite == 0) {
+            if (dicionario.containsKey(termo)) {
+                variantes.put(termo, 0);
+            }
+            return variantes;
+        }
+
+        int colunas = termo.length() + 1;
+        // linhas[d] é a linha da matriz para os d primeiros caracteres do termo visitado; nenhum prefixo com
+        // mais de termo.length() + limite caracteres fica dentro do limite.
+        int[][] linhas = new int[termo.length() + limite + 2][colunas];
+        for (int j = 0; j < colunas; j++) {
+            linhas[0][j] = j;
+        }
+        String anterior = "";
+        int linhasValidas = 0; // Quantas linhas além da primeira valem para os prefixos de anterior.
+        Iterator<String> seguintes = dicionario.navigableKeySet().iterator();
+        String atual = seguintes.hasNext() ? seguintes.next() : null;
+        while (atual != null) {
+            int d = Math.min(linhasValidas, prefixoComum(anterior, atual));
+            boolean saltar = false;
+            while (d < atual.length()) {
+                d++;
+                int[] acima = linhas[d - 1];
+                int[] linha = linhas[d];
+                char c = atual.charAt(d - 1);
+                linha[0] = d;
+                int menor = d;
+                for (int j = 1; j < colunas; j++) {
+                    int substituicao = acima[j - 1] + (c == termo.charAt(j - 1) ? 0 : 1);
+                    linha[j] = Math.min(substituicao, Math.min(acima[j], linha[j - 1]) + 1);
+                    menor = Math.min(menor, linha[j]);
+                }
+                if (menor > limite) {
+                    saltar = true;
+                    break;
+                }
+            }
+            anterior = atual;
+            atual = seguintes.hasNext() ? seguintes.next() : null;
+            if (saltar) {
+                linhasValidas = d - 1;
+                if (atual != null && atual.startsWith(anterior.substring(0, d))) {
+                    seguintes = dicionario.navigableKeySet().tailSet(anterior.substring(0, d) + Character.MAX_VALUE).iterator();
+                    atual = seguintes.hasNext() ? seguintes.next() : null;
+                }
+            } else {
+                linhasValidas = d;
+                int distancia = linhas[d][colunas - 1];
+                if (distancia <= limite) {
+                    variantes.put(anterior, distancia);
+                }
+            }
+        }
+        return variantes;
+    }
+
+    private static int prefixoComum(String a, String b) {
+        int tamanho = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < tamanho && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static List<ConjuntoIds> conjuntos(TreeMap<String, ConjuntoIds> dicionario, HashMap<String, Integer> variantes) {
+        List<ConjuntoIds> conjuntos = new ArrayList<>(variantes.size());
+        for (String termo : variantes.keySet()) {
+            conjuntos.add(dicionario.get(termo));
+        }
+        return conjuntos;
+    }
+
+    /**
+     * Pontua o termo da consulta mais próximo entre os termos de um texto: (3 - distância) * 2, mais o bônus.
+     * @return Os pontos, ou 0 se nenhum termo do texto estiver entre as variantes.
+     */
+    private static int pontuarAproximado(String[] termos, HashMap<String, Integer> variantes, int bonus) {
+        int menorDistancia = Integer.MAX_VALUE;
+        for (String termo : termos) {
+            Integer distancia = variantes.get(termo);
+            if (distancia != null && distancia < menorDistancia) {
+                menorDistancia = distancia;
+            }
+        }
+        return menorDistancia == Integer.MAX_VALUE ? 0 : (DISTANCIA_MAXIMA + 1 - menorDistancia) * 2 + bonus;
+    }
+
+    private int pontuar(int idLivro, String termo) {
+        int pontos = pontuarTermos(termosDoLivro.get(idLivro), termo, TITULO_EXATO, TITULO_PREFIXO);
+        if (pontos == TITULO_EXATO) {
+            return pontos;
+        }
+        for (int idAutor : autoria.autores(idLivro)) {
+            String[] termosAutor = termosDoAutor.get(idAutor);
+            if (termosAutor != null) {
+                pontos = Math.max(pontos, pontuarTermos(termosAutor, termo, AUTOR_EXATO, AUTOR_PREFIXO));
+            }
+        }
+        return pontos;
+    }
+
+    private static int pontuarTermos(String[] termos, String termo, int exato, int prefixo) {
+        int pontos = 0;
+        for (String candidato : termos) {
+            if (candidato.equals(termo)) {
+                return exato;
+            }
+            if (candidato.startsWith(termo)) {
+                pontos = prefixo;
+            }
+        }
+        return pontos;
+    }
+}
@@ -0,0 +1,228 @@
+package entities;
+
+import java.util.Locale;
+
+/**
+ * Índice de chave única → id de entidade, com a chave guardada como long primitivo. Usado pelo
+ * GerenciadorBiblioteca para o ISBN dos livros e o CPF e o e-mail dos usuários.
+ * <p>
+ * As chaves são obtidas pelos métodos normalizar*, de modo que grafias diferentes do mesmo documento sejam a
+ * mesma chave. Os dígitos verificadores não são conferidos.
+ * <p>
+ * É uma tabela hash de endereçamento aberto, como o MapaInt, sem objetos por entrada. Não é sincronizada: o
+ * GerenciadorBiblioteca a altera sob a trava de escrita e a consulta sob a de leitura.
+ */
+final class IndiceUnico {
+    /** Resultado dos métodos normalizar* para textos que não podem ser indexados. */
+    static final long INVALIDO = -1;
+
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    private long[] chaves;
+    private int[] ids; // Posição vazia quando o id é 0, que nunca é atribuído a uma entidade.
+    private int tamanho;
+    private int mascara;
+
+    /**
+     * Cria um índice vazio.
+     * @param chavesEsperadas O número de chaves previsto, para evitar redimensionamentos.
+     */
+    IndiceUnico(int chavesEsperadas) {
+        int capacidade = CAPACIDADE_INICIAL;
+        while (capacidade < chavesEsperadas * 2) {
+            capacidade <<= 1;
+        }
+        alocar(capacidade);
+    }
+
+    /**
+     * Retorna a entidade com a chave informada.
+     * @param chave A chave normalizada.
+     * @return O ID da entidade, ou 0 se não houver.
+     */
+    int get(long chave) {
+        int i = indice(chave);
+        while (ids[i] != 0) {
+            if (chaves[i] == chave) {
+                return ids[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return 0;
+    }
+
+    /**
+     * Associa a chave à entidade, se ela ainda não pertencer a outra.
+     *
+     * @param chave A chave normalizada.
+     * @param id O ID da entidade.
+     * @return O ID da entidade que ficou com a chave: id, ou a entidade que já a tinha.
+     */
+    int adicionarSeAusente(long chave, int id) {
+        int i = indice(chave);
+        while (ids[i] != 0) {
+            if (chaves[i] == chave) {
+                return ids[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        ids[i] = id;
+        if (++tamanho * 2 > ids.length) {
+            redimensionar();
+        }
+        return id;
+    }
+
+    /**
+     * Remove a chave do índice, se ela pertencer à entidade informada.
+     * @param chave A chave normalizada.
+     * @param id O ID da entidade.
+     */
+    void remover(long chave, int id) {
+        int i = indice(chave);
+        while (ids[i] != 0) {
+            if (chaves[i] == chave) {
+                if (ids[i] == id) {
+                    deslocarParaTras(i);
+                    tamanho--;
+                }
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+    }
+
+    /**
+     * Normaliza um ISBN-10 ou ISBN-13 para o número do ISBN-13 correspondente. Hífens e espaços são ignorados e
+     * um ISBN-10 recebe o prefixo 978 e o dígito verificador recalculado; assim, "0-13-235088-2",
+     * "978-0-13-235088-4" e "9780132350884" são a mesma chave.
+     *
+     * @param isbn O ISBN, com ou sem hífens e espaços; possivelmente nulo.
+     * @return O ISBN-13 como número, ou {@link #INVALIDO} se o texto não tiver 10 ou 13 dígitos.
+     */
+    static long normalizarIsbn(String isbn) {
+        if (isbn == null) {
+            return INVALIDO;
+        }
+        long numero = 0;
+        int digitos = 0;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digitos > 13) {
+                    return INVALIDO;
+                }
+                numero = numero * 10 + (c - '0');
+            } else if ((c == 'X' || c == 'x') && digitos == 9) {
+                digitos++; // O dígito verificador "X" do ISBN-10 é descartado e recalculado abaixo.
+                numero = numero * 10;
+            } else if (c != '-' && c != ' ') {
+                return INVALIDO;
+            }
+        }
+        if (digitos == 13) {
+            return numero;
+        }
+        if (digitos != 10) {
+            return INVALIDO;
+        }
+        // ISBN-10: 978 + os nove primeiros dígitos + o dígito verificador do ISBN-13 (pesos 1 e 3 alternados).
+        long corpo = 978_000_000_000L + numero / 10;
+        int soma = 0;
+        long resto = corpo;
+        for (int posicao = 12; posicao >= 1; posicao--) {
+            int digito = (int) (resto % 10);
+            soma += posicao % 2 == 0 ? digito * 3 : digito;
+            resto /= 10;
+        }
+        return corpo * 10 + (10 - soma % 10) % 10;
+    }
+
+    /**
+     * Normaliza um CPF para o número formado pelos seus 11 dígitos; "123.456.789-09" e "12345678909" são a
+     * mesma chave.
+     *
+     * @param cpf O CPF, com ou sem pontos, hífen e espaços; possivelmente nulo.
+     * @return O CPF como número, ou {@link #INVALIDO} se o texto não tiver 11 dígitos.
+     */
+    static long normalizarCpf(String cpf) {
+        if (cpf == null) {
+            return INVALIDO;
+        }
+        long numero = 0;
+        int digitos = 0;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                numero = numero * 10 + (c - '0');
+                digitos++;
+            } else if (c != '.' && c != '-' && c != ' ') {
+                return INVALIDO;
+            }
+        }
+        return digitos == 11 ? numero : INVALIDO;
+    }
+
+    /**
+     * Normaliza um endereço de e-mail, sem espaços nas pontas e em minúsculas.
+     * @param email O endereço; possivelmente nulo.
+     * @return O endereço normalizado, ou null se o texto não tiver a forma nome@domínio.
+     */
+    static String normalizarEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String normalizado = email.trim().toLowerCase(Locale.ROOT);
+        int arroba = normalizado.indexOf('@');
+        if (arroba <= 0 || arroba != normalizado.lastIndexOf('@') || arroba == normalizado.length() - 1) {
+            return null;
+        }
+        return normalizado;
+    }
+
+    private int indice(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+
+    private void deslocarParaTras(int livre) {
+        int j = livre;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (ids[j] == 0) {
+                break;
+            }
+            int ideal = indice(chaves[j]);
+            boolean entre = livre <= j ? (livre < ideal && ideal <= j) : (livre < ideal || ideal <= j);
+            if (!entre) {
+                chaves[livre] = chaves[j];
+                ids[livre] = ids[j];
+                livre = j;
+            }
+        }
+        ids[livre] = 0;
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        int[] idsAntigos = ids;
+        alocar(idsAntigos.length << 1);
+        for (int i = 0; i < idsAntigos.length; i++) {
+            if (idsAntigos[i] != 0) {
+                int j = indice(chavesAntigas[i]);
+                while (ids[j] != 0) {
+                    j = (j + 1) & mascara;
+                }
+                chaves[j] = chavesAntigas[i];
+                ids[j] = idsAntigos[i];
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        ids = new int[capacidade];
+        mascara = capacidade - 1;
+    }
+}
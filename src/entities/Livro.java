@@ -10,7 +10,7 @@ import java.util.stream.Collectors;
  */
 public class Livro implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static int proximoId = 1; // Armazena o próximo ID disponível para um objeto Livro.
+    static final SequenciaId SEQUENCIA = new SequenciaId(); // Gera os IDs dos objetos Livro, inclusive em paralelo.
 
     private int idLivro;
     private String titulo;
@@ -20,6 +20,7 @@ public class Livro implements Serializable {
     private int quantidadeTotal;
     private int quantidadeDisponivel;
     private ArrayList<Autor> autores;
+    private transient ObservadorEntidades observador; // O gerenciador em que o livro está cadastrado, se houver.
 
     /**
      * Constrói um novo Livro com os detalhes especificados.
@@ -33,7 +34,7 @@ public class Livro implements Serializable {
      * @param autores Um ArrayList de objetos Autor que escreveram o livro.
      */
     public Livro(String titulo, String isbn, int anoPublicacao, String editora, int quantidadeTotal, ArrayList<Autor> autores) {
-        this.idLivro = proximoId++;
+        this.idLivro = SEQUENCIA.proximo();
         this.titulo = titulo;
         this.isbn = isbn;
         this.anoPublicacao = anoPublicacao;
@@ -43,6 +44,30 @@ public class Livro implements Serializable {
         this.autores = autores;
     }
 
+    /**
+     * Reconstrói um Livro com um ID e uma quantidade disponível já conhecidos, ao restaurar os dados gravados.
+     *
+     * @param idLivro O ID do livro.
+     * @param titulo O título do livro.
+     * @param isbn O ISBN do livro.
+     * @param anoPublicacao O ano de publicação do livro.
+     * @param editora A editora do livro.
+     * @param quantidadeTotal O número total de cópias deste livro.
+     * @param quantidadeDisponivel O número de cópias disponíveis.
+     * @param autores Um ArrayList de objetos Autor que escreveram o livro.
+     */
+    Livro(int idLivro, String titulo, String isbn, int anoPublicacao, String editora, int quantidadeTotal, int quantidadeDisponivel, ArrayList<Autor> autores) {
+        SEQUENCIA.avancarAlem(idLivro);
+        this.idLivro = idLivro;
+        this.titulo = titulo;
+        this.isbn = isbn;
+        this.anoPublicacao = anoPublicacao;
+        this.editora = editora;
+        this.quantidadeTotal = quantidadeTotal;
+        this.quantidadeDisponivel = quantidadeDisponivel;
+        this.autores = autores;
+    }
+
     /**
      * Retorna o ID único do livro.
      * @return O ID do livro.
@@ -83,63 +108,114 @@ public class Livro implements Serializable {
      * Retorna a quantidade total deste livro na biblioteca.
      * @return A quantidade total.
      */
-    public int getQuantidadeTotal() { return quantidadeTotal; }
+    public synchronized int getQuantidadeTotal() { return quantidadeTotal; }
 
     /**
      * Retorna o número de cópias disponíveis deste livro.
      * @return A quantidade disponível.
      */
-    public int getQuantidadeDisponivel() { return quantidadeDisponivel; }
+    public synchronized int getQuantidadeDisponivel() { return quantidadeDisponivel; }
 
     /**
      * Define o título do livro.
      * @param titulo O novo título do livro.
      */
-    public void setTitulo(String titulo) { this.titulo = titulo; }
+    public void setTitulo(String titulo) {
+        String anterior = this.titulo;
+        this.titulo = titulo;
+        avisarAlteracao(() -> this.titulo = anterior);
+    }
 
     /**
      * Define os autores do livro.
+     * Alterações feitas diretamente na lista retornada por getAutores() não são percebidas pelo gerenciador;
+     * use este método para trocar os autores de um livro cadastrado.
      * @param autores O novo ArrayList de objetos Autor.
      */
-    public void setAutores(ArrayList<Autor> autores) { this.autores = autores; }
+    public void setAutores(ArrayList<Autor> autores) {
+        ArrayList<Autor> anteriores = this.autores;
+        this.autores = autores;
+        avisarAlteracao(() -> this.autores = anteriores);
+    }
 
     /**
      * Define o ISBN do livro.
      * @param isbn O novo ISBN do livro.
+     * @throws IllegalArgumentException Se o livro estiver cadastrado e outro livro do mesmo gerenciador já tiver
+     *         este ISBN. Nesse caso o ISBN anterior é mantido.
      */
-    public void setIsbn(String isbn) { this.isbn = isbn; }
+    public void setIsbn(String isbn) {
+        String anterior = this.isbn;
+        this.isbn = isbn;
+        ObservadorEntidades atual = observador;
+        boolean aceito;
+        try {
+            aceito = atual == null || atual.isbnAlterado(this, anterior);
+        } catch (RuntimeException e) {
+            this.isbn = anterior;
+            throw e;
+        }
+        if (!aceito) {
+            this.isbn = anterior;
+            throw new IllegalArgumentException("Já existe um livro cadastrado com o ISBN " + isbn + ".");
+        }
+    }
 
     /**
      * Define o ano de publicação do livro.
      * @param anoPublicacao O novo ano de publicação.
      */
-    public void setAnoPublicacao(int anoPublicacao) { this.anoPublicacao = anoPublicacao; }
+    public void setAnoPublicacao(int anoPublicacao) {
+        int anterior = this.anoPublicacao;
+        this.anoPublicacao = anoPublicacao;
+        avisarAlteracao(() -> this.anoPublicacao = anterior);
+    }
 
     /**
      * Define a editora do livro.
      * @param editora A nova editora.
      */
-    public void setEditora(String editora) { this.editora = editora; }
+    public void setEditora(String editora) {
+        String anterior = this.editora;
+        this.editora = editora;
+        avisarAlteracao(() -> this.editora = anterior);
+    }
 
     /**
      * Define a quantidade total deste livro.
      * Este método não afeta a 'quantidadeDisponivel'.
      * @param quantidadeTotal A nova quantidade total.
      */
-    public void setQuantidadeTotal(int quantidadeTotal) { this.quantidadeTotal = quantidadeTotal; }
+    public void setQuantidadeTotal(int quantidadeTotal) {
+        int anterior;
+        synchronized (this) {
+            anterior = this.quantidadeTotal;
+            this.quantidadeTotal = quantidadeTotal;
+        }
+        avisarAlteracao(() -> {
+            synchronized (this) {
+                this.quantidadeTotal = anterior;
+            }
+        });
+    }
 
     /**
      * Decrementa o número de cópias disponíveis do livro.
      * Este método é tipicamente chamado quando um livro é emprestado.
+     * A verificação e o decremento são feitos de forma atômica, sob o monitor deste livro, de modo que
+     * empréstimos concorrentes do último exemplar não podem ter sucesso ao mesmo tempo.
      *
      * @return true se a quantidade foi decrementada (ou seja, havia pelo menos uma cópia disponível), false caso contrário.
      */
     public boolean decrementarDisponiveis() {
-        if (quantidadeDisponivel > 0) {
+        synchronized (this) {
+            if (quantidadeDisponivel == 0) {
+                return false;
+            }
             quantidadeDisponivel--;
-            return true;
         }
-        return false;
+        avisarDisponiveis();
+        return true;
     }
 
     /**
@@ -148,9 +224,45 @@ public class Livro implements Serializable {
      * A quantidade disponível não excederá a quantidade total.
      */
     public void incrementarDisponiveis() {
-        if (quantidadeDisponivel < quantidadeTotal) {
+        synchronized (this) {
+            if (quantidadeDisponivel >= quantidadeTotal) {
+                return;
+            }
             quantidadeDisponivel++;
         }
+        avisarDisponiveis();
+    }
+
+    /**
+     * Define quem deve ser avisado das alterações feitas pelos setters, ou null para ninguém.
+     * @param observador O observador, normalmente o GerenciadorBiblioteca em que o livro está cadastrado.
+     */
+    void setObservador(ObservadorEntidades observador) { this.observador = observador; }
+
+    /**
+     * Grava no ID a filial da rede em que o livro é cadastrado, antes de ir para o diário (ver SequenciaId).
+     * @param filial O índice da filial; 0 fora de uma rede.
+     */
+    void definirFilial(int filial) { idLivro = SequenciaId.naFilial(idLivro, filial); }
+
+    private void avisarAlteracao(Runnable desfazer) {
+        ObservadorEntidades atual = observador;
+        if (atual != null) {
+            try {
+                atual.livroAlterado(this);
+            } catch (RuntimeException e) {
+                desfazer.run(); // O diário não pôde ser gravado: o livro volta ao valor anterior.
+                throw e;
+            }
+        }
+    }
+
+    private void avisarDisponiveis() {
+        // Fora do monitor do livro, que o observador volta a tomar para ler a quantidade.
+        ObservadorEntidades atual = observador;
+        if (atual != null) {
+            atual.disponiveisAlterados(this);
+        }
     }
 
     /**
@@ -171,6 +283,14 @@ public class Livro implements Serializable {
      * @param proximoId O próximo ID a ser usado.
      */
     public static void setProximoId(int proximoId) {
-        Livro.proximoId = proximoId;
+        SEQUENCIA.definir(proximoId);
+    }
+
+    /**
+     * Retorna o próximo ID que será atribuído a um objeto Livro. Isso é usado para persistência de dados.
+     * @return O próximo ID a ser usado.
+     */
+    public static int getProximoId() {
+        return SEQUENCIA.atual();
     }
 }
\ No newline at end of file
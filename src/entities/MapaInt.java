@@ -0,0 +1,214 @@
+package entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Tabela hash de endereçamento aberto com chaves int primitivas.
+ * Usada pelo GerenciadorBiblioteca como índice id → entidade, evitando o boxing de Integer
+ * e a varredura linear das listas em cada busca por ID.
+ * Não é sincronizada; o acesso concorrente deve ser protegido por quem a utiliza.
+ *
+ * @param <V> O tipo dos valores armazenados. Valores nulos não são permitidos.
+ */
+public final class MapaInt<V> {
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    private int[] chaves;
+    private Object[] valores; // Posição vazia quando o valor é nulo.
+    private int tamanho;
+    private int mascara;
+
+    /**
+     * Constrói um mapa vazio com a capacidade inicial padrão.
+     */
+    public MapaInt() {
+        this(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * Constrói um mapa vazio dimensionado para receber a quantidade de elementos informada sem redimensionar.
+     * @param capacidadeEsperada O número de elementos esperado.
+     */
+    public MapaInt(int capacidadeEsperada) {
+        int capacidade = CAPACIDADE_INICIAL;
+        while (capacidade < capacidadeEsperada * 2) {
+            capacidade <<= 1;
+        }
+        alocar(capacidade);
+    }
+
+    /**
+     * Retorna o valor associado à chave.
+     * @param chave A chave procurada.
+     * @return O valor associado, ou null se a chave não existir.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int chave) {
+        int i = indice(chave);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                return (V) valores[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    /**
+     * Verifica se a chave está presente no mapa.
+     * @param chave A chave procurada.
+     * @return true se a chave existir, false caso contrário.
+     */
+    public boolean containsKey(int chave) {
+        return get(chave) != null;
+    }
+
+    /**
+     * Associa o valor à chave, substituindo um valor anterior se houver.
+     * @param chave A chave.
+     * @param valor O valor (não nulo).
+     * @return O valor anterior, ou null se a chave não existia.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int chave, V valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("Valores nulos não são permitidos.");
+        }
+        int i = indice(chave);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                V anterior = (V) valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++tamanho * 2 > valores.length) {
+            redimensionar();
+        }
+        return null;
+    }
+
+    /**
+     * Retorna o valor associado à chave, criando-o com a função informada se ainda não existir.
+     * @param chave A chave.
+     * @param criador A função que cria o valor a partir da chave.
+     * @return O valor existente ou recém-criado.
+     */
+    public V computeIfAbsent(int chave, IntFunction<? extends V> criador) {
+        V valor = get(chave);
+        if (valor == null) {
+            valor = criador.apply(chave);
+            put(chave, valor);
+        }
+        return valor;
+    }
+
+    /**
+     * Remove a chave do mapa.
+     * Usa remoção por deslocamento para trás, de modo que não restam marcadores de posição removida.
+     *
+     * @param chave A chave a remover.
+     * @return O valor removido, ou null se a chave não existia.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int chave) {
+        int i = indice(chave);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                V removido = (V) valores[i];
+                deslocarParaTras(i);
+                tamanho--;
+                return removido;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    /**
+     * Retorna o número de chaves no mapa.
+     * @return O tamanho do mapa.
+     */
+    public int size() { return tamanho; }
+
+    /**
+     * Verifica se o mapa está vazio.
+     * @return true se não houver chaves, false caso contrário.
+     */
+    public boolean isEmpty() { return tamanho == 0; }
+
+    /**
+     * Remove todas as chaves, mantendo a capacidade atual.
+     */
+    public void clear() {
+        Arrays.fill(valores, null);
+        tamanho = 0;
+    }
+
+    /**
+     * Retorna uma cópia dos valores do mapa, em ordem não especificada.
+     * @return Uma lista com os valores.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> lista = new ArrayList<>(tamanho);
+        for (Object valor : valores) {
+            if (valor != null) {
+                lista.add((V) valor);
+            }
+        }
+        return lista;
+    }
+
+    private int indice(int chave) {
+        int h = chave * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    private void deslocarParaTras(int livre) {
+        int j = livre;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (valores[j] == null) {
+                break;
+            }
+            int ideal = indice(chaves[j]);
+            // Move o elemento para a posição livre se a posição ideal dele não estiver entre (livre, j].
+            boolean entre = livre <= j ? (livre < ideal && ideal <= j) : (livre < ideal || ideal <= j);
+            if (!entre) {
+                chaves[livre] = chaves[j];
+                valores[livre] = valores[j];
+                livre = j;
+            }
+        }
+        valores[livre] = null;
+    }
+
+    private void redimensionar() {
+        int[] chavesAntigas = chaves;
+        Object[] valoresAntigos = valores;
+        alocar(valoresAntigos.length << 1);
+        for (int i = 0; i < valoresAntigos.length; i++) {
+            if (valoresAntigos[i] != null) {
+                int j = indice(chavesAntigas[i]);
+                while (valores[j] != null) {
+                    j = (j + 1) & mascara;
+                }
+                chaves[j] = chavesAntigas[i];
+                valores[j] = valoresAntigos[i];
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new int[capacidade];
+        valores = new Object[capacidade];
+        mascara = capacidade - 1;
+    }
+}
@@ -0,0 +1,58 @@
+package entities;
+
+import java.time.LocalDate;
+
+/**
+ * Recebe as alterações feitas pelos setters das entidades cadastradas em um GerenciadorBiblioteca,
+ * para que ele mantenha seus índices e seu diário de operações em dia.
+ * <p>
+ * Os avisos são dados depois que o campo já foi alterado, na thread que chamou o setter. Se o aviso lançar uma
+ * exceção, por exemplo porque a alteração não pôde ser gravada no diário, o setter devolve o campo ao valor anterior
+ * e repassa a exceção.
+ */
+interface ObservadorEntidades {
+
+    /**
+     * Avisa que o título, os autores, o ano de publicação, a editora ou a quantidade total de um livro foram
+     * alterados.
+     * @param livro O livro alterado.
+     */
+    void livroAlterado(Livro livro);
+
+    /**
+     * Avisa que o ISBN de um livro foi alterado, permitindo recusar a alteração.
+     * @param livro O livro alterado, já com o novo ISBN.
+     * @param isbnAnterior O ISBN que o livro tinha antes.
+     * @return false se outro livro cadastrado já tiver o novo ISBN, caso em que o setter desfaz a alteração.
+     */
+    boolean isbnAlterado(Livro livro, String isbnAnterior);
+
+    /**
+     * Avisa que o número de exemplares disponíveis de um livro mudou, por um empréstimo, uma devolução ou uma
+     * reserva. Diferente dos demais, este aviso é dado por quem já detém uma das travas do gerenciador.
+     * @param livro O livro alterado.
+     */
+    void disponiveisAlterados(Livro livro);
+
+    /**
+     * Avisa que o nome ou a nacionalidade de um autor foram alterados.
+     * @param autor O autor alterado.
+     */
+    void autorAlterado(Autor autor);
+
+    /**
+     * Avisa que o nome, o telefone, o CPF ou o e-mail de um usuário foram alterados, permitindo recusar a alteração.
+     * @param usuario O usuário alterado, já com o novo valor.
+     * @param cpfAnterior O CPF que o usuário tinha antes.
+     * @param emailAnterior O e-mail que o usuário tinha antes.
+     * @return false se outro usuário cadastrado já tiver o novo CPF ou e-mail, caso em que o setter desfaz a alteração.
+     */
+    boolean usuarioAlterado(Usuario usuario, String cpfAnterior, String emailAnterior);
+
+    /**
+     * Avisa que a data prevista de devolução de um empréstimo em aberto foi alterada.
+     * @param emprestimo O empréstimo alterado, já com a nova data.
+     * @param previstaAnterior A data prevista que o empréstimo tinha antes.
+     */
+    void emprestimoAlterado(Emprestimo emprestimo, LocalDate previstaAnterior);
+}
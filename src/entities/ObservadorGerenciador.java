@@ -0,0 +1,159 @@
+package entities;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Mantém os índices de busca e o diário de um GerenciadorBiblioteca em dia com as alterações feitas pelos setters
+ * das entidades cadastradas nele. Os setters não devem ser chamados por uma thread que detém a trava de leitura.
+ */
+final class ObservadorGerenciador implements ObservadorEntidades {
+
+    private final GerenciadorBiblioteca gerenciador;
+
+    ObservadorGerenciador(GerenciadorBiblioteca gerenciador) {
+        this.gerenciador = gerenciador;
+    }
+
+    @Override
+    public void livroAlterado(Livro livro) {
+        gerenciador.escrita.lock();
+        try {
+            if (gerenciador.livro(livro.getIdLivro()) == livro) {
+                long posicao = gerenciador.gravarNoDiario(d -> d.registrarLivro(DiarioOperacoes.LIVRO_ALTERADO, livro));
+                GerenciadorBiblioteca.renomearNasOrdens(gerenciador.ordemLivros, livro.getIdLivro(), livro.getTitulo());
+                gerenciador.indexarLivro(livro);
+                if (gerenciador.painel != null) {
+                    gerenciador.painel.disponibilidadeAlterada(livro); // A quantidade total pode ter mudado.
+                }
+                gerenciador.sincronizarDiario(posicao);
+            }
+        } finally {
+            gerenciador.escrita.unlock();
+        }
+    }
+
+    @Override
+    public boolean isbnAlterado(Livro livro, String isbnAnterior) {
+        gerenciador.escrita.lock();
+        try {
+            int idLivro = livro.getIdLivro();
+            if (gerenciador.livro(idLivro) != livro) {
+                return true;
+            }
+            if (gerenciador.indiceIsbn == null) {
+                gerenciador.construirIndiceIsbn();
+            }
+            long anterior = IndiceUnico.normalizarIsbn(isbnAnterior);
+            long novo = IndiceUnico.normalizarIsbn(livro.getIsbn());
+            int dono = novo != IndiceUnico.INVALIDO ? gerenciador.indiceIsbn.get(novo) : 0;
+            if (dono != 0 && dono != idLivro) {
+                // Se o índice acabou de ser montado, ele ainda não tem o ISBN anterior do livro.
+                gerenciador.indexarIsbn(idLivro, isbnAnterior);
+                return false;
+            }
+            long posicao = gerenciador.gravarNoDiario(d -> d.registrarLivro(DiarioOperacoes.LIVRO_ALTERADO, livro));
+            if (novo != IndiceUnico.INVALIDO) {
+                gerenciador.indiceIsbn.adicionarSeAusente(novo, idLivro);
+            }
+            if (anterior != novo) {
+                gerenciador.indiceIsbn.remover(anterior, idLivro);
+            }
+            gerenciador.sincronizarDiario(posicao);
+            return true;
+        } finally {
+            gerenciador.escrita.unlock();
+        }
+    }
+
+    @Override
+    public void disponiveisAlterados(Livro livro) {
+        // Avisado por empréstimos e devoluções, que já detêm uma das travas: apenas atualiza o painel.
+        PainelCirculacao atual = gerenciador.painel;
+        if (atual != null) {
+            atual.disponibilidadeAlterada(livro);
+        }
+    }
+
+    @Override
+    public boolean usuarioAlterado(Usuario usuario, String cpfAnterior, String emailAnterior) {
+        if (!registrarAlteracao(usuario, cpfAnterior, emailAnterior)) {
+            return false;
+        }
+        for (Consumer<Usuario> ouvinte : gerenciador.ouvintesUsuarios) {
+            ouvinte.accept(usuario);
+        }
+        return true;
+    }
+
+    private boolean registrarAlteracao(Usuario usuario, String cpfAnterior, String emailAnterior) {
+        gerenciador.escrita.lock();
+        try {
+            int idUsuario = usuario.getIdUsuario();
+            if (gerenciador.usuario(idUsuario) != usuario) {
+                return true;
+            }
+            if (Objects.equals(cpfAnterior, usuario.getCpf()) && Objects.equals(emailAnterior, usuario.getEmail())) {
+                // Apenas o nome ou o telefone mudou: não há unicidade a verificar.
+                long posicao = gerenciador.gravarNoDiario(
+                        d -> d.registrarUsuario(DiarioOperacoes.USUARIO_ALTERADO, usuario));
+                GerenciadorBiblioteca.renomearNasOrdens(gerenciador.ordemUsuarios, idUsuario, usuario.getNome());
+                gerenciador.sincronizarDiario(posicao);
+                return true;
+            }
+            if (gerenciador.indiceCpf == null) {
+                gerenciador.construirIndicesUsuarios();
+            }
+            int donoCpf = gerenciador.donoCpf(usuario.getCpf());
+            int donoEmail = gerenciador.donoEmail(usuario.getEmail());
+            if ((donoCpf != 0 && donoCpf != idUsuario) || (donoEmail != 0 && donoEmail != idUsuario)) {
+                // Se os índices acabaram de ser montados, eles ainda não têm os valores anteriores do usuário.
+                gerenciador.indexarUsuario(idUsuario, cpfAnterior, emailAnterior);
+                return false;
+            }
+            long posicao = gerenciador.gravarNoDiario(
+                    d -> d.registrarUsuario(DiarioOperacoes.USUARIO_ALTERADO, usuario));
+            gerenciador.desindexarUsuario(idUsuario, cpfAnterior, emailAnterior);
+            gerenciador.indexarUsuario(idUsuario, usuario.getCpf(), usuario.getEmail());
+            gerenciador.sincronizarDiario(posicao);
+            return true;
+        } finally {
+            gerenciador.escrita.unlock();
+        }
+    }
+
+    @Override
+    public void autorAlterado(Autor autor) {
+        gerenciador.escrita.lock();
+        try {
+            if (gerenciador.autor(autor.getIdAutor()) == autor) {
+                long posicao = gerenciador.gravarNoDiario(d -> d.registrarAutor(DiarioOperacoes.AUTOR_ALTERADO, autor));
+                GerenciadorBiblioteca.renomearNasOrdens(gerenciador.ordemAutores, autor.getIdAutor(), autor.getNome());
+                if (gerenciador.indiceTextual != null) {
+                    gerenciador.indiceTextual.indexarAutor(autor.getIdAutor(), autor.getNome());
+                }
+                gerenciador.sincronizarDiario(posicao);
+            }
+        } finally {
+            gerenciador.escrita.unlock();
+        }
+    }
+
+    @Override
+    public void emprestimoAlterado(Emprestimo emprestimo, LocalDate previstaAnterior) {
+        // Como um empréstimo, a alteração roda sob a trava de leitura; a fila de atrasos é sincronizada.
+        gerenciador.leitura.lock();
+        try {
+            LocalDate prevista = emprestimo.getDataDevolucaoPrevista();
+            if (gerenciador.emprestimosAtivos.get(emprestimo.getIdEmprestimo()) == emprestimo
+                    && !prevista.equals(previstaAnterior)) {
+                long posicao = gerenciador.gravarNoDiario(d -> d.registrarPrazo(emprestimo));
+                gerenciador.filaAtrasos.adicionar(prevista.toEpochDay(), emprestimo.getIdEmprestimo());
+                gerenciador.sincronizarDiario(posicao);
+            }
+        } finally {
+            gerenciador.leitura.unlock();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package entities;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Ordem de uma listagem paginada do GerenciadorBiblioteca: os IDs de livros, usuários ou autores em ordem de ID
+ * ou de nome, guardados em um vetor de int sem boxing, de modo que uma página é lida direto do vetor.
+ * <p>
+ * A ordem é mantida a cada inclusão, remoção e troca de nome, sem ser remontada. Na ordem por ID, as inclusões
+ * costumam ser acréscimos ao final, pois os IDs são crescentes; a exceção são as cópias de usuários de outras
+ * filiais de uma rede, cujos IDs trazem a filial de origem. Na ordem por nome, as chaves normalizadas ficam ao lado
+ * dos IDs e a posição de uma inclusão é achada por busca binária; os empates ficam em ordem de ID.
+ * <p>
+ * Não é segura para uso concorrente; o gerenciador a altera sob a trava de escrita.
+ */
+final class OrdemListagem {
+    private final boolean porNome;
+    private int[] ids;
+    private String[] chaves; // Apenas na ordem por nome.
+    private int tamanho;
+
+    private OrdemListagem(boolean porNome, int[] ids, String[] chaves) {
+        this.porNome = porNome;
+        this.ids = ids;
+        this.chaves = chaves;
+        this.tamanho = ids.length;
+    }
+
+    /**
+     * Monta uma ordem.
+     * @param ids Os IDs, em qualquer ordem. O vetor passa a pertencer à ordem.
+     * @param ordenacao A ordem desejada.
+     * @param nome O título ou nome de cada ID, usado na ordem por nome.
+     * @return A ordem.
+     */
+    static OrdemListagem montar(int[] ids, Ordenacao ordenacao, IntFunction<String> nome) {
+        Arrays.sort(ids);
+        if (ordenacao == Ordenacao.POR_ID) {
+            return new OrdemListagem(false, ids, null);
+        }
+        String[] chaves = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            chaves[i] = chave(nome.apply(ids[i]));
+        }
+        // Cada posição recebe o posto de sua chave entre as chaves ordenadas (chaves iguais recebem o mesmo
+        // posto) e é ordenada em um vetor de long, com o posto nos 32 bits altos e a posição nos baixos. Como os
+        // IDs já estão em ordem, o empate fica em ordem de ID.
+        String[] ordenadas = chaves.clone();
+        Arrays.sort(ordenadas);
+        long[] ordem = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ordem[i] = ((long) Arrays.binarySearch(ordenadas, chaves[i]) << 32) | i;
+        }
+        Arrays.sort(ordem);
+        int[] idsOrdenados = new int[ids.length];
+        String[] chavesOrdenadas = new String[ids.length];
+        for (int i = 0; i < ordem.length; i++) {
+            int posicao = (int) ordem[i];
+            idsOrdenados[i] = ids[posicao];
+            chavesOrdenadas[i] = chaves[posicao];
+        }
+        return new OrdemListagem(true, idsOrdenados, chavesOrdenadas);
+    }
+
+    /**
+     * Inclui um ID na sua posição.
+     * @param id O ID, ainda fora da ordem.
+     * @param nome O título ou nome, usado na ordem por nome.
+     */
+    void incluir(int id, String nome) {
+        String chave = porNome ? chave(nome) : null;
+        int posicao = posicao(id, chave);
+        if (tamanho == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(tamanho * 2, 16));
+            if (porNome) {
+                chaves = Arrays.copyOf(chaves, ids.length);
+            }
+        }
+        System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+        ids[posicao] = id;
+        if (porNome) {
+            System.arraycopy(chaves, posicao, chaves, posicao + 1, tamanho - posicao);
+            chaves[posicao] = chave;
+        }
+        tamanho++;
+    }
+
+    /**
+     * Retira um ID da ordem.
+     * @param id O ID.
+     */
+    void remover(int id) {
+        int posicao = procurar(id);
+        if (posicao >= 0) {
+            retirar(posicao);
+        }
+    }
+
+    /**
+     * Move um ID para a posição do seu novo nome. Na ordem por ID, não faz nada.
+     * @param id O ID.
+     * @param nome O novo título ou nome.
+     */
+    void renomear(int id, String nome) {
+        if (!porNome) {
+            return;
+        }
+        int posicao = procurar(id);
+        if (posicao >= 0 && !chaves[posicao].equals(chave(nome))) {
+            retirar(posicao);
+            incluir(id, nome);
+        }
+    }
+
+    int get(int i) {
+        return ids[i];
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Retorna quantos IDs da ordem por ID são menores que um ID, por busca binária.
+     * @param id O ID.
+     * @return A posição em que o ID estaria.
+     */
+    int anteriores(int id) {
+        int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+        return posicao >= 0 ? posicao : -posicao - 1;
+    }
+
+    private int procurar(int id) {
+        if (!porNome) {
+            return Arrays.binarySearch(ids, 0, tamanho, id);
+        }
+        // A chave guardada pode não ser mais a do nome atual: procura pelo ID.
+        for (int i = 0; i < tamanho; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void retirar(int posicao) {
+        System.arraycopy(ids, posicao + 1, ids, posicao, tamanho - posicao - 1);
+        if (porNome) {
+            System.arraycopy(chaves, posicao + 1, chaves, posicao, tamanho - posicao - 1);
+            chaves[tamanho - 1] = null;
+        }
+        tamanho--;
+    }
+
+    private int posicao(int id, String chave) {
+        if (!porNome) {
+            if (tamanho == 0 || ids[tamanho - 1] < id) {
+                return tamanho;
+            }
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            return posicao < 0 ? -posicao - 1 : posicao;
+        }
+        int inicio = 0;
+        int fim = tamanho;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            int comparacao = chaves[meio].compareTo(chave);
+            if (comparacao < 0 || (comparacao == 0 && ids[meio] < id)) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private static String chave(String nome) {
+        return nome == null ? "" : IndiceTextual.normalizar(nome);
+    }
+}
@@ -0,0 +1,11 @@
+package entities;
+
+/**
+ * Ordem das listagens paginadas do GerenciadorBiblioteca.
+ */
+public enum Ordenacao {
+    /** Em ordem crescente de ID, isto é, de cadastro. */
+    POR_ID,
+    /** Por título (livros) ou nome (usuários e autores), sem diferenciar maiúsculas, minúsculas e acentos; empates por ID. */
+    POR_NOME
+}
@@ -0,0 +1,28 @@
+package entities;
+
+import java.math.BigDecimal;
+
+/**
+ * Recebe os avisos de atraso e as multas emitidos por um GerenciadorBiblioteca.
+ * <p>
+ * Os avisos são dados fora das travas do gerenciador, na thread que fez a verificação ou a devolução.
+ */
+public interface OuvinteAtrasos {
+
+    /**
+     * Avisa que um empréstimo ativo passou da data prevista de devolução. Cada empréstimo é avisado uma vez por
+     * execução do gerenciador: ao carregar os dados, os empréstimos já atrasados são avisados de novo.
+     *
+     * @param emprestimo O empréstimo atrasado.
+     * @param diasAtraso Os dias decorridos desde a data prevista, na data da verificação.
+     */
+    void emprestimoAtrasado(Emprestimo emprestimo, long diasAtraso);
+
+    /**
+     * Avisa que a devolução de um empréstimo atrasado gerou uma multa.
+     *
+     * @param emprestimo O empréstimo devolvido.
+     * @param valor O valor da multa, calculado por {@link Emprestimo#calcularMulta(java.time.LocalDate)}.
+     */
+    void multaGerada(Emprestimo emprestimo, BigDecimal valor);
+}
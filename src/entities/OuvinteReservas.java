@@ -0,0 +1,23 @@
+package entities;
+
+/**
+ * Recebe os avisos de reservas emitidos por um GerenciadorBiblioteca.
+ * <p>
+ * Os avisos são dados fora das travas do gerenciador, na thread que fez a devolução, o cancelamento ou a verificação.
+ */
+public interface OuvinteReservas {
+
+    /**
+     * Avisa que um exemplar foi separado para uma reserva e pode ser retirado até {@link Reserva#getPrazoRetirada()}.
+     *
+     * @param reserva A reserva atendida pela devolução.
+     */
+    void reservaDisponivel(Reserva reserva);
+
+    /**
+     * Avisa que o prazo de retirada de uma reserva terminou. O exemplar passa para a próxima reserva da fila.
+     *
+     * @param reserva A reserva expirada.
+     */
+    void reservaExpirada(Reserva reserva);
+}
@@ -0,0 +1,100 @@
+package entities;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Modelos de leitura dos painéis de circulação, mantidos pelo GerenciadorBiblioteca a cada empréstimo, devolução
+ * e remoção, de modo que as consultas dos painéis não percorrem os empréstimos nem o acervo:
+ * <ul>
+ *   <li>os livros mais emprestados e os usuários que mais pegaram livros emprestados, em {@link RankingContagens}
+ *   com o número de empréstimos de todo o histórico;</li>
+ *   <li>os livros esgotados, isto é, sem exemplares disponíveis, em ordem de ID.</li>
+ * </ul>
+ * O número de exemplares disponíveis de cada livro já é um campo do livro, e o número de empréstimos ativos é
+ * contado pelo próprio gerenciador.
+ */
+final class PainelCirculacao {
+    private final RankingContagens livros;
+    private final RankingContagens usuarios;
+    private final TreeSet<Integer> esgotados = new TreeSet<>();
+
+    /**
+     * @param livros O ranking inicial dos livros por número de empréstimos.
+     * @param usuarios O ranking inicial dos usuários por número de empréstimos.
+     */
+    PainelCirculacao(RankingContagens livros, RankingContagens usuarios) {
+        this.livros = livros;
+        this.usuarios = usuarios;
+    }
+
+    /**
+     * Conta um novo empréstimo nos rankings.
+     * @param idLivro O ID do livro emprestado.
+     * @param idUsuario O ID do usuário que fez o empréstimo.
+     */
+    void emprestimoRealizado(int idLivro, int idUsuario) {
+        livros.incrementar(idLivro);
+        usuarios.incrementar(idUsuario);
+    }
+
+    /**
+     * Atualiza a situação de um livro entre os esgotados. A quantidade disponível é lida sob a trava do painel,
+     * de modo que, com avisos concorrentes para o mesmo livro, o último a ser aplicado vê o valor mais recente.
+     * @param livro O livro cadastrado.
+     */
+    synchronized void disponibilidadeAlterada(Livro livro) {
+        if (livro.getQuantidadeDisponivel() == 0) {
+            esgotados.add(livro.getIdLivro());
+        } else {
+            esgotados.remove(livro.getIdLivro());
+        }
+    }
+
+    void livroRemovido(int idLivro) {
+        livros.remover(idLivro);
+        synchronized (this) {
+            esgotados.remove(idLivro);
+        }
+    }
+
+    void usuarioRemovido(int idUsuario) {
+        usuarios.remover(idUsuario);
+    }
+
+    /**
+     * @param k O número máximo de livros.
+     * @return Os livros mais emprestados, no formato de {@link RankingContagens#maiores(int)}.
+     */
+    long[] livrosMaisEmprestados(int k) {
+        return livros.maiores(k);
+    }
+
+    /**
+     * @param k O número máximo de usuários.
+     * @return Os usuários com mais empréstimos, no formato de {@link RankingContagens#maiores(int)}.
+     */
+    long[] usuariosMaisAtivos(int k) {
+        return usuarios.maiores(k);
+    }
+
+    /**
+     * @param limite O número máximo de IDs.
+     * @return Os IDs dos livros esgotados, em ordem crescente.
+     */
+    synchronized int[] esgotados(int limite) {
+        int[] ids = new int[Math.max(Math.min(limite, esgotados.size()), 0)];
+        Iterator<Integer> iterador = esgotados.iterator();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = iterador.next();
+        }
+        return ids;
+    }
+
+    /**
+     * @return O número de livros esgotados.
+     */
+    synchronized int quantidadeEsgotados() {
+        return esgotados.size();
+    }
+}
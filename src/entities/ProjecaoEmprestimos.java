@@ -0,0 +1,85 @@
+package entities;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Projeção da circulação montada a partir dos eventos: quantos empréstimos cada livro e cada usuário tiveram e
+ * quais empréstimos estão em aberto.
+ * <p>
+ * Os empréstimos são agregados próprios, de modo que a abertura e o encerramento de um empréstimo chegam sempre à
+ * mesma partição; as contagens das partições são somadas por {@link #combinar(List)}.
+ * Empréstimos abertos antes do início do histórico de eventos não aparecem na projeção.
+ */
+public class ProjecaoEmprestimos implements ProjecaoEventos {
+    private final Map<Integer, Integer> porLivro = new HashMap<>();
+    private final Map<Integer, Integer> porUsuario = new HashMap<>();
+    private final Map<Integer, EventoBiblioteca.EmprestimoAberto> abertos = new TreeMap<>();
+
+    @Override
+    public void aplicar(EventoBiblioteca evento) {
+        switch (evento.getTipo()) {
+            case EMPRESTIMO_ABERTO: {
+                EventoBiblioteca.EmprestimoAberto aberto = (EventoBiblioteca.EmprestimoAberto) evento;
+                porLivro.merge(aberto.getIdLivro(), 1, Integer::sum);
+                porUsuario.merge(aberto.getIdUsuario(), 1, Integer::sum);
+                abertos.put(aberto.getIdEmprestimo(), aberto);
+                break;
+            }
+            case EMPRESTIMO_ENCERRADO:
+                abertos.remove(((EventoBiblioteca.EmprestimoEncerrado) evento).getIdEmprestimo());
+                break;
+            case EMPRESTIMO_ALTERADO: {
+                EventoBiblioteca.PrazoAlterado prazo = (EventoBiblioteca.PrazoAlterado) evento;
+                abertos.computeIfPresent(prazo.getIdEmprestimo(), (id, aberto) -> new EventoBiblioteca.EmprestimoAberto(
+                        aberto.getGeracao(), aberto.getPosicao(), id, aberto.getIdLivro(), aberto.getIdUsuario(),
+                        aberto.getDataEmprestimo(), prazo.getDataDevolucaoPrevista()));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Combina as projeções das partições de uma reprodução em paralelo.
+     * @param partes As projeções das partições.
+     * @return Uma projeção com a soma das contagens e a união dos empréstimos em aberto.
+     */
+    public static ProjecaoEmprestimos combinar(List<ProjecaoEmprestimos> partes) {
+        ProjecaoEmprestimos total = new ProjecaoEmprestimos();
+        for (ProjecaoEmprestimos parte : partes) {
+            parte.porLivro.forEach((id, quantidade) -> total.porLivro.merge(id, quantidade, Integer::sum));
+            parte.porUsuario.forEach((id, quantidade) -> total.porUsuario.merge(id, quantidade, Integer::sum));
+            total.abertos.putAll(parte.abertos);
+        }
+        return total;
+    }
+
+    /**
+     * @param idLivro O ID do livro.
+     * @return O número de empréstimos do livro no histórico.
+     */
+    public int getEmprestimosDoLivro(int idLivro) {
+        return porLivro.getOrDefault(idLivro, 0);
+    }
+
+    /**
+     * @param idUsuario O ID do usuário.
+     * @return O número de empréstimos do usuário no histórico.
+     */
+    public int getEmprestimosDoUsuario(int idUsuario) {
+        return porUsuario.getOrDefault(idUsuario, 0);
+    }
+
+    /**
+     * @return Os empréstimos em aberto, em ordem de ID, com a data prevista de devolução mais recente.
+     */
+    public Collection<EventoBiblioteca.EmprestimoAberto> getEmprestimosAbertos() {
+        return Collections.unmodifiableCollection(abertos.values());
+    }
+}
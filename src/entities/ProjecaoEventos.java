@@ -0,0 +1,16 @@
+package entities;
+
+/**
+ * Modelo de leitura montado pela reprodução dos eventos de um {@link RegistroEventos}.
+ * <p>
+ * Na reprodução em paralelo, cada partição recebe sua própria instância e cada instância é chamada por uma única
+ * thread, com os eventos de cada agregado na ordem do diário.
+ */
+public interface ProjecaoEventos {
+
+    /**
+     * Aplica um evento ao modelo.
+     * @param evento O evento.
+     */
+    void aplicar(EventoBiblioteca evento);
+}
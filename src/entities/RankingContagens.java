@@ -0,0 +1,190 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * Ranking de IDs por contagem, com incremento em tempo constante e consulta dos k primeiros em O(k).
+ * <p>
+ * Os IDs ficam em baldes, um por contagem existente, ligados em ordem crescente; cada balde guarda seus IDs em
+ * uma lista duplamente ligada. Incrementar um ID o move para o final do balde seguinte (criado se preciso) e os
+ * k primeiros são lidos a partir do balde de maior contagem, sem ordenar nada. Em caso de empate, vem primeiro
+ * quem chegou antes à contagem.
+ * <p>
+ * É sincronizado, pois empréstimos rodam em paralelo sob a trava de leitura do gerenciador.
+ */
+final class RankingContagens {
+    private final MapaInt<No> nos = new MapaInt<>();
+    private Balde base; // Menor contagem.
+    private Balde topo; // Maior contagem.
+
+    /**
+     * Constrói um ranking vazio.
+     */
+    RankingContagens() {
+    }
+
+    /**
+     * Constrói um ranking com contagens iniciais. Os empates entre elas ficam em ordem de ID.
+     * @param ids Os IDs.
+     * @param contagens A contagem de cada ID, na mesma ordem; os IDs com contagem zero ficam de fora.
+     */
+    RankingContagens(int[] ids, int[] contagens) {
+        // Contagem nos 32 bits altos e ID nos baixos: ordenar os valores ordena por contagem e, no empate, por ID.
+        long[] ordem = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ordem[i] = ((long) contagens[i] << 32) | (ids[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(ordem);
+        for (long entrada : ordem) {
+            int contagem = (int) (entrada >>> 32);
+            if (contagem > 0) {
+                if (topo == null || topo.contagem != contagem) {
+                    inserirBalde(contagem, topo, null);
+                }
+                No no = new No((int) entrada);
+                nos.put(no.id, no);
+                acrescentar(topo, no);
+            }
+        }
+    }
+
+    /**
+     * Soma um à contagem de um ID, incluindo-o com contagem um se ainda não estiver no ranking.
+     * @param id O ID.
+     */
+    synchronized void incrementar(int id) {
+        No no = nos.get(id);
+        Balde atual = null;
+        int contagem = 1;
+        if (no == null) {
+            no = new No(id);
+            nos.put(id, no);
+        } else {
+            atual = no.balde;
+            contagem = atual.contagem + 1;
+        }
+        Balde destino = atual != null ? atual.acima : base;
+        if (destino == null || destino.contagem != contagem) {
+            destino = inserirBalde(contagem, atual, destino);
+        }
+        if (atual != null) {
+            desligar(no);
+        }
+        acrescentar(destino, no);
+    }
+
+    /**
+     * Retira um ID do ranking.
+     * @param id O ID.
+     */
+    synchronized void remover(int id) {
+        No no = nos.remove(id);
+        if (no != null) {
+            desligar(no);
+        }
+    }
+
+    /**
+     * @param id O ID.
+     * @return A contagem do ID, ou 0 se ele não estiver no ranking.
+     */
+    synchronized int contagem(int id) {
+        No no = nos.get(id);
+        return no != null ? no.balde.contagem : 0;
+    }
+
+    /**
+     * Retorna os IDs de maior contagem.
+     * @param k O número máximo de IDs.
+     * @return Os IDs, da maior para a menor contagem, cada um com a contagem nos 32 bits altos e o ID nos baixos.
+     */
+    synchronized long[] maiores(int k) {
+        long[] resultado = new long[Math.max(Math.min(k, nos.size()), 0)];
+        int n = 0;
+        for (Balde balde = topo; balde != null && n < resultado.length; balde = balde.abaixo) {
+            for (No no = balde.primeiro; no != null && n < resultado.length; no = no.proximo) {
+                resultado[n++] = ((long) balde.contagem << 32) | (no.id & 0xFFFFFFFFL);
+            }
+        }
+        return resultado;
+    }
+
+    private Balde inserirBalde(int contagem, Balde abaixo, Balde acima) {
+        Balde balde = new Balde(contagem);
+        balde.abaixo = abaixo;
+        balde.acima = acima;
+        if (abaixo != null) {
+            abaixo.acima = balde;
+        } else {
+            base = balde;
+        }
+        if (acima != null) {
+            acima.abaixo = balde;
+        } else {
+            topo = balde;
+        }
+        return balde;
+    }
+
+    private static void acrescentar(Balde balde, No no) {
+        no.balde = balde;
+        no.anterior = balde.ultimo;
+        no.proximo = null;
+        if (balde.ultimo != null) {
+            balde.ultimo.proximo = no;
+        } else {
+            balde.primeiro = no;
+        }
+        balde.ultimo = no;
+    }
+
+    private void desligar(No no) {
+        Balde balde = no.balde;
+        if (no.anterior != null) {
+            no.anterior.proximo = no.proximo;
+        } else {
+            balde.primeiro = no.proximo;
+        }
+        if (no.proximo != null) {
+            no.proximo.anterior = no.anterior;
+        } else {
+            balde.ultimo = no.anterior;
+        }
+        if (balde.primeiro == null) {
+            // Balde vazio: sai da lista de baldes.
+            if (balde.abaixo != null) {
+                balde.abaixo.acima = balde.acima;
+            } else {
+                base = balde.acima;
+            }
+            if (balde.acima != null) {
+                balde.acima.abaixo = balde.abaixo;
+            } else {
+                topo = balde.abaixo;
+            }
+        }
+    }
+
+    private static final class Balde {
+        final int contagem;
+        Balde abaixo;
+        Balde acima;
+        No primeiro;
+        No ultimo;
+
+        Balde(int contagem) {
+            this.contagem = contagem;
+        }
+    }
+
+    private static final class No {
+        final int id;
+        Balde balde;
+        No anterior;
+        No proximo;
+
+        No(int id) {
+            this.id = id;
+        }
+    }
+}
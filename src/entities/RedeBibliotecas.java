@@ -0,0 +1,536 @@
+package entities;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Rede de filiais: um catálogo particionado em vários GerenciadorBiblioteca, um por filial, cada um com seu
+ * arquivo de dados, seus diários e seu próprio conjunto de threads.
+ * <p>
+ * Livros, usuários e autores são cadastrados em uma filial escolhida pelo chamador e passam a pertencer a ela. O
+ * gerenciador de cada filial grava o índice da filial nos bits altos dos IDs que atribui, inclusive aos
+ * empréstimos (ver SequenciaId), de modo que as operações sobre um registro são encaminhadas à filial dona apenas
+ * pelo ID, sem consultar as demais. As listagens e buscas do catálogo inteiro são distribuídas a todas as filiais
+ * em paralelo e os resultados são combinados.
+ * <p>
+ * Um empréstimo pertence à filial do livro. Quando o usuário é de outra filial, a filial do livro recebe no primeiro
+ * empréstimo uma cópia do cadastro, com o mesmo ID. As alterações feitas pelos setters no cadastro de origem são
+ * repassadas às cópias; a remoção de um usuário verifica os empréstimos de todas as filiais e leva as cópias junto;
+ * e o histórico do usuário na rede reúne os empréstimos de todas as filiais. As cópias não entram nas listagens e
+ * contagens de usuários da rede.
+ * <p>
+ * Como a filial faz parte do ID, registros de filiais diferentes nunca têm o mesmo ID, mesmo que as filiais tenham
+ * sido abertas em processos diferentes. O índice de cada filial é a posição do seu arquivo na lista recebida pela
+ * rede, que deve ser sempre a mesma; a rede comporta até 64 filiais (SequenciaId.FILIAIS_MAXIMAS).
+ */
+public class RedeBibliotecas {
+    private final GerenciadorBiblioteca[] filiais;
+    private final ExecutorService[] executores;
+
+    // Empréstimos entre filiais (leitura) e remoções e alterações de usuários (escrita): uma remoção ou a cópia de
+    // uma alteração não correm junto com um empréstimo que cria ou usa a cópia do usuário na filial do livro.
+    private final ReentrantReadWriteLock travaUsuarios = new ReentrantReadWriteLock();
+
+    /**
+     * Cria uma rede com uma filial por arquivo de dados, cada uma com quatro threads.
+     * @param arquivosDados Os arquivos de dados das filiais, na ordem dos índices das filiais.
+     */
+    public RedeBibliotecas(List<String> arquivosDados) {
+        this(arquivosDados, false, Clock.systemDefaultZone(), 4);
+    }
+
+    /**
+     * Cria uma rede com uma filial por arquivo de dados.
+     *
+     * @param arquivosDados Os arquivos de dados das filiais, na ordem dos índices das filiais.
+     * @param mapeado true para que as filiais usem o armazenamento mapeado (ver GerenciadorBiblioteca).
+     * @param relogio O relógio das filiais.
+     * @param threadsPorFilial O número de threads que executam as operações de cada filial.
+     * @throws IllegalArgumentException Se houver mais de 64 arquivos.
+     */
+    public RedeBibliotecas(List<String> arquivosDados, boolean mapeado, Clock relogio, int threadsPorFilial) {
+        if (arquivosDados.size() > SequenciaId.FILIAIS_MAXIMAS) {
+            throw new IllegalArgumentException("A rede comporta até " + SequenciaId.FILIAIS_MAXIMAS + " filiais.");
+        }
+        filiais = new GerenciadorBiblioteca[arquivosDados.size()];
+        executores = new ExecutorService[arquivosDados.size()];
+        for (int i = 0; i < filiais.length; i++) {
+            int filial = i;
+            filiais[i] = new GerenciadorBiblioteca(arquivosDados.get(i), mapeado, relogio, filial);
+            filiais[i].adicionarOuvinteUsuarios(usuario -> copiarAlteracao(filial, usuario));
+            String prefixo = "filial-" + i + "-";
+            AtomicInteger contador = new AtomicInteger();
+            executores[i] = Executors.newFixedThreadPool(threadsPorFilial, tarefa -> {
+                Thread thread = new Thread(tarefa, prefixo + contador.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getQuantidadeFiliais() {
+        return filiais.length;
+    }
+
+    /**
+     * Retorna o gerenciador de uma filial, para as operações que não envolvem as demais.
+     * @param filial O índice da filial.
+     * @return O gerenciador da filial.
+     */
+    public GerenciadorBiblioteca getFilial(int filial) {
+        return filiais[filial];
+    }
+
+    /**
+     * Carrega os dados de todas as filiais, em paralelo.
+     */
+    public void carregarDados() {
+        emTodas(g -> {
+            g.carregarDados();
+            return null;
+        });
+    }
+
+    /**
+     * Grava um instantâneo de cada filial, em paralelo.
+     */
+    public void salvarDados() {
+        emTodas(g -> {
+            g.salvarDados();
+            return null;
+        });
+    }
+
+    /**
+     * Encerra as filiais, gravando seus diários, e as threads da rede.
+     */
+    public void encerrar() {
+        emTodas(g -> {
+            g.encerrar();
+            return null;
+        });
+        for (ExecutorService executor : executores) {
+            executor.shutdown();
+        }
+        for (ExecutorService executor : executores) {
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public void adicionarAutor(int filial, Autor autor) {
+        naFilial(filial, g -> {
+            g.adicionarAutor(autor);
+            return null;
+        });
+    }
+
+    /**
+     * Adiciona um livro a uma filial, cujo índice passa a fazer parte do ID do livro.
+     *
+     * @param filial O índice da filial.
+     * @param livro O livro, cujos autores devem estar cadastrados na mesma filial.
+     * @return true se o livro foi adicionado, false se o ISBN já estiver cadastrado na filial.
+     * @throws IllegalArgumentException Se algum autor do livro não estiver cadastrado na filial.
+     */
+    public boolean adicionarLivro(int filial, Livro livro) {
+        return naFilial(filial, g -> {
+            for (Autor autor : livro.getAutores()) {
+                if (g.buscarAutorPorId(autor.getIdAutor()) != autor) {
+                    throw new IllegalArgumentException("O autor " + autor.getIdAutor() + " não está cadastrado na filial " + filial + ".");
+                }
+            }
+            return g.adicionarLivro(livro);
+        });
+    }
+
+    /**
+     * Adiciona um usuário a uma filial, cujo índice passa a fazer parte do ID do usuário.
+     *
+     * @param filial O índice da filial.
+     * @param usuario O usuário.
+     * @return true se o usuário foi adicionado, false se o CPF ou o e-mail já estiverem cadastrados na filial.
+     */
+    public boolean adicionarUsuario(int filial, Usuario usuario) {
+        return naFilial(filial, g -> g.adicionarUsuario(usuario));
+    }
+
+    /**
+     * Retorna a filial dona de um livro, gravada no seu ID.
+     * @param idLivro O ID do livro.
+     * @return O índice da filial, ou -1 se o ID não for de uma filial da rede.
+     */
+    public int filialDoLivro(int idLivro) {
+        return filialDoId(idLivro);
+    }
+
+    /**
+     * Retorna a filial dona de um usuário, gravada no seu ID. As cópias do usuário em outras filiais têm o
+     * mesmo ID.
+     * @param idUsuario O ID do usuário.
+     * @return O índice da filial, ou -1 se o ID não for de uma filial da rede.
+     */
+    public int filialDoUsuario(int idUsuario) {
+        return filialDoId(idUsuario);
+    }
+
+    public Livro buscarLivroPorId(int idLivro) {
+        int filial = filialDoLivro(idLivro);
+        return filial >= 0 ? naFilial(filial, g -> g.buscarLivroPorId(idLivro)) : null;
+    }
+
+    public Usuario buscarUsuarioPorId(int idUsuario) {
+        int filial = filialDoUsuario(idUsuario);
+        return filial >= 0 ? naFilial(filial, g -> g.buscarUsuarioPorId(idUsuario)) : null;
+    }
+
+    /**
+     * Remove um usuário da sua filial, junto com as cópias do cadastro nas demais, desde que ele não tenha
+     * empréstimos em aberto em nenhuma filial.
+     *
+     * @param idUsuario O ID do usuário.
+     * @return true se o usuário foi removido, false se não existir ou ainda tiver empréstimos ativos.
+     */
+    public boolean removerUsuario(int idUsuario) {
+        int filial = filialDoUsuario(idUsuario);
+        if (filial < 0) {
+            return false;
+        }
+        // Sob a trava de escrita nenhum empréstimo entre filiais está em andamento, de modo que as cópias sem
+        // empréstimos continuam assim até serem removidas. A própria filial do usuário verifica os seus.
+        travaUsuarios.writeLock().lock();
+        try {
+            for (boolean emprestou : emTodas(g -> g.getIndiceFilial() != filial && g.temEmprestimosAtivos(idUsuario))) {
+                if (emprestou) {
+                    return false;
+                }
+            }
+            emTodas(g -> g.getIndiceFilial() != filial && g.removerUsuario(idUsuario));
+            return naFilial(filial, g -> g.removerUsuario(idUsuario));
+        } finally {
+            travaUsuarios.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Realiza um empréstimo na filial do livro. Se o usuário for de outra filial, o empréstimo é feito em nome da
+     * cópia do seu cadastro na filial do livro, com o mesmo ID, criada no primeiro empréstimo.
+     *
+     * @param idLivro O ID do livro.
+     * @param idUsuario O ID do usuário, em qualquer filial.
+     * @return O empréstimo, ou null se o livro ou o usuário não existirem, se não houver exemplar disponível ou se
+     * o CPF ou o e-mail do usuário de outra filial já forem de um usuário da filial do livro.
+     */
+    public Emprestimo realizarEmprestimo(int idLivro, int idUsuario) {
+        int filialLivro = filialDoLivro(idLivro);
+        int filialUsuario = filialDoUsuario(idUsuario);
+        if (filialLivro < 0 || filialUsuario < 0) {
+            return null;
+        }
+        if (filialLivro == filialUsuario) {
+            return naFilial(filialLivro, g -> g.realizarEmprestimo(idLivro, idUsuario));
+        }
+        travaUsuarios.readLock().lock();
+        try {
+            Usuario origem = naFilial(filialUsuario, g -> g.buscarUsuarioPorId(idUsuario));
+            if (origem == null) {
+                return null;
+            }
+            return naFilial(filialLivro, g -> g.copiarUsuario(origem) != null ? g.realizarEmprestimo(idLivro, idUsuario) : null);
+        } finally {
+            travaUsuarios.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra a devolução de um empréstimo na filial em que ele foi feito, gravada no seu ID.
+     * @param idEmprestimo O ID do empréstimo.
+     * @return true se o empréstimo estava ativo e foi encerrado.
+     */
+    public boolean registrarDevolucao(int idEmprestimo) {
+        int filial = filialDoId(idEmprestimo);
+        return filial >= 0 && naFilial(filial, g -> g.registrarDevolucao(idEmprestimo));
+    }
+
+    /**
+     * Retorna uma página do histórico de empréstimos de um usuário em todas as filiais, dos mais recentes aos mais
+     * antigos, com páginas do tamanho das de {@link GerenciadorBiblioteca#historicoPorUsuario(int, int)}. Os
+     * empréstimos de livros de outras filiais ficam no histórico da filial do livro; cada filial devolve suas
+     * primeiras páginas, que são intercaladas pela data do empréstimo.
+     *
+     * @param idUsuario O ID do usuário.
+     * @param pagina O número da página, a partir de 0.
+     * @return Os empréstimos da página; vazia se não houver mais empréstimos.
+     */
+    public List<Emprestimo> historicoPorUsuario(int idUsuario, int pagina) {
+        int tamanho = GerenciadorBiblioteca.TAMANHO_PAGINA_HISTORICO;
+        if (pagina < 0) {
+            return new ArrayList<>();
+        }
+        List<List<Emprestimo>> partes = emTodas(g -> {
+            List<Emprestimo> recentes = new ArrayList<>();
+            for (int i = 0; i <= pagina; i++) {
+                List<Emprestimo> parte = g.historicoPorUsuario(idUsuario, i);
+                recentes.addAll(parte);
+                if (parte.size() < tamanho) {
+                    break;
+                }
+            }
+            return recentes;
+        });
+        // Em cada filial, os IDs dos empréstimos crescem com as datas: cada parte já está nesta ordem.
+        Comparator<Emprestimo> maisRecentes = Comparator.comparing(Emprestimo::getDataEmprestimo)
+                .thenComparingInt(Emprestimo::getIdEmprestimo).reversed();
+        return intercalar(partes, pagina * tamanho, tamanho, maisRecentes);
+    }
+
+    /**
+     * Lista uma página dos livros de todas as filiais, na mesma ordem que uma única filial usaria.
+     * Cada filial devolve suas primeiras inicio + quantidade posições, que são intercaladas; o custo cresce com a
+     * posição da página, e não com o tamanho do acervo.
+     *
+     * @param inicio A posição do primeiro livro da página, a partir de 0.
+     * @param quantidade O número máximo de livros da página.
+     * @param ordenacao A ordem da listagem.
+     * @return Os livros da página; vazia depois do último livro.
+     */
+    public List<Livro> listarLivros(int inicio, int quantidade, Ordenacao ordenacao) {
+        List<List<Livro>> partes = emTodas(g -> g.listarLivros(0, inicio + quantidade, ordenacao));
+        return intercalar(partes, inicio, quantidade, comparador(ordenacao, Livro::getIdLivro, Livro::getTitulo));
+    }
+
+    /**
+     * Lista uma página dos usuários de todas as filiais, como {@link #listarLivros(int, int, Ordenacao)}. Cada
+     * usuário aparece apenas na sua filial, sem as cópias criadas pelos empréstimos em outras filiais.
+     *
+     * @param inicio A posição do primeiro usuário da página, a partir de 0.
+     * @param quantidade O número máximo de usuários da página.
+     * @param ordenacao A ordem da listagem.
+     * @return Os usuários da página; vazia depois do último usuário.
+     */
+    public List<Usuario> listarUsuarios(int inicio, int quantidade, Ordenacao ordenacao) {
+        List<List<Usuario>> partes = emTodas(g -> usuariosDaFilial(g, inicio + quantidade, ordenacao));
+        return intercalar(partes, inicio, quantidade, comparador(ordenacao, Usuario::getIdUsuario, Usuario::getNome));
+    }
+
+    public int contarLivros() {
+        int total = 0;
+        for (int quantidade : emTodas(GerenciadorBiblioteca::contarLivros)) {
+            total += quantidade;
+        }
+        return total;
+    }
+
+    public int contarUsuarios() {
+        int total = 0;
+        for (int quantidade : emTodas(GerenciadorBiblioteca::contarUsuariosDaFilial)) {
+            total += quantidade;
+        }
+        return total;
+    }
+
+    /**
+     * Busca livros pelo título e pelos autores em todas as filiais, com as regras de
+     * {@link GerenciadorBiblioteca#buscarLivros(String, int)}. As relevâncias de filiais diferentes não são
+     * comparáveis, de modo que os resultados são intercalados por posição: os primeiros de cada filial, depois
+     * os segundos, e assim por diante.
+     *
+     * @param consulta Os termos da busca, separados por espaços.
+     * @param limite O número máximo de livros retornados.
+     * @return Os livros encontrados.
+     */
+    public List<Livro> buscarLivros(String consulta, int limite) {
+        List<List<Livro>> partes = emTodas(g -> g.buscarLivros(consulta, limite));
+        List<Livro> encontrados = new ArrayList<>(limite);
+        for (int posicao = 0; encontrados.size() < limite; posicao++) {
+            boolean restam = false;
+            for (int i = 0; i < partes.size() && encontrados.size() < limite; i++) {
+                List<Livro> parte = partes.get(i);
+                if (posicao < parte.size()) {
+                    encontrados.add(parte.get(posicao));
+                    restam = true;
+                }
+            }
+            if (!restam) {
+                break;
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Busca um livro pelo ISBN em todas as filiais.
+     * @param isbn O ISBN procurado.
+     * @return O livro da filial de menor índice que tiver o ISBN, ou null se nenhuma tiver.
+     */
+    public Livro buscarLivroPorIsbn(String isbn) {
+        for (Livro livro : emTodas(g -> g.buscarLivroPorIsbn(isbn))) {
+            if (livro != null) {
+                return livro;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lista os empréstimos ativos de todas as filiais, na ordem dos IDs. As listas das filiais, já ordenadas, são
+     * intercaladas.
+     * @return Os empréstimos ativos.
+     */
+    public List<Emprestimo> listarEmprestimosAtivos() {
+        List<List<Emprestimo>> partes = emTodas(GerenciadorBiblioteca::listarEmprestimosAtivos);
+        int total = 0;
+        for (List<Emprestimo> parte : partes) {
+            total += parte.size();
+        }
+        return intercalar(partes, 0, total, Comparator.comparingInt(Emprestimo::getIdEmprestimo));
+    }
+
+    private int filialDoId(int id) {
+        int filial = SequenciaId.filialDe(id);
+        return filial < filiais.length ? filial : -1;
+    }
+
+    private static List<Usuario> usuariosDaFilial(GerenciadorBiblioteca filial, int quantidade, Ordenacao ordenacao) {
+        // As cópias de usuários de outras filiais ocupam posições na listagem da filial: são pedidas a mais e
+        // descartadas.
+        int copias = filial.contarUsuarios() - filial.contarUsuariosDaFilial();
+        int pedidos = (int) Math.min((long) quantidade + copias, Integer.MAX_VALUE);
+        List<Usuario> usuarios = filial.listarUsuarios(0, pedidos, ordenacao);
+        if (copias > 0) {
+            usuarios.removeIf(usuario -> SequenciaId.filialDe(usuario.getIdUsuario()) != filial.getIndiceFilial());
+        }
+        return usuarios;
+    }
+
+    /**
+     * Repassa uma alteração do cadastro de um usuário às suas cópias nas outras filiais. As alterações feitas
+     * em uma cópia valem apenas na filial da cópia.
+     */
+    private void copiarAlteracao(int filial, Usuario origem) {
+        int idUsuario = origem.getIdUsuario();
+        if (filialDoId(idUsuario) != filial) {
+            return;
+        }
+        travaUsuarios.writeLock().lock();
+        try {
+            emTodas(g -> {
+                Usuario copia = g.getIndiceFilial() != filial ? g.buscarUsuarioPorId(idUsuario) : null;
+                if (copia != null) {
+                    // A alteração já foi aceita na filial de origem: uma cópia que a recuse fica como estava.
+                    try {
+                        atualizarCopia(copia, origem);
+                    } catch (RuntimeException e) {
+                        System.err.println("Erro ao copiar o usuário " + idUsuario + " para a filial "
+                                + g.getIndiceFilial() + ": " + e.getMessage());
+                    }
+                }
+                return null;
+            });
+        } finally {
+            travaUsuarios.writeLock().unlock();
+        }
+    }
+
+    private static void atualizarCopia(Usuario copia, Usuario origem) {
+        if (!Objects.equals(copia.getNome(), origem.getNome())) {
+            copia.setNome(origem.getNome());
+        }
+        if (!Objects.equals(copia.getTelefone(), origem.getTelefone())) {
+            copia.setTelefone(origem.getTelefone());
+        }
+        if (!Objects.equals(copia.getCpf(), origem.getCpf())) {
+            copia.setCpf(origem.getCpf());
+        }
+        if (!Objects.equals(copia.getEmail(), origem.getEmail())) {
+            copia.setEmail(origem.getEmail());
+        }
+    }
+
+    private static <T> Comparator<T> comparador(Ordenacao ordenacao, ToIntFunction<T> id, Function<T, String> nome) {
+        Comparator<T> porId = Comparator.comparingInt(id);
+        if (ordenacao == Ordenacao.POR_ID) {
+            return porId;
+        }
+        // A mesma chave das listagens de cada filial.
+        Comparator<T> porNome = Comparator.comparing(item -> {
+            String texto = nome.apply(item);
+            return texto == null ? "" : IndiceTextual.normalizar(texto);
+        });
+        return porNome.thenComparing(porId);
+    }
+
+    private static <T> List<T> intercalar(List<List<T>> partes, int inicio, int quantidade, Comparator<T> ordem) {
+        // Intercalação de k listas ordenadas: o heap guarda, para cada filial, a posição do próximo item.
+        PriorityQueue<int[]> proximos = new PriorityQueue<>(Math.max(partes.size(), 1),
+                (a, b) -> ordem.compare(partes.get(a[0]).get(a[1]), partes.get(b[0]).get(b[1])));
+        for (int i = 0; i < partes.size(); i++) {
+            if (!partes.get(i).isEmpty()) {
+                proximos.add(new int[] {i, 0});
+            }
+        }
+        List<T> pagina = new ArrayList<>(Math.max(quantidade, 0));
+        for (int posicao = 0; posicao < inicio + quantidade && !proximos.isEmpty(); posicao++) {
+            int[] proximo = proximos.poll();
+            List<T> parte = partes.get(proximo[0]);
+            if (posicao >= inicio) {
+                pagina.add(parte.get(proximo[1]));
+            }
+            if (++proximo[1] < parte.size()) {
+                proximos.add(proximo);
+            }
+        }
+        return pagina;
+    }
+
+    private <T> T naFilial(int filial, Function<GerenciadorBiblioteca, T> operacao) {
+        return aguardar(executores[filial].submit(() -> operacao.apply(filiais[filial])));
+    }
+
+    private <T> List<T> emTodas(Function<GerenciadorBiblioteca, T> operacao) {
+        List<Future<T>> pendentes = new ArrayList<>(filiais.length);
+        for (int i = 0; i < filiais.length; i++) {
+            GerenciadorBiblioteca filial = filiais[i];
+            Callable<T> tarefa = () -> operacao.apply(filial);
+            pendentes.add(executores[i].submit(tarefa));
+        }
+        List<T> resultados = new ArrayList<>(filiais.length);
+        for (Future<T> pendente : pendentes) {
+            resultados.add(aguardar(pendente));
+        }
+        return resultados;
+    }
+
+    private static <T> T aguardar(Future<T> pendente) {
+        try {
+            return pendente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operação na filial interrompida.", e);
+        } catch (ExecutionException e) {
+            // Exceções das operações, como IllegalArgumentException, chegam ao chamador como se a chamada fosse direta.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Erro na filial: " + e.getCause(), e.getCause());
+        }
+    }
+}
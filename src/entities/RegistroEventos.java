@@ -0,0 +1,223 @@
+package entities;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Registro de eventos (event store) de um GerenciadorBiblioteca: lê como {@link EventoBiblioteca} os diários de
+ * operações de um arquivo de dados, em ordem de geração, e os reproduz sobre projeções.
+ * <p>
+ * Os diários incorporados a um instantâneo normalmente são apagados. Com
+ * {@link GerenciadorBiblioteca#manterHistoricoDeEventos(boolean)} eles são mantidos como
+ * arquivoDados.&lt;geracao&gt;.eventos, e o registro contém todos os eventos desde que a opção foi ligada; o
+ * estado anterior a isso existe apenas no instantâneo. O diário corrente também é lido, até o último registro
+ * completo, de modo que o registro pode ser lido enquanto o gerenciador está em uso.
+ */
+public final class RegistroEventos {
+    private static final int TAMANHO_BLOCO = 256; // Eventos entregues de uma vez a cada partição.
+
+    private final Path arquivoDados;
+
+    /**
+     * @param arquivoDados O arquivo de dados do gerenciador, ao lado do qual ficam os diários.
+     */
+    public RegistroEventos(String arquivoDados) {
+        this.arquivoDados = Paths.get(arquivoDados);
+    }
+
+    /**
+     * Reproduz todos os eventos, em ordem, sobre uma projeção.
+     * @param projecao A projeção.
+     * @throws IOException Se um diário não puder ser lido.
+     */
+    public void reproduzir(ProjecaoEventos projecao) throws IOException {
+        ler(projecao::aplicar);
+    }
+
+    /**
+     * Reproduz os eventos em paralelo, particionados por agregado. Cada partição tem sua própria projeção,
+     * aplicada por uma thread própria, e recebe todos os eventos de seus agregados na ordem do diário; os eventos
+     * sem agregado são entregues a todas as partições. Os diários são lidos uma única vez, pela thread que chama.
+     * <p>
+     * O resultado equivale à reprodução sequencial desde que a projeção só combine eventos de um mesmo agregado
+     * ou combine os de agregados diferentes de forma que não dependa da ordem entre eles, como em contagens.
+     *
+     * @param particoes O número de partições e de threads.
+     * @param fabrica Cria a projeção de cada partição.
+     * @param <P> O tipo da projeção.
+     * @return As projeções, uma por partição, para que quem chama as combine.
+     * @throws IOException Se um diário não puder ser lido.
+     * @throws RuntimeException A primeira exceção lançada por uma projeção.
+     */
+    public <P extends ProjecaoEventos> List<P> reproduzirEmParalelo(int particoes, Supplier<P> fabrica) throws IOException {
+        if (particoes <= 0) {
+            throw new IllegalArgumentException("O número de partições deve ser positivo.");
+        }
+        List<P> projecoes = new ArrayList<>(particoes);
+        List<BlockingQueue<List<EventoBiblioteca>>> filas = new ArrayList<>(particoes);
+        for (int i = 0; i < particoes; i++) {
+            projecoes.add(fabrica.get());
+            filas.add(new ArrayBlockingQueue<>(64));
+        }
+        AtomicInteger contador = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(particoes, tarefa -> {
+            Thread thread = new Thread(tarefa, "reproducao-eventos-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> pendentes = new ArrayList<>(particoes);
+        for (int i = 0; i < particoes; i++) {
+            P projecao = projecoes.get(i);
+            BlockingQueue<List<EventoBiblioteca>> fila = filas.get(i);
+            pendentes.add(executor.submit(() -> {
+                aplicarBlocos(fila, projecao);
+                return null;
+            }));
+        }
+
+        try {
+            List<List<EventoBiblioteca>> blocos = new ArrayList<>(particoes);
+            for (int i = 0; i < particoes; i++) {
+                blocos.add(new ArrayList<>(TAMANHO_BLOCO));
+            }
+            try {
+                ler(evento -> {
+                    if (evento.getTipo().getAgregado() == EventoBiblioteca.Agregado.NENHUM) {
+                        for (int i = 0; i < particoes; i++) {
+                            acumular(blocos, filas, i, evento);
+                        }
+                    } else {
+                        acumular(blocos, filas, particao(evento, particoes), evento);
+                    }
+                });
+            } finally {
+                // Entrega o que sobrou e um bloco vazio, que encerra cada partição, mesmo após um erro de leitura.
+                for (int i = 0; i < particoes; i++) {
+                    if (!blocos.get(i).isEmpty()) {
+                        entregar(filas.get(i), blocos.get(i));
+                    }
+                    entregar(filas.get(i), new ArrayList<>());
+                }
+            }
+            for (Future<?> pendente : pendentes) {
+                try {
+                    pendente.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Reprodução de eventos interrompida.", e);
+                }
+            }
+            return projecoes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void aplicarBlocos(BlockingQueue<List<EventoBiblioteca>> fila, ProjecaoEventos projecao) throws InterruptedException {
+        RuntimeException erro = null;
+        while (true) {
+            List<EventoBiblioteca> bloco = fila.take();
+            if (bloco.isEmpty()) {
+                break;
+            }
+            if (erro != null) {
+                continue; // Continua esvaziando a fila, para que a leitura não fique bloqueada.
+            }
+            try {
+                for (EventoBiblioteca evento : bloco) {
+                    projecao.aplicar(evento);
+                }
+            } catch (RuntimeException e) {
+                erro = e;
+            }
+        }
+        if (erro != null) {
+            throw erro;
+        }
+    }
+
+    private static void acumular(List<List<EventoBiblioteca>> blocos, List<BlockingQueue<List<EventoBiblioteca>>> filas,
+                                 int particao, EventoBiblioteca evento) {
+        List<EventoBiblioteca> bloco = blocos.get(particao);
+        bloco.add(evento);
+        if (bloco.size() == TAMANHO_BLOCO) {
+            entregar(filas.get(particao), bloco);
+            blocos.set(particao, new ArrayList<>(TAMANHO_BLOCO));
+        }
+    }
+
+    private static void entregar(BlockingQueue<List<EventoBiblioteca>> fila, List<EventoBiblioteca> bloco) {
+        try {
+            fila.put(bloco);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reprodução de eventos interrompida.", e);
+        }
+    }
+
+    private static int particao(EventoBiblioteca evento, int particoes) {
+        // IDs de tipos diferentes vêm de sequências diferentes e podem coincidir.
+        long chave = ((long) evento.getTipo().getAgregado().ordinal() << 32) | (evento.getIdAgregado() & 0xFFFFFFFFL);
+        return Math.floorMod(chave * 0x9E3779B97F4A7C15L >>> 32, particoes);
+    }
+
+    private void ler(Consumer<EventoBiblioteca> destino) throws IOException {
+        for (Map.Entry<Long, Path> entrada : listarArquivos().entrySet()) {
+            long geracao = entrada.getKey();
+            try {
+                DiarioOperacoes.lerEventos(entrada.getValue(), geracao, destino);
+            } catch (NoSuchFileException e) {
+                // O diário foi incorporado a um instantâneo durante a leitura e mantido com o outro nome.
+                Path mantido = arquivo(geracao, ".eventos");
+                if (Files.exists(mantido)) {
+                    DiarioOperacoes.lerEventos(mantido, geracao, destino);
+                }
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> listarArquivos() throws IOException {
+        TreeMap<Long, Path> arquivos = new TreeMap<>();
+        Path diretorio = arquivoDados.toAbsolutePath().getParent();
+        String prefixo = arquivoDados.getFileName() + ".";
+        try (DirectoryStream<Path> encontrados = Files.newDirectoryStream(diretorio, prefixo + "*.{eventos,diario}")) {
+            for (Path arquivo : encontrados) {
+                String nome = arquivo.getFileName().toString();
+                String numero = nome.substring(prefixo.length(), nome.lastIndexOf('.'));
+                try {
+                    // Se o mesmo diário aparecer com os dois nomes (renomeado durante a listagem), fica um deles.
+                    arquivos.put(Long.parseLong(numero), arquivo);
+                } catch (NumberFormatException e) {
+                    // Ignora arquivos que não seguem o padrão de nomes do diário.
+                }
+            }
+        }
+        return arquivos;
+    }
+
+    private Path arquivo(long geracao, String extensao) {
+        return Paths.get(arquivoDados + "." + geracao + extensao);
+    }
+}
@@ -0,0 +1,120 @@
+package entities;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * Aplica a um GerenciadorBiblioteca os registros reproduzidos de um diário de operações (ver DiarioOperacoes).
+ * É usada por carregarDados e compactar, que já detêm a trava de escrita do gerenciador.
+ * <p>
+ * Ao contrário das operações públicas do gerenciador, os registros não são gravados de novo no diário, nem passam
+ * outra vez pelas verificações de ISBN, CPF e e-mail, feitas quando foram gravados.
+ */
+final class ReproducaoDiario {
+
+    private final GerenciadorBiblioteca gerenciador;
+
+    ReproducaoDiario(GerenciadorBiblioteca gerenciador) {
+        this.gerenciador = gerenciador;
+    }
+
+    Autor buscarAutor(int idAutor) {
+        return gerenciador.autor(idAutor);
+    }
+
+    void restaurarAutor(Autor autor) {
+        Autor existente = gerenciador.autor(autor.getIdAutor());
+        if (existente != null) {
+            existente.setNome(autor.getNome());
+            existente.setNacionalidade(autor.getNacionalidade());
+        } else {
+            gerenciador.adicionarAutor(autor);
+        }
+    }
+
+    void restaurarLivro(Livro livro) {
+        Livro existente = gerenciador.livro(livro.getIdLivro());
+        if (existente != null) {
+            existente.setTitulo(livro.getTitulo());
+            existente.setIsbn(livro.getIsbn());
+            existente.setAnoPublicacao(livro.getAnoPublicacao());
+            existente.setEditora(livro.getEditora());
+            existente.setQuantidadeTotal(livro.getQuantidadeTotal());
+            existente.setAutores(livro.getAutores());
+        } else {
+            gerenciador.incluirLivro(livro);
+        }
+    }
+
+    void restaurarUsuario(Usuario usuario) {
+        Usuario existente = gerenciador.usuario(usuario.getIdUsuario());
+        if (existente != null) {
+            existente.setNome(usuario.getNome());
+            existente.setCpf(usuario.getCpf());
+            existente.setTelefone(usuario.getTelefone());
+            existente.setEmail(usuario.getEmail());
+        } else {
+            gerenciador.incluirUsuario(usuario);
+        }
+    }
+
+    void restaurarRemocaoDeLivro(int idLivro) {
+        gerenciador.removerLivro(idLivro);
+    }
+
+    /**
+     * Reproduz a remoção de um usuário. Os ouvintes de reservas não são avisados de novo das reservas que
+     * receberam os exemplares do usuário.
+     * @param data A data da remoção, em que são canceladas as reservas do usuário.
+     */
+    void restaurarRemocaoDeUsuario(int idUsuario, LocalDate data) {
+        gerenciador.excluirUsuario(idUsuario, data, new ArrayList<>());
+    }
+
+    void restaurarRemocaoDeAutor(int idAutor) {
+        gerenciador.removerAutor(idAutor);
+    }
+
+    void restaurarEmprestimo(int idEmprestimo, int idLivro, int idUsuario, LocalDate dataEmprestimo, LocalDate dataDevolucaoPrevista) {
+        Livro livro = gerenciador.livro(idLivro);
+        Usuario usuario = gerenciador.usuario(idUsuario);
+        if (livro == null || usuario == null || gerenciador.emprestimosAtivos.containsKey(idEmprestimo)) {
+            return;
+        }
+        if (!gerenciador.reservas.emprestar(livro, idUsuario)) {
+            // Cada empréstimo vai para o diário depois de retirar o exemplar, sob a trava do livro: um registro sem
+            // exemplar para ele indica um diário corrompido, que não pode ser reproduzido.
+            throw new IllegalStateException("O diário traz o empréstimo " + idEmprestimo + " do livro " + idLivro
+                    + " sem exemplar disponível.");
+        }
+        Emprestimo emprestimo = new Emprestimo(idEmprestimo, livro, usuario, dataEmprestimo, dataDevolucaoPrevista, null);
+        gerenciador.incluirEmprestimo(emprestimo);
+    }
+
+    void restaurarDevolucao(int idEmprestimo, LocalDate dataDevolucao) {
+        gerenciador.fecharEmprestimo(idEmprestimo, dataDevolucao, new ArrayList<>(1));
+    }
+
+    void restaurarPrazo(int idEmprestimo, LocalDate dataDevolucaoPrevista) {
+        Emprestimo emprestimo = gerenciador.emprestimosAtivos.get(idEmprestimo);
+        if (emprestimo != null) {
+            emprestimo.setDataDevolucaoPrevista(dataDevolucaoPrevista);
+        }
+    }
+
+    void restaurarReserva(int idLivro, int idUsuario, LocalDate data) {
+        Livro livro = gerenciador.livro(idLivro);
+        Usuario usuario = gerenciador.usuario(idUsuario);
+        if (livro != null && usuario != null) {
+            gerenciador.reservas.reservar(livro, usuario, data);
+        }
+    }
+
+    void restaurarCancelamentoDeReserva(int idLivro, int idUsuario, LocalDate data) {
+        gerenciador.reservas.cancelar(idLivro, idUsuario, data, new ArrayList<>());
+    }
+
+    void restaurarExpiracaoDeReservas(LocalDate data) {
+        gerenciador.reservas.expirar(data, new ArrayList<>());
+    }
+}
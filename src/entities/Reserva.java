@@ -0,0 +1,84 @@
+package entities;
+
+import java.time.LocalDate;
+
+/**
+ * Representa a reserva de um livro sem exemplares disponíveis por um usuário.
+ * <p>
+ * A reserva aguarda na fila do livro, por ordem de chegada, até que uma devolução lhe destine um exemplar. A partir
+ * daí o exemplar fica separado para o usuário até o prazo de retirada; se ele não for retirado a tempo, a reserva
+ * expira e o exemplar passa para a próxima reserva da fila.
+ */
+public class Reserva {
+    public static final int PRAZO_RETIRADA_DIAS = 3; // Dias para retirar o exemplar separado, contando a partir da devolução.
+    public static final int MAXIMO_POR_USUARIO = 5; // Reservas em aberto (aguardando ou disponíveis) por usuário.
+
+    /**
+     * Situação de uma reserva.
+     */
+    public enum Situacao {
+        /** Na fila do livro, aguardando um exemplar. */
+        AGUARDANDO,
+        /** Um exemplar está separado para o usuário até o prazo de retirada. */
+        DISPONIVEL,
+        /** O usuário retirou o exemplar, em um empréstimo. */
+        ATENDIDA,
+        /** Cancelada pelo usuário ou pela remoção do usuário ou do livro. */
+        CANCELADA,
+        /** O prazo de retirada terminou sem que o exemplar fosse retirado. */
+        EXPIRADA
+    }
+
+    private final Livro livro;
+    private final Usuario usuario;
+    private final LocalDate dataReserva;
+    private volatile LocalDate prazoRetirada;
+    private volatile Situacao situacao;
+
+    /**
+     * @param livro O livro reservado.
+     * @param usuario O usuário que fez a reserva.
+     * @param dataReserva A data da reserva.
+     * @param prazoRetirada O último dia para retirar o exemplar separado, ou null se a reserva ainda aguarda na fila.
+     */
+    Reserva(Livro livro, Usuario usuario, LocalDate dataReserva, LocalDate prazoRetirada) {
+        this.livro = livro;
+        this.usuario = usuario;
+        this.dataReserva = dataReserva;
+        this.prazoRetirada = prazoRetirada;
+        this.situacao = prazoRetirada == null ? Situacao.AGUARDANDO : Situacao.DISPONIVEL;
+    }
+
+    public Livro getLivro() { return livro; }
+
+    public Usuario getUsuario() { return usuario; }
+
+    public LocalDate getDataReserva() { return dataReserva; }
+
+    /**
+     * Retorna o último dia para retirar o exemplar separado.
+     * @return O prazo, ou null se nenhum exemplar foi separado para a reserva.
+     */
+    public LocalDate getPrazoRetirada() { return prazoRetirada; }
+
+    public Situacao getSituacao() { return situacao; }
+
+    /**
+     * Separa um exemplar para a reserva.
+     * @param prazo O último dia para retirá-lo.
+     */
+    void disponibilizar(LocalDate prazo) {
+        prazoRetirada = prazo;
+        situacao = Situacao.DISPONIVEL;
+    }
+
+    void encerrar(Situacao situacaoFinal) {
+        situacao = situacaoFinal;
+    }
+
+    @Override
+    public String toString() {
+        String retirada = prazoRetirada != null ? " | Retirar até " + prazoRetirada : "";
+        return "Livro: '" + livro.getTitulo() + "' | Usuário: '" + usuario.getNome() + "' | Reservado em " + dataReserva + " | Situação: " + situacao + retirada;
+    }
+}
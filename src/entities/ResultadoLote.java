@@ -0,0 +1,51 @@
+package entities;
+
+/**
+ * Resultado de um item de uma operação em lote do GerenciadorBiblioteca: a situação do item e, se ele foi
+ * aplicado, o empréstimo criado ou encerrado.
+ */
+public final class ResultadoLote {
+
+    /**
+     * Situação de um item do lote.
+     */
+    public enum Situacao {
+        /** O item foi aplicado. */
+        SUCESSO,
+        /** Não há livro cadastrado com o ID informado. */
+        LIVRO_NAO_ENCONTRADO,
+        /** Não há usuário cadastrado com o ID informado. */
+        USUARIO_NAO_ENCONTRADO,
+        /** Os exemplares disponíveis do livro acabaram, inclusive com os itens anteriores do mesmo lote. */
+        SEM_EXEMPLARES,
+        /** Não há empréstimo ativo com o ID informado, ou ele já foi devolvido por um item anterior do lote. */
+        EMPRESTIMO_NAO_ENCONTRADO
+    }
+
+    private final Situacao situacao;
+    private final Emprestimo emprestimo;
+
+    ResultadoLote(Situacao situacao, Emprestimo emprestimo) {
+        this.situacao = situacao;
+        this.emprestimo = emprestimo;
+    }
+
+    /**
+     * Retorna a situação do item.
+     * @return SUCESSO se o item foi aplicado, ou o motivo da recusa.
+     */
+    public Situacao getSituacao() { return situacao; }
+
+    /**
+     * Retorna o empréstimo criado (em um lote de empréstimos) ou encerrado (em um lote de devoluções).
+     * @return O empréstimo, ou null se o item foi recusado.
+     */
+    public Emprestimo getEmprestimo() { return emprestimo; }
+
+    public boolean isSucesso() { return situacao == Situacao.SUCESSO; }
+
+    @Override
+    public String toString() {
+        return emprestimo != null ? situacao + " | " + emprestimo : situacao.toString();
+    }
+}
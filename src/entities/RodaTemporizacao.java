@@ -0,0 +1,111 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * Roda de temporização (timer wheel) com resolução de um dia: um vetor circular de compartimentos, um por dia, em
+ * que cada prazo é guardado no compartimento do seu dia. Avançar a roda visita apenas os compartimentos dos dias
+ * que passaram desde o último avanço, de modo que cada verificação custa o número de dias decorridos (no máximo uma
+ * volta) mais o número de prazos vencidos, sem percorrer os prazos pendentes.
+ * <p>
+ * Um prazo mais distante que uma volta da roda fica no compartimento do seu dia e é mantido nas voltas anteriores.
+ * Como na FilaAtrasos, os prazos não são retirados quando deixam de valer: quem consome a roda descarta as chaves
+ * que não estiverem mais pendentes.
+ * <p>
+ * Não é sincronizada: a FilaReservas a usa sob sua própria trava.
+ */
+final class RodaTemporizacao {
+    private static final int COMPARTIMENTOS = 64; // Potência de 2, bem maior que o prazo de retirada.
+    private static final long NENHUM_DIA = Long.MIN_VALUE;
+
+    private final long[][] chaves = new long[COMPARTIMENTOS][];
+    private final int[][] dias = new int[COMPARTIMENTOS][];
+    private final int[] tamanhos = new int[COMPARTIMENTOS];
+    private long ultimoDiaProcessado = NENHUM_DIA;
+
+    /**
+     * Agenda uma chave para um dia. Um dia já processado é agendado para o próximo avanço.
+     * @param dia O último dia do prazo, em dias desde a época.
+     * @param chave A chave devolvida quando o prazo vencer.
+     */
+    void agendar(long dia, long chave) {
+        long diaDoCompartimento = ultimoDiaProcessado != NENHUM_DIA ? Math.max(dia, ultimoDiaProcessado + 1) : dia;
+        int compartimento = (int) (diaDoCompartimento & (COMPARTIMENTOS - 1));
+        int tamanho = tamanhos[compartimento];
+        if (chaves[compartimento] == null) {
+            chaves[compartimento] = new long[4];
+            dias[compartimento] = new int[4];
+        } else if (tamanho == chaves[compartimento].length) {
+            chaves[compartimento] = Arrays.copyOf(chaves[compartimento], tamanho * 2);
+            dias[compartimento] = Arrays.copyOf(dias[compartimento], tamanho * 2);
+        }
+        chaves[compartimento][tamanho] = chave;
+        dias[compartimento][tamanho] = Math.toIntExact(dia);
+        tamanhos[compartimento] = tamanho + 1;
+    }
+
+    /**
+     * Avança a roda até um dia, retirando as chaves cujo prazo terminou antes dele.
+     * @param hoje O primeiro dia que ainda não está vencido, em dias desde a época.
+     * @return As chaves retiradas.
+     */
+    long[] avancar(long hoje) {
+        long ultimo = hoje - 1;
+        if (ultimoDiaProcessado != NENHUM_DIA && ultimo <= ultimoDiaProcessado) {
+            return new long[0];
+        }
+        long primeiro = primeiroDiaAProcessar(ultimo);
+        long[] vencidas = new long[4];
+        int quantidade = 0;
+        for (long dia = primeiro; dia <= ultimo; dia++) {
+            int compartimento = (int) (dia & (COMPARTIMENTOS - 1));
+            long[] chavesDoCompartimento = chaves[compartimento];
+            int[] diasDoCompartimento = dias[compartimento];
+            int tamanho = tamanhos[compartimento];
+            for (int i = 0; i < tamanho; ) {
+                if (diasDoCompartimento[i] <= ultimo) {
+                    if (quantidade == vencidas.length) {
+                        vencidas = Arrays.copyOf(vencidas, quantidade * 2);
+                    }
+                    vencidas[quantidade++] = chavesDoCompartimento[i];
+                    // A ordem dentro do compartimento não importa: o último ocupa o lugar do retirado.
+                    tamanho--;
+                    chavesDoCompartimento[i] = chavesDoCompartimento[tamanho];
+                    diasDoCompartimento[i] = diasDoCompartimento[tamanho];
+                } else {
+                    i++;
+                }
+            }
+            tamanhos[compartimento] = tamanho;
+        }
+        ultimoDiaProcessado = ultimo;
+        return Arrays.copyOf(vencidas, quantidade);
+    }
+
+    /**
+     * Indica se {@link #avancar(long)} retiraria alguma chave, sem retirá-la nem avançar a roda.
+     * @param hoje O primeiro dia que ainda não está vencido, em dias desde a época.
+     * @return true se alguma chave venceu antes de hoje.
+     */
+    boolean temVencidas(long hoje) {
+        long ultimo = hoje - 1;
+        if (ultimoDiaProcessado != NENHUM_DIA && ultimo <= ultimoDiaProcessado) {
+            return false;
+        }
+        for (long dia = primeiroDiaAProcessar(ultimo); dia <= ultimo; dia++) {
+            int compartimento = (int) (dia & (COMPARTIMENTOS - 1));
+            for (int i = 0; i < tamanhos[compartimento]; i++) {
+                if (dias[compartimento][i] <= ultimo) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private long primeiroDiaAProcessar(long ultimo) {
+        // Sem avanço anterior, ou depois de mais de uma volta, cada compartimento é visitado uma única vez.
+        return ultimoDiaProcessado == NENHUM_DIA || ultimo - ultimoDiaProcessado >= COMPARTIMENTOS
+                ? ultimo - COMPARTIMENTOS + 1 : ultimoDiaProcessado + 1;
+    }
+}
@@ -0,0 +1,85 @@
+package entities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gera IDs sequenciais para uma entidade do sistema da biblioteca.
+ * Cada chamada a {@link #proximo()} é atômica, de modo que entidades criadas em paralelo nunca recebem o mesmo ID.
+ * O valor atual é gravado junto com os dados para que a numeração continue após recarregar o arquivo.
+ * <p>
+ * A sequência numera apenas os bits baixos do ID. Os bits altos guardam a filial de uma {@link RedeBibliotecas}
+ * em que o registro foi cadastrado, gravada pelo gerenciador da filial ao incluí-lo; fora de uma rede, são zero.
+ */
+final class SequenciaId {
+    static final int BITS_LOCAIS = 25; // Bits do número do registro dentro da filial.
+    static final int FILIAIS_MAXIMAS = 1 << (Integer.SIZE - 1 - BITS_LOCAIS); // Filiais que cabem nos bits altos.
+    private static final int MAIOR_LOCAL = (1 << BITS_LOCAIS) - 1;
+
+    private final AtomicInteger proximoId = new AtomicInteger(1);
+
+    /**
+     * Reserva e retorna o próximo ID da sequência.
+     * @return Um ID ainda não utilizado, sem filial.
+     * @throws IllegalStateException Se os bits baixos do ID se esgotaram.
+     */
+    int proximo() {
+        int id = proximoId.getAndIncrement();
+        if (id > MAIOR_LOCAL) {
+            throw new IllegalStateException("Os IDs da sequência se esgotaram em " + MAIOR_LOCAL + ".");
+        }
+        return id;
+    }
+
+    /**
+     * Grava uma filial nos bits altos de um ID.
+     * @param id O ID, com ou sem filial.
+     * @param filial O índice da filial, de 0 a {@link #FILIAIS_MAXIMAS} - 1.
+     * @return O ID com a filial.
+     */
+    static int naFilial(int id, int filial) {
+        return filial << BITS_LOCAIS | (id & MAIOR_LOCAL);
+    }
+
+    /**
+     * Retorna a filial gravada nos bits altos de um ID.
+     * @param id O ID.
+     * @return O índice da filial; 0 para IDs sem filial, e {@link #FILIAIS_MAXIMAS} ou mais para IDs negativos.
+     */
+    static int filialDe(int id) {
+        return id >>> BITS_LOCAIS;
+    }
+
+    /**
+     * Retorna o próximo ID que será entregue, sem reservá-lo.
+     * @return O próximo ID da sequência.
+     */
+    int atual() {
+        return proximoId.get();
+    }
+
+    /**
+     * Define o próximo ID a ser entregue. Usado ao carregar os dados e para reiniciar a numeração em testes.
+     * @param proximoId O próximo ID a ser usado.
+     */
+    void definir(int proximoId) {
+        this.proximoId.set(proximoId);
+    }
+
+    /**
+     * Garante que o próximo ID entregue seja maior que um ID já utilizado, desconsiderando a filial.
+     * Usado ao restaurar entidades com IDs já atribuídos.
+     * @param idExistente Um ID já utilizado.
+     */
+    void avancarAlem(int idExistente) {
+        proximoId.accumulateAndGet((idExistente & MAIOR_LOCAL) + 1, Math::max);
+    }
+
+    /**
+     * Garante que o próximo ID entregue seja pelo menos o valor informado, sem nunca retroceder a sequência.
+     * Usado ao carregar os dados gravados.
+     * @param proximoId O menor próximo ID aceitável.
+     */
+    void avancarPara(int proximoId) {
+        this.proximoId.accumulateAndGet(proximoId, Math::max);
+    }
+}
@@ -8,13 +8,14 @@ import java.io.Serializable;
  */
 public class Usuario implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static int proximoId = 1; // Armazena o próximo ID disponível para um objeto Usuario.
+    static final SequenciaId SEQUENCIA = new SequenciaId(); // Gera os IDs dos objetos Usuario, inclusive em paralelo.
 
     private int idUsuario;
     private String nome;
     private String cpf;
     private String telefone;
     private String email;
+    private transient ObservadorEntidades observador; // O gerenciador em que o usuário está cadastrado, se houver.
 
     /**
      * Constrói um novo Usuario com o nome, CPF, telefone e email especificados.
@@ -26,7 +27,25 @@ public class Usuario implements Serializable {
      * @param email O endereço de email do usuário.
      */
     public Usuario(String nome, String cpf, String telefone, String email) {
-        this.idUsuario = proximoId++;
+        this.idUsuario = SEQUENCIA.proximo();
+        this.nome = nome;
+        this.cpf = cpf;
+        this.telefone = telefone;
+        this.email = email;
+    }
+
+    /**
+     * Reconstrói um Usuario com um ID já atribuído, ao restaurar os dados gravados.
+     *
+     * @param idUsuario O ID do usuário.
+     * @param nome O nome completo do usuário.
+     * @param cpf O CPF do usuário.
+     * @param telefone O número de telefone do usuário.
+     * @param email O endereço de email do usuário.
+     */
+    Usuario(int idUsuario, String nome, String cpf, String telefone, String email) {
+        SEQUENCIA.avancarAlem(idUsuario);
+        this.idUsuario = idUsuario;
         this.nome = nome;
         this.cpf = cpf;
         this.telefone = telefone;
@@ -67,25 +86,81 @@ public class Usuario implements Serializable {
      * Define o nome do usuário.
      * @param nome O novo nome do usuário.
      */
-    public void setNome(String nome) { this.nome = nome; }
+    public void setNome(String nome) {
+        String anterior = this.nome;
+        this.nome = nome;
+        // O CPF e o e-mail não mudaram, então a alteração não é recusada.
+        avisarAlteracao(cpf, email, () -> this.nome = anterior);
+    }
 
     /**
      * Define o CPF do usuário.
      * @param cpf O novo CPF do usuário.
+     * @throws IllegalArgumentException Se o usuário estiver cadastrado e outro usuário do mesmo gerenciador já
+     *         tiver este CPF. Nesse caso o CPF anterior é mantido.
      */
-    public void setCpf(String cpf) { this.cpf = cpf; }
+    public void setCpf(String cpf) {
+        String anterior = this.cpf;
+        this.cpf = cpf;
+        if (!avisarAlteracao(anterior, email, () -> this.cpf = anterior)) {
+            throw new IllegalArgumentException("Já existe um usuário cadastrado com o CPF " + cpf + ".");
+        }
+    }
 
     /**
      * Define o número de telefone do usuário.
      * @param telefone O novo número de telefone do usuário.
      */
-    public void setTelefone(String telefone) { this.telefone = telefone; }
+    public void setTelefone(String telefone) {
+        String anterior = this.telefone;
+        this.telefone = telefone;
+        // O CPF e o e-mail não mudaram, então a alteração não é recusada.
+        avisarAlteracao(cpf, email, () -> this.telefone = anterior);
+    }
 
     /**
      * Define o endereço de email do usuário.
      * @param email O novo endereço de email do usuário.
+     * @throws IllegalArgumentException Se o usuário estiver cadastrado e outro usuário do mesmo gerenciador já
+     *         tiver este e-mail. Nesse caso o e-mail anterior é mantido.
+     */
+    public void setEmail(String email) {
+        String anterior = this.email;
+        this.email = email;
+        if (!avisarAlteracao(cpf, anterior, () -> this.email = anterior)) {
+            throw new IllegalArgumentException("Já existe um usuário cadastrado com o e-mail " + email + ".");
+        }
+    }
+
+    /**
+     * Define quem deve ser avisado das alterações de nome, CPF e e-mail, ou null para ninguém.
+     * @param observador O observador, normalmente o GerenciadorBiblioteca em que o usuário está cadastrado.
+     */
+    void setObservador(ObservadorEntidades observador) { this.observador = observador; }
+
+    /**
+     * Grava no ID a filial da rede em que o usuário é cadastrado, antes de ir para o diário (ver SequenciaId).
+     * @param filial O índice da filial; 0 fora de uma rede.
      */
-    public void setEmail(String email) { this.email = email; }
+    void definirFilial(int filial) { idUsuario = SequenciaId.naFilial(idUsuario, filial); }
+
+    /**
+     * Avisa o observador e desfaz a alteração se ele a recusar ou se o diário não puder ser gravado.
+     */
+    private boolean avisarAlteracao(String cpfAnterior, String emailAnterior, Runnable desfazer) {
+        ObservadorEntidades atual = observador;
+        boolean aceita;
+        try {
+            aceita = atual == null || atual.usuarioAlterado(this, cpfAnterior, emailAnterior);
+        } catch (RuntimeException e) {
+            desfazer.run();
+            throw e;
+        }
+        if (!aceita) {
+            desfazer.run();
+        }
+        return aceita;
+    }
 
     /**
      * Retorna uma representação de string do objeto Usuario.
@@ -102,6 +177,14 @@ public class Usuario implements Serializable {
      * @param proximoId O próximo ID a ser usado.
      */
     public static void setProximoId(int proximoId) {
-        Usuario.proximoId = proximoId;
+        SEQUENCIA.definir(proximoId);
+    }
+
+    /**
+     * Retorna o próximo ID que será atribuído a um objeto Usuario. Isso é usado para persistência de dados.
+     * @return O próximo ID a ser usado.
+     */
+    public static int getProximoId() {
+        return SEQUENCIA.atual();
     }
 }
\ No newline at end of file
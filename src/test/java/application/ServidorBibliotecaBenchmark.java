@@ -0,0 +1,163 @@
+package test.java.application;
+
+import application.ServidorBiblioteca;
+import entities.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Teste de carga do ServidorBiblioteca em localhost: muitos terminais simultâneos, cada um repetindo uma mistura
+ * de consultas (busca e listagem), empréstimos e devoluções, como totens de autoatendimento.
+ * Não é um teste JUnit: execute o método main e compare a vazão e as latências ao variar os terminais e as
+ * threads do servidor.
+ * <p>
+ * Cada terminal é uma conexão do HttpClient usada de forma assíncrona, de modo que milhares de terminais não
+ * exigem milhares de threads no lado do cliente.
+ */
+public class ServidorBibliotecaBenchmark {
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final int LIVROS = 5_000;
+    private static final int USUARIOS = 5_000;
+
+    /**
+     * Popula um acervo sintético, inicia o servidor e imprime a vazão, as latências e os códigos HTTP obtidos.
+     *
+     * @param args Os terminais simultâneos (padrão: 2000), as requisições por terminal (padrão: 20) e as threads
+     *             do servidor (padrão: 64).
+     */
+    public static void main(String[] args) throws Exception {
+        int terminais = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int requisicoesPorTerminal = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        Path diretorio = Files.createTempDirectory("carga-biblioteca");
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(diretorio.resolve("dados.dat").toString());
+        gerenciador.carregarDados();
+        int[] idsLivros = new int[LIVROS];
+        int[] idsUsuarios = new int[USUARIOS];
+        popular(gerenciador, idsLivros, idsUsuarios);
+
+        ServidorBiblioteca servidor = new ServidorBiblioteca(gerenciador, 0, threads);
+        servidor.iniciar();
+        String base = "http://localhost:" + servidor.getPorta();
+        ExecutorService executorCliente = Executors.newFixedThreadPool(8);
+        HttpClient cliente = HttpClient.newBuilder().executor(executorCliente).build();
+
+        ConcurrentLinkedQueue<Long> latencias = new ConcurrentLinkedQueue<>();
+        AtomicIntegerArray codigos = new AtomicIntegerArray(600);
+        long inicio = System.nanoTime();
+        List<CompletableFuture<Void>> sessoes = new ArrayList<>(terminais);
+        for (int t = 0; t < terminais; t++) {
+            sessoes.add(proxima(cliente, base, requisicoesPorTerminal, -1, idsLivros, idsUsuarios, latencias, codigos));
+        }
+        CompletableFuture.allOf(sessoes.toArray(new CompletableFuture[0])).join();
+        long duracao = System.nanoTime() - inicio;
+
+        long[] ordenadas = latencias.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(ordenadas);
+        System.out.printf("Terminais: %d | Requisições: %d | Threads do servidor: %d%n", terminais, ordenadas.length, threads);
+        System.out.printf("Vazão: %.0f requisições/s em %.2f s%n", ordenadas.length / (duracao / 1e9), duracao / 1e9);
+        System.out.printf("Latência (ms): p50 %.2f | p90 %.2f | p99 %.2f | máx %.2f%n", percentil(ordenadas, 0.50),
+                percentil(ordenadas, 0.90), percentil(ordenadas, 0.99), percentil(ordenadas, 1.0));
+        for (int codigo = 0; codigo < codigos.length(); codigo++) {
+            if (codigos.get(codigo) > 0) {
+                System.out.println("HTTP " + codigo + ": " + codigos.get(codigo));
+            }
+        }
+
+        servidor.parar();
+        gerenciador.encerrar();
+        executorCliente.shutdown();
+        executorCliente.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Executa as requisições restantes de um terminal em sequência, cada uma iniciada quando a anterior termina.
+     * Um empréstimo bem-sucedido é devolvido na requisição seguinte do terminal.
+     */
+    private static CompletableFuture<Void> proxima(HttpClient cliente, String base, int restantes, int idEmprestimo,
+                                                   int[] idsLivros, int[] idsUsuarios,
+                                                   ConcurrentLinkedQueue<Long> latencias, AtomicIntegerArray codigos) {
+        if (restantes == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        HttpRequest requisicao;
+        boolean emprestimo = false;
+        if (idEmprestimo >= 0) {
+            requisicao = post(base + "/emprestimos/" + idEmprestimo + "/devolucao", "{}");
+        } else {
+            int sorteio = aleatorio.nextInt(100);
+            if (sorteio < 50) {
+                requisicao = HttpRequest.newBuilder(URI.create(base + "/livros/busca?q=volume%20" + aleatorio.nextInt(LIVROS) + "&limite=10")).build();
+            } else if (sorteio < 70) {
+                requisicao = HttpRequest.newBuilder(URI.create(base + "/livros?inicio=" + aleatorio.nextInt(LIVROS) + "&quantidade=20&ordem=nome")).build();
+            } else {
+                emprestimo = true;
+                requisicao = post(base + "/emprestimos", "{\"livro\": " + idsLivros[aleatorio.nextInt(LIVROS)]
+                        + ", \"usuario\": " + idsUsuarios[aleatorio.nextInt(USUARIOS)] + "}");
+            }
+        }
+        long inicio = System.nanoTime();
+        boolean eraEmprestimo = emprestimo;
+        return cliente.sendAsync(requisicao, HttpResponse.BodyHandlers.ofString()).thenCompose(resposta -> {
+            latencias.add(System.nanoTime() - inicio);
+            codigos.incrementAndGet(resposta.statusCode());
+            int proximoEmprestimo = -1;
+            if (eraEmprestimo && resposta.statusCode() == 201) {
+                Matcher matcher = ID.matcher(resposta.body());
+                if (matcher.find()) {
+                    proximoEmprestimo = Integer.parseInt(matcher.group(1));
+                }
+            }
+            return proxima(cliente, base, restantes - 1, proximoEmprestimo, idsLivros, idsUsuarios, latencias, codigos);
+        });
+    }
+
+    private static HttpRequest post(String url, String corpo) {
+        return HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .header("Content-Type", "application/json").build();
+    }
+
+    private static void popular(GerenciadorBiblioteca gerenciador, int[] idsLivros, int[] idsUsuarios) {
+        Autor autor = new Autor("Autor da Carga", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        for (int i = 0; i < idsLivros.length; i++) {
+            Livro livro = new Livro("Volume " + i, null, 2000, "Editora", 3, autores);
+            gerenciador.adicionarLivro(livro);
+            idsLivros[i] = livro.getIdLivro();
+        }
+        for (int i = 0; i < idsUsuarios.length; i++) {
+            Usuario usuario = new Usuario("Leitor " + i, String.format("%011d", i), "0000-0000", "leitor" + i + "@email.com");
+            gerenciador.adicionarUsuario(usuario);
+            idsUsuarios[i] = usuario.getIdUsuario();
+        }
+    }
+
+    private static double percentil(long[] ordenadas, double fracao) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int posicao = (int) Math.min(ordenadas.length - 1, Math.ceil(fracao * ordenadas.length) - 1);
+        return ordenadas[Math.max(posicao, 0)] / 1e6;
+    }
+}
\ No newline at end of file
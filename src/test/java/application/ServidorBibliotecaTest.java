@@ -0,0 +1,148 @@
+package test.java.application;
+
+import application.ServidorBiblioteca;
+import entities.GerenciadorBiblioteca;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classe de testes JUnit para o ServidorBiblioteca, com o servidor em uma porta livre de localhost e um
+ * gerenciador com arquivos em um diretório temporário.
+ */
+public class ServidorBibliotecaTest {
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    @TempDir
+    Path diretorio;
+
+    private GerenciadorBiblioteca gerenciador;
+    private ServidorBiblioteca servidor;
+    private HttpClient cliente;
+    private String base;
+
+    /**
+     * Inicia o servidor sobre um gerenciador vazio.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        gerenciador = new GerenciadorBiblioteca(diretorio.resolve("dados.dat").toString());
+        gerenciador.carregarDados();
+        servidor = new ServidorBiblioteca(gerenciador, 0, 8);
+        servidor.iniciar();
+        cliente = HttpClient.newHttpClient();
+        base = "http://localhost:" + servidor.getPorta();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.parar();
+        gerenciador.encerrar();
+    }
+
+    /**
+     * Testa o fluxo de um balcão pela API: cadastros, busca, empréstimo, recusa sem exemplares, reserva e
+     * devolução que separa o exemplar para a reserva.
+     */
+    @Test
+    void testCadastroEmprestimoReservaEDevolucao() throws Exception {
+        int idAutor = id(enviar("POST", "/autores", "{\"nome\": \"Clarice Lispector\", \"nacionalidade\": \"Brasileira\"}", 201));
+        int idLivro = id(enviar("POST", "/livros", "{\"titulo\": \"A Hora da Estrela\", \"isbn\": \"978-85-325-0812-4\","
+                + " \"anoPublicacao\": 1977, \"editora\": \"Rocco\", \"quantidadeTotal\": 1, \"autores\": [" + idAutor + "]}", 201));
+        int idLeitor = id(enviar("POST", "/usuarios", "{\"nome\": \"Macabéa\", \"cpf\": \"777.777.777-77\", \"email\": \"macabea@email.com\"}", 201));
+        int idOutro = id(enviar("POST", "/usuarios", "{\"nome\": \"Olímpico\", \"cpf\": \"888.888.888-88\", \"email\": \"olimpico@email.com\"}", 201));
+
+        String busca = enviar("GET", "/livros/busca?q=hora%20estrela", null, 200);
+        assertTrue(busca.contains("\"titulo\":\"A Hora da Estrela\""), "A busca deveria encontrar o livro: " + busca);
+        assertTrue(enviar("GET", "/livros?ordem=nome&quantidade=10", null, 200).startsWith("{\"total\":1,"));
+
+        int idEmprestimo = id(enviar("POST", "/emprestimos", "{\"livro\": " + idLivro + ", \"usuario\": " + idLeitor + "}", 201));
+        enviar("POST", "/emprestimos", "{\"livro\": " + idLivro + ", \"usuario\": " + idOutro + "}", 409);
+        enviar("POST", "/reservas", "{\"livro\": " + idLivro + ", \"usuario\": " + idOutro + "}", 201);
+
+        enviar("POST", "/emprestimos/" + idEmprestimo + "/devolucao", null, 200);
+        enviar("POST", "/emprestimos/" + idEmprestimo + "/devolucao", null, 404);
+        String reservas = enviar("GET", "/livros/" + idLivro + "/reservas", null, 200);
+        assertTrue(reservas.contains("\"situacao\":\"DISPONIVEL\""), "O exemplar devolvido deveria ir para a reserva: " + reservas);
+
+        enviar("PUT", "/livros/" + idLivro, "{\"titulo\": \"A Hora da Estrela (ed. comemorativa)\"}", 200);
+        assertEquals("A Hora da Estrela (ed. comemorativa)", gerenciador.buscarLivroPorId(idLivro).getTitulo(),
+                "A alteração deveria chegar ao gerenciador.");
+    }
+
+    /**
+     * Testa os códigos de erro: JSON inválido, campos ausentes, rotas e registros inexistentes, método não
+     * permitido e cadastros repetidos.
+     */
+    @Test
+    void testCodigosDeErro() throws Exception {
+        enviar("POST", "/autores", "{\"nome\": ", 400);
+        enviar("POST", "/autores", "{\"nacionalidade\": \"Brasileira\"}", 400);
+        enviar("GET", "/inexistente", null, 404);
+        enviar("GET", "/livros/999999999", null, 404);
+        enviar("DELETE", "/emprestimos", null, 405);
+        enviar("GET", "/livros?ordem=data", null, 400);
+
+        String usuario = "{\"nome\": \"Ana\", \"cpf\": \"999.999.999-99\", \"email\": \"ana@email.com\"}";
+        enviar("POST", "/usuarios", usuario, 201);
+        String repetido = enviar("POST", "/usuarios", usuario, 409);
+        assertTrue(repetido.startsWith("{\"erro\":"), "O erro deveria vir no campo 'erro': " + repetido);
+    }
+
+    /**
+     * Testa que empréstimos simultâneos de vários terminais nunca emprestam mais exemplares do que o livro tem.
+     */
+    @Test
+    void testEmprestimosSimultaneosRespeitamOsExemplares() throws Exception {
+        int idAutor = id(enviar("POST", "/autores", "{\"nome\": \"Cecília Meireles\"}", 201));
+        int idLivro = id(enviar("POST", "/livros", "{\"titulo\": \"Romanceiro da Inconfidência\", \"quantidadeTotal\": 10,"
+                + " \"autores\": [" + idAutor + "]}", 201));
+        List<CompletableFuture<HttpResponse<String>>> pendentes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            int idUsuario = id(enviar("POST", "/usuarios", "{\"nome\": \"Leitor " + i + "\", \"cpf\": \"000.000.000-" + i
+                    + "\", \"email\": \"leitor" + i + "@email.com\"}", 201));
+            pendentes.add(cliente.sendAsync(requisicao("POST", "/emprestimos",
+                    "{\"livro\": " + idLivro + ", \"usuario\": " + idUsuario + "}"), HttpResponse.BodyHandlers.ofString()));
+        }
+        int realizados = 0;
+        for (CompletableFuture<HttpResponse<String>> pendente : pendentes) {
+            int codigo = pendente.get().statusCode();
+            assertTrue(codigo == 201 || codigo == 409, "Código inesperado: " + codigo);
+            realizados += codigo == 201 ? 1 : 0;
+        }
+        assertEquals(10, realizados, "Deveriam ser realizados exatamente 10 empréstimos.");
+        assertEquals(0, gerenciador.buscarLivroPorId(idLivro).getQuantidadeDisponivel());
+    }
+
+    private String enviar(String metodo, String caminho, String corpo, int codigoEsperado) throws Exception {
+        HttpResponse<String> resposta = cliente.send(requisicao(metodo, caminho, corpo), HttpResponse.BodyHandlers.ofString());
+        assertEquals(codigoEsperado, resposta.statusCode(), metodo + " " + caminho + ": " + resposta.body());
+        return resposta.body();
+    }
+
+    private HttpRequest requisicao(String metodo, String caminho, String corpo) {
+        return HttpRequest.newBuilder(URI.create(base + caminho))
+                .method(metodo, corpo == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(corpo))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private static int id(String corpo) {
+        Matcher matcher = ID.matcher(corpo);
+        assertTrue(matcher.find(), "A resposta deveria ter um ID: " + corpo);
+        return Integer.parseInt(matcher.group(1));
+    }
+}
\ No newline at end of file
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 
@@ -91,4 +92,17 @@ public class EmprestimoTest {
         String expectedToStringDevolvido = "ID: 1 | Livro: 'Livro Teste' | Usuário: 'Usuario Teste' | Status: Devolvido em " + LocalDate.now();
         assertEquals(expectedToStringDevolvido, emprestimo.toString(), "toString deveria indicar status 'Devolvido em'."); //
     }
-}
\ No newline at end of file
+
+    /**
+     * Testa o cálculo dos dias de atraso e da multa a partir da data prevista de devolução.
+     */
+    @Test
+    void testMultaPorDiaDeAtraso() {
+        LocalDate prevista = emprestimo.getDataDevolucaoPrevista();
+        assertEquals(0, emprestimo.diasAtraso(prevista), "Não deveria haver atraso na data prevista.");
+        assertEquals(0, emprestimo.calcularMulta(prevista.minusDays(3)).signum(), "Uma devolução antecipada não deveria gerar multa.");
+        assertEquals(3, emprestimo.diasAtraso(prevista.plusDays(3)), "Deveria haver 3 dias de atraso.");
+        assertEquals(Emprestimo.MULTA_DIARIA.multiply(BigDecimal.valueOf(3)), emprestimo.calcularMulta(prevista.plusDays(3)),
+                "A multa deveria ser cobrada por dia de atraso.");
+    }
+}
@@ -0,0 +1,114 @@
+package test.java.entities;
+
+import entities.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara o formato binário dos instantâneos com o formato anterior (serialização Java das listas)
+ * quanto ao tamanho do arquivo e ao tempo de gravação e leitura.
+ * Não é um teste JUnit: execute o método main, opcionalmente informando a quantidade de livros.
+ */
+public class FormatoInstantaneoBenchmark {
+
+    private static final int REPETICOES = 5;
+
+    /**
+     * Gera um acervo sintético e imprime o tamanho e os tempos de cada formato.
+     *
+     * @param args A quantidade de livros (padrão: 100000). Usuários e empréstimos são gerados na mesma proporção.
+     */
+    public static void main(String[] args) throws Exception {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path diretorio = Files.createTempDirectory("benchmark-biblioteca");
+        Path atual = diretorio.resolve("atual.dat");
+        Path antigo = diretorio.resolve("antigo.dat");
+
+        GerenciadorBiblioteca gerenciador = gerarAcervo(atual.toString(), quantidade);
+        List<Autor> autores = gerenciador.listarTodosAutores();
+        List<Livro> livros = gerenciador.listarTodosLivros();
+        List<Usuario> usuarios = gerenciador.listarTodosUsuarios();
+        List<Emprestimo> emprestimos = gerenciador.listarEmprestimosAtivos();
+
+        long gravacaoAtual = Long.MAX_VALUE;
+        long gravacaoAntiga = Long.MAX_VALUE;
+        long leituraAtual = Long.MAX_VALUE;
+        long leituraAntiga = Long.MAX_VALUE;
+        for (int i = 0; i < REPETICOES; i++) {
+            long inicio = System.nanoTime();
+            gerenciador.salvarDados();
+            gravacaoAtual = Math.min(gravacaoAtual, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(antigo)))) {
+                oos.writeObject(autores);
+                oos.writeObject(livros);
+                oos.writeObject(usuarios);
+                oos.writeObject(emprestimos);
+            }
+            gravacaoAntiga = Math.min(gravacaoAntiga, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            GerenciadorBiblioteca carregado = new GerenciadorBiblioteca(atual.toString());
+            carregado.carregarDados();
+            carregado.encerrar();
+            leituraAtual = Math.min(leituraAtual, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(antigo)))) {
+                for (int j = 0; j < 4; j++) {
+                    ois.readObject();
+                }
+            }
+            leituraAntiga = Math.min(leituraAntiga, System.nanoTime() - inicio);
+        }
+
+        System.out.printf("Acervo: %d livros, %d usuários, %d empréstimos%n", livros.size(), usuarios.size(), emprestimos.size());
+        System.out.printf("%-22s %12s %14s %14s%n", "Formato", "Tamanho (KB)", "Gravação (ms)", "Leitura (ms)");
+        imprimir("Binário atual", Files.size(atual), gravacaoAtual, leituraAtual);
+        imprimir("Serialização Java", Files.size(antigo), gravacaoAntiga, leituraAntiga);
+        excluir(diretorio);
+    }
+
+    private static GerenciadorBiblioteca gerarAcervo(String arquivo, int quantidade) {
+        GerenciadorBiblioteca g = new GerenciadorBiblioteca(arquivo);
+        List<Autor> autores = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, quantidade / 10); i++) {
+            Autor autor = new Autor("Autor " + i, i % 2 == 0 ? "Brasileira" : "Portuguesa");
+            g.adicionarAutor(autor);
+            autores.add(autor);
+        }
+        for (int i = 0; i < quantidade; i++) {
+            ArrayList<Autor> autoresDoLivro = new ArrayList<>();
+            autoresDoLivro.add(autores.get(i % autores.size()));
+            g.adicionarLivro(new Livro("Título do livro " + i, String.format("978%010d", i), 1900 + i % 120,
+                    "Editora " + i % 50, 3, autoresDoLivro));
+            g.adicionarUsuario(new Usuario("Usuário " + i, String.format("%011d", i), "9999-0000", "usuario" + i + "@email.com"));
+        }
+        for (int i = 1; i <= quantidade; i++) {
+            g.realizarEmprestimo(i % quantidade + 1, i);
+        }
+        return g;
+    }
+
+    private static void imprimir(String formato, long bytes, long gravacao, long leitura) {
+        System.out.printf("%-22s %12d %14.1f %14.1f%n", formato, bytes / 1024, gravacao / 1e6, leitura / 1e6);
+    }
+
+    private static void excluir(Path diretorio) throws IOException {
+        try (var arquivos = Files.list(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                Files.delete(arquivo);
+            }
+        }
+        Files.delete(diretorio);
+    }
+}
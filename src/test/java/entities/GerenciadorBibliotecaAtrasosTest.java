@@ -0,0 +1,163 @@
+package test.java.entities;
+
+import entities.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe de testes JUnit para a detecção de empréstimos atrasados e a cobrança de multas na classe
+ * GerenciadorBiblioteca, com um relógio controlado pelo teste.
+ */
+public class GerenciadorBibliotecaAtrasosTest {
+
+    private RelogioAjustavel relogio;
+    private GerenciadorBiblioteca gerenciador;
+    private Livro livro1;
+    private Livro livro2;
+    private Usuario usuario;
+    private final List<Emprestimo> avisados = new ArrayList<>();
+    private final List<BigDecimal> multas = new ArrayList<>();
+
+    /**
+     * Cria um gerenciador em 1º de março de 2024 com dois livros, um usuário e um ouvinte que guarda os avisos.
+     */
+    @BeforeEach
+    void setUp() {
+        relogio = new RelogioAjustavel(LocalDate.of(2024, 3, 1));
+        gerenciador = new GerenciadorBiblioteca("dados_biblioteca.dat", false, relogio);
+
+        Autor autor = new Autor("Lima Barreto", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        livro1 = new Livro("Triste Fim de Policarpo Quaresma", "978-85-7232-144-8", 1915, "Revista dos Tribunais", 2, autores);
+        livro2 = new Livro("Clara dos Anjos", "978-85-7232-145-5", 1948, "Mérito", 2, autores);
+        gerenciador.adicionarLivro(livro1);
+        gerenciador.adicionarLivro(livro2);
+        usuario = new Usuario("Isaías Caminha", "333.333.333-33", "9555-1234", "isaias@email.com");
+        gerenciador.adicionarUsuario(usuario);
+
+        gerenciador.adicionarOuvinteAtrasos(new OuvinteAtrasos() {
+            @Override
+            public synchronized void emprestimoAtrasado(Emprestimo emprestimo, long diasAtraso) {
+                avisados.add(emprestimo);
+            }
+
+            @Override
+            public synchronized void multaGerada(Emprestimo emprestimo, BigDecimal valor) {
+                multas.add(valor);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        gerenciador.encerrar();
+    }
+
+    /**
+     * Testa que cada empréstimo é avisado uma única vez, no dia seguinte à data prevista, e que empréstimos
+     * devolvidos a tempo não são avisados.
+     */
+    @Test
+    void testVerificarAtrasosAvisaCadaEmprestimoUmaVez() {
+        Emprestimo primeiro = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario.getIdUsuario());
+        relogio.avancar(1);
+        Emprestimo segundo = gerenciador.realizarEmprestimo(livro2.getIdLivro(), usuario.getIdUsuario());
+        Emprestimo devolvido = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario.getIdUsuario());
+        gerenciador.registrarDevolucao(devolvido.getIdEmprestimo());
+
+        relogio.avancar(13);
+        assertTrue(gerenciador.verificarAtrasos().isEmpty(), "Nenhum empréstimo deveria estar atrasado na data prevista.");
+
+        relogio.avancar(1);
+        assertEquals(List.of(primeiro), gerenciador.verificarAtrasos(), "Apenas o primeiro empréstimo deveria estar atrasado.");
+        assertTrue(gerenciador.verificarAtrasos().isEmpty(), "O mesmo atraso não deveria ser avisado de novo.");
+
+        relogio.avancar(5);
+        assertEquals(List.of(segundo), gerenciador.verificarAtrasos(), "O segundo empréstimo deveria estar atrasado.");
+        assertEquals(List.of(primeiro, segundo), avisados, "O ouvinte deveria receber cada aviso uma vez.");
+        assertEquals(6, primeiro.diasAtraso(LocalDate.now(relogio)), "O primeiro empréstimo deveria estar 6 dias atrasado.");
+    }
+
+    /**
+     * Testa que a data prevista adiada é respeitada pela verificação de atrasos.
+     */
+    @Test
+    void testDataPrevistaAdiadaNaoGeraAviso() {
+        Emprestimo emprestimo = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario.getIdUsuario());
+        emprestimo.setDataDevolucaoPrevista(emprestimo.getDataDevolucaoPrevista().plusDays(7));
+
+        relogio.avancar(15);
+        assertTrue(gerenciador.verificarAtrasos().isEmpty(), "O empréstimo renovado não deveria estar atrasado.");
+        relogio.avancar(7);
+        assertEquals(List.of(emprestimo), gerenciador.verificarAtrasos(), "O atraso deveria contar a partir da nova data.");
+    }
+
+    /**
+     * Testa que a data prevista antecipada é avisada a partir da nova data, uma única vez, mesmo que volte a um valor
+     * anterior.
+     */
+    @Test
+    void testDataPrevistaAntecipadaGeraAvisoUmaVez() {
+        Emprestimo emprestimo = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario.getIdUsuario());
+        LocalDate original = emprestimo.getDataDevolucaoPrevista();
+        emprestimo.setDataDevolucaoPrevista(original.minusDays(7));
+        emprestimo.setDataDevolucaoPrevista(original);
+        emprestimo.setDataDevolucaoPrevista(original.minusDays(7));
+
+        relogio.avancar(8);
+        assertEquals(List.of(emprestimo), gerenciador.verificarAtrasos(), "O atraso deveria contar a partir da nova data.");
+        relogio.avancar(14);
+        assertTrue(gerenciador.verificarAtrasos().isEmpty(), "O mesmo atraso não deveria ser avisado de novo.");
+    }
+
+    /**
+     * Testa que apenas a devolução atrasada gera multa, proporcional aos dias de atraso.
+     */
+    @Test
+    void testDevolucaoAtrasadaGeraMulta() {
+        Emprestimo noPrazo = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario.getIdUsuario());
+        Emprestimo atrasado = gerenciador.realizarEmprestimo(livro2.getIdLivro(), usuario.getIdUsuario());
+        relogio.avancar(14);
+        assertTrue(gerenciador.registrarDevolucao(noPrazo.getIdEmprestimo()), "A devolução deveria ter sucesso.");
+        assertTrue(multas.isEmpty(), "A devolução na data prevista não deveria gerar multa.");
+
+        relogio.avancar(4);
+        assertTrue(gerenciador.registrarDevolucao(atrasado.getIdEmprestimo()), "A devolução deveria ter sucesso.");
+        assertEquals(List.of(Emprestimo.MULTA_DIARIA.multiply(BigDecimal.valueOf(4))), multas, "A multa deveria cobrir 4 dias de atraso.");
+        relogio.avancar(1);
+        assertTrue(gerenciador.verificarAtrasos().isEmpty(), "Um empréstimo devolvido não deveria ser avisado.");
+    }
+
+    /**
+     * Testa a verificação periódica em segundo plano.
+     */
+    @Test
+    void testVerificacaoPeriodica() throws InterruptedException {
+        gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario.getIdUsuario());
+        relogio.avancar(20);
+        CountDownLatch avisado = new CountDownLatch(1);
+        gerenciador.adicionarOuvinteAtrasos(new OuvinteAtrasos() {
+            @Override
+            public void emprestimoAtrasado(Emprestimo emprestimo, long diasAtraso) {
+                avisado.countDown();
+            }
+
+            @Override
+            public void multaGerada(Emprestimo emprestimo, BigDecimal valor) {
+            }
+        });
+        gerenciador.iniciarVerificacaoAtrasos(10, TimeUnit.MILLISECONDS);
+        assertTrue(avisado.await(5, TimeUnit.SECONDS), "A verificação periódica deveria avisar o atraso.");
+    }
+}
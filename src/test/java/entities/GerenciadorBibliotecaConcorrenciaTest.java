@@ -0,0 +1,152 @@
+package test.java.entities;
+
+import entities.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe de testes JUnit para o uso concorrente da classe GerenciadorBiblioteca.
+ * Simula vários balcões de circulação emprestando e devolvendo o mesmo livro ao mesmo tempo.
+ */
+public class GerenciadorBibliotecaConcorrenciaTest {
+
+    private static final int THREADS = 16;
+    private static final int EXEMPLARES = 50;
+
+    private GerenciadorBiblioteca gerenciador;
+    private Livro livro;
+    private List<Usuario> usuarios;
+
+    /**
+     * Cria um livro com poucos exemplares e um usuário por thread.
+     */
+    @BeforeEach
+    void setUp() {
+        gerenciador = new GerenciadorBiblioteca();
+        Autor autor = new Autor("Clarice Lispector", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        livro = new Livro("A Hora da Estrela", "978-85-325-0812-1", 1977, "Rocco", EXEMPLARES, autores);
+        gerenciador.adicionarLivro(livro);
+
+        usuarios = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Usuario usuario = new Usuario("Usuário " + i, "000.000.000-" + i, "0000-0000", "u" + i + "@email.com");
+            gerenciador.adicionarUsuario(usuario);
+            usuarios.add(usuario);
+        }
+    }
+
+    /**
+     * Testa que, sob disputa, o número de empréstimos bem-sucedidos nunca excede o número de exemplares.
+     */
+    @Test
+    void testEmprestimosConcorrentesNaoExcedemExemplares() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Integer>> resultados = new ArrayList<>();
+
+        for (Usuario usuario : usuarios) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                int sucessos = 0;
+                for (int i = 0; i < 100; i++) {
+                    if (gerenciador.realizarEmprestimo(livro.getIdLivro(), usuario.getIdUsuario()) != null) {
+                        sucessos++;
+                    }
+                }
+                return sucessos;
+            }));
+        }
+        largada.countDown();
+
+        int total = 0;
+        for (Future<Integer> resultado : resultados) {
+            total += resultado.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "As threads deveriam terminar.");
+
+        assertEquals(EXEMPLARES, total, "Exatamente " + EXEMPLARES + " empréstimos deveriam ter sucesso.");
+        assertEquals(0, livro.getQuantidadeDisponivel(), "Nenhum exemplar deveria permanecer disponível.");
+        assertFalse(gerenciador.removerLivro(livro.getIdLivro()), "O livro não deveria ser removido com empréstimos ativos.");
+    }
+
+    /**
+     * Testa empréstimos e devoluções intercalados em paralelo.
+     * Ao final, todos os exemplares devem voltar a estar disponíveis e nenhum empréstimo deve permanecer ativo.
+     */
+    @Test
+    void testEmprestimosEDevolucoesConcorrentes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        for (Usuario usuario : usuarios) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < 2_000; i++) {
+                    Emprestimo emprestimo = gerenciador.realizarEmprestimo(livro.getIdLivro(), usuario.getIdUsuario());
+                    if (emprestimo != null) {
+                        assertTrue(gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo()), "A devolução deveria ter sucesso.");
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "As threads deveriam terminar.");
+
+        assertEquals(EXEMPLARES, livro.getQuantidadeDisponivel(), "Todos os exemplares deveriam estar disponíveis.");
+        assertTrue(gerenciador.removerLivro(livro.getIdLivro()), "O livro deveria poder ser removido sem empréstimos ativos.");
+    }
+
+    /**
+     * Testa que objetos criados em paralelo recebem IDs distintos.
+     */
+    @Test
+    void testIdsUnicosEmCriacaoConcorrente() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<List<Integer>>> resultados = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < 1_000; i++) {
+                    ids.add(new Autor("Autor", "Brasileira").getIdAutor());
+                }
+                return ids;
+            }));
+        }
+        largada.countDown();
+
+        Set<Integer> ids = new HashSet<>();
+        for (Future<List<Integer>> resultado : resultados) {
+            ids.addAll(resultado.get());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "As threads deveriam terminar.");
+
+        assertEquals(THREADS * 1_000, ids.size(), "Todos os autores criados deveriam ter IDs distintos.");
+    }
+}
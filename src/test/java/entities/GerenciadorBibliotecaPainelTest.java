@@ -0,0 +1,180 @@
+package test.java.entities;
+
+import entities.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Classe de testes JUnit para os painéis de circulação da classe GerenciadorBiblioteca: os rankings de livros e
+ * usuários, os livros esgotados e a contagem de empréstimos ativos.
+ */
+public class GerenciadorBibliotecaPainelTest {
+
+    @TempDir
+    Path diretorio;
+
+    /**
+     * Testa que os rankings contam todo o histórico, seguem os empréstimos feitos depois da primeira consulta,
+     * desempatam pela ordem de chegada e deixam de fora os livros e usuários removidos; e que são remontados
+     * iguais depois de recarregar os dados.
+     */
+    @Test
+    void testRankingsAcompanhamOsEmprestimos() throws Exception {
+        String arquivo = diretorio.resolve("dados.dat").toString();
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(arquivo);
+        gerenciador.carregarDados();
+        Livro[] livros = adicionarLivros(gerenciador, 3, 5);
+        Usuario ana = new Usuario("Ana", "101.101.101-01", "9101-0000", "ana@email.com");
+        Usuario bia = new Usuario("Bia", "202.202.202-02", "9202-0000", "bia@email.com");
+        Usuario caio = new Usuario("Caio", "303.303.303-03", "9303-0000", "caio@email.com");
+        gerenciador.adicionarUsuario(ana);
+        gerenciador.adicionarUsuario(bia);
+        gerenciador.adicionarUsuario(caio);
+
+        Emprestimo devolvido = gerenciador.realizarEmprestimo(livros[1].getIdLivro(), ana.getIdUsuario());
+        gerenciador.registrarDevolucao(devolvido.getIdEmprestimo());
+        gerenciador.realizarEmprestimo(livros[1].getIdLivro(), bia.getIdUsuario());
+        gerenciador.realizarEmprestimo(livros[2].getIdLivro(), ana.getIdUsuario());
+        assertEquals(2, gerenciador.contarEmprestimosAtivos());
+
+        List<ContagemEmprestimos<Livro>> maisEmprestados = gerenciador.livrosMaisEmprestados(10);
+        assertEquals(2, maisEmprestados.size(), "Livros nunca emprestados não deveriam entrar no ranking.");
+        assertSame(livros[1], maisEmprestados.get(0).getEntidade());
+        assertEquals(2, maisEmprestados.get(0).getEmprestimos(), "A devolução não deveria tirar o empréstimo da contagem.");
+
+        // Depois da primeira consulta, os rankings são mantidos pelos próprios empréstimos.
+        gerenciador.realizarEmprestimosEmLote(new int[] {livros[2].getIdLivro(), livros[0].getIdLivro()},
+                new int[] {caio.getIdUsuario(), caio.getIdUsuario()});
+        maisEmprestados = gerenciador.livrosMaisEmprestados(2);
+        assertEquals(2, maisEmprestados.size());
+        assertSame(livros[1], maisEmprestados.get(0).getEntidade(), "No empate, vem primeiro quem chegou antes ao número.");
+        assertSame(livros[2], maisEmprestados.get(1).getEntidade());
+        assertEquals(2, maisEmprestados.get(1).getEmprestimos());
+        List<ContagemEmprestimos<Usuario>> usuarios = gerenciador.usuariosMaisAtivos(3);
+        assertSame(ana, usuarios.get(0).getEntidade());
+        assertSame(caio, usuarios.get(1).getEntidade());
+        assertSame(bia, usuarios.get(2).getEntidade());
+        assertEquals(List.of(2, 2, 1), List.of(usuarios.get(0).getEmprestimos(), usuarios.get(1).getEmprestimos(),
+                usuarios.get(2).getEmprestimos()));
+        assertEquals(4, gerenciador.contarEmprestimosAtivos());
+
+        // Um usuário removido sai do ranking.
+        Emprestimo daBia = gerenciador.historicoPorUsuario(bia.getIdUsuario(), 0).get(0);
+        assertTrue(gerenciador.registrarDevolucao(daBia.getIdEmprestimo()));
+        assertTrue(gerenciador.removerUsuario(bia.getIdUsuario()));
+        assertEquals(2, gerenciador.usuariosMaisAtivos(3).size());
+        assertEquals(3, gerenciador.contarEmprestimosAtivos());
+        gerenciador.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        assertEquals(3, recuperado.contarEmprestimosAtivos());
+        List<ContagemEmprestimos<Livro>> remontado = recuperado.livrosMaisEmprestados(3);
+        assertEquals(List.of(livros[1].getIdLivro(), livros[2].getIdLivro(), livros[0].getIdLivro()),
+                List.of(remontado.get(0).getEntidade().getIdLivro(), remontado.get(1).getEntidade().getIdLivro(),
+                        remontado.get(2).getEntidade().getIdLivro()), "O ranking remontado deveria ser o mesmo.");
+        assertEquals(2, recuperado.usuariosMaisAtivos(5).size(), "O usuário removido não deveria voltar ao ranking.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que um livro entra nos esgotados ao emprestar o último exemplar, continua esgotado enquanto o exemplar
+     * devolvido fica separado para uma reserva e sai quando um exemplar volta a ficar disponível.
+     */
+    @Test
+    void testLivrosEsgotadosAcompanhamOsExemplares() {
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(diretorio.resolve("dados.dat").toString());
+        Livro[] livros = adicionarLivros(gerenciador, 2, 1);
+        Usuario leitor = new Usuario("Leitor", "404.404.404-04", "9404-0000", "leitor@email.com");
+        Usuario espera = new Usuario("Espera", "505.505.505-05", "9505-0000", "espera@email.com");
+        gerenciador.adicionarUsuario(leitor);
+        gerenciador.adicionarUsuario(espera);
+        assertEquals(0, gerenciador.contarLivrosEsgotados());
+
+        Emprestimo emprestimo = gerenciador.realizarEmprestimo(livros[0].getIdLivro(), leitor.getIdUsuario());
+        assertEquals(List.of(livros[0]), gerenciador.listarLivrosEsgotados(10));
+        Livro semExemplares = new Livro("Sem Exemplares", null, 2000, "Editora", 0, new ArrayList<>());
+        gerenciador.adicionarLivro(semExemplares);
+        assertEquals(List.of(livros[0], semExemplares), gerenciador.listarLivrosEsgotados(10));
+        assertEquals(List.of(livros[0]), gerenciador.listarLivrosEsgotados(1));
+
+        assertNotNull(gerenciador.reservarLivro(livros[0].getIdLivro(), espera.getIdUsuario()));
+        gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo());
+        assertTrue(gerenciador.listarLivrosEsgotados(10).contains(livros[0]),
+                "O exemplar separado para a reserva não deveria estar disponível.");
+        assertTrue(gerenciador.cancelarReserva(livros[0].getIdLivro(), espera.getIdUsuario()));
+        assertEquals(List.of(semExemplares), gerenciador.listarLivrosEsgotados(10));
+
+        assertTrue(gerenciador.removerLivro(semExemplares.getIdLivro()));
+        assertEquals(0, gerenciador.contarLivrosEsgotados());
+        gerenciador.encerrar();
+    }
+
+    /**
+     * Testa que empréstimos e devoluções concorrentes, sob a trava de leitura, mantêm as contagens dos painéis exatas.
+     */
+    @Test
+    void testPaineisComEmprestimosConcorrentes() throws Exception {
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(diretorio.resolve("dados.dat").toString());
+        Livro[] livros = adicionarLivros(gerenciador, 4, 2);
+        Usuario[] usuarios = new Usuario[8];
+        for (int i = 0; i < usuarios.length; i++) {
+            usuarios[i] = new Usuario("Usuário " + i, "606.606.606-" + i, "9606-0000", "u" + i + "@email.com");
+            gerenciador.adicionarUsuario(usuarios[i]);
+        }
+        assertTrue(gerenciador.livrosMaisEmprestados(5).isEmpty());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < usuarios.length; t++) {
+                Usuario usuario = usuarios[t];
+                Livro livro = livros[t % livros.length];
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        Emprestimo emprestimo = gerenciador.realizarEmprestimo(livro.getIdLivro(), usuario.getIdUsuario());
+                        assertNotNull(emprestimo, "Cada livro tem um exemplar para cada um dos seus dois usuários.");
+                        assertTrue(gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo()));
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (ContagemEmprestimos<Livro> contagem : gerenciador.livrosMaisEmprestados(10)) {
+            assertEquals(400, contagem.getEmprestimos());
+        }
+        for (ContagemEmprestimos<Usuario> contagem : gerenciador.usuariosMaisAtivos(10)) {
+            assertEquals(200, contagem.getEmprestimos());
+        }
+        assertEquals(8, gerenciador.usuariosMaisAtivos(10).size());
+        assertEquals(0, gerenciador.contarEmprestimosAtivos());
+        assertEquals(0, gerenciador.contarLivrosEsgotados(), "Todos os exemplares foram devolvidos.");
+        gerenciador.encerrar();
+    }
+
+    private static Livro[] adicionarLivros(GerenciadorBiblioteca gerenciador, int quantidade, int exemplares) {
+        Autor autor = new Autor("Machado de Assis", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        Livro[] livros = new Livro[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            livros[i] = new Livro("Livro " + i, null, 1900 + i, "Garnier", exemplares, autores);
+            gerenciador.adicionarLivro(livros[i]);
+        }
+        return livros;
+    }
+}
\ No newline at end of file
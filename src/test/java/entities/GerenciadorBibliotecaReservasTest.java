@@ -0,0 +1,193 @@
+package test.java.entities;
+
+import entities.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe de testes JUnit para as filas de reserva da classe GerenciadorBiblioteca, com um relógio controlado
+ * pelo teste.
+ */
+public class GerenciadorBibliotecaReservasTest {
+
+    private RelogioAjustavel relogio;
+    private GerenciadorBiblioteca gerenciador;
+    private Livro livro;
+    private Usuario leitor;
+    private Usuario primeiro;
+    private Usuario segundo;
+    private final List<Reserva> disponiveis = new ArrayList<>();
+    private final List<Reserva> expiradas = new ArrayList<>();
+
+    /**
+     * Cria um gerenciador em 1º de março de 2024 com um livro de um único exemplar, emprestado a um leitor, dois
+     * outros usuários e um ouvinte que guarda os avisos de reservas.
+     */
+    @BeforeEach
+    void setUp() {
+        relogio = new RelogioAjustavel(LocalDate.of(2024, 3, 1));
+        gerenciador = new GerenciadorBiblioteca("dados_biblioteca.dat", false, relogio);
+
+        Autor autor = new Autor("Aluísio Azevedo", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        livro = new Livro("O Cortiço", "978-85-7232-146-2", 1890, "Garnier", 1, autores);
+        gerenciador.adicionarLivro(livro);
+        leitor = new Usuario("João Romão", "444.444.444-44", "9444-0000", "romao@email.com");
+        primeiro = new Usuario("Bertoleza", "555.555.555-55", "9555-0000", "bertoleza@email.com");
+        segundo = new Usuario("Rita Baiana", "666.666.666-66", "9666-0000", "rita@email.com");
+        gerenciador.adicionarUsuario(leitor);
+        gerenciador.adicionarUsuario(primeiro);
+        gerenciador.adicionarUsuario(segundo);
+
+        assertNull(gerenciador.reservarLivro(livro.getIdLivro(), primeiro.getIdUsuario()),
+                "Um livro com exemplares disponíveis não deveria aceitar reservas.");
+        assertNotNull(gerenciador.realizarEmprestimo(livro.getIdLivro(), leitor.getIdUsuario()));
+
+        gerenciador.adicionarOuvinteReservas(new OuvinteReservas() {
+            @Override
+            public synchronized void reservaDisponivel(Reserva reserva) {
+                disponiveis.add(reserva);
+            }
+
+            @Override
+            public synchronized void reservaExpirada(Reserva reserva) {
+                expiradas.add(reserva);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        gerenciador.encerrar();
+    }
+
+    /**
+     * Testa que a devolução separa o exemplar para a primeira reserva da fila, que só o usuário dessa reserva
+     * consegue retirá-lo e que a fila segue a ordem de chegada.
+     */
+    @Test
+    void testDevolucaoAtendeAReservaMaisAntiga() {
+        Emprestimo emprestimo = gerenciador.listarEmprestimosAtivos().get(0);
+        Reserva reservaPrimeiro = gerenciador.reservarLivro(livro.getIdLivro(), primeiro.getIdUsuario());
+        Reserva reservaSegundo = gerenciador.reservarLivro(livro.getIdLivro(), segundo.getIdUsuario());
+        assertNotNull(reservaPrimeiro, "O livro sem exemplares deveria aceitar a reserva.");
+        assertNull(gerenciador.reservarLivro(livro.getIdLivro(), primeiro.getIdUsuario()),
+                "Cada usuário deveria ter no máximo uma reserva por livro.");
+        assertEquals(List.of(reservaPrimeiro, reservaSegundo), gerenciador.listarReservas(livro.getIdLivro()),
+                "A fila deveria seguir a ordem de chegada.");
+
+        relogio.avancar(2);
+        assertTrue(gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo()));
+        assertEquals(List.of(reservaPrimeiro), disponiveis, "A primeira reserva deveria ser avisada.");
+        assertEquals(Reserva.Situacao.DISPONIVEL, reservaPrimeiro.getSituacao());
+        assertEquals(LocalDate.of(2024, 3, 3).plusDays(Reserva.PRAZO_RETIRADA_DIAS), reservaPrimeiro.getPrazoRetirada(),
+                "O prazo de retirada deveria contar a partir da devolução.");
+        assertEquals(0, livro.getQuantidadeDisponivel(), "O exemplar separado não deveria ficar disponível.");
+
+        assertNull(gerenciador.realizarEmprestimo(livro.getIdLivro(), segundo.getIdUsuario()),
+                "O exemplar separado não deveria ser emprestado a outro usuário.");
+        assertNotNull(gerenciador.realizarEmprestimo(livro.getIdLivro(), primeiro.getIdUsuario()),
+                "O usuário da reserva deveria retirar o exemplar separado.");
+        assertEquals(Reserva.Situacao.ATENDIDA, reservaPrimeiro.getSituacao());
+        assertEquals(List.of(reservaSegundo), gerenciador.listarReservas(livro.getIdLivro()),
+                "Deveria restar apenas a segunda reserva na fila.");
+    }
+
+    /**
+     * Testa que uma reserva não retirada expira no dia seguinte ao prazo e que o exemplar passa para a próxima
+     * reserva da fila, com um novo prazo.
+     */
+    @Test
+    void testReservaNaoRetiradaExpiraEPassaAdiante() {
+        Reserva reservaPrimeiro = gerenciador.reservarLivro(livro.getIdLivro(), primeiro.getIdUsuario());
+        Reserva reservaSegundo = gerenciador.reservarLivro(livro.getIdLivro(), segundo.getIdUsuario());
+        gerenciador.registrarDevolucao(gerenciador.listarEmprestimosAtivos().get(0).getIdEmprestimo());
+
+        relogio.avancar(Reserva.PRAZO_RETIRADA_DIAS);
+        assertTrue(gerenciador.verificarReservas().isEmpty(), "No último dia do prazo a reserva ainda deveria valer.");
+        relogio.avancar(1);
+        assertEquals(List.of(reservaPrimeiro), gerenciador.verificarReservas(), "Depois do prazo a reserva deveria expirar.");
+        assertEquals(List.of(reservaPrimeiro), expiradas, "A expiração deveria ser avisada.");
+        assertEquals(Reserva.Situacao.EXPIRADA, reservaPrimeiro.getSituacao());
+        assertEquals(Reserva.Situacao.DISPONIVEL, reservaSegundo.getSituacao(), "O exemplar deveria passar para a próxima reserva.");
+        assertEquals(LocalDate.of(2024, 3, 5).plusDays(Reserva.PRAZO_RETIRADA_DIAS), reservaSegundo.getPrazoRetirada());
+        assertEquals(List.of(reservaPrimeiro, reservaSegundo), disponiveis);
+        assertTrue(gerenciador.verificarReservas().isEmpty(), "Uma nova verificação no mesmo dia não deveria expirar nada.");
+
+        relogio.avancar(30);
+        assertEquals(List.of(reservaSegundo), gerenciador.verificarReservas(), "A segunda reserva também deveria expirar.");
+        assertEquals(1, livro.getQuantidadeDisponivel(), "Sem reservas na fila, o exemplar deveria voltar a ficar disponível.");
+    }
+
+    /**
+     * Testa que cancelar uma reserva com exemplar separado passa o exemplar adiante, que cancelar uma reserva da
+     * fila a retira da ordem e que o número de reservas em aberto por usuário é limitado.
+     */
+    @Test
+    void testCancelarReservaELimitePorUsuario() {
+        Reserva reservaPrimeiro = gerenciador.reservarLivro(livro.getIdLivro(), primeiro.getIdUsuario());
+        Reserva reservaSegundo = gerenciador.reservarLivro(livro.getIdLivro(), segundo.getIdUsuario());
+        assertTrue(gerenciador.cancelarReserva(livro.getIdLivro(), primeiro.getIdUsuario()));
+        assertEquals(Reserva.Situacao.CANCELADA, reservaPrimeiro.getSituacao());
+        assertFalse(gerenciador.cancelarReserva(livro.getIdLivro(), primeiro.getIdUsuario()),
+                "Uma reserva já cancelada não deveria ser cancelada de novo.");
+
+        gerenciador.registrarDevolucao(gerenciador.listarEmprestimosAtivos().get(0).getIdEmprestimo());
+        assertEquals(List.of(reservaSegundo), disponiveis, "A reserva cancelada não deveria receber o exemplar.");
+        assertTrue(gerenciador.cancelarReserva(livro.getIdLivro(), segundo.getIdUsuario()));
+        assertEquals(1, livro.getQuantidadeDisponivel(), "O exemplar da reserva cancelada deveria voltar a ficar disponível.");
+
+        ArrayList<Autor> autores = new ArrayList<>(livro.getAutores());
+        for (int i = 0; i < Reserva.MAXIMO_POR_USUARIO + 1; i++) {
+            Livro outro = new Livro("Volume " + i, null, 1890, "Garnier", 1, autores);
+            gerenciador.adicionarLivro(outro);
+            gerenciador.realizarEmprestimo(outro.getIdLivro(), leitor.getIdUsuario());
+            Reserva reserva = gerenciador.reservarLivro(outro.getIdLivro(), primeiro.getIdUsuario());
+            assertEquals(i < Reserva.MAXIMO_POR_USUARIO, reserva != null,
+                    "Cada usuário deveria ter no máximo " + Reserva.MAXIMO_POR_USUARIO + " reservas em aberto.");
+        }
+    }
+
+    /**
+     * Testa que as reservas de cada livro são listadas separadamente, na ordem de atendimento, e que cancelar uma
+     * reserva do meio da fila mantém a ordem das demais.
+     */
+    @Test
+    void testReservasListadasPorLivro() {
+        Livro outro = new Livro("Casa de Pensão", null, 1884, "Garnier", 1, new ArrayList<>(livro.getAutores()));
+        gerenciador.adicionarLivro(outro);
+        assertNotNull(gerenciador.realizarEmprestimo(outro.getIdLivro(), leitor.getIdUsuario()));
+        Usuario terceiro = new Usuario("Jerônimo", "777.777.777-77", "9777-0000", "jeronimo@email.com");
+        gerenciador.adicionarUsuario(terceiro);
+
+        Reserva reservaPrimeiro = gerenciador.reservarLivro(livro.getIdLivro(), primeiro.getIdUsuario());
+        Reserva reservaSegundo = gerenciador.reservarLivro(livro.getIdLivro(), segundo.getIdUsuario());
+        Reserva reservaTerceiro = gerenciador.reservarLivro(livro.getIdLivro(), terceiro.getIdUsuario());
+        Reserva doOutro = gerenciador.reservarLivro(outro.getIdLivro(), segundo.getIdUsuario());
+        assertEquals(List.of(reservaPrimeiro, reservaSegundo, reservaTerceiro), gerenciador.listarReservas(livro.getIdLivro()));
+        assertEquals(List.of(doOutro), gerenciador.listarReservas(outro.getIdLivro()));
+
+        assertTrue(gerenciador.cancelarReserva(livro.getIdLivro(), segundo.getIdUsuario()));
+        assertEquals(List.of(reservaPrimeiro, reservaTerceiro), gerenciador.listarReservas(livro.getIdLivro()),
+                "As demais reservas deveriam manter a ordem.");
+        assertEquals(List.of(doOutro), gerenciador.listarReservas(outro.getIdLivro()),
+                "O cancelamento não deveria afetar as reservas de outro livro.");
+
+        for (Emprestimo emprestimo : gerenciador.listarEmprestimosAtivos()) {
+            gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo());
+        }
+        assertEquals(List.of(reservaPrimeiro, doOutro), disponiveis, "Cada devolução deveria atender a primeira reserva do seu livro.");
+        assertEquals(List.of(reservaPrimeiro, reservaTerceiro), gerenciador.listarReservas(livro.getIdLivro()),
+                "A reserva disponível deveria vir antes da fila.");
+        assertNotNull(gerenciador.realizarEmprestimo(outro.getIdLivro(), segundo.getIdUsuario()));
+        assertTrue(gerenciador.listarReservas(outro.getIdLivro()).isEmpty(), "A reserva retirada deveria sair da lista.");
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Classe de testes JUnit para a classe GerenciadorBiblioteca.
@@ -115,6 +116,23 @@ public class GerenciadorBibliotecaTest {
         assertNotNull(gerenciador.buscarLivroPorId(livro1.getIdLivro()), "O livro1 ainda deveria ser encontrado.");
     }
 
+    /**
+     * Testa que um livro e um usuário podem ser removidos depois que todos os seus empréstimos forem devolvidos.
+     */
+    @Test
+    void testRemoverAposDevolucao() {
+        Emprestimo e1 = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario1.getIdUsuario());
+        Emprestimo e2 = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario1.getIdUsuario());
+
+        gerenciador.registrarDevolucao(e1.getIdEmprestimo());
+        assertFalse(gerenciador.removerLivro(livro1.getIdLivro()), "O livro1 ainda possui um empréstimo ativo.");
+        assertFalse(gerenciador.removerUsuario(usuario1.getIdUsuario()), "O usuário1 ainda possui um empréstimo ativo.");
+
+        gerenciador.registrarDevolucao(e2.getIdEmprestimo());
+        assertTrue(gerenciador.removerLivro(livro1.getIdLivro()), "O livro1 deveria ser removido após todas as devoluções.");
+        assertTrue(gerenciador.removerUsuario(usuario1.getIdUsuario()), "O usuário1 deveria ser removido após todas as devoluções.");
+    }
+
     /**
      * Testa a remoção de um livro que não existe.
      */
@@ -227,4 +245,336 @@ public class GerenciadorBibliotecaTest {
         boolean devolvidoNovamente = gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo());
         assertFalse(devolvidoNovamente, "Não deveria ser possível devolver um empréstimo que já foi devolvido.");
     }
+
+    /**
+     * Testa que a lista de empréstimos ativos reflete apenas os empréstimos em aberto, na ordem em que foram realizados.
+     */
+    @Test
+    void testListarEmprestimosAtivosAposDevolucoesParciais() {
+        Emprestimo e1 = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario1.getIdUsuario());
+        Emprestimo e2 = gerenciador.realizarEmprestimo(livro2.getIdLivro(), usuario2.getIdUsuario());
+        Emprestimo e3 = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario2.getIdUsuario());
+
+        gerenciador.registrarDevolucao(e2.getIdEmprestimo());
+
+        List<Emprestimo> ativos = gerenciador.listarEmprestimosAtivos();
+        assertEquals(2, ativos.size(), "Deveria haver 2 empréstimos ativos.");
+        assertSame(e1, ativos.get(0), "O primeiro empréstimo ativo deveria ser e1.");
+        assertSame(e3, ativos.get(1), "O segundo empréstimo ativo deveria ser e3.");
+    }
+
+    /**
+     * Testa a listagem paginada dos empréstimos ativos, na ordem dos IDs.
+     */
+    @Test
+    void testListarEmprestimosAtivosPaginados() {
+        Emprestimo e1 = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario1.getIdUsuario());
+        Emprestimo e2 = gerenciador.realizarEmprestimo(livro2.getIdLivro(), usuario2.getIdUsuario());
+        Emprestimo e3 = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario2.getIdUsuario());
+        Emprestimo e4 = gerenciador.realizarEmprestimo(livro2.getIdLivro(), usuario1.getIdUsuario());
+        gerenciador.registrarDevolucao(e2.getIdEmprestimo());
+
+        assertEquals(List.of(e1, e3), gerenciador.listarEmprestimosAtivos(0, 2), "A primeira página deveria ter e1 e e3.");
+        assertEquals(List.of(e4), gerenciador.listarEmprestimosAtivos(2, 2), "A segunda página deveria ter apenas e4.");
+        assertTrue(gerenciador.listarEmprestimosAtivos(3, 2).isEmpty(), "Não deveria haver página depois do último empréstimo.");
+        assertTrue(gerenciador.listarEmprestimosAtivos(0, 0).isEmpty(), "Uma página sem itens deveria ser vazia.");
+    }
+
+    /**
+     * Testa a busca por título e autor, sem diferenciar acentos e maiúsculas, com prefixos e vários termos.
+     */
+    @Test
+    void testBuscarLivrosPorTituloEAutor() {
+        Autor machado = new Autor("Machado de Assis", "Brasileira");
+        gerenciador.adicionarAutor(machado);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(machado);
+        Livro memorias = new Livro("Memórias Póstumas de Brás Cubas", "978-85-359-0277-2", 1881, "Tipografia Nacional", 1, autores);
+        Livro memorial = new Livro("Memorial de Aires", "978-85-359-0277-3", 1908, "Garnier", 1, autores);
+        Livro javali = new Livro("Javali Selvagem", "978-85-359-0277-4", 2001, "Record", 1, new ArrayList<>());
+        gerenciador.adicionarLivro(memorias);
+        gerenciador.adicionarLivro(memorial);
+        gerenciador.adicionarLivro(javali);
+
+        assertEquals(List.of(memorias), gerenciador.buscarLivros("MEMORIAS bras", 10), "A busca deveria ignorar acentos e maiúsculas.");
+        assertEquals(2, gerenciador.buscarLivros("mem", 10).size(), "Um prefixo deveria encontrar os dois livros.");
+        assertEquals(List.of(memorial), gerenciador.buscarLivros("assis aires", 10), "Termos do autor e do título deveriam ser combinados.");
+        assertEquals(List.of(livro2), gerenciador.buscarLivros("souza", 10), "O livro deveria ser encontrado pelo nome do autor.");
+        assertTrue(gerenciador.buscarLivros("machado kotlin", 10).isEmpty(), "Todos os termos deveriam ser exigidos.");
+
+        List<Livro> resultado = gerenciador.buscarLivros("java", 10);
+        assertEquals(List.of(livro1, javali), resultado, "A palavra inteira no título deveria vir antes do prefixo.");
+        assertEquals(1, gerenciador.buscarLivros("java", 1).size(), "O limite de resultados deveria ser respeitado.");
+    }
+
+    /**
+     * Testa que o índice de busca acompanha inclusões, alterações de título e de autor e remoções de livros.
+     */
+    @Test
+    void testBuscarLivrosAposAlteracoes() {
+        assertEquals(List.of(livro1), gerenciador.buscarLivros("aventuras", 10), "O livro deveria ser encontrado pelo título.");
+
+        livro1.setTitulo("Aventuras de Kotlin");
+        assertTrue(gerenciador.buscarLivros("java", 10).isEmpty(), "O título antigo não deveria mais ser encontrado.");
+        assertEquals(List.of(livro1), gerenciador.buscarLivros("kotlin", 10), "O novo título deveria ser encontrado.");
+
+        autor1.setNome("Joana Silva");
+        assertEquals(List.of(livro1), gerenciador.buscarLivros("joana", 10), "O livro deveria ser encontrado pelo novo nome do autor.");
+        assertTrue(gerenciador.buscarLivros("joao", 10).isEmpty(), "O nome antigo do autor não deveria mais ser encontrado.");
+
+        Livro novo = new Livro("Padrões de Projeto", "978-85-333-0789-0", 2000, "Code Books", 1, new ArrayList<>());
+        gerenciador.adicionarLivro(novo);
+        assertEquals(List.of(novo), gerenciador.buscarLivros("padroes", 10), "O livro incluído deveria ser encontrado.");
+
+        gerenciador.removerLivro(livro2.getIdLivro());
+        assertTrue(gerenciador.buscarLivros("design", 10).isEmpty(), "O livro removido não deveria ser encontrado.");
+    }
+
+    /**
+     * Testa a busca por ISBN-10 e ISBN-13 equivalentes, com e sem hífens.
+     */
+    @Test
+    void testBuscarLivroPorIsbn() {
+        Livro cleanCode = new Livro("Clean Code", "0-13-235088-2", 2008, "Prentice Hall", 3, new ArrayList<>());
+        assertTrue(gerenciador.adicionarLivro(cleanCode), "O livro com ISBN-10 deveria ser adicionado.");
+
+        assertSame(cleanCode, gerenciador.buscarLivroPorIsbn("9780132350884"), "O ISBN-13 equivalente deveria encontrar o livro.");
+        assertSame(cleanCode, gerenciador.buscarLivroPorIsbn("978-0-13-235088-4"), "Os hífens deveriam ser ignorados.");
+        assertSame(livro1, gerenciador.buscarLivroPorIsbn("9788533301234"), "O livro do cadastro inicial deveria ser encontrado.");
+        assertNull(gerenciador.buscarLivroPorIsbn("978-85-333-9999-9"), "Um ISBN não cadastrado não deveria encontrar livros.");
+        assertNull(gerenciador.buscarLivroPorIsbn("não é um ISBN"), "Um texto inválido não deveria encontrar livros.");
+
+        gerenciador.removerLivro(cleanCode.getIdLivro());
+        assertNull(gerenciador.buscarLivroPorIsbn("0132350882"), "O livro removido não deveria ser encontrado.");
+    }
+
+    /**
+     * Testa que livros com ISBN já cadastrado são recusados, tanto na inclusão quanto na alteração do ISBN.
+     */
+    @Test
+    void testIsbnDuplicadoRecusado() {
+        Livro repetido = new Livro("Outra Edição", "9788533301234", 2021, "Dev Publicações", 1, new ArrayList<>());
+        assertFalse(gerenciador.adicionarLivro(repetido), "Um livro com ISBN já cadastrado não deveria ser adicionado.");
+        assertEquals(2, gerenciador.listarTodosLivros().size(), "O número de livros deveria permanecer 2.");
+
+        assertThrows(IllegalArgumentException.class, () -> livro2.setIsbn("978 85 333 0123 4"), "O ISBN de outro livro deveria ser recusado.");
+        assertEquals("978-85-333-0456-7", livro2.getIsbn(), "O ISBN anterior deveria ser mantido.");
+        assertSame(livro2, gerenciador.buscarLivroPorIsbn("9788533304567"), "O livro deveria continuar encontrado pelo ISBN anterior.");
+
+        livro1.setIsbn("978-85-333-0999-9");
+        assertNull(gerenciador.buscarLivroPorIsbn("978-85-333-0123-4"), "O ISBN antigo deveria ser liberado.");
+        assertSame(livro1, gerenciador.buscarLivroPorIsbn("9788533309999"), "O livro deveria ser encontrado pelo novo ISBN.");
+        assertTrue(gerenciador.adicionarLivro(repetido), "O ISBN liberado deveria poder ser usado por outro livro.");
+    }
+
+    /**
+     * Testa a busca aproximada de livros e autores com erros de digitação, inclusive após novas inclusões.
+     */
+    @Test
+    void testBuscarComErrosDeDigitacao() {
+        assertEquals(List.of(livro1), gerenciador.buscarLivrosAproximados("Avemturas de Jva", 10), "Erros de uma letra deveriam ser tolerados.");
+        assertEquals(List.of(livro2), gerenciador.buscarLivrosAproximados("paterns esenciais", 10), "O livro deveria ser encontrado com letras faltando.");
+        assertEquals(List.of(livro2), gerenciador.buscarLivrosAproximados("Mria Suza", 10), "O livro deveria ser encontrado pelo nome do autor.");
+        assertTrue(gerenciador.buscarLivrosAproximados("aventuras kotlin", 10).isEmpty(), "Todos os termos deveriam ser exigidos.");
+        assertEquals(List.of(autor1), gerenciador.buscarAutoresAproximados("Joao Slva", 10), "O autor deveria ser encontrado com um erro.");
+
+        Autor machado = new Autor("Machado de Assis", "Brasileira");
+        gerenciador.adicionarAutor(machado);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(machado);
+        Livro casmurro = new Livro("Dom Casmurro", "978-85-359-0277-1", 1899, "Garnier", 1, autores);
+        Livro casmurros = new Livro("Os Casmurros", "978-85-359-0277-9", 1950, "Record", 1, new ArrayList<>());
+        gerenciador.adicionarLivro(casmurro);
+        gerenciador.adicionarLivro(casmurros);
+
+        assertEquals(List.of(casmurro), gerenciador.buscarLivrosAproximados("casmuro machdo", 10), "Os livros incluídos depois deveriam ser encontrados.");
+        assertEquals(List.of(machado), gerenciador.buscarAutoresAproximados("asis", 10), "Os autores incluídos depois deveriam ser encontrados.");
+        assertEquals(List.of(casmurro, casmurros), gerenciador.buscarLivrosAproximados("casmurro", 10), "A palavra exata deveria vir antes da aproximada.");
+
+        Livro java17 = new Livro("Java 17", "978-85-359-0300-6", 2021, "Dev Publicações", 1, new ArrayList<>());
+        gerenciador.adicionarLivro(java17);
+        assertEquals(List.of(java17), gerenciador.buscarLivrosAproximados("jav 17", 10), "O número exato deveria ser encontrado.");
+        assertTrue(gerenciador.buscarLivrosAproximados("java 18", 10).isEmpty(), "Números não deveriam ser aproximados.");
+    }
+
+    /**
+     * Testa a busca de usuários por CPF, com e sem pontuação, e por e-mail, sem diferenciar maiúsculas.
+     */
+    @Test
+    void testBuscarUsuarioPorCpfEEmail() {
+        assertSame(usuario1, gerenciador.buscarUsuarioPorCpf("11111111111"), "O CPF sem pontuação deveria encontrar o usuário.");
+        assertSame(usuario2, gerenciador.buscarUsuarioPorCpf("222.222.222-22"), "O CPF com pontuação deveria encontrar o usuário.");
+        assertSame(usuario2, gerenciador.buscarUsuarioPorEmail(" Bruno@Email.com "), "O e-mail deveria ser encontrado sem diferenciar maiúsculas.");
+        assertNull(gerenciador.buscarUsuarioPorCpf("333.333.333-33"), "Um CPF não cadastrado não deveria encontrar usuários.");
+        assertNull(gerenciador.buscarUsuarioPorEmail("ninguem@email.com"), "Um e-mail não cadastrado não deveria encontrar usuários.");
+
+        gerenciador.removerUsuario(usuario1.getIdUsuario());
+        assertNull(gerenciador.buscarUsuarioPorCpf("111.111.111-11"), "O usuário removido não deveria ser encontrado pelo CPF.");
+        assertNull(gerenciador.buscarUsuarioPorEmail("ana@email.com"), "O usuário removido não deveria ser encontrado pelo e-mail.");
+    }
+
+    /**
+     * Testa que usuários com CPF ou e-mail já cadastrados são recusados, na inclusão e na alteração pelos setters.
+     */
+    @Test
+    void testCpfOuEmailDuplicadoRecusado() {
+        assertFalse(gerenciador.adicionarUsuario(new Usuario("Ana Clara", "111.111.111-11", "9000-0001", "clara@email.com")),
+                "Um usuário com CPF já cadastrado não deveria ser adicionado.");
+        assertFalse(gerenciador.adicionarUsuario(new Usuario("Ana Clara", "444.444.444-44", "9000-0001", "ANA@email.com")),
+                "Um usuário com e-mail já cadastrado não deveria ser adicionado.");
+        assertEquals(2, gerenciador.listarTodosUsuarios().size(), "O número de usuários deveria permanecer 2.");
+
+        assertThrows(IllegalArgumentException.class, () -> usuario2.setCpf("11111111111"), "O CPF de outro usuário deveria ser recusado.");
+        assertEquals("222.222.222-22", usuario2.getCpf(), "O CPF anterior deveria ser mantido.");
+        assertThrows(IllegalArgumentException.class, () -> usuario2.setEmail("ana@email.com"), "O e-mail de outro usuário deveria ser recusado.");
+        assertSame(usuario2, gerenciador.buscarUsuarioPorEmail("bruno@email.com"), "O e-mail anterior deveria continuar indexado.");
+
+        usuario1.setEmail("ana.costa@email.com");
+        assertSame(usuario1, gerenciador.buscarUsuarioPorEmail("ana.costa@email.com"), "O novo e-mail deveria ser encontrado.");
+        assertTrue(gerenciador.adicionarUsuario(new Usuario("Ana Clara", "444.444.444-44", "9000-0001", "ana@email.com")),
+                "O e-mail liberado deveria poder ser usado por outro usuário.");
+    }
+
+    /**
+     * Testa a listagem das obras de um autor após inclusões, troca de autores e remoção de livros.
+     */
+    @Test
+    void testBuscarLivrosPorAutor() {
+        assertEquals(List.of(livro1), gerenciador.buscarLivrosPorAutor(autor1.getIdAutor()), "O autor 1 deveria ter apenas o livro 1.");
+
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor2);
+        autores.add(autor1);
+        Livro livro3 = new Livro("Java e Padrões", "978-85-333-0789-0", 2021, "Code Books", 1, autores);
+        gerenciador.adicionarLivro(livro3);
+        assertEquals(List.of(livro1, livro3), gerenciador.buscarLivrosPorAutor(autor1.getIdAutor()),
+                "As obras deveriam vir em ordem de ID.");
+
+        livro1.setAutores(new ArrayList<>(List.of(autor2)));
+        assertEquals(List.of(livro3), gerenciador.buscarLivrosPorAutor(autor1.getIdAutor()), "A troca de autores deveria ser refletida.");
+        assertEquals(List.of(livro1, livro2, livro3), gerenciador.buscarLivrosPorAutor(autor2.getIdAutor()),
+                "O autor 2 deveria ter os três livros.");
+
+        gerenciador.removerLivro(livro3.getIdLivro());
+        assertTrue(gerenciador.buscarLivrosPorAutor(autor1.getIdAutor()).isEmpty(), "O autor 1 não deveria ter mais livros.");
+        assertTrue(gerenciador.buscarLivrosPorAutor(99).isEmpty(), "Um autor inexistente não deveria ter livros.");
+    }
+
+    /**
+     * Testa que um autor só pode ser removido depois que nenhum livro o tiver entre seus autores.
+     */
+    @Test
+    void testRemoverAutorSomenteSemLivros() {
+        assertEquals(List.of(autor1), gerenciador.buscarAutoresAproximados("Silva", 10), "O autor deveria ser encontrado pelo nome.");
+        assertFalse(gerenciador.removerAutor(autor1.getIdAutor()), "Um autor com livros não deveria ser removido.");
+        assertNotNull(gerenciador.buscarAutorPorId(autor1.getIdAutor()), "O autor deveria continuar cadastrado.");
+
+        gerenciador.removerLivro(livro1.getIdLivro());
+        assertTrue(gerenciador.removerAutor(autor1.getIdAutor()), "Um autor sem livros deveria ser removido.");
+        assertNull(gerenciador.buscarAutorPorId(autor1.getIdAutor()), "O autor removido não deveria ser encontrado.");
+        assertEquals(1, gerenciador.listarTodosAutores().size(), "Deveria restar apenas um autor.");
+        assertTrue(gerenciador.buscarAutoresAproximados("Silva", 10).isEmpty(), "O autor removido não deveria aparecer na busca.");
+        assertFalse(gerenciador.removerAutor(autor1.getIdAutor()), "Um autor já removido não deveria ser removido de novo.");
+    }
+
+    /**
+     * Testa o histórico paginado de um usuário e de um livro, do empréstimo mais recente ao mais antigo.
+     */
+    @Test
+    void testHistoricoPaginado() {
+        List<Emprestimo> realizados = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Emprestimo emprestimo = gerenciador.realizarEmprestimo(livro1.getIdLivro(), usuario1.getIdUsuario());
+            gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo());
+            realizados.add(0, emprestimo);
+        }
+        Emprestimo outro = gerenciador.realizarEmprestimo(livro2.getIdLivro(), usuario2.getIdUsuario());
+
+        List<Emprestimo> primeira = gerenciador.historicoPorUsuario(usuario1.getIdUsuario(), 0);
+        assertEquals(realizados.subList(0, GerenciadorBiblioteca.TAMANHO_PAGINA_HISTORICO), primeira,
+                "A primeira página deveria trazer os empréstimos mais recentes.");
+        assertEquals(realizados.subList(20, 25), gerenciador.historicoPorUsuario(usuario1.getIdUsuario(), 1),
+                "A segunda página deveria trazer os 5 restantes.");
+        assertTrue(gerenciador.historicoPorUsuario(usuario1.getIdUsuario(), 2).isEmpty(), "A terceira página deveria estar vazia.");
+        assertTrue(gerenciador.historicoPorUsuario(usuario1.getIdUsuario(), -1).isEmpty(), "Uma página negativa deveria estar vazia.");
+
+        Emprestimo novo = gerenciador.realizarEmprestimo(livro2.getIdLivro(), usuario1.getIdUsuario());
+        assertEquals(novo, gerenciador.historicoPorUsuario(usuario1.getIdUsuario(), 0).get(0),
+                "Um empréstimo feito depois da primeira consulta deveria entrar no histórico.");
+        assertEquals(List.of(novo, outro), gerenciador.historicoPorLivro(livro2.getIdLivro(), 0),
+                "O histórico do livro deveria incluir empréstimos de todos os usuários.");
+        assertTrue(gerenciador.historicoPorUsuario(99, 0).isEmpty(), "Um usuário inexistente não deveria ter histórico.");
+    }
+
+    /**
+     * Testa a listagem paginada por ID e por nome, acompanhando inclusões, remoções e mudanças de título e nome.
+     */
+    @Test
+    void testListagemPaginada() {
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor1);
+        Livro livro3 = new Livro("Álgebra Linear", "978-85-333-0999-3", 2015, "Exatas", 1, autores);
+        gerenciador.adicionarLivro(livro3);
+
+        assertEquals(3, gerenciador.contarLivros(), "Deveria haver 3 livros.");
+        assertEquals(List.of(livro1, livro2), gerenciador.listarLivros(0, 2, Ordenacao.POR_ID), "A primeira página deveria seguir a ordem de ID.");
+        assertEquals(List.of(livro3), gerenciador.listarLivros(2, 2, Ordenacao.POR_ID), "A segunda página deveria ter o último livro.");
+        assertTrue(gerenciador.listarLivros(3, 2, Ordenacao.POR_ID).isEmpty(), "Depois do último livro a página deveria estar vazia.");
+        assertEquals(List.of(livro3, livro1, livro2), gerenciador.listarLivros(0, 10, Ordenacao.POR_NOME),
+                "A ordem por título deveria ignorar acentos.");
+
+        livro3.setTitulo("Zoologia");
+        assertEquals(List.of(livro1, livro2, livro3), gerenciador.listarLivros(0, 10, Ordenacao.POR_NOME),
+                "A mudança de título deveria ser refletida.");
+        gerenciador.removerLivro(livro1.getIdLivro());
+        assertEquals(List.of(livro2, livro3), gerenciador.listarLivros(0, 10, Ordenacao.POR_ID), "O livro removido não deveria ser listado.");
+        Livro livro4 = new Livro("Botânica", "978-85-333-0998-6", 2018, "Exatas", 1, autores);
+        gerenciador.adicionarLivro(livro4);
+        assertEquals(List.of(livro2, livro3, livro4), gerenciador.listarLivros(0, 10, Ordenacao.POR_ID),
+                "O livro incluído depois da primeira listagem deveria entrar no final da ordem por ID.");
+        List<Livro> porNome = gerenciador.listarLivros(0, 10, Ordenacao.POR_NOME);
+        assertEquals(livro4, porNome.get(0), "O livro incluído deveria entrar na sua posição da ordem por título.");
+        assertEquals(List.of(livro4, livro2, livro3), porNome, "O livro removido não deveria ser listado por título.");
+
+        usuario1.setNome("Zélia Costa");
+        assertEquals(List.of(usuario2, usuario1), gerenciador.listarUsuarios(0, 10, Ordenacao.POR_NOME),
+                "A mudança de nome do usuário deveria ser refletida.");
+        assertEquals(2, gerenciador.contarUsuarios(), "Deveria haver 2 usuários.");
+        assertEquals(List.of(autor2), gerenciador.listarAutores(1, 1, Ordenacao.POR_ID), "A página de autores deveria começar no segundo.");
+    }
+
+    /**
+     * Testa os empréstimos e devoluções em lote: itens válidos aplicados, inválidos recusados com o motivo e
+     * exemplares reservados pelos itens anteriores do mesmo lote.
+     */
+    @Test
+    void testEmprestimosEDevolucoesEmLote() {
+        int idLivro2 = livro2.getIdLivro();
+        List<ResultadoLote> emprestimos = gerenciador.realizarEmprestimosEmLote(
+                new int[] {livro1.getIdLivro(), idLivro2, idLivro2, idLivro2, 99, idLivro2},
+                new int[] {usuario1.getIdUsuario(), usuario1.getIdUsuario(), usuario2.getIdUsuario(), usuario2.getIdUsuario(), usuario1.getIdUsuario(), 99});
+
+        assertEquals(6, emprestimos.size(), "Deveria haver um resultado por item.");
+        assertTrue(emprestimos.get(0).isSucesso() && emprestimos.get(1).isSucesso() && emprestimos.get(2).isSucesso(),
+                "Os três primeiros itens deveriam ser aplicados.");
+        assertEquals(ResultadoLote.Situacao.SEM_EXEMPLARES, emprestimos.get(3).getSituacao(),
+                "Os 2 exemplares do livro já foram reservados pelos itens anteriores do lote.");
+        assertEquals(ResultadoLote.Situacao.LIVRO_NAO_ENCONTRADO, emprestimos.get(4).getSituacao());
+        assertEquals(ResultadoLote.Situacao.USUARIO_NAO_ENCONTRADO, emprestimos.get(5).getSituacao());
+        assertNull(emprestimos.get(3).getEmprestimo(), "O item recusado não deveria ter empréstimo.");
+        assertEquals(0, livro2.getQuantidadeDisponivel(), "Os exemplares emprestados deveriam ser descontados.");
+        assertEquals(3, gerenciador.listarEmprestimosAtivos().size(), "Deveria haver 3 empréstimos ativos.");
+
+        int idPrimeiro = emprestimos.get(0).getEmprestimo().getIdEmprestimo();
+        List<ResultadoLote> devolucoes = gerenciador.registrarDevolucoesEmLote(
+                new int[] {idPrimeiro, emprestimos.get(1).getEmprestimo().getIdEmprestimo(), idPrimeiro, 999});
+
+        assertTrue(devolucoes.get(0).isSucesso() && devolucoes.get(1).isSucesso(), "As duas devoluções deveriam ser aplicadas.");
+        assertNotNull(devolucoes.get(0).getEmprestimo().getDataDevolucaoEfetiva(), "A data de devolução deveria ser registrada.");
+        assertEquals(ResultadoLote.Situacao.EMPRESTIMO_NAO_ENCONTRADO, devolucoes.get(2).getSituacao(),
+                "O empréstimo repetido no lote deveria ser devolvido apenas uma vez.");
+        assertEquals(ResultadoLote.Situacao.EMPRESTIMO_NAO_ENCONTRADO, devolucoes.get(3).getSituacao());
+        assertEquals(1, gerenciador.listarEmprestimosAtivos().size(), "Deveria restar 1 empréstimo ativo.");
+        assertEquals(5, livro1.getQuantidadeDisponivel(), "O exemplar devolvido deveria voltar a ficar disponível.");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package test.java.entities;
+
+import entities.MapaInt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe de testes JUnit para a classe MapaInt.
+ * Testa inserção, substituição, remoção e redimensionamento do mapa.
+ */
+public class MapaIntTest {
+
+    private MapaInt<String> mapa;
+
+    /**
+     * Configura um novo mapa vazio antes de cada teste.
+     */
+    @BeforeEach
+    void setUp() {
+        mapa = new MapaInt<>();
+    }
+
+    /**
+     * Testa a inserção e a busca de valores, incluindo a substituição de uma chave existente.
+     */
+    @Test
+    void testPutEGet() {
+        assertNull(mapa.put(1, "um"), "Não deveria haver valor anterior para a chave 1.");
+        assertNull(mapa.put(-7, "menos sete"), "Chaves negativas também deveriam ser aceitas.");
+        assertEquals("um", mapa.put(1, "UM"), "O valor anterior deveria ser retornado na substituição.");
+
+        assertEquals("UM", mapa.get(1), "A chave 1 deveria retornar o novo valor.");
+        assertEquals("menos sete", mapa.get(-7), "A chave -7 deveria ser encontrada.");
+        assertNull(mapa.get(2), "Uma chave inexistente deveria retornar null.");
+        assertEquals(2, mapa.size(), "O mapa deveria ter 2 chaves.");
+    }
+
+    /**
+     * Testa a remoção de chaves, garantindo que as demais continuam acessíveis.
+     */
+    @Test
+    void testRemove() {
+        for (int i = 0; i < 100; i++) {
+            mapa.put(i, "v" + i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertEquals("v" + i, mapa.remove(i), "A remoção deveria retornar o valor da chave " + i + ".");
+        }
+        assertNull(mapa.remove(0), "Remover uma chave já removida deveria retornar null.");
+        assertEquals(50, mapa.size(), "Deveriam restar 50 chaves.");
+        for (int i = 1; i < 100; i += 2) {
+            assertEquals("v" + i, mapa.get(i), "A chave " + i + " deveria continuar acessível após as remoções.");
+        }
+    }
+
+    /**
+     * Testa o crescimento do mapa além da capacidade inicial.
+     */
+    @Test
+    void testRedimensionamento() {
+        for (int i = 1; i <= 10_000; i++) {
+            mapa.put(i * 31, "v" + i);
+        }
+        assertEquals(10_000, mapa.size(), "O mapa deveria conter 10.000 chaves.");
+        assertEquals("v5000", mapa.get(5000 * 31), "As chaves deveriam ser encontradas após redimensionar.");
+        assertEquals(10_000, mapa.values().size(), "values() deveria retornar todos os valores.");
+    }
+
+    /**
+     * Testa que valores nulos são rejeitados.
+     */
+    @Test
+    void testValorNulo() {
+        assertThrows(IllegalArgumentException.class, () -> mapa.put(1, null), "Valores nulos não deveriam ser aceitos.");
+    }
+}
@@ -0,0 +1,631 @@
+package test.java.entities;
+
+import entities.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Classe de testes JUnit para a persistência do GerenciadorBiblioteca.
+ * Testa a recuperação dos dados a partir do último instantâneo e do diário de operações.
+ */
+public class PersistenciaTest {
+
+    @TempDir
+    Path diretorio;
+
+    private String arquivo;
+
+    /**
+     * Define o arquivo de dados dentro de um diretório temporário exclusivo do teste.
+     */
+    @BeforeEach
+    void setUp() {
+        arquivo = diretorio.resolve("dados.dat").toString();
+    }
+
+    /**
+     * Testa que as operações feitas sem salvarDados são recuperadas do diário, como após uma queda do sistema.
+     */
+    @Test
+    void testRecuperaOperacoesDoDiarioSemSalvar() {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+        Emprestimo ativo = original.realizarEmprestimo(ids[1], ids[2]);
+        Emprestimo devolvido = original.realizarEmprestimo(ids[1], ids[2]);
+        original.registrarDevolucao(devolvido.getIdEmprestimo());
+        original.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+
+        Livro livro = recuperado.buscarLivroPorId(ids[1]);
+        assertNotNull(livro, "O livro deveria ser recuperado do diário.");
+        assertEquals("Dom Casmurro", livro.getTitulo(), "O título deveria ser recuperado.");
+        assertEquals("Machado de Assis", livro.getAutores().get(0).getNome(), "O autor do livro deveria ser recuperado.");
+        assertEquals(2, livro.getQuantidadeDisponivel(), "Apenas o empréstimo ativo deveria reduzir a quantidade disponível.");
+        assertNotNull(recuperado.buscarUsuarioPorId(ids[2]), "O usuário deveria ser recuperado do diário.");
+
+        List<Emprestimo> ativos = recuperado.listarEmprestimosAtivos();
+        assertEquals(1, ativos.size(), "Deveria haver 1 empréstimo ativo.");
+        assertEquals(ativo.getIdEmprestimo(), ativos.get(0).getIdEmprestimo(), "O empréstimo ativo deveria manter seu ID.");
+        assertFalse(recuperado.removerLivro(ids[1]), "O livro com empréstimo ativo não deveria ser removido.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que o carregamento combina o instantâneo de salvarDados com as operações posteriores do diário.
+     */
+    @Test
+    void testCarregaInstantaneoEDiarioPosterior() throws IOException {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+        original.salvarDados();
+        Emprestimo emprestimo = original.realizarEmprestimo(ids[1], ids[2]);
+        Usuario outro = new Usuario("Capitu", "222.222.222-22", "9000-0000", "capitu@email.com");
+        original.adicionarUsuario(outro);
+        original.removerUsuario(outro.getIdUsuario());
+        original.encerrar();
+
+        assertEquals(1, contarDiarios(), "Deveria restar apenas o diário posterior ao instantâneo.");
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        assertEquals(1, recuperado.listarTodosLivros().size(), "O livro do instantâneo deveria ser carregado.");
+        assertEquals(1, recuperado.listarTodosUsuarios().size(), "O usuário removido não deveria voltar.");
+        assertEquals(1, recuperado.listarEmprestimosAtivos().size(), "O empréstimo do diário deveria ser reproduzido.");
+        assertTrue(recuperado.registrarDevolucao(emprestimo.getIdEmprestimo()), "O empréstimo recuperado deveria poder ser devolvido.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que um registro incompleto no final do diário é descartado sem perder os registros anteriores.
+     */
+    @Test
+    void testDescartaRegistroIncompletoNoFinalDoDiario() throws IOException {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+        original.encerrar();
+
+        // Simula uma gravação interrompida: um cabeçalho de registro sem o conteúdo correspondente.
+        Files.write(primeiroDiario(), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        assertNotNull(recuperado.buscarLivroPorId(ids[1]), "Os registros anteriores deveriam ser mantidos.");
+        Emprestimo emprestimo = recuperado.realizarEmprestimo(ids[1], ids[2]);
+        recuperado.encerrar();
+
+        GerenciadorBiblioteca novamente = new GerenciadorBiblioteca(arquivo);
+        novamente.carregarDados();
+        assertEquals(1, novamente.listarEmprestimosAtivos().size(), "O registro gravado após a cauda descartada deveria ser lido.");
+        assertEquals(emprestimo.getIdEmprestimo(), novamente.listarEmprestimosAtivos().get(0).getIdEmprestimo());
+        novamente.encerrar();
+    }
+
+    /**
+     * Testa que compactar incorpora os diários em um novo instantâneo e os apaga, sem perder operações posteriores.
+     */
+    @Test
+    void testCompactarIncorporaDiariosNoInstantaneo() throws IOException {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+        Emprestimo primeiro = original.realizarEmprestimo(ids[1], ids[2]);
+
+        original.compactar();
+        assertTrue(Files.exists(Path.of(arquivo)), "A compactação deveria gravar um instantâneo.");
+        assertEquals(1, contarDiarios(), "Apenas o novo diário deveria permanecer após a compactação.");
+
+        original.registrarDevolucao(primeiro.getIdEmprestimo());
+        Emprestimo segundo = original.realizarEmprestimo(ids[1], ids[2]);
+        original.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        List<Emprestimo> ativos = recuperado.listarEmprestimosAtivos();
+        assertEquals(1, ativos.size(), "Deveria haver 1 empréstimo ativo.");
+        assertEquals(segundo.getIdEmprestimo(), ativos.get(0).getIdEmprestimo(), "O empréstimo posterior à compactação deveria ser recuperado.");
+        assertEquals(2, recuperado.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "A quantidade disponível deveria refletir a devolução e o novo empréstimo.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa compactações executadas enquanto outra thread realiza empréstimos e devoluções.
+     * O estado recuperado deve ser idêntico ao estado em memória ao final.
+     */
+    @Test
+    void testCompactarDuranteEmprestimos() throws Exception {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+
+        Thread balcao = new Thread(() -> {
+            List<Emprestimo> abertos = new ArrayList<>();
+            for (int i = 0; i < 3_000; i++) {
+                Emprestimo emprestimo = original.realizarEmprestimo(ids[1], ids[2]);
+                if (emprestimo != null) {
+                    abertos.add(emprestimo);
+                } else {
+                    original.registrarDevolucao(abertos.remove(0).getIdEmprestimo());
+                }
+            }
+        });
+        balcao.start();
+        while (balcao.isAlive()) {
+            original.compactar();
+        }
+        balcao.join();
+        int disponiveis = original.buscarLivroPorId(ids[1]).getQuantidadeDisponivel();
+        int ativos = original.listarEmprestimosAtivos().size();
+        original.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        assertEquals(disponiveis, recuperado.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "A quantidade disponível recuperada deveria ser a mesma.");
+        assertEquals(ativos, recuperado.listarEmprestimosAtivos().size(), "Os empréstimos ativos recuperados deveriam ser os mesmos.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa a leitura de um arquivo no formato antigo (serialização Java) e sua conversão para o formato binário atual.
+     */
+    @Test
+    void testConverteArquivoNoFormatoAntigo() throws IOException {
+        GerenciadorBiblioteca origem = new GerenciadorBiblioteca(arquivo);
+        int[] ids = popular(origem);
+        Emprestimo emprestimo = origem.realizarEmprestimo(ids[1], ids[2]);
+        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(Path.of(arquivo)))) {
+            oos.writeObject(origem.listarTodosAutores());
+            oos.writeObject(origem.listarTodosLivros());
+            oos.writeObject(origem.listarTodosUsuarios());
+            oos.writeObject(origem.listarEmprestimosAtivos());
+            oos.writeInt(Autor.getProximoId());
+            oos.writeInt(Livro.getProximoId());
+            oos.writeInt(Usuario.getProximoId());
+            oos.writeInt(Emprestimo.getProximoId());
+        }
+
+        GerenciadorBiblioteca convertido = new GerenciadorBiblioteca(arquivo);
+        convertido.carregarDados();
+        assertEquals(1, convertido.listarEmprestimosAtivos().size(), "O empréstimo do arquivo antigo deveria ser carregado.");
+        convertido.salvarDados();
+        convertido.encerrar();
+        byte[] magico = Arrays.copyOf(Files.readAllBytes(Path.of(arquivo)), 4);
+        assertArrayEquals("BIBS".getBytes(StandardCharsets.US_ASCII), magico, "O arquivo deveria ser regravado no formato binário atual.");
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        Emprestimo ativo = recuperado.listarEmprestimosAtivos().get(0);
+        assertEquals(emprestimo.getIdEmprestimo(), ativo.getIdEmprestimo(), "O empréstimo deveria manter seu ID.");
+        assertSame(recuperado.buscarLivroPorId(ids[1]), ativo.getLivro(), "O empréstimo deveria referenciar o livro do acervo.");
+        assertEquals(2, ativo.getLivro().getQuantidadeDisponivel(), "A quantidade disponível deveria ser preservada.");
+        assertEquals(emprestimo.getDataDevolucaoPrevista(), ativo.getDataDevolucaoPrevista(), "A data prevista deveria ser preservada.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que um instantâneo corrompido é detectado pelo CRC em vez de produzir dados inconsistentes.
+     */
+    @Test
+    void testDetectaInstantaneoCorrompido() throws IOException {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        popular(original);
+        original.salvarDados();
+
+        byte[] conteudo = Files.readAllBytes(Path.of(arquivo));
+        conteudo[conteudo.length / 2] ^= 0x5A;
+        Files.write(Path.of(arquivo), conteudo);
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        assertTrue(recuperado.listarTodosLivros().isEmpty(), "Um instantâneo corrompido não deveria ser carregado.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que alterações feitas pelos setters em entidades cadastradas e em empréstimos em aberto são gravadas
+     * no diário, e que a quantidade total de um livro não altera os exemplares disponíveis.
+     */
+    @Test
+    void testAlteracoesPorSettersSaoGravadasNoDiario() {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+        original.buscarLivroPorId(ids[1]).setTitulo("Dom Casmurro (edição crítica)");
+        original.buscarAutorPorId(ids[0]).setNome("Joaquim Maria Machado de Assis");
+        original.buscarUsuarioPorId(ids[2]).setEmail("bento@email.com");
+        original.buscarUsuarioPorId(ids[2]).setNome("Bento Santiago Filho");
+        original.buscarLivroPorId(ids[1]).setEditora("Garnier");
+        original.buscarLivroPorId(ids[1]).setAnoPublicacao(1900);
+        original.buscarUsuarioPorId(ids[2]).setTelefone("9999-0000");
+        original.buscarAutorPorId(ids[0]).setNacionalidade("Brasileiro");
+        Emprestimo emprestimo = original.realizarEmprestimo(ids[1], ids[2]);
+        LocalDate prorrogada = emprestimo.getDataDevolucaoPrevista().plusDays(30);
+        emprestimo.setDataDevolucaoPrevista(prorrogada);
+        int disponiveis = original.buscarLivroPorId(ids[1]).getQuantidadeDisponivel();
+        original.buscarLivroPorId(ids[1]).setQuantidadeTotal(5);
+        assertEquals(disponiveis, original.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "A quantidade disponível não deveria mudar.");
+        original.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        assertEquals("Dom Casmurro (edição crítica)", recuperado.buscarLivroPorId(ids[1]).getTitulo(), "O novo título deveria ser recuperado.");
+        assertEquals("Joaquim Maria Machado de Assis", recuperado.buscarAutorPorId(ids[0]).getNome(), "O novo nome deveria ser recuperado.");
+        assertEquals(1, recuperado.buscarLivros("edicao joaquim", 10).size(), "A busca deveria usar os dados recuperados.");
+        assertEquals(ids[2], recuperado.buscarUsuarioPorEmail("bento@email.com").getIdUsuario(), "O novo e-mail deveria ser recuperado.");
+        assertEquals("Bento Santiago Filho", recuperado.buscarUsuarioPorId(ids[2]).getNome(), "O novo nome deveria ser recuperado.");
+        assertNull(recuperado.buscarUsuarioPorEmail("bentinho@email.com"), "O e-mail antigo não deveria ser recuperado.");
+        assertEquals("Garnier", recuperado.buscarLivroPorId(ids[1]).getEditora(), "A nova editora deveria ser recuperada.");
+        assertEquals(1900, recuperado.buscarLivroPorId(ids[1]).getAnoPublicacao(), "O novo ano deveria ser recuperado.");
+        assertEquals("9999-0000", recuperado.buscarUsuarioPorId(ids[2]).getTelefone(), "O novo telefone deveria ser recuperado.");
+        assertEquals("Brasileiro", recuperado.buscarAutorPorId(ids[0]).getNacionalidade(), "A nova nacionalidade deveria ser recuperada.");
+        assertEquals(5, recuperado.buscarLivroPorId(ids[1]).getQuantidadeTotal(), "A nova quantidade total deveria ser recuperada.");
+        assertEquals(disponiveis, recuperado.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "A quantidade disponível deveria ser recuperada.");
+        assertEquals(prorrogada, recuperado.listarEmprestimosAtivos().get(0).getDataDevolucaoPrevista(), "A nova data prevista deveria ser recuperada.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que um diário com o empréstimo de um livro sem exemplar disponível (gravado antes da devolução que
+     * liberaria o exemplar) não é reproduzido: a carga falha em vez de emprestar o exemplar duas vezes.
+     */
+    @Test
+    void testDiarioComEmprestimoSemExemplarFalhaNaCarga() throws IOException {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+        Livro livro = new Livro("Memorial de Aires", null, 1908, "Garnier", 1, new ArrayList<>());
+        original.adicionarLivro(livro);
+        Emprestimo primeiro = original.realizarEmprestimo(livro.getIdLivro(), ids[2]);
+        original.encerrar();
+
+        // O segundo empréstimo do único exemplar, seguido da devolução do primeiro.
+        long hoje = primeiro.getDataEmprestimo().toEpochDay();
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        try (DataOutputStream emprestimo = new DataOutputStream(registros)) {
+            emprestimo.writeByte(6);
+            emprestimo.writeInt(primeiro.getIdEmprestimo() + 1);
+            emprestimo.writeInt(livro.getIdLivro());
+            emprestimo.writeInt(ids[2]);
+            emprestimo.writeLong(hoje);
+            emprestimo.writeLong(hoje + 14);
+        }
+        acrescentarRegistro(registros.toByteArray());
+        registros.reset();
+        try (DataOutputStream devolucao = new DataOutputStream(registros)) {
+            devolucao.writeByte(7);
+            devolucao.writeInt(primeiro.getIdEmprestimo());
+            devolucao.writeLong(hoje);
+        }
+        acrescentarRegistro(registros.toByteArray());
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        assertThrows(IllegalStateException.class, recuperado::carregarDados,
+                "Um empréstimo sem exemplar disponível no diário deveria impedir a carga.");
+    }
+
+    /**
+     * Testa o armazenamento mapeado: os registros são lidos do catálogo sob demanda, sempre como o mesmo objeto,
+     * e as alterações posteriores são preservadas ao salvar e ao abrir o arquivo no modo em memória.
+     */
+    @Test
+    void testArmazenamentoMapeadoLeRegistrosSobDemanda() throws IOException {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo, true);
+        original.carregarDados();
+        int[] ids = popular(original);
+        Livro removido = new Livro("Quincas Borba", "978-85-359-0278-8", 1891, "Garnier", 1, new ArrayList<>());
+        original.adicionarLivro(removido);
+        Emprestimo historico = original.realizarEmprestimo(removido.getIdLivro(), ids[2]);
+        original.registrarDevolucao(historico.getIdEmprestimo());
+        original.removerLivro(removido.getIdLivro());
+        Autor semLivros = new Autor("Aluísio Azevedo", "Brasileira");
+        original.adicionarAutor(semLivros);
+        Emprestimo emprestimo = original.realizarEmprestimo(ids[1], ids[2]);
+        original.salvarDados();
+        original.encerrar();
+        byte[] magico = Arrays.copyOf(Files.readAllBytes(Path.of(arquivo)), 4);
+        assertArrayEquals("BIBM".getBytes(StandardCharsets.US_ASCII), magico, "O instantâneo deveria ser gravado como catálogo mapeado.");
+
+        GerenciadorBiblioteca mapeado = new GerenciadorBiblioteca(arquivo, true);
+        mapeado.carregarDados();
+        Livro livro = mapeado.buscarLivroPorId(ids[1]);
+        assertNotNull(livro, "O livro deveria ser lido do catálogo.");
+        assertSame(livro, mapeado.buscarLivroPorId(ids[1]), "Buscas pelo mesmo ID deveriam retornar o mesmo objeto.");
+        assertEquals("Machado de Assis", livro.getAutores().get(0).getNome(), "O autor do livro deveria ser lido do catálogo.");
+        assertEquals(2, livro.getQuantidadeDisponivel(), "A quantidade disponível deveria ser preservada.");
+        assertNull(mapeado.buscarLivroPorId(removido.getIdLivro()), "O livro removido não deveria ser encontrado.");
+        assertEquals(List.of(livro), mapeado.buscarLivros("casmurro machado", 10), "A busca deveria indexar os registros do catálogo.");
+        assertTrue(mapeado.buscarLivros("quincas", 10).isEmpty(), "A busca não deveria encontrar o livro removido.");
+        assertSame(livro, mapeado.buscarLivroPorIsbn("9788535902771"), "A busca por ISBN deveria indexar os registros do catálogo.");
+        assertNull(mapeado.buscarLivroPorIsbn("978-85-359-0278-8"), "A busca por ISBN não deveria encontrar o livro removido.");
+        assertEquals(ids[2], mapeado.buscarUsuarioPorCpf("11111111111").getIdUsuario(), "A busca por CPF deveria indexar os registros do catálogo.");
+        assertEquals(List.of(livro), mapeado.buscarLivrosPorAutor(ids[0]), "As obras do autor deveriam ser lidas do catálogo.");
+        assertEquals(1, mapeado.contarLivros(), "O livro removido não deveria ser contado.");
+        assertEquals(List.of(livro), mapeado.listarLivros(0, 10, Ordenacao.POR_NOME), "A listagem deveria ler os títulos do catálogo.");
+        List<Emprestimo> historicoUsuario = mapeado.historicoPorUsuario(ids[2], 0);
+        assertEquals(2, historicoUsuario.size(), "O histórico deveria incluir o empréstimo ativo e o devolvido.");
+        assertEquals(emprestimo.getIdEmprestimo(), historicoUsuario.get(0).getIdEmprestimo(), "O empréstimo mais recente deveria vir primeiro.");
+        assertEquals(historico.getIdEmprestimo(), historicoUsuario.get(1).getIdEmprestimo(), "O empréstimo devolvido deveria ser lido do catálogo.");
+        assertEquals("Quincas Borba", historicoUsuario.get(1).getLivro().getTitulo(), "O histórico deveria manter o livro removido.");
+        assertFalse(mapeado.removerAutor(ids[0]), "O autor com livros não deveria ser removido.");
+        assertTrue(mapeado.removerAutor(semLivros.getIdAutor()), "O autor sem livros deveria ser removido.");
+        assertNull(mapeado.buscarAutorPorId(semLivros.getIdAutor()), "O autor removido não deveria ser lido do catálogo.");
+
+        List<Emprestimo> ativos = mapeado.listarEmprestimosAtivos();
+        assertEquals(1, ativos.size(), "Deveria haver 1 empréstimo ativo.");
+        assertEquals(emprestimo.getIdEmprestimo(), ativos.get(0).getIdEmprestimo(), "O empréstimo ativo deveria manter seu ID.");
+        assertSame(livro, ativos.get(0).getLivro(), "O empréstimo deveria referenciar o livro do acervo.");
+        assertFalse(mapeado.removerLivro(ids[1]), "O livro com empréstimo ativo não deveria ser removido.");
+
+        assertTrue(mapeado.registrarDevolucao(emprestimo.getIdEmprestimo()), "A devolução deveria ter sucesso.");
+        mapeado.adicionarUsuario(new Usuario("Capitu", "222.222.222-22", "9000-0000", "capitu@email.com"));
+        mapeado.salvarDados();
+        assertEquals(2, mapeado.listarTodosUsuarios().size(), "O usuário incluído deveria ser listado uma única vez após salvar.");
+        mapeado.encerrar();
+
+        GerenciadorBiblioteca emMemoria = new GerenciadorBiblioteca(arquivo);
+        emMemoria.carregarDados();
+        assertEquals(1, emMemoria.listarTodosLivros().size(), "Apenas o livro não removido deveria ser carregado.");
+        assertEquals(2, emMemoria.listarTodosUsuarios().size(), "O usuário incluído no modo mapeado deveria ser carregado.");
+        assertEquals(1, emMemoria.listarTodosAutores().size(), "O autor removido no modo mapeado não deveria ser carregado.");
+        assertTrue(emMemoria.listarEmprestimosAtivos().isEmpty(), "A devolução feita no modo mapeado deveria ser preservada.");
+        assertEquals(3, emMemoria.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "Todos os exemplares deveriam estar disponíveis.");
+        emMemoria.encerrar();
+    }
+
+    /**
+     * Testa a compactação no armazenamento mapeado, com alterações antes e depois da troca de catálogo.
+     */
+    @Test
+    void testCompactarNoArmazenamentoMapeado() throws IOException {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo, true);
+        original.carregarDados();
+        int[] ids = popular(original);
+        original.salvarDados();
+        original.encerrar();
+
+        GerenciadorBiblioteca mapeado = new GerenciadorBiblioteca(arquivo, true);
+        mapeado.carregarDados();
+        mapeado.realizarEmprestimo(ids[1], ids[2]);
+        mapeado.compactar();
+        assertEquals(1, contarDiarios(), "Apenas o diário corrente deveria permanecer.");
+        mapeado.realizarEmprestimo(ids[1], ids[2]);
+        assertEquals(1, mapeado.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "Os empréstimos deveriam usar o mesmo objeto de livro.");
+        mapeado.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo, true);
+        recuperado.carregarDados();
+        assertEquals(2, recuperado.listarEmprestimosAtivos().size(), "Os empréstimos antes e depois da compactação deveriam ser recuperados.");
+        assertEquals(1, recuperado.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "A quantidade disponível deveria ser recuperada.");
+        assertEquals(1, recuperado.listarTodosLivros().size(), "O livro deveria ser listado uma única vez.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Cadastra um autor, um livro com 3 exemplares e um usuário.
+     * @return Os IDs do autor, do livro e do usuário, nessa ordem.
+     */
+    /**
+     * Testa o arquivamento dos empréstimos devolvidos há muito tempo, nos dois modos de armazenamento: eles saem
+     * do instantâneo, continuam no histórico, inclusive após recarregar, e não são arquivados duas vezes.
+     */
+    @Test
+    void testArquivaEmprestimosDevolvidosAntigos() throws IOException {
+        for (boolean mapeado : new boolean[]{false, true}) {
+            String arquivoModo = diretorio.resolve(mapeado ? "mapeado.dat" : "memoria.dat").toString();
+            GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivoModo, mapeado, relogioEm(LocalDate.of(2024, 1, 10)));
+            original.carregarDados();
+            int[] ids = popular(original);
+            Livro removido = new Livro("Quincas Borba", "978-85-359-0278-8", 1891, "Garnier", 1, new ArrayList<>());
+            original.adicionarLivro(removido);
+            original.registrarDevolucao(original.realizarEmprestimo(removido.getIdLivro(), ids[2]).getIdEmprestimo());
+            original.removerLivro(removido.getIdLivro());
+            for (int i = 0; i < 2; i++) {
+                original.registrarDevolucao(original.realizarEmprestimo(ids[1], ids[2]).getIdEmprestimo());
+            }
+            Emprestimo ativo = original.realizarEmprestimo(ids[1], ids[2]);
+            original.salvarDados();
+            original.encerrar();
+
+            GerenciadorBiblioteca depois = new GerenciadorBiblioteca(arquivoModo, mapeado, relogioEm(LocalDate.of(2024, 6, 1)));
+            depois.carregarDados();
+            assertEquals(4, depois.historicoPorUsuario(ids[2], 0).size(), "O histórico deveria ter 4 empréstimos antes do arquivamento.");
+            long tamanhoAntes = Files.size(Path.of(arquivoModo));
+            assertEquals(3, depois.arquivarEmprestimos(30), "Os 3 empréstimos devolvidos deveriam ser arquivados.");
+            assertTrue(Files.size(Path.of(arquivoModo)) < tamanhoAntes, "O instantâneo deveria diminuir.");
+            assertTrue(Files.exists(Path.of(arquivoModo + ".arquivo")), "Os segmentos deveriam ser gravados ao lado do instantâneo.");
+            assertEquals(0, depois.arquivarEmprestimos(30), "Nenhum empréstimo deveria ser arquivado de novo.");
+            assertEquals(4, depois.historicoPorUsuario(ids[2], 0).size(), "Os arquivados deveriam continuar no histórico.");
+            depois.encerrar();
+
+            GerenciadorBiblioteca recarregado = new GerenciadorBiblioteca(arquivoModo, mapeado);
+            recarregado.carregarDados();
+            List<Emprestimo> historico = recarregado.historicoPorUsuario(ids[2], 0);
+            assertEquals(4, historico.size(), "O histórico deveria ler os arquivados após recarregar.");
+            assertEquals(ativo.getIdEmprestimo(), historico.get(0).getIdEmprestimo(), "O empréstimo ativo deveria vir primeiro.");
+            assertEquals(LocalDate.of(2024, 1, 10), historico.get(1).getDataDevolucaoEfetiva(), "As datas deveriam ser preservadas.");
+            assertEquals("Quincas Borba", historico.get(3).getLivro().getTitulo(), "O livro removido deveria manter o título no arquivo.");
+            assertEquals(3, recarregado.historicoPorLivro(ids[1], 0).size(), "O livro deveria ter 3 empréstimos no histórico.");
+            assertEquals(1, recarregado.listarEmprestimosAtivos().size(), "O empréstimo ativo não deveria ser arquivado.");
+            recarregado.encerrar();
+        }
+    }
+
+    /**
+     * Testa que os lotes de empréstimos e devoluções, gravados no diário em um registro cada, são reproduzidos.
+     */
+    @Test
+    void testRecuperaLotesDoDiario() {
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo);
+        original.carregarDados();
+        int[] ids = popular(original);
+        List<ResultadoLote> emprestimos = original.realizarEmprestimosEmLote(
+                new int[] {ids[1], ids[1], ids[1]}, new int[] {ids[2], ids[2], ids[2]});
+        original.registrarDevolucoesEmLote(new int[] {emprestimos.get(0).getEmprestimo().getIdEmprestimo()});
+        original.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        List<Emprestimo> ativos = recuperado.listarEmprestimosAtivos();
+        assertEquals(2, ativos.size(), "Deveriam ser recuperados os 2 empréstimos não devolvidos.");
+        assertEquals(1, recuperado.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "Deveria restar 1 exemplar disponível.");
+        assertEquals(3, recuperado.historicoPorUsuario(ids[2], 0).size(), "O histórico deveria incluir todo o lote.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que as filas de reserva são recuperadas nos dois modos de armazenamento: do instantâneo, com a ordem da
+     * fila, e do diário, inclusive a entrega do exemplar devolvido e a expiração das reservas.
+     */
+    @Test
+    void testRecuperaReservas() {
+        LocalDate dia = LocalDate.of(2024, 3, 1);
+        for (boolean mapeado : new boolean[]{false, true}) {
+            String arquivoModo = diretorio.resolve(mapeado ? "reservas-mapeado.dat" : "reservas-memoria.dat").toString();
+            GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivoModo, mapeado, relogioEm(dia));
+            original.carregarDados();
+            int[] ids = popular(original);
+            Usuario primeiro = new Usuario("Capitu", "222.222.222-22", "9000-0000", "capitu@email.com");
+            Usuario segundo = new Usuario("Escobar", "333.333.333-33", "9000-0001", "escobar@email.com");
+            original.adicionarUsuario(primeiro);
+            original.adicionarUsuario(segundo);
+            List<ResultadoLote> emprestimos = original.realizarEmprestimosEmLote(
+                    new int[] {ids[1], ids[1], ids[1]}, new int[] {ids[2], ids[2], ids[2]});
+            original.reservarLivro(ids[1], primeiro.getIdUsuario());
+            original.reservarLivro(ids[1], segundo.getIdUsuario());
+            original.salvarDados();
+            original.registrarDevolucao(emprestimos.get(0).getEmprestimo().getIdEmprestimo());
+            original.encerrar();
+
+            GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivoModo, mapeado, relogioEm(dia.plusDays(10)));
+            recuperado.carregarDados();
+            List<Reserva> reservas = recuperado.listarReservas(ids[1]);
+            assertEquals(2, reservas.size(), "As 2 reservas deveriam ser recuperadas.");
+            assertEquals(primeiro.getIdUsuario(), reservas.get(0).getUsuario().getIdUsuario(), "A devolução do diário deveria atender a primeira reserva.");
+            assertEquals(dia.plusDays(Reserva.PRAZO_RETIRADA_DIAS), reservas.get(0).getPrazoRetirada());
+            assertEquals(Reserva.Situacao.AGUARDANDO, reservas.get(1).getSituacao(), "A segunda reserva deveria continuar na fila.");
+            assertEquals(0, recuperado.buscarLivroPorId(ids[1]).getQuantidadeDisponivel(), "O exemplar separado não deveria ficar disponível.");
+            recuperado.salvarDados();
+            assertEquals(1, recuperado.verificarReservas().size(), "A reserva não retirada deveria expirar.");
+            recuperado.encerrar();
+
+            GerenciadorBiblioteca novamente = new GerenciadorBiblioteca(arquivoModo, mapeado, relogioEm(dia.plusDays(10)));
+            novamente.carregarDados();
+            reservas = novamente.listarReservas(ids[1]);
+            assertEquals(1, reservas.size(), "A reserva expirada não deveria voltar.");
+            assertEquals(segundo.getIdUsuario(), reservas.get(0).getUsuario().getIdUsuario());
+            assertEquals(dia.plusDays(10 + Reserva.PRAZO_RETIRADA_DIAS), reservas.get(0).getPrazoRetirada(),
+                    "O exemplar deveria passar para a segunda reserva na data da expiração.");
+            assertNotNull(novamente.realizarEmprestimo(ids[1], segundo.getIdUsuario()), "A segunda reserva deveria ser retirada.");
+            novamente.encerrar();
+        }
+    }
+
+    /**
+     * Testa que a reprodução da remoção de um usuário passa o exemplar separado para ele à próxima reserva com o
+     * prazo contado da data da remoção, e não da recuperação, e sem avisar os ouvintes de novo.
+     */
+    @Test
+    void testRemocaoDeUsuarioReproduzidaNaDataGravada() {
+        LocalDate dia = LocalDate.of(2024, 3, 1);
+        GerenciadorBiblioteca original = new GerenciadorBiblioteca(arquivo, false, relogioEm(dia));
+        original.carregarDados();
+        int[] ids = popular(original);
+        Usuario primeiro = new Usuario("Capitu", "222.222.222-22", "9000-0000", "capitu@email.com");
+        Usuario segundo = new Usuario("Escobar", "333.333.333-33", "9000-0001", "escobar@email.com");
+        original.adicionarUsuario(primeiro);
+        original.adicionarUsuario(segundo);
+        List<ResultadoLote> emprestimos = original.realizarEmprestimosEmLote(
+                new int[] {ids[1], ids[1], ids[1]}, new int[] {ids[2], ids[2], ids[2]});
+        original.reservarLivro(ids[1], primeiro.getIdUsuario());
+        original.reservarLivro(ids[1], segundo.getIdUsuario());
+        original.registrarDevolucao(emprestimos.get(0).getEmprestimo().getIdEmprestimo());
+        assertTrue(original.removerUsuario(primeiro.getIdUsuario()));
+        original.encerrar();
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo, false, relogioEm(dia.plusDays(10)));
+        List<Reserva> avisadas = new ArrayList<>();
+        recuperado.adicionarOuvinteReservas(new OuvinteReservas() {
+            @Override
+            public void reservaDisponivel(Reserva reserva) {
+                avisadas.add(reserva);
+            }
+
+            @Override
+            public void reservaExpirada(Reserva reserva) {
+                avisadas.add(reserva);
+            }
+        });
+        recuperado.carregarDados();
+        List<Reserva> reservas = recuperado.listarReservas(ids[1]);
+        assertEquals(1, reservas.size());
+        assertEquals(segundo.getIdUsuario(), reservas.get(0).getUsuario().getIdUsuario());
+        assertEquals(dia.plusDays(Reserva.PRAZO_RETIRADA_DIAS), reservas.get(0).getPrazoRetirada(),
+                "O prazo deveria contar da data da remoção.");
+        assertTrue(avisadas.isEmpty(), "A reprodução não deveria avisar os ouvintes de reservas.");
+        recuperado.encerrar();
+    }
+
+    private int[] popular(GerenciadorBiblioteca g) {
+        Autor autor = new Autor("Machado de Assis", "Brasileira");
+        g.adicionarAutor(autor);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        Livro livro = new Livro("Dom Casmurro", "978-85-359-0277-1", 1899, "Garnier", 3, autores);
+        g.adicionarLivro(livro);
+        Usuario usuario = new Usuario("Bento Santiago", "111.111.111-11", "9999-0000", "bentinho@email.com");
+        g.adicionarUsuario(usuario);
+        return new int[]{autor.getIdAutor(), livro.getIdLivro(), usuario.getIdUsuario()};
+    }
+
+    private void acrescentarRegistro(byte[] conteudo) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(conteudo);
+        ByteBuffer registro = ByteBuffer.allocate(8 + conteudo.length);
+        registro.putInt(conteudo.length).putInt((int) crc.getValue()).put(conteudo);
+        Files.write(primeiroDiario(), registro.array(), StandardOpenOption.APPEND);
+    }
+
+    private static Clock relogioEm(LocalDate data) {
+        return Clock.fixed(data.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    }
+
+    private int contarDiarios() throws IOException {
+        int quantidade = 0;
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*.diario")) {
+            for (Path ignorado : arquivos) {
+                quantidade++;
+            }
+        }
+        return quantidade;
+    }
+
+    private Path primeiroDiario() throws IOException {
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*.diario")) {
+            return arquivos.iterator().next();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package test.java.entities;
+
+import entities.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe de testes JUnit para a RedeBibliotecas, com três filiais no mesmo processo, cada uma com seu arquivo de
+ * dados em um diretório temporário.
+ */
+public class RedeBibliotecasTest {
+
+    @TempDir
+    Path diretorio;
+
+    private List<String> arquivos;
+    private RedeBibliotecas rede;
+    private final Livro[] livros = new Livro[3];
+    private final Usuario[] usuarios = new Usuario[3];
+
+    /**
+     * Cria a rede e cadastra, em cada filial, um autor, um livro de um único exemplar e um usuário.
+     */
+    @BeforeEach
+    void setUp() {
+        arquivos = List.of(diretorio.resolve("centro.dat").toString(), diretorio.resolve("norte.dat").toString(),
+                diretorio.resolve("sul.dat").toString());
+        rede = new RedeBibliotecas(arquivos);
+        rede.carregarDados();
+
+        String[] titulos = {"Vidas Secas", "Capitães da Areia", "Angústia"};
+        String[] nomes = {"Fabiano", "Pedro Bala", "Luís da Silva"};
+        for (int i = 0; i < 3; i++) {
+            Autor autor = new Autor("Autor " + i, "Brasileira");
+            rede.adicionarAutor(i, autor);
+            ArrayList<Autor> autores = new ArrayList<>();
+            autores.add(autor);
+            livros[i] = new Livro(titulos[i], "978-85-0000-00" + i + "-0", 1938, "José Olympio", 1, autores);
+            assertTrue(rede.adicionarLivro(i, livros[i]));
+            usuarios[i] = new Usuario(nomes[i], i + "00.000.000-00", "9000-000" + i, "leitor" + i + "@email.com");
+            assertTrue(rede.adicionarUsuario(i, usuarios[i]));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (rede != null) {
+            rede.encerrar();
+        }
+    }
+
+    /**
+     * Testa que cada registro pertence à filial em que foi cadastrado, gravada no seu ID, que um livro só aceita
+     * autores da própria filial e que um empréstimo entre filiais é feito na filial do livro, em nome de uma cópia
+     * do usuário com o mesmo ID.
+     */
+    @Test
+    void testEmprestimoEntreFiliaisUsaCopiaDoUsuarioComOMesmoId() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, rede.filialDoLivro(livros[i].getIdLivro()), "O livro deveria pertencer à filial do cadastro.");
+            assertEquals(i, rede.filialDoUsuario(usuarios[i].getIdUsuario()), "O usuário deveria pertencer à filial do cadastro.");
+        }
+        assertEquals(-1, rede.filialDoLivro(Integer.MAX_VALUE), "Um ID fora das filiais não deveria ter filial.");
+        Livro semAutorLocal = new Livro("São Bernardo", null, 1934, "Ariel", 1, new ArrayList<>(livros[0].getAutores()));
+        assertThrows(IllegalArgumentException.class, () -> rede.adicionarLivro(1, semAutorLocal),
+                "Um livro deveria exigir autores da própria filial.");
+
+        Emprestimo emprestimo = rede.realizarEmprestimo(livros[1].getIdLivro(), usuarios[0].getIdUsuario());
+        assertNotNull(emprestimo, "O usuário de outra filial deveria conseguir emprestar o livro.");
+        Usuario copia = emprestimo.getUsuario();
+        assertEquals(usuarios[0].getIdUsuario(), copia.getIdUsuario(), "A cópia deveria ter o ID do cadastro de origem.");
+        assertEquals(1, rede.getFilial(1).listarEmprestimosAtivos().size(), "O empréstimo deveria ficar na filial do livro.");
+        assertTrue(rede.getFilial(0).listarEmprestimosAtivos().isEmpty(), "A filial do usuário não deveria ter o empréstimo.");
+        assertEquals(0, livros[1].getQuantidadeDisponivel());
+
+        assertTrue(rede.registrarDevolucao(emprestimo.getIdEmprestimo()));
+        Emprestimo outro = rede.realizarEmprestimo(livros[1].getIdLivro(), usuarios[0].getIdUsuario());
+        assertSame(copia, outro.getUsuario(), "A cópia deveria ser reaproveitada nos empréstimos seguintes.");
+        assertEquals(3, rede.contarUsuarios(), "A cópia não deveria ser contada como outro usuário da rede.");
+        assertEquals(2, rede.getFilial(1).contarUsuarios(), "A filial do livro deveria ter a cópia.");
+        assertEquals(List.of(outro), rede.listarEmprestimosAtivos());
+        assertEquals(List.of(outro, emprestimo), rede.historicoPorUsuario(usuarios[0].getIdUsuario(), 0),
+                "O histórico do usuário deveria ter os empréstimos da filial do livro.");
+    }
+
+    /**
+     * Testa que as alterações no cadastro de origem chegam à cópia e que o usuário só é removido, junto com a
+     * cópia, quando não tem empréstimos em nenhuma filial. Um usuário sem CPF também empresta de outra filial.
+     */
+    @Test
+    void testCopiaAcompanhaCadastroDeOrigem() {
+        Usuario semCpf = new Usuario("Sinhá Vitória", null, null, "vitoria@email.com");
+        assertTrue(rede.adicionarUsuario(2, semCpf));
+        Emprestimo emprestimo = rede.realizarEmprestimo(livros[0].getIdLivro(), semCpf.getIdUsuario());
+        assertNotNull(emprestimo, "Um usuário sem CPF deveria emprestar livros de outra filial.");
+
+        semCpf.setNome("Vitória");
+        semCpf.setEmail("sinha.vitoria@email.com");
+        Usuario copia = rede.getFilial(0).buscarUsuarioPorId(semCpf.getIdUsuario());
+        assertEquals("Vitória", copia.getNome(), "O nome alterado deveria chegar à cópia.");
+        assertEquals("sinha.vitoria@email.com", copia.getEmail(), "O e-mail alterado deveria chegar à cópia.");
+        assertSame(copia, rede.getFilial(0).buscarUsuarioPorEmail("sinha.vitoria@email.com"),
+                "A cópia deveria ser encontrada pelo novo e-mail.");
+
+        assertFalse(rede.removerUsuario(semCpf.getIdUsuario()), "O usuário com empréstimo em outra filial não deveria ser removido.");
+        assertNotNull(rede.buscarUsuarioPorId(semCpf.getIdUsuario()));
+        assertTrue(rede.registrarDevolucao(emprestimo.getIdEmprestimo()));
+        assertTrue(rede.removerUsuario(semCpf.getIdUsuario()));
+        assertNull(rede.buscarUsuarioPorId(semCpf.getIdUsuario()));
+        assertNull(rede.getFilial(0).buscarUsuarioPorId(semCpf.getIdUsuario()), "A cópia deveria ser removida junto.");
+        assertEquals(List.of(emprestimo), rede.historicoPorUsuario(semCpf.getIdUsuario(), 0),
+                "O histórico deveria continuar com o empréstimo.");
+    }
+
+    /**
+     * Testa que as listagens paginadas intercalam as filiais na mesma ordem que uma única filial usaria e que a
+     * busca encontra livros de todas as filiais.
+     */
+    @Test
+    void testListagemEBuscaEmTodasAsFiliais() {
+        assertEquals(3, rede.contarLivros());
+        List<Livro> porNome = new ArrayList<>(rede.listarLivros(0, 2, Ordenacao.POR_NOME));
+        porNome.addAll(rede.listarLivros(2, 2, Ordenacao.POR_NOME));
+        assertEquals(List.of(livros[2], livros[1], livros[0]), porNome,
+                "As páginas deveriam seguir a ordem do título, sem acentos, em todas as filiais.");
+        assertEquals(List.of(livros[1], livros[2]), rede.listarLivros(1, 5, Ordenacao.POR_ID),
+                "A página por ID deveria seguir a ordem dos IDs.");
+        assertTrue(rede.listarLivros(3, 5, Ordenacao.POR_ID).isEmpty(), "Depois do último livro a página deveria ser vazia.");
+        assertEquals(List.of(usuarios[0], usuarios[2], usuarios[1]), rede.listarUsuarios(0, 3, Ordenacao.POR_NOME));
+
+        assertEquals(List.of(livros[1]), rede.buscarLivros("capitaes areia", 10), "A busca deveria ignorar os acentos.");
+        assertEquals(3, rede.buscarLivros("autor", 10).size(), "A busca pelo autor deveria encontrar os livros das três filiais.");
+        assertEquals(2, rede.buscarLivros("autor", 2).size(), "A busca deveria respeitar o limite.");
+        assertSame(livros[2], rede.buscarLivroPorIsbn(livros[2].getIsbn()));
+        assertNull(rede.buscarLivroPorIsbn("000"));
+    }
+
+    /**
+     * Testa que cada filial recupera os seus dados do próprio arquivo e que uma devolução feita depois de recarregar
+     * a rede é encaminhada à filial gravada no ID do empréstimo.
+     */
+    @Test
+    void testRecarregaFiliaisDosPropriosArquivos() {
+        Emprestimo emprestimo = rede.realizarEmprestimo(livros[2].getIdLivro(), usuarios[1].getIdUsuario());
+        rede.salvarDados();
+        rede.encerrar();
+
+        rede = new RedeBibliotecas(arquivos);
+        rede.carregarDados();
+        assertEquals(3, rede.contarLivros());
+        assertEquals(2, rede.filialDoLivro(livros[2].getIdLivro()), "O livro deveria continuar na sua filial.");
+        assertEquals(2, rede.getFilial(2).contarUsuarios(), "A filial do livro deveria manter a cópia do usuário.");
+        assertEquals(3, rede.contarUsuarios());
+        assertEquals(0, rede.buscarLivroPorId(livros[2].getIdLivro()).getQuantidadeDisponivel());
+        assertTrue(rede.registrarDevolucao(emprestimo.getIdEmprestimo()), "A devolução deveria ser encontrada na filial do empréstimo.");
+        assertFalse(rede.registrarDevolucao(emprestimo.getIdEmprestimo()), "Um empréstimo encerrado não deveria ser devolvido de novo.");
+        assertEquals(1, rede.buscarLivroPorId(livros[2].getIdLivro()).getQuantidadeDisponivel());
+    }
+}
\ No newline at end of file
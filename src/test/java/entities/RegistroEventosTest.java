@@ -0,0 +1,175 @@
+package test.java.entities;
+
+import entities.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe de testes JUnit para o RegistroEventos: a leitura dos diários como eventos de domínio, a retenção dos
+ * diários incorporados a instantâneos e a reprodução em paralelo por agregado.
+ */
+public class RegistroEventosTest {
+
+    @TempDir
+    Path diretorio;
+
+    /**
+     * Testa que, com o histórico mantido, os eventos atravessam instantâneos e compactações na ordem em que
+     * aconteceram, distinguindo inclusões de alterações, e que a recuperação do gerenciador não é afetada.
+     */
+    @Test
+    void testHistoricoMantidoAtravessaInstantaneos() throws Exception {
+        String arquivo = diretorio.resolve("dados.dat").toString();
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(arquivo);
+        gerenciador.manterHistoricoDeEventos(true);
+        gerenciador.carregarDados();
+        Autor autor = new Autor("Lima Barreto", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        Livro livro = new Livro("Triste Fim", "978-85-7232-777-8", 1915, "Revista dos Tribunais", 2, autores);
+        gerenciador.adicionarLivro(livro);
+        Usuario usuario = new Usuario("Policarpo", "123.123.123-12", "9123-0000", "policarpo@email.com");
+        gerenciador.adicionarUsuario(usuario);
+        livro.setTitulo("Triste Fim de Policarpo Quaresma");
+        Emprestimo emprestimo = gerenciador.realizarEmprestimo(livro.getIdLivro(), usuario.getIdUsuario());
+        gerenciador.salvarDados();
+        gerenciador.registrarDevolucao(emprestimo.getIdEmprestimo());
+        gerenciador.compactar();
+        assertTrue(gerenciador.removerUsuario(usuario.getIdUsuario()));
+        gerenciador.encerrar();
+
+        try (var arquivos = Files.list(diretorio)) {
+            assertEquals(2, arquivos.filter(p -> p.toString().endsWith(".eventos")).count(),
+                    "Os dois diários incorporados deveriam ser mantidos.");
+        }
+        List<EventoBiblioteca> eventos = new ArrayList<>();
+        new RegistroEventos(arquivo).reproduzir(eventos::add);
+        List<EventoBiblioteca.Tipo> tipos = new ArrayList<>();
+        for (EventoBiblioteca evento : eventos) {
+            tipos.add(evento.getTipo());
+        }
+        assertEquals(List.of(EventoBiblioteca.Tipo.AUTOR_ADICIONADO, EventoBiblioteca.Tipo.LIVRO_ADICIONADO,
+                EventoBiblioteca.Tipo.USUARIO_ADICIONADO, EventoBiblioteca.Tipo.LIVRO_ALTERADO,
+                EventoBiblioteca.Tipo.EMPRESTIMO_ABERTO, EventoBiblioteca.Tipo.EMPRESTIMO_ENCERRADO,
+                EventoBiblioteca.Tipo.USUARIO_REMOVIDO), tipos, "Os eventos deveriam seguir a ordem das operações.");
+        EventoBiblioteca.LivroSalvo alterado = (EventoBiblioteca.LivroSalvo) eventos.get(3);
+        assertEquals("Triste Fim de Policarpo Quaresma", alterado.getTitulo(), "A alteração deveria trazer o novo título.");
+        EventoBiblioteca.EmprestimoAberto aberto = (EventoBiblioteca.EmprestimoAberto) eventos.get(4);
+        assertEquals(livro.getIdLivro(), aberto.getIdLivro());
+        assertEquals(emprestimo.getIdEmprestimo(), eventos.get(5).getIdAgregado(),
+                "A devolução deveria pertencer ao agregado do empréstimo.");
+
+        GerenciadorBiblioteca recuperado = new GerenciadorBiblioteca(arquivo);
+        recuperado.carregarDados();
+        assertEquals("Triste Fim de Policarpo Quaresma", recuperado.buscarLivroPorId(livro.getIdLivro()).getTitulo());
+        assertNull(recuperado.buscarUsuarioPorId(usuario.getIdUsuario()), "A remoção deveria ser recuperada.");
+        recuperado.encerrar();
+    }
+
+    /**
+     * Testa que, sem manter o histórico, o registro contém apenas os eventos posteriores ao último instantâneo.
+     */
+    @Test
+    void testSemHistoricoRestamEventosDoDiarioCorrente() throws Exception {
+        String arquivo = diretorio.resolve("dados.dat").toString();
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(arquivo);
+        gerenciador.carregarDados();
+        gerenciador.adicionarAutor(new Autor("Euclides da Cunha", "Brasileira"));
+        gerenciador.salvarDados();
+        Autor autor = new Autor("Graça Aranha", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+        gerenciador.encerrar();
+
+        List<EventoBiblioteca> eventos = new ArrayList<>();
+        new RegistroEventos(arquivo).reproduzir(eventos::add);
+        assertEquals(1, eventos.size(), "Apenas o diário posterior ao instantâneo deveria restar.");
+        assertEquals("Graça Aranha", ((EventoBiblioteca.AutorSalvo) eventos.get(0)).getNome());
+    }
+
+    /**
+     * Testa que a reprodução em paralelo entrega os eventos de cada agregado em ordem e que a combinação das
+     * projeções das partições é igual à projeção da reprodução sequencial.
+     */
+    @Test
+    void testReproducaoEmParaleloEquivaleASequencial() throws Exception {
+        String arquivo = diretorio.resolve("dados.dat").toString();
+        GerenciadorBiblioteca gerenciador = new GerenciadorBiblioteca(arquivo);
+        gerenciador.carregarDados();
+        Autor autor = new Autor("Raul Pompeia", "Brasileira");
+        gerenciador.adicionarAutor(autor);
+        ArrayList<Autor> autores = new ArrayList<>();
+        autores.add(autor);
+        int[] idsLivros = new int[20];
+        int[] idsUsuarios = new int[20];
+        for (int i = 0; i < 20; i++) {
+            Livro livro = new Livro("O Ateneu " + i, null, 1888, "Gazeta", 3, autores);
+            gerenciador.adicionarLivro(livro);
+            idsLivros[i] = livro.getIdLivro();
+            Usuario usuario = new Usuario("Sérgio " + i, "321.321.321-" + i, "9321-0000", "sergio" + i + "@email.com");
+            gerenciador.adicionarUsuario(usuario);
+            idsUsuarios[i] = usuario.getIdUsuario();
+        }
+        for (int rodada = 0; rodada < 5; rodada++) {
+            List<Integer> abertos = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Emprestimo emprestimo = gerenciador.realizarEmprestimo(idsLivros[(i + rodada) % 20], idsUsuarios[i]);
+                if (emprestimo != null) {
+                    abertos.add(emprestimo.getIdEmprestimo());
+                }
+            }
+            int[] devolver = abertos.stream().filter(id -> id % 2 == 0).mapToInt(Integer::intValue).toArray();
+            gerenciador.registrarDevolucoesEmLote(devolver);
+        }
+        gerenciador.encerrar();
+
+        RegistroEventos registro = new RegistroEventos(arquivo);
+        ProjecaoEmprestimos sequencial = new ProjecaoEmprestimos();
+        registro.reproduzir(sequencial);
+        ProjecaoEmprestimos paralela = ProjecaoEmprestimos.combinar(registro.reproduzirEmParalelo(4, ProjecaoEmprestimos::new));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(sequencial.getEmprestimosDoLivro(idsLivros[i]), paralela.getEmprestimosDoLivro(idsLivros[i]));
+            assertEquals(5, paralela.getEmprestimosDoUsuario(idsUsuarios[i]), "Cada usuário fez um empréstimo por rodada.");
+        }
+        assertEquals(idsAbertos(sequencial), idsAbertos(paralela), "Os empréstimos em aberto deveriam ser os mesmos.");
+        assertEquals(gerenciador.listarEmprestimosAtivos().size(), paralela.getEmprestimosAbertos().size());
+
+        for (OrdemPorAgregado ordem : registro.reproduzirEmParalelo(3, OrdemPorAgregado::new)) {
+            assertTrue(ordem.emOrdem, "Os eventos de cada agregado deveriam chegar na ordem do diário.");
+        }
+        assertThrows(IllegalStateException.class, () -> registro.reproduzirEmParalelo(2, () -> evento -> {
+            throw new IllegalStateException("falha na projeção");
+        }), "A exceção de uma projeção deveria chegar a quem chamou.");
+    }
+
+    private static List<Integer> idsAbertos(ProjecaoEmprestimos projecao) {
+        List<Integer> ids = new ArrayList<>();
+        for (EventoBiblioteca.EmprestimoAberto aberto : projecao.getEmprestimosAbertos()) {
+            ids.add(aberto.getIdEmprestimo());
+        }
+        return ids;
+    }
+
+    private static final class OrdemPorAgregado implements ProjecaoEventos {
+        private final Map<String, Long> ultimaPosicao = new HashMap<>();
+        boolean emOrdem = true;
+
+        @Override
+        public void aplicar(EventoBiblioteca evento) {
+            String chave = evento.getTipo().getAgregado() + ":" + evento.getIdAgregado();
+            long posicao = (evento.getGeracao() << 40) + evento.getPosicao();
+            Long anterior = ultimaPosicao.put(chave, posicao);
+            if (anterior != null && anterior > posicao) {
+                emOrdem = false;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package test.java.entities;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Relógio cuja data o teste avança manualmente, para os testes de prazos de devolução e de retirada.
+ */
+final class RelogioAjustavel extends Clock {
+    private volatile Instant agora;
+
+    RelogioAjustavel(LocalDate data) {
+        agora = data.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    void avancar(int dias) {
+        agora = agora.plusSeconds(dias * 86_400L);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zona) {
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return agora;
+    }
+}